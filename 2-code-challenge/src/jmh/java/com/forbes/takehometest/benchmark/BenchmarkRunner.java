@@ -0,0 +1,46 @@
+package com.forbes.takehometest.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the benchmarks with JMH's usual command line options (eg a benchmark name pattern, or `-p engine=dawg,symspell`
+ * to only compare some index engines). Run it with `./gradlew jmh --args="..."`.
+ *
+ * Unlike JMH's own main class, the GC profiler is always added, so the allocation rate (`gc.alloc.rate`) and the bytes
+ * allocated per operation (`gc.alloc.rate.norm`) are reported alongside each time. Unless another result file is
+ * given, the results are also written to build/reports/jmh/results.json, so runs can be compared afterwards.
+ */
+public class BenchmarkRunner {
+	private static final Path RESULT_FILE = Path.of("build", "reports", "jmh", "results.json");
+
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+		var commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+		var options = new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class);
+		if (!commandLineOptions.getResult().hasValue()) {
+			Files.createDirectories(RESULT_FILE.getParent());
+			options.resultFormat(ResultFormatType.JSON).result(RESULT_FILE.toString());
+		}
+		var runner = new Runner(options.build());
+		if (commandLineOptions.shouldList()) {
+			runner.list();
+		} else if (commandLineOptions.shouldListWithParams()) {
+			runner.listWithParams(commandLineOptions);
+		} else {
+			runner.run();
+		}
+	}
+}
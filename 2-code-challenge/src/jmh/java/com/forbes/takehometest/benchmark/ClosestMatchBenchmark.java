@@ -0,0 +1,58 @@
+package com.forbes.takehometest.benchmark;
+
+import com.forbes.takehometest.triedb.MatchCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the closest match of a misspelled word (`ITrieDao.findClosestMatchesFor`), the way the dictionary
+ * service looks up a correction. The misspelled words are dictionary words of the given length with the given number
+ * of random edits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ClosestMatchBenchmark {
+	private static final int NUM_WORDS = 1024;
+
+	@Param({"4", "7", "10"})
+	public int wordLength;
+
+	@Param({"0", "1", "2"})
+	public int errors;
+
+	private String[] misspelledWords;
+	private int next;
+
+	@Setup
+	public void misspellWords(IndexState state) {
+		var random = new Random(2);
+		var wordsOfLength = state.words.stream().filter(word -> word.length() == wordLength).toList();
+		misspelledWords = GeneratedWords.sample(wordsOfLength, NUM_WORDS, random).stream()
+				.map(word -> GeneratedWords.misspell(word, errors, random))
+				.toArray(String[]::new);
+	}
+
+	@Benchmark
+	public List<String> findClosestMatch(IndexState state) {
+		var matches = new MatchCollector(1, word -> 0L);
+		state.index.findClosestMatchesFor(misspelledWords[next++ & (NUM_WORDS - 1)], matches);
+		return matches.getMatches();
+	}
+}
@@ -0,0 +1,135 @@
+package com.forbes.takehometest.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates the dictionaries and words used by the benchmarks. Words are random lower-case letters, between 3 and 10
+ * letters long (like the dictionaries measured in the README). Everything is generated from fixed seeds, so every run
+ * and every index engine is measured against the same words.
+ */
+final class GeneratedWords {
+	static final int MIN_LENGTH = 3;
+	static final int MAX_LENGTH = 10;
+	private static final long DICTIONARY_SEED = 42;
+	private static final String[] PUNCTUATION = {"%s,", "%s.", "\"%s\"", "(%s)", "%s's", "%s!?"};
+
+	private GeneratedWords() {}
+
+	/**
+	 * Returns the given number of distinct words, sorted.
+	 */
+	static List<String> dictionary(int size) {
+		var random = new Random(DICTIONARY_SEED);
+		var words = new TreeSet<String>();
+		while (words.size() < size) {
+			words.add(randomWord(random, randomLength(random)));
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * Returns the given number of distinct words that are not in the given (sorted) dictionary, eg to add to it.
+	 */
+	static List<String> newWords(List<String> dictionary, int count, Random random) {
+		var words = new LinkedHashSet<String>();
+		while (words.size() < count) {
+			var word = randomWord(random, randomLength(random));
+			if (Collections.binarySearch(dictionary, word) < 0) {
+				words.add(word);
+			}
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * Returns the given number of dictionary words picked at random (possibly more than once).
+	 */
+	static List<String> sample(List<String> dictionary, int count, Random random) {
+		var words = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			words.add(dictionary.get(random.nextInt(dictionary.size())));
+		}
+		return words;
+	}
+
+	/**
+	 * Returns the given number of distinct dictionary words picked at random.
+	 */
+	static List<String> distinctSample(List<String> dictionary, int count, Random random) {
+		var words = new LinkedHashSet<String>();
+		while (words.size() < count) {
+			words.add(dictionary.get(random.nextInt(dictionary.size())));
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * Returns a story with the given number of words, separated by spaces. The words are drawn from a vocabulary of (up
+	 * to) 5000 dictionary words, some much more often than others, so that words repeat like in real text. About one
+	 * word in 10 is misspelled, one in 10 is capitalized and one in 10 has punctuation around it.
+	 */
+	static String story(List<String> dictionary, int numWords, Random random) {
+		var vocabulary = distinctSample(dictionary, Math.min(dictionary.size(), 5000), random);
+		var story = new StringBuilder();
+		for (int i = 0; i < numWords; i++) {
+			var word = vocabulary.get((int) (Math.pow(random.nextDouble(), 3) * vocabulary.size()));
+			if (random.nextInt(10) == 0) {
+				word = misspell(word, 1 + random.nextInt(2), random);
+			}
+			if (random.nextInt(10) == 0) {
+				word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+			}
+			if (random.nextInt(10) == 0) {
+				word = PUNCTUATION[random.nextInt(PUNCTUATION.length)].formatted(word);
+			}
+			if (i > 0) {
+				story.append(' ');
+			}
+			story.append(word);
+		}
+		return story.toString();
+	}
+
+	/**
+	 * Returns a copy of the given word with the given number of random edits, each replacing, inserting or deleting a
+	 * letter. Edits can undo each other (or turn the word into another dictionary word), so the result is at most that
+	 * many errors away from the word.
+	 */
+	static String misspell(String word, int errors, Random random) {
+		var misspelled = new StringBuilder(word);
+		for (int i = 0; i < errors; i++) {
+			var position = random.nextInt(misspelled.length());
+			switch (misspelled.length() > 1 ? random.nextInt(3) : random.nextInt(2)) {
+				case 0 -> misspelled.setCharAt(position, otherLetter(misspelled.charAt(position), random));
+				case 1 -> misspelled.insert(position, randomLetter(random));
+				default -> misspelled.deleteCharAt(position);
+			}
+		}
+		return misspelled.toString();
+	}
+
+	static String randomWord(Random random, int length) {
+		var word = new char[length];
+		for (int i = 0; i < length; i++) {
+			word[i] = randomLetter(random);
+		}
+		return new String(word);
+	}
+
+	private static int randomLength(Random random) {
+		return MIN_LENGTH + random.nextInt(MAX_LENGTH - MIN_LENGTH + 1);
+	}
+
+	private static char randomLetter(Random random) {
+		return (char) ('a' + random.nextInt(26));
+	}
+
+	private static char otherLetter(char letter, Random random) {
+		return (char) ('a' + (letter - 'a' + 1 + random.nextInt(25)) % 26);
+	}
+}
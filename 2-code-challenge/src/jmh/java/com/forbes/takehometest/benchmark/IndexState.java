@@ -0,0 +1,55 @@
+package com.forbes.takehometest.benchmark;
+
+import com.forbes.takehometest.configuration.CorrectorConfiguration;
+import com.forbes.takehometest.interfaces.ITrieDao;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An index engine (as picked by `corrector.index.engine`) loaded with a generated dictionary, shared by the threads of
+ * a benchmark. The engine is created by {@link CorrectorConfiguration}, with the default symspell and trie settings, so
+ * the benchmarks measure exactly what the app would run with.
+ *
+ * The wildcard `trie` engine grows exponentially with word length (a 100k word dictionary takes about 2 GB), so it is
+ * only benchmarked with up to {@link #MAX_TRIE_WORDS} words. Larger dictionaries fail the benchmark's setup, and JMH
+ * moves on to the next one.
+ */
+@State(Scope.Benchmark)
+public class IndexState {
+	static final int MAX_TRIE_WORDS = 100_000;
+
+	@Param({"trie", "plain-trie", "dawg", "off-heap-dawg", "symspell"})
+	public String engine;
+
+	@Param({"1000", "100000", "1000000"})
+	public int dictionarySize;
+
+	ITrieDao index;
+	List<String> words;
+	private ExecutorService trieCompactionExecutor;
+
+	@Setup(Level.Trial)
+	public void loadIndex() {
+		if (engine.equals("trie") && dictionarySize > MAX_TRIE_WORDS) {
+			throw new IllegalArgumentException("The trie engine is only benchmarked with up to " + MAX_TRIE_WORDS
+					+ " words (it would need about " + dictionarySize / 50_000 + " GB for " + dictionarySize + ")");
+		}
+		words = GeneratedWords.dictionary(dictionarySize);
+		var configuration = new CorrectorConfiguration();
+		trieCompactionExecutor = configuration.trieCompactionExecutor();
+		index = configuration.trieDao(engine, 2, 7, 0.2, trieCompactionExecutor);
+		index.loadWords(words);
+	}
+
+	@TearDown(Level.Trial)
+	public void shutDown() {
+		trieCompactionExecutor.shutdown();
+	}
+}
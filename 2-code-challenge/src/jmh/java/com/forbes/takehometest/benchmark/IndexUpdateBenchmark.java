@@ -0,0 +1,90 @@
+package com.forbes.takehometest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding and deleting single words (`ITrieDao.addWord`/`removeWord`).
+ *
+ * Both change the dictionary, so they can't simply be repeated until the time is up like the lookups. Instead, each
+ * iteration adds (or deletes) a batch of {@link #BATCH_SIZE} different words once, and the dictionary is put back the
+ * way it was after the iteration (outside of the measurement). Times and allocations are reported per word.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndexUpdateBenchmark {
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * Words that aren't in the dictionary, which are removed again after each iteration.
+	 */
+	@State(Scope.Thread)
+	public static class NewWords {
+		private final Random random = new Random(3);
+		List<String> words;
+
+		@Setup(Level.Iteration)
+		public void pickWords(IndexState state) {
+			words = GeneratedWords.newWords(state.words, BATCH_SIZE, random);
+		}
+
+		@TearDown(Level.Iteration)
+		public void removeWords(IndexState state) {
+			state.index.removeWords(words.stream().sorted().toList());
+		}
+	}
+
+	/**
+	 * Words that are in the dictionary, which are added back after each iteration.
+	 */
+	@State(Scope.Thread)
+	public static class ExistingWords {
+		private final Random random = new Random(4);
+		List<String> words;
+
+		@Setup(Level.Iteration)
+		public void pickWords(IndexState state) {
+			words = GeneratedWords.distinctSample(state.words, Math.min(BATCH_SIZE, state.words.size()), random);
+		}
+
+		@TearDown(Level.Iteration)
+		public void addWords(IndexState state) {
+			state.index.addWords(words.stream().sorted().toList());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void addWord(IndexState state, NewWords newWords) {
+		for (var word : newWords.words) {
+			state.index.addWord(word);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void deleteWord(IndexState state, ExistingWords existingWords, Blackhole blackhole) {
+		for (var word : existingWords.words) {
+			blackhole.consume(state.index.removeWord(word));
+		}
+	}
+}
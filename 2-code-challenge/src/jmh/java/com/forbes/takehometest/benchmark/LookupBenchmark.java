@@ -0,0 +1,49 @@
+package com.forbes.takehometest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up whether a word is in the dictionary (`ITrieDao.hasWord`), for words that are and aren't in it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LookupBenchmark {
+	private static final int NUM_WORDS = 1024;
+
+	private String[] presentWords;
+	private String[] missingWords;
+	private int next;
+
+	@Setup
+	public void pickWords(IndexState state) {
+		var random = new Random(1);
+		presentWords = GeneratedWords.sample(state.words, NUM_WORDS, random).toArray(String[]::new);
+		missingWords = GeneratedWords.newWords(state.words, NUM_WORDS, random).toArray(String[]::new);
+	}
+
+	@Benchmark
+	public boolean containsPresentWord(IndexState state) {
+		return state.index.hasWord(presentWords[next++ & (NUM_WORDS - 1)]);
+	}
+
+	@Benchmark
+	public boolean containsMissingWord(IndexState state) {
+		return state.index.hasWord(missingWords[next++ & (NUM_WORDS - 1)]);
+	}
+}
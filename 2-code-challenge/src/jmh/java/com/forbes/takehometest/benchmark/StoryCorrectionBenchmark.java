@@ -0,0 +1,102 @@
+package com.forbes.takehometest.benchmark;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.cache.StoryRevisionCache;
+import com.forbes.takehometest.dao.NoOpMutationLogDao;
+import com.forbes.takehometest.dao.WordStorageDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.model.story.StoryRevisionCorrectionsModel;
+import com.forbes.takehometest.model.story.WordCorrection;
+import com.forbes.takehometest.service.DictionaryService;
+import com.forbes.takehometest.service.StoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures correcting a whole generated story end to end (`StoryService.getCorrections`), with the services wired up
+ * the way the app does with its default settings (including metrics), apart from the correction cache.
+ *
+ * The same story is corrected over and over, so with a cache every correction after the first would come from it. The
+ * cache is off by default to measure the lookups themselves. Pass `-p cacheSize=10000` to measure with the cache.
+ *
+ * `getRevisionCorrections` measures `POST /story/revision` for an editor resubmitting a story after a one-word edit:
+ * it alternates between the story and a copy with a misspelled word inserted in the middle, each sent as a revision of
+ * the other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StoryCorrectionBenchmark {
+	@Param({"1000", "100000"})
+	public int storyWords;
+
+	@Param({"0"})
+	public long cacheSize;
+
+	private ForkJoinPool storyCorrectionPool;
+	private DictionaryService dictionaryService;
+	private StoryService storyService;
+	private String story;
+	private String[] revisions;
+	private String[] revisionHashes;
+	private int revision;
+
+	@Setup
+	public void createServices(IndexState state) {
+		var wordStorageDao = new WordStorageDao();
+		wordStorageDao.loadWords(state.words, Map.of());
+		var correctionCache = new CorrectionCache(cacheSize);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), state.index, correctionCache, 0.01);
+		dictionaryService = new DictionaryService(state.index, wordStorageDao, correctionCache,
+				new NoOpMutationLogDao(), metrics, 500_000, Duration.ofMillis(250));
+		storyCorrectionPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		var storyRevisionCache = new StoryRevisionCache(64L << 20, Duration.ZERO);
+		storyService = new StoryService(dictionaryService, storyCorrectionPool, storyRevisionCache, metrics, 2000, 2000,
+				1024, 20_000_000, Duration.ofSeconds(30));
+		story = GeneratedWords.story(state.words, storyWords, new Random(6));
+
+		var middle = story.indexOf(' ', story.length() / 2);
+		revisions = new String[]{story, story.substring(0, middle) + " qwzx" + story.substring(middle)};
+		var firstHash = storyService.getRevisionCorrections(revisions[0], null, dictionaryService).getStoryHash();
+		var secondHash = storyService.getRevisionCorrections(revisions[1], firstHash, dictionaryService).getStoryHash();
+		revisionHashes = new String[]{firstHash, secondHash};
+	}
+
+	@TearDown
+	public void shutDownPool() {
+		storyCorrectionPool.shutdown();
+	}
+
+	@Benchmark
+	public List<WordCorrection> getCorrections() {
+		return storyService.getCorrections(story);
+	}
+
+	@Benchmark
+	public StoryRevisionCorrectionsModel getRevisionCorrections() {
+		var previous = revision;
+		revision ^= 1;
+		return storyService.getRevisionCorrections(revisions[revision], revisionHashes[previous], dictionaryService);
+	}
+}
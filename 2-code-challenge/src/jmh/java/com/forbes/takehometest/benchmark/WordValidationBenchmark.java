@@ -0,0 +1,56 @@
+package com.forbes.takehometest.benchmark;
+
+import com.forbes.takehometest.util.WordValidationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the checks run on every word of a story ({@link WordValidationUtils}), on the words of a generated story.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordValidationBenchmark {
+	private static final int NUM_WORDS = 1024;
+
+	private String[] storyWords;
+	private int next;
+
+	@Setup
+	public void generateStory() {
+		storyWords = GeneratedWords.story(GeneratedWords.dictionary(10_000), NUM_WORDS, new Random(5)).split(" ");
+	}
+
+	@Benchmark
+	public boolean isValidDictionaryWord() {
+		return WordValidationUtils.isValidDictionaryWord(nextWord());
+	}
+
+	@Benchmark
+	public String sanitizeWord() {
+		return WordValidationUtils.sanitizeWord(nextWord());
+	}
+
+	@Benchmark
+	public boolean canWordBeIndexed() {
+		return WordValidationUtils.canWordBeIndexed(nextWord());
+	}
+
+	private String nextWord() {
+		return storyWords[next++ & (NUM_WORDS - 1)];
+	}
+}
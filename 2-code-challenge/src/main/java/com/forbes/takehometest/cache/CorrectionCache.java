@@ -0,0 +1,80 @@
+package com.forbes.takehometest.cache;
+
+import com.forbes.takehometest.interfaces.IDictionaryService.ClosestMatches;
+import com.forbes.takehometest.model.cache.CorrectionCacheStatsModel;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Remembers the correction found for each (sanitized) word, so that common misspellings (eg "teh") don't need a new
+ * close-match search every time they appear in a story. Words with no correction are cached as well.
+ *
+ * The cache is bounded and uses Caffeine's W-TinyLFU eviction policy, which keeps the words that are looked up most
+ * often rather than the most recent ones, so a single large story of one-off typos can't flush out the common ones.
+ *
+ * Rather than clearing the whole cache whenever the dictionary changes, each entry is stamped with the dictionary
+ * version it was computed against. An entry from an older version is treated as a miss and replaced with a fresh
+ * correction, which keeps the entry's usage history for eviction.
+ *
+ * Corrections from searches that were cut short by their budget are not cached, since a later search with more budget
+ * could find a better one.
+ */
+@Slf4j
+public class CorrectionCache {
+	private final Cache<String, CachedCorrection> cache;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder staleCount = new LongAdder();
+
+	public CorrectionCache(long maxSize) {
+		// evictions run on the calling thread rather than in the background, so the size limit is applied immediately
+		this.cache = Caffeine.newBuilder().maximumSize(maxSize).executor(Runnable::run).recordStats().build();
+	}
+
+	/**
+	 * Returns the cached correction for the word if it was computed against the given dictionary version. Otherwise, the
+	 * correction is looked up and cached for that version.
+	 *
+	 * The version must be read before the lookup runs: if the dictionary changes in the meantime, the new correction is
+	 * stamped with the older version and gets recomputed on its next use.
+	 */
+	public ClosestMatches get(String word, long dictionaryVersion, Function<String, ClosestMatches> lookup) {
+		var cached = cache.getIfPresent(word);
+		if (cached != null && cached.dictionaryVersion == dictionaryVersion) {
+			hitCount.increment();
+			return new ClosestMatches(cached.correction == null ? List.of() : List.of(cached.correction), false);
+		}
+		if (cached != null) {
+			log.debug("Cached correction for '{}' is from dictionary version {}, current version is {}", word,
+					cached.dictionaryVersion, dictionaryVersion);
+			staleCount.increment();
+		}
+		missCount.increment();
+		var correction = lookup.apply(word);
+		if (correction.truncated()) {
+			log.debug("Not caching correction for '{}' since its search was cut short", word);
+		} else {
+			cache.put(word, new CachedCorrection(dictionaryVersion, correction.closest().orElse(null)));
+		}
+		return correction;
+	}
+
+	public CorrectionCacheStatsModel getStats() {
+		var hits = hitCount.sum();
+		var misses = missCount.sum();
+		var hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+		return new CorrectionCacheStatsModel(cache.estimatedSize(), hits, misses, hitRate, staleCount.sum(),
+				cache.stats().evictionCount());
+	}
+
+	/**
+	 * Stores a correction along with the dictionary version it was found with. A null correction means no close match
+	 * was found.
+	 */
+	private record CachedCorrection(long dictionaryVersion, String correction) {}
+}
@@ -0,0 +1,27 @@
+package com.forbes.takehometest.cache;
+
+import com.forbes.takehometest.interfaces.IDictionaryService.ClosestMatches;
+import com.forbes.takehometest.model.story.WordCorrection;
+
+import java.util.List;
+
+/**
+ * Holds what was found when correcting a revision of a story, so that the next revision only needs to split and
+ * correct the words that changed.
+ *
+ * Each word of the story has the index of its (sanitized) distinct word in wordIndexes, or a negative value if it was
+ * skipped or invalid. Each distinct word has the result of its lookup, which is null if the word was in the dictionary
+ * (version dictionaryVersion). The distinct words found in the dictionary while the story was split are null too,
+ * since they were never copied into Strings. The corrections are the ones returned for this revision.
+ */
+public record StoryRevision(String hash, String story, int[] wordBounds, int[] wordIndexes, List<String> distinctWords,
+		List<ClosestMatches> lookups, long dictionaryVersion, List<WordCorrection> corrections) {
+	/**
+	 * Roughly how many bytes the revision takes up in memory.
+	 */
+	public int estimatedSize() {
+		var size = 2L * story.length() + 4L * wordBounds.length + 4L * wordIndexes.length
+				+ 64L * distinctWords.size() + 64L * corrections.size();
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+}
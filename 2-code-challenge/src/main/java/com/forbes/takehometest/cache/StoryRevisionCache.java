@@ -0,0 +1,45 @@
+package com.forbes.takehometest.cache;
+
+import com.forbes.takehometest.interfaces.IDictionaryService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Remembers the latest revisions of the stories corrected with `POST /story/revision`, by the hash of their text and
+ * the dictionary they were corrected against, so that a new revision can be corrected as a change from a previous one.
+ *
+ * The cache is bounded by the estimated memory taken by the revisions (their text, words and corrections), and a
+ * revision that isn't used again within the expiry time is dropped. A revision that's no longer cached is simply
+ * corrected from scratch.
+ */
+public class StoryRevisionCache {
+	private final Cache<Key, StoryRevision> cache;
+
+	public StoryRevisionCache(long maxBytes, Duration expireAfter) {
+		var builder = Caffeine.newBuilder()
+				.maximumWeight(maxBytes)
+				.weigher((Key key, StoryRevision revision) -> revision.estimatedSize())
+				.executor(Runnable::run);
+		if (!expireAfter.isZero()) {
+			builder.expireAfterAccess(expireAfter);
+		}
+		this.cache = builder.build();
+	}
+
+	public Optional<StoryRevision> find(IDictionaryService dictionary, String hash) {
+		return Optional.ofNullable(cache.getIfPresent(new Key(dictionary, hash)));
+	}
+
+	public void put(IDictionaryService dictionary, StoryRevision revision) {
+		cache.put(new Key(dictionary, revision.hash()), revision);
+	}
+
+	/**
+	 * The same text corrected against different dictionaries has different corrections, so the dictionary is part of
+	 * the key. Dictionaries are compared by identity.
+	 */
+	private record Key(IDictionaryService dictionary, String hash) {}
+}
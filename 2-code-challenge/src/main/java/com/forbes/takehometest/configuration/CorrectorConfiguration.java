@@ -1,24 +1,118 @@
 package com.forbes.takehometest.configuration;
 
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.cache.StoryRevisionCache;
+import com.forbes.takehometest.dao.DawgDao;
+import com.forbes.takehometest.dao.MutationLogDao;
+import com.forbes.takehometest.dao.NoOpMutationLogDao;
+import com.forbes.takehometest.dao.OffHeapDawgDao;
+import com.forbes.takehometest.dao.PlainTrieDao;
+import com.forbes.takehometest.dao.SymSpellDao;
 import com.forbes.takehometest.dao.TrieDao;
 import com.forbes.takehometest.dao.WordStorageDao;
+import com.forbes.takehometest.interfaces.IMutationLogDao;
 import com.forbes.takehometest.interfaces.ITrieDao;
 import com.forbes.takehometest.interfaces.IWordStorageDao;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * Provides the internal "database" instances used for storing the dictionary and lookup Trie. If we moved to an
  * external DB, these could be configured to connect to such database.
+ *
+ * The structure used for the lookup index is picked with the `corrector.index.engine` property:
+ * - `trie` (default): the wildcard-expanded {@link com.forbes.takehometest.triedb.Trie}. Deleted words are removed from
+ *   it in the background, once they make up `corrector.index.trie.tombstone-ratio` of its words.
+ * - `dawg`: the minimal word automaton {@link com.forbes.takehometest.triedb.Dawg}
+ * - `off-heap-dawg`: the same automaton stored outside the Java heap
+ *   {@link com.forbes.takehometest.triedb.OffHeapDawg}
+ * - `plain-trie`: a Trie without wildcards, searched with a Levenshtein automaton
+ *   {@link com.forbes.takehometest.triedb.PlainTrie}
+ * - `symspell`: a SymSpell-style deletion index {@link com.forbes.takehometest.triedb.DeletionIndex}, which trades
+ *   slower/larger inserts for faster close-matching. Its max edit distance and prefix length are set with the
+ *   `corrector.index.symspell.*` properties.
  */
 @Slf4j
 @Configuration
 public class CorrectorConfiguration {
 	@Bean
-	public ITrieDao trieDao() {
-		log.debug("Initiating TrieDao instance...");
-		return new TrieDao();
+	public ITrieDao trieDao(@Value("${corrector.index.engine:trie}") String engine,
+			@Value("${corrector.index.symspell.max-edit-distance:2}") int maxEditDistance,
+			@Value("${corrector.index.symspell.prefix-length:7}") int prefixLength,
+			@Value("${corrector.index.trie.tombstone-ratio:0.2}") double tombstoneRatio,
+			@Qualifier("trieCompactionExecutor") ExecutorService trieCompactionExecutor) {
+		return createTrieDao(engine, maxEditDistance, prefixLength, tombstoneRatio, trieCompactionExecutor);
+	}
+
+	/**
+	 * Provides new, empty indexes built with the same engine as the main one, for the words added to named dictionaries
+	 * (see {@link com.forbes.takehometest.service.DictionaryRegistry}).
+	 */
+	@Bean
+	public Supplier<ITrieDao> overlayTrieDaoFactory(@Value("${corrector.index.engine:trie}") String engine,
+			@Value("${corrector.index.symspell.max-edit-distance:2}") int maxEditDistance,
+			@Value("${corrector.index.symspell.prefix-length:7}") int prefixLength,
+			@Value("${corrector.index.trie.tombstone-ratio:0.2}") double tombstoneRatio,
+			@Qualifier("trieCompactionExecutor") ExecutorService trieCompactionExecutor) {
+		return () -> createTrieDao(engine, maxEditDistance, prefixLength, tombstoneRatio, trieCompactionExecutor);
+	}
+
+	/**
+	 * Provides the thread that the `trie` indexes (the main one and those of named dictionaries) are compacted on, one
+	 * index at a time. It's shut down with the app, after which deleted words are only marked as deleted.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService trieCompactionExecutor() {
+		log.debug("Initiating trie compaction executor...");
+		return Executors.newSingleThreadExecutor(runnable -> {
+			var thread = new Thread(runnable, "trie-compaction");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static ITrieDao createTrieDao(String engine, int maxEditDistance, int prefixLength,
+			double tombstoneRatio, ExecutorService trieCompactionExecutor) {
+		return switch (engine) {
+			case "trie" -> {
+				log.debug("Initiating TrieDao instance with tombstone ratio {}...", tombstoneRatio);
+				yield new TrieDao(tombstoneRatio, trieCompactionExecutor);
+			}
+			case "dawg" -> {
+				log.debug("Initiating DawgDao instance...");
+				yield new DawgDao();
+			}
+			case "off-heap-dawg" -> {
+				log.debug("Initiating OffHeapDawgDao instance...");
+				yield new OffHeapDawgDao();
+			}
+			case "plain-trie" -> {
+				log.debug("Initiating PlainTrieDao instance...");
+				yield new PlainTrieDao();
+			}
+			case "symspell" -> {
+				log.debug("Initiating SymSpellDao instance with max edit distance {}...", maxEditDistance);
+				yield new SymSpellDao(maxEditDistance, prefixLength);
+			}
+			default -> throw new IllegalArgumentException("Unknown index engine: " + engine);
+		};
 	}
 
 	@Bean
@@ -26,4 +120,78 @@ public class CorrectorConfiguration {
 		log.debug("Initiating WordStorageDao instance...");
 		return new WordStorageDao();
 	}
+
+	/**
+	 * Provides the log that dictionary changes are recorded in, so they survive a restart. If no log file is set,
+	 * changes are not recorded.
+	 */
+	@Bean
+	public IMutationLogDao mutationLogDao(@Value("${corrector.wal.file:}") String file,
+			@Value("${corrector.wal.compaction-threshold:64MB}") DataSize compactionThreshold) throws IOException {
+		if (file.isBlank()) {
+			log.debug("No mutation log file configured. Initiating NoOpMutationLogDao instance...");
+			return new NoOpMutationLogDao();
+		}
+		log.debug("Initiating MutationLogDao instance...");
+		return new MutationLogDao(Path.of(file), compactionThreshold.toBytes());
+	}
+
+	@Bean
+	public CorrectionCache correctionCache(@Value("${corrector.cache.max-size:10000}") long maxSize) {
+		log.debug("Initiating CorrectionCache instance with max size {}...", maxSize);
+		return new CorrectionCache(maxSize);
+	}
+
+	/**
+	 * Provides the cache of story revisions that `POST /story/revision` corrects new revisions against. A max memory of
+	 * 0 disables it, and an expiry of 0 keeps revisions until they're evicted.
+	 */
+	@Bean
+	public StoryRevisionCache storyRevisionCache(
+			@Value("${corrector.story.revisions.max-memory:64MB}") DataSize maxMemory,
+			@Value("${corrector.story.revisions.expire-after:1h}") Duration expireAfter) {
+		log.debug("Initiating StoryRevisionCache instance with max memory {}...", maxMemory);
+		return new StoryRevisionCache(maxMemory.toBytes(), expireAfter);
+	}
+
+	/**
+	 * Provides the pool used to correct the words of large stories in parallel. A parallelism of 0 uses one thread per
+	 * available processor.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ForkJoinPool storyCorrectionPool(@Value("${corrector.story.parallelism:0}") int parallelism) {
+		if (parallelism <= 0) {
+			parallelism = Runtime.getRuntime().availableProcessors();
+		}
+		log.debug("Initiating story correction pool with parallelism {}...", parallelism);
+		return new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Serves the reactive web layer with Netty. Spring Boot would otherwise pick Tomcat, which is on the classpath for
+	 * the servlet web layer, and which needs a thread per connection to read request bodies.
+	 */
+	@Bean
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+	public NettyReactiveWebServerFactory reactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	/**
+	 * Provides the threads that the reactive web layer runs the dictionary and story requests on, so the event loop
+	 * threads never block or do CPU-bound work. 0 threads means two per available processor, so that threads waiting
+	 * on a slow upload or a disk write don't leave the processors idle. Once every thread is busy, up to `queue-size`
+	 * requests per thread wait for one, and any more are rejected with a 503 (see
+	 * {@link com.forbes.takehometest.controller.ReactiveControllerAdvice}).
+	 */
+	@Bean(destroyMethod = "dispose")
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+	public Scheduler requestScheduler(@Value("${corrector.reactive.threads:0}") int threads,
+			@Value("${corrector.reactive.queue-size:100}") int queueSize) {
+		if (threads <= 0) {
+			threads = 2 * Runtime.getRuntime().availableProcessors();
+		}
+		log.debug("Initiating request scheduler with {} threads...", threads);
+		return Schedulers.newBoundedElastic(threads, queueSize, "corrector-request");
+	}
 }
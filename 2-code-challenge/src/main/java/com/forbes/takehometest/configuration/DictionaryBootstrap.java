@@ -0,0 +1,159 @@
+package com.forbes.takehometest.configuration;
+
+import com.forbes.takehometest.interfaces.IBaseDictionaryService;
+import com.forbes.takehometest.service.SnapshotService;
+import com.forbes.takehometest.triedb.DawgFile;
+import com.forbes.takehometest.util.WordFileReader;
+import com.forbes.takehometest.util.WordValidationUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Loads the dictionary from the word file set in the `corrector.dictionary.file` property (one word per line) when the
+ * application starts. The file can be a path on the file system, or a `classpath:` resource (eg
+ * `classpath:dictionary.txt`). If no file is set, the dictionary starts out empty.
+ *
+ * Each line can also end with the word's weight (eg how often the word is used), separated from the word by spaces or
+ * a tab, as in `the 23135851162`. Weights are used to pick the most common word among equally close corrections. The
+ * weights of words that appear more than once (eg in different cases) are added up.
+ *
+ * The words go through the same validation as words added through `POST /dictionary`. They are then sorted and
+ * de-duplicated so the dictionary can be built in one pass (see {@link IBaseDictionaryService#loadWords(List, Map)})
+ * rather than adding them one at a time.
+ *
+ * If a snapshot file is configured (see {@link SnapshotService}) and exists, the dictionary is loaded from the snapshot
+ * instead, which doesn't need to read or validate any words. If the snapshot is invalid, the word file is loaded
+ * instead. Either way, the changes recorded in the mutation log since the snapshot are then replayed on top. After
+ * loading the word file, a snapshot is written so the next startup can use it.
+ */
+@Slf4j
+@Component
+public class DictionaryBootstrap implements ApplicationRunner {
+	private static final int MAX_WEIGHT_DIGITS = 18;
+
+	private final IBaseDictionaryService dictionaryService;
+	private final SnapshotService snapshotService;
+	private final ResourceLoader resourceLoader;
+	private final String dictionaryFile;
+
+	public DictionaryBootstrap(IBaseDictionaryService dictionaryService, SnapshotService snapshotService,
+			ResourceLoader resourceLoader, @Value("${corrector.dictionary.file:}") String dictionaryFile) {
+		this.dictionaryService = dictionaryService;
+		this.snapshotService = snapshotService;
+		this.resourceLoader = resourceLoader;
+		this.dictionaryFile = dictionaryFile;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws IOException {
+		var snapshotLogSequence = OptionalLong.empty();
+		try {
+			snapshotLogSequence = snapshotService.loadSnapshot();
+		} catch (DawgFile.InvalidDawgFileException e) {
+			log.error("Could not load dictionary snapshot. Falling back to the dictionary file...", e);
+		}
+		if (snapshotLogSequence.isEmpty()) {
+			loadDictionaryFile();
+		}
+		// without a snapshot, replay whatever is left in the log (compacted entries are only in the lost snapshot)
+		var replayedCount = dictionaryService.replayMutationLog(snapshotLogSequence.orElse(0));
+		if (replayedCount > 0) {
+			log.info("Replayed {} dictionary changes from the mutation log", replayedCount);
+		}
+		if (snapshotLogSequence.isEmpty() && snapshotService.isEnabled()) {
+			snapshotService.writeSnapshot();
+		}
+	}
+
+	private void loadDictionaryFile() throws IOException {
+		if (dictionaryFile.isBlank()) {
+			log.info("No dictionary file configured. Starting with an empty dictionary.");
+			return;
+		}
+		var startTime = System.nanoTime();
+		var lines = readLines();
+		var readTime = System.nanoTime();
+
+		var words = new ArrayList<String>(lines.size());
+		var weights = new HashMap<String, Long>();
+		for (var line : lines) {
+			var weightStart = weightStart(line);
+			var word = WordValidationUtils.sanitizeWord(weightStart < 0 ? line : line.substring(0, weightStart))
+					.toLowerCase();
+			if (word.isEmpty() || !dictionaryService.canIndexWord(word)
+					|| !WordValidationUtils.isValidDictionaryWord(word)) {
+				log.debug("Invalid word found in dictionary file: '{}'. Skipping...", line);
+				continue;
+			}
+			words.add(word);
+			if (weightStart >= 0) {
+				var weight = Long.parseLong(line.substring(weightStart).strip());
+				if (weight > 0) {
+					weights.merge(word, weight, Long::sum);
+				}
+			}
+		}
+		words.sort(null);
+		var sortedWords = removeAdjacentDuplicates(words);
+		dictionaryService.loadWords(sortedWords, weights);
+		var endTime = System.nanoTime();
+
+		log.info("Loaded {} words ({} weighted) from '{}' in {} ms (read: {} ms, build: {} ms). Skipped {} invalid or "
+				+ "duplicate lines.", sortedWords.size(), weights.size(), dictionaryFile, (endTime - startTime) / 1_000_000,
+				(readTime - startTime) / 1_000_000, (endTime - readTime) / 1_000_000, lines.size() - sortedWords.size());
+	}
+
+	/**
+	 * Returns where the weight at the end of the given line starts, or -1 if the line doesn't end with a weight (ie
+	 * digits separated from the word before them by whitespace).
+	 */
+	private static int weightStart(String line) {
+		var end = line.length();
+		while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+			end--;
+		}
+		var start = end;
+		while (start > 0 && line.charAt(start - 1) >= '0' && line.charAt(start - 1) <= '9') {
+			start--;
+		}
+		// weights longer than 18 digits might not fit in a long
+		if (start == end || end - start > MAX_WEIGHT_DIGITS || start == 0
+				|| !Character.isWhitespace(line.charAt(start - 1))) {
+			return -1;
+		}
+		return start;
+	}
+
+	private List<String> readLines() throws IOException {
+		if (dictionaryFile.startsWith(ResourceUtils.CLASSPATH_URL_PREFIX)) {
+			var resource = resourceLoader.getResource(dictionaryFile);
+			// resources packaged in the jar can't be memory-mapped, so only files on disk are mapped
+			return resource.isFile() ? WordFileReader.readLines(resource.getFile().toPath())
+					: WordFileReader.readLines(resource.getInputStream());
+		}
+		return WordFileReader.readLines(new FileSystemResource(dictionaryFile).getFile().toPath());
+	}
+
+	private static List<String> removeAdjacentDuplicates(List<String> sortedWords) {
+		var distinctWords = new ArrayList<String>(sortedWords.size());
+		for (var word : sortedWords) {
+			if (distinctWords.isEmpty() || !distinctWords.get(distinctWords.size() - 1).equals(word)) {
+				distinctWords.add(word);
+			}
+		}
+		return distinctWords;
+	}
+}
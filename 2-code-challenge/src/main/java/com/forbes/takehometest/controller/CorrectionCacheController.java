@@ -0,0 +1,26 @@
+package com.forbes.takehometest.controller;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.model.cache.CorrectionCacheStatsModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the REST API for monitoring the cache of word corrections.
+ */
+@Slf4j
+@RestController
+public class CorrectionCacheController {
+	private final CorrectionCache correctionCache;
+
+	public CorrectionCacheController(CorrectionCache correctionCache) {
+		this.correctionCache = correctionCache;
+	}
+
+	@GetMapping("/cache/corrections")
+	public CorrectionCacheStatsModel getStats() {
+		log.info("Received request to get correction cache stats");
+		return correctionCache.getStats();
+	}
+}
@@ -1,34 +1,191 @@
 package com.forbes.takehometest.controller;
 
-import com.forbes.takehometest.interfaces.IDictionaryService;
 import com.forbes.takehometest.model.dictionary.DictionaryAddModel;
+import com.forbes.takehometest.model.dictionary.DictionaryChangesModel;
+import com.forbes.takehometest.model.dictionary.DictionaryChangesModel.Change;
+import com.forbes.takehometest.model.dictionary.DictionaryCompletionModel;
 import com.forbes.takehometest.model.dictionary.DictionaryListModel;
 import com.forbes.takehometest.model.dictionary.DictionaryRemoveModel;
+import com.forbes.takehometest.service.DictionaryRegistry;
+import com.forbes.takehometest.service.ReplicationService;
 import com.forbes.takehometest.util.WordValidationUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 /**
  * Serves the REST API for reading and modifying the internal dictionary.
+ *
+ * Every endpoint works on the base dictionary by default, or on the named dictionary given with `?dictionary=...` (see
+ * {@link DictionaryRegistry}). Reading a named dictionary that doesn't exist returns a 404, while adding or removing
+ * words creates it (or returns a 400 if it can't be created).
+ *
+ * On a replica (see {@link ReplicationService}), the base dictionary follows the leader's, so adding or removing its
+ * words returns a 409. Named dictionaries can still be changed, since they're local to each instance.
+ *
+ * Named dictionaries are only kept in memory, so changing them also returns a 409 when the mutation log is on (see
+ * {@link DictionaryRegistry}).
+ *
+ * The reactive web layer serves the same API with {@link ReactiveDictionaryController}.
  */
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class DictionaryController {
-	private final IDictionaryService dictionaryService;
+	private final DictionaryRegistry dictionaryRegistry;
+	private final ReplicationService replicationService;
+	private final ObjectMapper objectMapper;
+	private final int defaultPageSize;
+	private final int maxPageSize;
+	private final int maxCompletions;
+	private final int maxChanges;
 
-	public DictionaryController(IDictionaryService dictionaryService) {
-		this.dictionaryService = dictionaryService;
+	public DictionaryController(DictionaryRegistry dictionaryRegistry, ReplicationService replicationService,
+			ObjectMapper objectMapper, @Value("${corrector.dictionary.page.default-size:100}") int defaultPageSize,
+			@Value("${corrector.dictionary.page.max-size:1000}") int maxPageSize,
+			@Value("${corrector.dictionary.complete.max-k:100}") int maxCompletions,
+			@Value("${corrector.dictionary.changes.max-limit:10000}") int maxChanges) {
+		this.dictionaryRegistry = dictionaryRegistry;
+		this.replicationService = replicationService;
+		this.objectMapper = objectMapper;
+		this.defaultPageSize = defaultPageSize;
+		this.maxPageSize = maxPageSize;
+		this.maxCompletions = maxCompletions;
+		this.maxChanges = maxChanges;
 	}
 
+	/**
+	 * Returns the words in the dictionary, in sorted order.
+	 *
+	 * If `after` or `limit` is given, only one page is returned: up to `limit` words (the configured default page size
+	 * if not given, and at most the max page size) that sort after the word `after` (from the start of the dictionary
+	 * if not given). The page holds the word to pass as `after` to get the next page, unless it's the last page. Pages
+	 * are read straight from the sorted word storage, so they don't copy the whole dictionary.
+	 */
 	@GetMapping("/dictionary")
-	public DictionaryListModel getAllWords() {
-		log.info("Received request to get words");
-		var words = dictionaryService.getWords();
-		return new DictionaryListModel(words);
+	public ResponseEntity<DictionaryListModel> getAllWords(@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return ResponseEntity.notFound().build();
+		}
+		var dictionaryService = dictionary.get();
+		if (after == null && limit == null) {
+			log.info("Received request to get words");
+			var words = dictionaryService.getWords();
+			return ResponseEntity.ok(new DictionaryListModel(words));
+		}
+		if (limit != null && limit < 1) {
+			log.error("Invalid page size received: {}", limit);
+			return ResponseEntity.badRequest().build();
+		}
+		var pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+		log.info("Received request to get {} words after '{}'", pageSize, after);
+		var words = dictionaryService.getWordsAfter(after).iterator();
+		var page = new ArrayList<String>(Math.min(pageSize, 1024));
+		while (page.size() < pageSize && words.hasNext()) {
+			page.add(words.next());
+		}
+		var next = words.hasNext() ? page.get(page.size() - 1) : null;
+		return ResponseEntity.ok(new DictionaryListModel(page, next));
+	}
+
+	/**
+	 * Same as {@link #getAllWords}, for a client that accepts NDJSON: each word is written out as its own line of JSON
+	 * while iterating over the dictionary, so the dictionary is never copied, however large it is. Only `after` is
+	 * supported, since there's no need to page through a streamed response.
+	 */
+	@GetMapping(value = "/dictionary", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public void streamAllWords(@RequestParam(required = false) String after,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName, HttpServletResponse response)
+			throws IOException {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		log.info("Received request to stream words after '{}'", after);
+		response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		try (var out = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+			// each word ends its own line, rather than being separated from the previous one by a space
+			out.setRootValueSeparator(null);
+			for (var word : dictionary.get().getWordsAfter(after)) {
+				out.writeString(word);
+				out.writeRaw('\n');
+			}
+		}
+	}
+
+	/**
+	 * Returns up to k dictionary words (10 by default, and at most the configured max) that start with the given
+	 * prefix, eg for type-ahead suggestions. The heaviest words come first, and words with the same weight are in
+	 * sorted order. The prefix is converted to lowercase like the words added to the dictionary.
+	 */
+	@GetMapping("/dictionary/complete")
+	public ResponseEntity<DictionaryCompletionModel> completeWord(@RequestParam String prefix,
+			@RequestParam(defaultValue = "10") int k,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		if (k < 1) {
+			log.error("Invalid number of completions received: {}", k);
+			return ResponseEntity.badRequest().build();
+		}
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return ResponseEntity.notFound().build();
+		}
+		prefix = prefix.toLowerCase();
+		log.debug("Received request to complete '{}'", prefix);
+		var completions = dictionary.get().getCompletions(prefix, Math.min(k, maxCompletions));
+		return ResponseEntity.ok(new DictionaryCompletionModel(prefix, completions));
+	}
+
+	/**
+	 * Returns the changes made to the base dictionary after the change with the sequence number `after` (from the
+	 * first change if not given), in order: up to `limit` of them (at most the configured max, which is also the
+	 * default), along with the sequence number of the latest change. Replicas read this to follow the dictionary (see
+	 * {@link ReplicationService}).
+	 *
+	 * A 409 response is returned if the dictionary has no mutation log to read the changes from, and a 410 if the
+	 * changes after `after` are no longer in the log (they're in the snapshot, which has to be copied instead).
+	 */
+	@GetMapping("/dictionary/changes")
+	public ResponseEntity<DictionaryChangesModel> getChanges(@RequestParam(defaultValue = "0") long after,
+			@RequestParam(required = false) Integer limit) throws IOException {
+		if (after < 0 || (limit != null && limit < 1)) {
+			log.error("Invalid change range received: after {}, limit {}", after, limit);
+			return ResponseEntity.badRequest().build();
+		}
+		var dictionaryService = dictionaryRegistry.getBaseDictionary();
+		if (!dictionaryService.hasChangeFeed()) {
+			log.warn("No mutation log configured. Can't read dictionary changes...");
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		log.debug("Received request to get the dictionary changes after {}", after);
+		var changes = dictionaryService.getChanges(after, limit == null ? maxChanges : Math.min(limit, maxChanges));
+		if (changes.isEmpty()) {
+			log.warn("The dictionary changes after {} are no longer in the mutation log", after);
+			return new ResponseEntity<>(HttpStatus.GONE);
+		}
+		var changeModels = changes.get().mutations().stream()
+				.map(mutation -> new Change(mutation.sequence(), mutation.operation(), mutation.word()))
+				.toList();
+		return ResponseEntity.ok(new DictionaryChangesModel(changeModels, changes.get().lastSequence()));
 	}
 
 	/**
@@ -38,18 +195,36 @@ public class DictionaryController {
 	 * The word is then converted to lowercase and added to the dictionary. If the word is already present, a 200
 	 * response will be generated with the words that were already present.
 	 * Otherwise an empty 202 response is returned.
+	 *
+	 * The valid words are added to the dictionary in one batch. A word repeated in the request is only added once, so
+	 * its later occurrences are reported as already present, the same as if the words were added one at a time.
 	 */
 	@PostMapping("/dictionary")
-	public ResponseEntity<Object> addWord(@RequestBody DictionaryAddModel addModel) {
+	public ResponseEntity<Object> addWord(@RequestBody DictionaryAddModel addModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
 		if (addModel.getDictionary() == null || addModel.getWordsToAdd() == null) {
 			log.error("Invalid request received: {}", addModel);
 			return ResponseEntity.badRequest().build();
 		}
-		var duplicateWords = new ArrayList<String>();
+		if (dictionaryName == null && replicationService.isReplica()) {
+			log.error("Can't add words to a replica's base dictionary");
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		if (dictionaryName != null && !dictionaryRegistry.areOverlaysWritable()) {
+			log.error("Can't add words to dictionary '{}': it isn't durable, but the mutation log is on",
+					dictionaryName);
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		var dictionary = dictionaryRegistry.findOrCreate(dictionaryName);
+		if (dictionary.isEmpty()) {
+			return ResponseEntity.badRequest().build();
+		}
+		var dictionaryService = dictionary.get();
+		var wordsToAdd = new ArrayList<String>();
 		for (var word : addModel.getWordsToAdd()) {
 			word = WordValidationUtils.sanitizeWord(word).toLowerCase();
 			// ignore word if it's too long
-			if (!WordValidationUtils.canWordBeIndexed(word)) {
+			if (!dictionaryService.canIndexWord(word)) {
 				log.warn("Word is too long: '{}'. Will not index into dictionary...", word);
 				continue;
 			}
@@ -58,7 +233,13 @@ public class DictionaryController {
 				log.warn("Invalid word found: '{}'. Will not add to dictionary...", word);
 				continue;
 			}
-			if (!dictionaryService.addWord(word)) {
+			wordsToAdd.add(word);
+		}
+		var addedWords = dictionaryService.addWords(wordsToAdd);
+		var duplicateWords = new ArrayList<String>();
+		var reportedWords = new HashSet<String>();
+		for (var word : wordsToAdd) {
+			if (!addedWords.get(word) || !reportedWords.add(word)) {
 				log.debug("Word already exists: '{}'. Skipping...", word);
 				duplicateWords.add(word);
 			}
@@ -75,16 +256,39 @@ public class DictionaryController {
 	 * punctuation or digits aside from ' and -.
 	 *
 	 * We do not convert to lowercase here to be safe in case the user was expecting to delete an uppercase word.
+	 *
+	 * As with adds, the valid words are removed in one batch, and the later occurrences of a repeated word are reported
+	 * as not found.
 	 */
 	@DeleteMapping("/dictionary")
-	public ResponseEntity<Object> deleteWord(@RequestBody DictionaryRemoveModel removeModel) {
-		var notFoundWords = new ArrayList<String>();
+	public ResponseEntity<Object> deleteWord(@RequestBody DictionaryRemoveModel removeModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		if (dictionaryName == null && replicationService.isReplica()) {
+			log.error("Can't remove words from a replica's base dictionary");
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		if (dictionaryName != null && !dictionaryRegistry.areOverlaysWritable()) {
+			log.error("Can't remove words from dictionary '{}': it isn't durable, but the mutation log is on",
+					dictionaryName);
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		var dictionary = dictionaryRegistry.findOrCreate(dictionaryName);
+		if (dictionary.isEmpty()) {
+			return ResponseEntity.badRequest().build();
+		}
+		var wordsToRemove = new ArrayList<String>();
 		for (var word : removeModel.getWordsToRemove()) {
 			if (!WordValidationUtils.isValidDictionaryWord(word)) {
 				log.warn("Invalid word provided: '{}'. Will not delete from dictionary...", word);
 				continue;
 			}
-			if (!dictionaryService.removeWord(word)) {
+			wordsToRemove.add(word);
+		}
+		var removedWords = dictionary.get().removeWords(wordsToRemove);
+		var notFoundWords = new ArrayList<String>();
+		var reportedWords = new HashSet<String>();
+		for (var word : wordsToRemove) {
+			if (!removedWords.get(word) || !reportedWords.add(word)) {
 				log.debug("Word not found in dictionary: '{}'. Skipping...", word);
 				notFoundWords.add(word);
 			}
@@ -0,0 +1,28 @@
+package com.forbes.takehometest.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Handles the errors common to the reactive controllers.
+ */
+@Slf4j
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveControllerAdvice {
+	/**
+	 * Returns a 503 when every request thread is busy and too many requests are already waiting for one, so that a
+	 * burst of requests is shed rather than queued without limit.
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<Object> handleRejectedRequest(RejectedExecutionException e) {
+		log.warn("Too many requests waiting for a thread. Rejecting request: {}", e.getMessage());
+		return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+}
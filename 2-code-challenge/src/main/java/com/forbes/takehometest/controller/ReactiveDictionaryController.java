@@ -0,0 +1,114 @@
+package com.forbes.takehometest.controller;
+
+import com.forbes.takehometest.model.dictionary.DictionaryAddModel;
+import com.forbes.takehometest.model.dictionary.DictionaryChangesModel;
+import com.forbes.takehometest.model.dictionary.DictionaryCompletionModel;
+import com.forbes.takehometest.model.dictionary.DictionaryListModel;
+import com.forbes.takehometest.model.dictionary.DictionaryRemoveModel;
+import com.forbes.takehometest.service.DictionaryRegistry;
+import com.forbes.takehometest.service.ReplicationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Serves the same REST API as {@link DictionaryController} on the reactive web layer (when the app is started with
+ * `spring.main.web-application-type=reactive`).
+ *
+ * Requests are handled by a {@link DictionaryController} too, but on the request scheduler rather than on the event
+ * loop, since adding or removing words waits for the mutation log to reach the disk. Streamed word lists are read
+ * from the dictionary as the client consumes them.
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDictionaryController {
+	private final DictionaryController dictionaryController;
+	private final DictionaryRegistry dictionaryRegistry;
+	private final ObjectMapper objectMapper;
+	private final Scheduler requestScheduler;
+
+	public ReactiveDictionaryController(DictionaryRegistry dictionaryRegistry, ReplicationService replicationService,
+			ObjectMapper objectMapper, Scheduler requestScheduler,
+			@Value("${corrector.dictionary.page.default-size:100}") int defaultPageSize,
+			@Value("${corrector.dictionary.page.max-size:1000}") int maxPageSize,
+			@Value("${corrector.dictionary.complete.max-k:100}") int maxCompletions,
+			@Value("${corrector.dictionary.changes.max-limit:10000}") int maxChanges) {
+		this.dictionaryController = new DictionaryController(dictionaryRegistry, replicationService, objectMapper,
+				defaultPageSize, maxPageSize, maxCompletions, maxChanges);
+		this.dictionaryRegistry = dictionaryRegistry;
+		this.objectMapper = objectMapper;
+		this.requestScheduler = requestScheduler;
+	}
+
+	@GetMapping("/dictionary")
+	public Mono<ResponseEntity<DictionaryListModel>> getAllWords(@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		return Mono.fromCallable(() -> dictionaryController.getAllWords(after, limit, dictionaryName))
+				.subscribeOn(requestScheduler);
+	}
+
+	/**
+	 * Same as {@link DictionaryController#streamAllWords}. The words are only iterated as fast as the client reads
+	 * them, and each one is written out as a line of JSON (a Flux of strings would be written as is).
+	 */
+	@GetMapping(value = "/dictionary", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<Flux<String>> streamAllWords(@RequestParam(required = false) String after,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return ResponseEntity.notFound().build();
+		}
+		log.info("Received request to stream words after '{}'", after);
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+				.body(Flux.fromIterable(dictionary.get().getWordsAfter(after))
+						.map(this::toJsonLine)
+						.subscribeOn(requestScheduler));
+	}
+
+	private String toJsonLine(String word) {
+		try {
+			return objectMapper.writeValueAsString(word) + '\n';
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@GetMapping("/dictionary/complete")
+	public Mono<ResponseEntity<DictionaryCompletionModel>> completeWord(@RequestParam String prefix,
+			@RequestParam(defaultValue = "10") int k,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		return Mono.fromCallable(() -> dictionaryController.completeWord(prefix, k, dictionaryName))
+				.subscribeOn(requestScheduler);
+	}
+
+	@GetMapping("/dictionary/changes")
+	public Mono<ResponseEntity<DictionaryChangesModel>> getChanges(@RequestParam(defaultValue = "0") long after,
+			@RequestParam(required = false) Integer limit) {
+		return Mono.fromCallable(() -> dictionaryController.getChanges(after, limit)).subscribeOn(requestScheduler);
+	}
+
+	@PostMapping("/dictionary")
+	public Mono<ResponseEntity<Object>> addWord(@RequestBody DictionaryAddModel addModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		return Mono.fromCallable(() -> dictionaryController.addWord(addModel, dictionaryName))
+				.subscribeOn(requestScheduler);
+	}
+
+	@DeleteMapping("/dictionary")
+	public Mono<ResponseEntity<Object>> deleteWord(@RequestBody DictionaryRemoveModel removeModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		return Mono.fromCallable(() -> dictionaryController.deleteWord(removeModel, dictionaryName))
+				.subscribeOn(requestScheduler);
+	}
+}
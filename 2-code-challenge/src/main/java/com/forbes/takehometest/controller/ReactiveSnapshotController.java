@@ -0,0 +1,39 @@
+package com.forbes.takehometest.controller;
+
+import com.forbes.takehometest.model.snapshot.SnapshotModel;
+import com.forbes.takehometest.service.SnapshotService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Serves the same REST API as {@link SnapshotController} on the reactive web layer. Snapshots are written and read on
+ * the request scheduler, since they read or write a whole file.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSnapshotController {
+	private final SnapshotController snapshotController;
+	private final Scheduler requestScheduler;
+
+	public ReactiveSnapshotController(SnapshotService snapshotService, Scheduler requestScheduler) {
+		this.snapshotController = new SnapshotController(snapshotService);
+		this.requestScheduler = requestScheduler;
+	}
+
+	@PostMapping("/dictionary/snapshot")
+	public Mono<ResponseEntity<SnapshotModel>> writeSnapshot() {
+		return Mono.fromCallable(snapshotController::writeSnapshot).subscribeOn(requestScheduler);
+	}
+
+	@GetMapping(value = "/dictionary/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public Mono<ResponseEntity<Resource>> readSnapshot() {
+		return Mono.fromCallable(snapshotController::readSnapshot).subscribeOn(requestScheduler);
+	}
+}
@@ -0,0 +1,189 @@
+package com.forbes.takehometest.controller;
+
+import com.forbes.takehometest.interfaces.IDictionaryService;
+import com.forbes.takehometest.interfaces.IStoryService;
+import com.forbes.takehometest.model.story.StoryContainerModel;
+import com.forbes.takehometest.model.story.StoryCorrectionsModel;
+import com.forbes.takehometest.model.story.StoryRevisionCorrectionsModel;
+import com.forbes.takehometest.model.story.StoryRevisionModel;
+import com.forbes.takehometest.model.story.StoryStreamErrorModel;
+import com.forbes.takehometest.service.DictionaryRegistry;
+import com.forbes.takehometest.util.DataBufferInputStream;
+import com.forbes.takehometest.util.JsonStoryReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Serves the same REST API as {@link StoryController} on the reactive web layer (when the app is started with
+ * `spring.main.web-application-type=reactive`).
+ *
+ * Stories are corrected on the request scheduler, so the event loop threads only move bytes, and a burst of large
+ * stories queues up for a bounded number of threads instead of tying up one thread per request. The JSON body of
+ * `/story` is decoded without blocking (up to `spring.codec.max-in-memory-size`). `/story/stream` reads the upload
+ * only as fast as it's corrected, and only corrects it as fast as the client reads the corrections, so a slow client
+ * holds a thread but never makes the server buffer its story or its corrections.
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStoryController {
+	/**
+	 * The most permits that a request for corrections adds, so that an unbounded request doesn't overflow them
+	 */
+	private static final int MAX_DEMAND = 1 << 20;
+
+	private final IStoryService storyService;
+	private final DictionaryRegistry dictionaryRegistry;
+	private final Scheduler requestScheduler;
+
+	public ReactiveStoryController(IStoryService storyService, DictionaryRegistry dictionaryRegistry,
+			Scheduler requestScheduler) {
+		this.storyService = storyService;
+		this.dictionaryRegistry = dictionaryRegistry;
+		this.requestScheduler = requestScheduler;
+	}
+
+	@PostMapping("/story")
+	public Mono<ResponseEntity<StoryCorrectionsModel>> correctStory(
+			@RequestBody StoryContainerModel storyContainerModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return Mono.just(ResponseEntity.notFound().build());
+		}
+		return Mono.fromCallable(() -> {
+			var corrections = storyService.getCorrections(storyContainerModel.getStory(), dictionary.get());
+			return ResponseEntity.ok(new StoryCorrectionsModel(storyContainerModel.getStory(), corrections));
+		}).subscribeOn(requestScheduler);
+	}
+
+	@PostMapping("/story/revision")
+	public Mono<ResponseEntity<StoryRevisionCorrectionsModel>> correctStoryRevision(
+			@RequestBody StoryRevisionModel storyRevisionModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return Mono.just(ResponseEntity.notFound().build());
+		}
+		if (storyRevisionModel.getStory() == null) {
+			log.error("Invalid request received: no story given");
+			return Mono.just(ResponseEntity.badRequest().build());
+		}
+		return Mono.fromCallable(() -> ResponseEntity.ok(storyService.getRevisionCorrections(
+				storyRevisionModel.getStory(), storyRevisionModel.getPreviousStoryHash(), dictionary.get())))
+				.subscribeOn(requestScheduler);
+	}
+
+	@PostMapping(value = "/story/stream", consumes = MediaType.TEXT_PLAIN_VALUE,
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<Flux<Object>> correctTextStoryStream(ServerHttpRequest request,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return ResponseEntity.notFound().build();
+		}
+		log.info("Correcting streamed text story...");
+		return ResponseEntity.ok(streamCorrections(Mono.fromCallable(() -> readBody(request)), dictionary.get()));
+	}
+
+	/**
+	 * Same as {@link #correctTextStoryStream}, but for a story sent in the same JSON format as the /story endpoint.
+	 * The body is read up to the start of the story before responding, so a body that's invalid up to there still gets
+	 * a 400. If it turns out to be invalid (or cut short) after that, the response ends with a
+	 * {@link StoryStreamErrorModel} line, like with {@link StoryController}.
+	 */
+	@PostMapping(value = "/story/stream", consumes = MediaType.APPLICATION_JSON_VALUE,
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Mono<ResponseEntity<Flux<Object>>> correctJsonStoryStream(ServerHttpRequest request,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return Mono.just(ResponseEntity.notFound().build());
+		}
+		log.info("Correcting streamed JSON story...");
+		var body = readBody(request);
+		return Mono.fromCallable(() -> JsonStoryReader.open(body))
+				.subscribeOn(requestScheduler)
+				.map(story -> ResponseEntity.ok(streamCorrections(Mono.just(story), dictionary.get())))
+				.doOnError(e -> closeQuietly(body))
+				.onErrorResume(JsonStoryReader.InvalidStoryException.class, e -> {
+					log.error("Invalid request received: {}", e.getMessage());
+					return Mono.just(ResponseEntity.badRequest().build());
+				});
+	}
+
+	/**
+	 * Returns a reader for the request body, in the charset of its content type (UTF-8 if it has none).
+	 */
+	private static Reader readBody(ServerHttpRequest request) {
+		var contentType = request.getHeaders().getContentType();
+		var charset = contentType == null || contentType.getCharset() == null ? StandardCharsets.UTF_8
+				: contentType.getCharset();
+		return new InputStreamReader(new DataBufferInputStream(request.getBody()), charset);
+	}
+
+	/**
+	 * Corrects the story on the request scheduler, and publishes the corrections as they're found. Each correction
+	 * waits for the client to ask for more (which it does as it reads the response) before it's published, which in
+	 * turn stops the story from being read any further until then, so corrections are never buffered beyond what the
+	 * client asked for. If the client goes away, the story stops being corrected. If the story turns out to be invalid
+	 * JSON, the corrections end with a {@link StoryStreamErrorModel}.
+	 */
+	private Flux<Object> streamCorrections(Mono<Reader> storyReader, IDictionaryService dictionary) {
+		// requests for more corrections are passed straight on: the thread they'd be scheduled on is the one waiting
+		return storyReader.flatMapMany(story -> Flux.<Object>create(sink -> {
+			var demand = new Semaphore(0);
+			sink.onRequest(count -> demand.release((int) Math.min(count, MAX_DEMAND)));
+			sink.onCancel(() -> demand.release(MAX_DEMAND));
+			try (story) {
+				storyService.streamCorrections(story, dictionary, corrections -> {
+					for (var correction : corrections) {
+						demand.acquireUninterruptibly();
+						if (sink.isCancelled()) {
+							throw new CancellationException("The client stopped reading the corrections");
+						}
+						sink.next(correction);
+					}
+				});
+				sink.complete();
+			} catch (IOException | RuntimeException e) {
+				if (!sink.isCancelled()) {
+					sink.error(e);
+				}
+			}
+		})).subscribeOn(requestScheduler, false)
+				.onErrorResume(JsonStoryReader.InvalidStoryException.class, e -> {
+					log.error("Invalid request received after the start of the story: {}", e.getMessage());
+					return Mono.just(new StoryStreamErrorModel(e.getMessage()));
+				});
+	}
+
+	private static void closeQuietly(Reader reader) {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			log.debug("Could not close the request body", e);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.forbes.takehometest.controller;
+
+import com.forbes.takehometest.model.snapshot.SnapshotModel;
+import com.forbes.takehometest.service.ReplicationService;
+import com.forbes.takehometest.service.SnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Serves the REST API for saving the dictionary to its snapshot file, and for downloading it.
+ *
+ * The reactive web layer serves the same API with {@link ReactiveSnapshotController}.
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SnapshotController {
+	private final SnapshotService snapshotService;
+
+	public SnapshotController(SnapshotService snapshotService) {
+		this.snapshotService = snapshotService;
+	}
+
+	/**
+	 * Writes a snapshot of the dictionary. A 409 response is returned if no snapshot file is configured.
+	 */
+	@PostMapping("/dictionary/snapshot")
+	public ResponseEntity<SnapshotModel> writeSnapshot() throws IOException {
+		log.info("Received request to write a dictionary snapshot");
+		if (!snapshotService.isEnabled()) {
+			log.warn("No snapshot file configured. Skipping snapshot...");
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		return ResponseEntity.ok(snapshotService.writeSnapshot());
+	}
+
+	/**
+	 * Downloads the latest snapshot of the dictionary, eg for a replica to start from (see {@link ReplicationService}).
+	 * A 409 response is returned if no snapshot file is configured, and a 404 if no snapshot was written yet.
+	 */
+	@GetMapping(value = "/dictionary/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public ResponseEntity<Resource> readSnapshot() throws IOException {
+		log.info("Received request to read the dictionary snapshot");
+		if (!snapshotService.isEnabled()) {
+			log.warn("No snapshot file configured. Can't read snapshot...");
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		var snapshot = snapshotService.openSnapshot();
+		if (snapshot.isEmpty()) {
+			log.warn("No snapshot written yet. Can't read snapshot...");
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(new InputStreamResource(snapshot.get()));
+	}
+}
@@ -1,31 +1,166 @@
 package com.forbes.takehometest.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.forbes.takehometest.interfaces.IDictionaryService;
 import com.forbes.takehometest.interfaces.IStoryService;
 import com.forbes.takehometest.model.story.StoryContainerModel;
 import com.forbes.takehometest.model.story.StoryCorrectionsModel;
+import com.forbes.takehometest.model.story.StoryRevisionCorrectionsModel;
+import com.forbes.takehometest.model.story.StoryRevisionModel;
+import com.forbes.takehometest.model.story.StoryStreamErrorModel;
+import com.forbes.takehometest.model.story.WordCorrection;
+import com.forbes.takehometest.service.DictionaryRegistry;
+import com.forbes.takehometest.util.JsonStoryReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Serves the REST API for providing corrections for a given story.
+ *
+ * Stories are corrected against the base dictionary by default, or against the named dictionary given with
+ * `?dictionary=...` (see {@link DictionaryRegistry}). A 404 is returned if there's no dictionary with that name.
+ *
+ * The reactive web layer serves the same API with {@link ReactiveStoryController}.
  */
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class StoryController {
 	private final IStoryService storyService;
+	private final DictionaryRegistry dictionaryRegistry;
+	private final ObjectWriter correctionWriter;
+	private final ObjectWriter errorWriter;
 
-	public StoryController(IStoryService storyService) {
+	public StoryController(IStoryService storyService, DictionaryRegistry dictionaryRegistry,
+			ObjectMapper objectMapper) {
 		this.storyService = storyService;
+		this.dictionaryRegistry = dictionaryRegistry;
+		this.correctionWriter = objectMapper.writerFor(WordCorrection.class);
+		this.errorWriter = objectMapper.writerFor(StoryStreamErrorModel.class);
 	}
 
 	@PostMapping("/story")
-	public StoryCorrectionsModel correctStory(@RequestBody StoryContainerModel storyContainerModel) {
-		var words = storyContainerModel.getStoryWords();
-		log.info("Correcting story with {} words...", words.size());
-		var corrections = storyService.getCorrections(words);
-		return new StoryCorrectionsModel(storyContainerModel.getStory(), corrections);
+	public ResponseEntity<StoryCorrectionsModel> correctStory(@RequestBody StoryContainerModel storyContainerModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return ResponseEntity.notFound().build();
+		}
+		var corrections = storyService.getCorrections(storyContainerModel.getStory(), dictionary.get());
+		return ResponseEntity.ok(new StoryCorrectionsModel(storyContainerModel.getStory(), corrections));
+	}
+
+	/**
+	 * Corrects a new revision of a story that was edited since it was last corrected, and returns its corrections as a
+	 * change to the ones returned for the previous revision (given by the story hash returned for it). Only the edited
+	 * part of the story is corrected again if the previous revision is still cached. The story is not echoed back.
+	 */
+	@PostMapping("/story/revision")
+	public ResponseEntity<StoryRevisionCorrectionsModel> correctStoryRevision(
+			@RequestBody StoryRevisionModel storyRevisionModel,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			return ResponseEntity.notFound().build();
+		}
+		if (storyRevisionModel.getStory() == null) {
+			log.error("Invalid request received: no story given");
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(storyService.getRevisionCorrections(storyRevisionModel.getStory(),
+				storyRevisionModel.getPreviousStoryHash(), dictionary.get()));
+	}
+
+	/**
+	 * Corrects a story sent as plain text while it is being uploaded. Each correction is written out as its own line of
+	 * JSON (NDJSON) as soon as it's found, and the story is not echoed back, so large documents can be corrected
+	 * without holding them in memory.
+	 */
+	@PostMapping(value = "/story/stream", consumes = MediaType.TEXT_PLAIN_VALUE)
+	public void correctTextStoryStream(HttpServletRequest request, HttpServletResponse response,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) throws IOException {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		log.info("Correcting streamed text story...");
+		streamCorrections(request.getReader(), dictionary.get(), response);
+	}
+
+	/**
+	 * Same as {@link #correctTextStoryStream}, but for a story sent in the same JSON format as the /story endpoint. The
+	 * story field is read incrementally rather than being deserialized into a String.
+	 *
+	 * A body that's invalid before the story starts gets a 400. If it turns out to be invalid (or cut short) after
+	 * that, the corrections have already started to be sent, so the response ends with a {@link StoryStreamErrorModel}
+	 * line instead. The last word read before the error isn't corrected, since it may have been cut short.
+	 */
+	@PostMapping(value = "/story/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public void correctJsonStoryStream(HttpServletRequest request, HttpServletResponse response,
+			@RequestParam(name = "dictionary", required = false) String dictionaryName) throws IOException {
+		var dictionary = dictionaryRegistry.find(dictionaryName);
+		if (dictionary.isEmpty()) {
+			log.error("Unknown dictionary requested: '{}'", dictionaryName);
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		log.info("Correcting streamed JSON story...");
+		Reader story;
+		try {
+			story = JsonStoryReader.open(request.getReader());
+		} catch (JsonStoryReader.InvalidStoryException e) {
+			log.error("Invalid request received: {}", e.getMessage());
+			response.setStatus(HttpStatus.BAD_REQUEST.value());
+			return;
+		}
+		streamCorrections(story, dictionary.get(), response);
 	}
 
+	private void streamCorrections(Reader story, IDictionaryService dictionary, HttpServletResponse response)
+			throws IOException {
+		response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		var out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+		try {
+			storyService.streamCorrections(story, dictionary, corrections -> {
+				try {
+					for (var correction : corrections) {
+						out.write(correctionWriter.writeValueAsString(correction));
+						out.write('\n');
+					}
+					out.flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (JsonStoryReader.InvalidStoryException e) {
+			log.error("Invalid request received after the start of the story: {}", e.getMessage());
+			out.write(errorWriter.writeValueAsString(new StoryStreamErrorModel(e.getMessage())));
+			out.write('\n');
+		}
+		out.flush();
+	}
 }
@@ -0,0 +1,77 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.Dawg;
+import com.forbes.takehometest.triedb.DawgFile;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.NodeCounts;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements methods for reading/writing to a Dawg. Since we are not using an external DB, the Dawg instance is
+ * stored within this class.
+ *
+ * Unlike the {@link TrieDao}, there is no limit on the length of the words that can be indexed. Snapshots are used
+ * as they are on disk, without reading their words.
+ */
+public class DawgDao implements ITrieDao {
+	private final Dawg dawg = new Dawg();
+
+	@Override
+	public void addWord(String word) {
+		dawg.addWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> addWords(List<String> sortedWords) {
+		return dawg.addWords(sortedWords);
+	}
+
+	@Override
+	public void loadWords(List<String> sortedWords) {
+		dawg.loadWords(sortedWords);
+	}
+
+	@Override
+	public void loadSnapshot(DawgFile snapshot) {
+		dawg.loadSnapshot(snapshot);
+	}
+
+	@Override
+	public boolean removeWord(String word) {
+		return dawg.deleteWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> removeWords(List<String> sortedWords) {
+		return dawg.deleteWords(sortedWords);
+	}
+
+	@Override
+	public boolean hasWord(CharSequence word) {
+		return dawg.contains(word);
+	}
+
+	@Override
+	public void findClosestMatchesFor(String word, MatchCollector matches) {
+		dawg.findClosestMatches(word, matches);
+	}
+
+	@Override
+	public void findCompletionsFor(String prefix, CompletionCollector completions) {
+		dawg.completionsOf(prefix, completions);
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return true;
+	}
+
+	@Override
+	public NodeCounts getNodeCounts() {
+		return dawg.nodeCounts();
+	}
+}
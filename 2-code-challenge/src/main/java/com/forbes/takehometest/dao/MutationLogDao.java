@@ -0,0 +1,379 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.IMutationLogDao;
+import com.forbes.takehometest.util.FileSyncUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Implements an append-only log of dictionary mutations (a write-ahead log) stored in a file.
+ *
+ * The file starts with a header holding the sequence number of the last mutation dropped by compaction, followed by one
+ * record per mutation: the record's length, its sequence number, the operation, the word (UTF-8) and a CRC32C checksum.
+ * A crash while appending can leave an incomplete record at the end of the file, which is detected by its checksum and
+ * discarded when the log is opened.
+ *
+ * Appending a mutation only copies it to an in-memory buffer. Making it durable (see {@link #sync(long)}) uses group
+ * commit: one thread at a time writes every buffered mutation to the file and forces it to disk, while the other
+ * threads wait. When a waiting thread gets its turn, its mutation has usually been forced along with the previous batch
+ * already, so concurrent writers share one fsync rather than paying for one each.
+ *
+ * The log also serves as the dictionary's change feed (see {@link #readMutations(long, int, Consumer)}). To read from a
+ * given sequence number without scanning the whole file, the position of every {@link #CHECKPOINT_INTERVAL}th record
+ * is kept in memory.
+ */
+@Slf4j
+public class MutationLogDao implements IMutationLogDao {
+	private static final int MAGIC = 0x4457414C; // "DWAL"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_HEADER_SIZE = 8 + 1;
+	private static final int CHECKPOINT_INTERVAL = 1024;
+
+	private final Path file;
+	private final long compactionThreshold;
+	/**
+	 * Held while writing to the file, which serializes syncs and compactions. (Appends only lock this instance, so they
+	 * are never blocked by a sync)
+	 */
+	private final Object syncLock = new Object();
+	private final Object compactionLock = new Object();
+	private final ByteArrayOutputStream pendingRecords = new ByteArrayOutputStream();
+	private final AtomicBoolean isCompactionRequested = new AtomicBoolean();
+	/**
+	 * Maps the sequence number of every CHECKPOINT_INTERVAL-th record to its position in the file. The records still
+	 * pending are mapped to their position in the pending buffer until they're written.
+	 */
+	private final NavigableMap<Long, Long> checkpoints = new ConcurrentSkipListMap<>();
+	private final Map<Long, Integer> pendingCheckpoints = new HashMap<>();
+	private final AtomicLong forceCount = new AtomicLong();
+	private FileChannel channel;
+	private IOException failure;
+	private volatile long baseSequence;
+	private volatile long size;
+	private volatile long lastSequence;
+	private volatile long durableSequence;
+	private volatile Runnable compactionListener = () -> {};
+
+	/**
+	 * Opens the given log file (creating it if needed), discarding any incomplete record at its end.
+	 */
+	public MutationLogDao(Path file, long compactionThreshold) throws IOException {
+		this.file = file;
+		this.compactionThreshold = compactionThreshold;
+		if (!Files.exists(file)) {
+			writeLogFile(0, null, 0, 0);
+		}
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		baseSequence = readBaseSequence();
+		var lastRecordSequence = new long[]{baseSequence};
+		var end = scan(HEADER_SIZE, channel.size(), (mutation, position) -> {
+			lastRecordSequence[0] = mutation.sequence();
+			if (mutation.sequence() % CHECKPOINT_INTERVAL == 0) {
+				checkpoints.put(mutation.sequence(), position);
+			}
+			return true;
+		});
+		if (end < channel.size()) {
+			log.warn("Discarding {} bytes of incomplete mutations at the end of '{}'", channel.size() - end, file);
+			channel.truncate(end);
+			channel.force(true);
+		}
+		channel.position(end);
+		size = end;
+		lastSequence = lastRecordSequence[0];
+		durableSequence = lastSequence;
+		log.info("Opened mutation log '{}' ({} bytes, last sequence {})", file, size, lastSequence);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public synchronized long append(Operation operation, String word) {
+		var wordBytes = word.getBytes(StandardCharsets.UTF_8);
+		var length = RECORD_HEADER_SIZE + wordBytes.length;
+		var sequence = lastSequence + 1;
+		if (sequence % CHECKPOINT_INTERVAL == 0) {
+			pendingCheckpoints.put(sequence, pendingRecords.size());
+		}
+		var record = ByteBuffer.allocate(4 + length + 4);
+		record.putInt(length).putLong(sequence).put((byte) operation.ordinal()).put(wordBytes);
+		var checksum = new CRC32C();
+		checksum.update(record.array(), 4, length);
+		record.putInt((int) checksum.getValue());
+		pendingRecords.write(record.array(), 0, record.capacity());
+		lastSequence = sequence;
+		return sequence;
+	}
+
+	@Override
+	public void sync(long sequence) throws IOException {
+		if (durableSequence >= sequence) {
+			return;
+		}
+		synchronized (syncLock) {
+			// another thread may have forced this mutation to disk while we were waiting
+			if (durableSequence >= sequence) {
+				return;
+			}
+			var writtenSequence = writePendingRecords();
+			forceToDisk();
+			durableSequence = writtenSequence;
+		}
+		if (size > compactionThreshold && isCompactionRequested.compareAndSet(false, true)) {
+			log.info("Mutation log '{}' has grown to {} bytes. Requesting compaction...", file, size);
+			compactionListener.run();
+		}
+	}
+
+	@Override
+	public long getLastSequence() {
+		return lastSequence;
+	}
+
+	@Override
+	public long getDurableSequence() {
+		return durableSequence;
+	}
+
+	@Override
+	public long getCompactedSequence() {
+		return baseSequence;
+	}
+
+	/**
+	 * Returns how many times the appended records were forced to disk, which is less than the number of syncs when they
+	 * were grouped.
+	 */
+	long getForceCount() {
+		return forceCount.get();
+	}
+
+	@Override
+	public long readMutations(long afterSequence, Consumer<Mutation> consumer) throws IOException {
+		var count = new long[1];
+		scan(HEADER_SIZE, size, (mutation, position) -> {
+			if (mutation.sequence() > afterSequence) {
+				consumer.accept(mutation);
+				count[0]++;
+			}
+			return true;
+		});
+		return count[0];
+	}
+
+	/**
+	 * Starts scanning at the last checkpoint before the first mutation to read. Compaction is blocked while reading, so
+	 * the file and the checkpoints don't change underneath.
+	 */
+	@Override
+	public long readMutations(long afterSequence, int limit, Consumer<Mutation> consumer) throws IOException {
+		synchronized (compactionLock) {
+			var durable = durableSequence;
+			var checkpoint = checkpoints.floorEntry(afterSequence + 1);
+			var count = new long[1];
+			scan(checkpoint == null ? HEADER_SIZE : checkpoint.getValue(), size, (mutation, position) -> {
+				if (mutation.sequence() > durable || count[0] == limit) {
+					return false;
+				}
+				if (mutation.sequence() > afterSequence) {
+					consumer.accept(mutation);
+					count[0]++;
+				}
+				return true;
+			});
+			return count[0];
+		}
+	}
+
+	/**
+	 * Rewrites the log without the mutations up to the given sequence number. Most of the file is scanned before
+	 * taking the sync lock (the records already written never change), so syncs are only blocked while the remaining
+	 * records are copied to the new file.
+	 */
+	@Override
+	public void compact(long throughSequence) throws IOException {
+		synchronized (compactionLock) {
+			var keepFrom = firstPositionAfter(HEADER_SIZE, size, throughSequence);
+			synchronized (syncLock) {
+				var writtenSequence = writePendingRecords();
+				keepFrom = firstPositionAfter(keepFrom, size, throughSequence);
+				var droppedBytes = keepFrom - HEADER_SIZE;
+				baseSequence = Math.max(baseSequence, throughSequence);
+				writeLogFile(baseSequence, channel, keepFrom, size);
+				var keptCheckpoints = new HashMap<Long, Long>();
+				for (var checkpoint : checkpoints.entrySet()) {
+					if (checkpoint.getValue() >= keepFrom) {
+						keptCheckpoints.put(checkpoint.getKey(), checkpoint.getValue() - droppedBytes);
+					}
+				}
+				checkpoints.clear();
+				checkpoints.putAll(keptCheckpoints);
+				channel.close();
+				channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				size = channel.size();
+				channel.position(size);
+				durableSequence = writtenSequence;
+				log.info("Compacted mutation log '{}': dropped {} bytes up to sequence {}, kept {} bytes", file,
+						droppedBytes, throughSequence, size - HEADER_SIZE);
+			}
+			isCompactionRequested.set(false);
+		}
+	}
+
+	@Override
+	public void onCompactionNeeded(Runnable listener) {
+		this.compactionListener = listener;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (syncLock) {
+			if (failure == null) {
+				writePendingRecords();
+				forceToDisk();
+			}
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the buffered records to the file, and returns the sequence number of the last one. Must be called with the
+	 * sync lock held.
+	 *
+	 * If a write fails, the log can no longer tell which mutations made it to disk, so every later sync fails too.
+	 */
+	private long writePendingRecords() throws IOException {
+		if (failure != null) {
+			throw new IOException("Mutation log '" + file + "' failed earlier", failure);
+		}
+		byte[] records;
+		long sequence;
+		Map<Long, Integer> recordCheckpoints;
+		synchronized (this) {
+			records = pendingRecords.toByteArray();
+			pendingRecords.reset();
+			sequence = lastSequence;
+			recordCheckpoints = new HashMap<>(pendingCheckpoints);
+			pendingCheckpoints.clear();
+		}
+		try {
+			var buffer = ByteBuffer.wrap(records);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+		for (var checkpoint : recordCheckpoints.entrySet()) {
+			checkpoints.put(checkpoint.getKey(), size + checkpoint.getValue());
+		}
+		size += records.length;
+		return sequence;
+	}
+
+	private void forceToDisk() throws IOException {
+		try {
+			forceCount.incrementAndGet();
+			channel.force(false);
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes a new log file with the given base sequence number and the records between from and to in the source
+	 * file. The file is written next to the log and then moved over it, so the log is never left half-written. The
+	 * log's directory is forced to disk before returning, so the records are durable again once this returns.
+	 */
+	private void writeLogFile(long baseSequence, FileChannel source, long from, long to) throws IOException {
+		var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (var out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			var header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).putLong(baseSequence);
+			out.write(header.flip());
+			for (var position = from; position < to; ) {
+				position += source.transferTo(position, to - position, out);
+			}
+			out.force(true);
+		}
+		FileSyncUtils.moveAtomically(tempFile, file);
+	}
+
+	private long readBaseSequence() throws IOException {
+		var header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0) {}
+		if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("'" + file + "' is not a valid mutation log file");
+		}
+		return header.getLong(8);
+	}
+
+	private long firstPositionAfter(long from, long to, long sequence) throws IOException {
+		return scan(from, to, (mutation, position) -> mutation.sequence() <= sequence);
+	}
+
+	/**
+	 * Reads the records between from and to, passing each (and its position) to the visitor until it returns false.
+	 * Returns the position of the record the visitor stopped at, or the end of the last complete record.
+	 */
+	private long scan(long from, long to, RecordVisitor visitor) throws IOException {
+		var operations = Operation.values();
+		try (var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(
+				FileChannel.open(file, StandardOpenOption.READ).position(from))))) {
+			var position = from;
+			while (position + 4 <= to) {
+				var length = in.readInt();
+				if (length < RECORD_HEADER_SIZE || position + 4 + length + 4 > to) {
+					break;
+				}
+				var record = new byte[length];
+				in.readFully(record);
+				var checksum = new CRC32C();
+				checksum.update(record);
+				if (in.readInt() != (int) checksum.getValue() || record[8] < 0 || record[8] >= operations.length) {
+					break;
+				}
+				var mutation = new Mutation(ByteBuffer.wrap(record).getLong(), operations[record[8]],
+						new String(record, RECORD_HEADER_SIZE, length - RECORD_HEADER_SIZE, StandardCharsets.UTF_8));
+				if (!visitor.visit(mutation, position)) {
+					break;
+				}
+				position += 4 + length + 4;
+			}
+			return position;
+		} catch (EOFException e) {
+			throw new IOException("Mutation log '" + file + "' is shorter than expected", e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface RecordVisitor {
+		boolean visit(Mutation mutation, long position);
+	}
+}
@@ -0,0 +1,58 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.IMutationLogDao;
+
+import java.util.function.Consumer;
+
+/**
+ * Used when no mutation log file is configured. Mutations are not recorded, so changes made to the dictionary since
+ * the last snapshot are lost on restart.
+ */
+public class NoOpMutationLogDao implements IMutationLogDao {
+	@Override
+	public boolean isEnabled() {
+		return false;
+	}
+
+	@Override
+	public long append(Operation operation, String word) {
+		return 0;
+	}
+
+	@Override
+	public void sync(long sequence) {}
+
+	@Override
+	public long getLastSequence() {
+		return 0;
+	}
+
+	@Override
+	public long getDurableSequence() {
+		return 0;
+	}
+
+	@Override
+	public long getCompactedSequence() {
+		return 0;
+	}
+
+	@Override
+	public long readMutations(long afterSequence, Consumer<Mutation> consumer) {
+		return 0;
+	}
+
+	@Override
+	public long readMutations(long afterSequence, int limit, Consumer<Mutation> consumer) {
+		return 0;
+	}
+
+	@Override
+	public void compact(long throughSequence) {}
+
+	@Override
+	public void onCompactionNeeded(Runnable listener) {}
+
+	@Override
+	public void close() {}
+}
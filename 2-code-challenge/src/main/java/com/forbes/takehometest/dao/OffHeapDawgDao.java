@@ -0,0 +1,77 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.DawgFile;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.NodeCounts;
+import com.forbes.takehometest.triedb.OffHeapDawg;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements methods for reading/writing to an OffHeapDawg. Since we are not using an external DB, the OffHeapDawg
+ * instance is stored within this class.
+ *
+ * Unlike the {@link TrieDao}, there is no limit on the length of the words that can be indexed. Snapshots are copied
+ * into the OffHeapDawg's memory as they are, without reading their words.
+ */
+public class OffHeapDawgDao implements ITrieDao {
+	private final OffHeapDawg offHeapDawg = new OffHeapDawg();
+
+	@Override
+	public void addWord(String word) {
+		offHeapDawg.addWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> addWords(List<String> sortedWords) {
+		return offHeapDawg.addWords(sortedWords);
+	}
+
+	@Override
+	public void loadWords(List<String> sortedWords) {
+		offHeapDawg.loadWords(sortedWords);
+	}
+
+	@Override
+	public void loadSnapshot(DawgFile snapshot) {
+		offHeapDawg.loadSnapshot(snapshot);
+	}
+
+	@Override
+	public boolean removeWord(String word) {
+		return offHeapDawg.deleteWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> removeWords(List<String> sortedWords) {
+		return offHeapDawg.deleteWords(sortedWords);
+	}
+
+	@Override
+	public boolean hasWord(CharSequence word) {
+		return offHeapDawg.contains(word);
+	}
+
+	@Override
+	public void findClosestMatchesFor(String word, MatchCollector matches) {
+		offHeapDawg.findClosestMatches(word, matches);
+	}
+
+	@Override
+	public void findCompletionsFor(String prefix, CompletionCollector completions) {
+		offHeapDawg.completionsOf(prefix, completions);
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return true;
+	}
+
+	@Override
+	public NodeCounts getNodeCounts() {
+		return offHeapDawg.nodeCounts();
+	}
+}
@@ -0,0 +1,70 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.NodeCounts;
+import com.forbes.takehometest.triedb.PlainTrie;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements methods for reading/writing to a PlainTrie. Since we are not using an external DB, the PlainTrie instance
+ * is stored within this class.
+ *
+ * Unlike the {@link TrieDao}, there is no limit on the length of the words that can be indexed.
+ */
+public class PlainTrieDao implements ITrieDao {
+	private final PlainTrie plainTrie = new PlainTrie();
+
+	@Override
+	public void addWord(String word) {
+		plainTrie.addWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> addWords(List<String> sortedWords) {
+		return plainTrie.addWords(sortedWords);
+	}
+
+	@Override
+	public void loadWords(List<String> sortedWords) {
+		plainTrie.loadWords(sortedWords);
+	}
+
+	@Override
+	public boolean removeWord(String word) {
+		return plainTrie.deleteWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> removeWords(List<String> sortedWords) {
+		return plainTrie.deleteWords(sortedWords);
+	}
+
+	@Override
+	public boolean hasWord(CharSequence word) {
+		return plainTrie.contains(word);
+	}
+
+	@Override
+	public void findClosestMatchesFor(String word, MatchCollector matches) {
+		plainTrie.findClosestMatches(word, matches);
+	}
+
+	@Override
+	public void findCompletionsFor(String prefix, CompletionCollector completions) {
+		plainTrie.completionsOf(prefix, completions);
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return true;
+	}
+
+	@Override
+	public NodeCounts getNodeCounts() {
+		return plainTrie.nodeCounts();
+	}
+}
@@ -0,0 +1,75 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.DeletionIndex;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.NodeCounts;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements methods for reading/writing to a SymSpell-style {@link DeletionIndex}. Since we are not using an external
+ * DB, the index instance is stored within this class.
+ *
+ * Close-matches are only looked for up to the configured max edit distance, so words that are further away from every
+ * dictionary word get no correction (where the {@link TrieDao} would allow up to 50% of the word to be errors).
+ */
+public class SymSpellDao implements ITrieDao {
+	private final DeletionIndex deletionIndex;
+
+	public SymSpellDao(int maxEditDistance, int prefixLength) {
+		this.deletionIndex = new DeletionIndex(maxEditDistance, prefixLength);
+	}
+
+	@Override
+	public void addWord(String word) {
+		deletionIndex.addWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> addWords(List<String> sortedWords) {
+		return deletionIndex.addWords(sortedWords);
+	}
+
+	@Override
+	public void loadWords(List<String> sortedWords) {
+		deletionIndex.loadWords(sortedWords);
+	}
+
+	@Override
+	public boolean removeWord(String word) {
+		return deletionIndex.deleteWord(word);
+	}
+
+	@Override
+	public Map<String, Boolean> removeWords(List<String> sortedWords) {
+		return deletionIndex.deleteWords(sortedWords);
+	}
+
+	@Override
+	public boolean hasWord(CharSequence word) {
+		return deletionIndex.contains(word);
+	}
+
+	@Override
+	public void findClosestMatchesFor(String word, MatchCollector matches) {
+		deletionIndex.findClosestMatches(word, matches);
+	}
+
+	@Override
+	public void findCompletionsFor(String prefix, CompletionCollector completions) {
+		deletionIndex.completionsOf(prefix, completions);
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return true;
+	}
+
+	@Override
+	public NodeCounts getNodeCounts() {
+		return deletionIndex.nodeCounts();
+	}
+}
@@ -1,34 +1,78 @@
 package com.forbes.takehometest.dao;
 
 import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.NodeCounts;
 import com.forbes.takehometest.triedb.Trie;
+import com.forbes.takehometest.util.WordValidationUtils;
 
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Implements methods for reading/writing to a Trie. Since we are not using an external DB, the Trie instance is
  * stored within this class.
  */
 public class TrieDao implements ITrieDao {
-	private final Trie trie = new Trie();
+	private final Trie trie;
+
+	/**
+	 * Creates an empty Trie, which is compacted on the given executor once the words deleted from it make up the given
+	 * ratio of its words.
+	 */
+	public TrieDao(double tombstoneRatio, Executor compactionExecutor) {
+		this.trie = new Trie(tombstoneRatio, compactionExecutor);
+	}
 
 	@Override
 	public void addWord(String word) {
 		trie.addWord(word);
 	}
 
+	@Override
+	public Map<String, Boolean> addWords(List<String> sortedWords) {
+		return trie.addWords(sortedWords);
+	}
+
+	@Override
+	public void loadWords(List<String> sortedWords) {
+		trie.loadWords(sortedWords);
+	}
+
 	@Override
 	public boolean removeWord(String word) {
 		return trie.deleteWord(word);
 	}
 
 	@Override
-	public boolean hasWord(String word) {
+	public Map<String, Boolean> removeWords(List<String> sortedWords) {
+		return trie.deleteWords(sortedWords);
+	}
+
+	@Override
+	public boolean hasWord(CharSequence word) {
 		return trie.contains(word);
 	}
 
 	@Override
-	public Set<String> getClosestMatchesFor(String word) {
-		return trie.closestMatches(word);
+	public void findClosestMatchesFor(String word, MatchCollector matches) {
+		trie.findClosestMatches(word, matches);
+	}
+
+	@Override
+	public void findCompletionsFor(String prefix, CompletionCollector completions) {
+		trie.completionsOf(prefix, completions);
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return WordValidationUtils.canWordBeIndexed(word);
+	}
+
+	@Override
+	public NodeCounts getNodeCounts() {
+		return trie.nodeCounts();
 	}
 }
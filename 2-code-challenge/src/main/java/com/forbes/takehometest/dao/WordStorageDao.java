@@ -1,11 +1,16 @@
 package com.forbes.takehometest.dao;
 
 import com.forbes.takehometest.interfaces.IWordStorageDao;
+import com.forbes.takehometest.triedb.DawgFile;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * Implements methods for reading/writing to a Word Storage. Since we are not using an external DB, the Word Storage
@@ -15,22 +20,100 @@ import java.util.TreeSet;
  * O(log n) time, although this also causes word-gets to happen in O(n log n) time. This is a reasonable trade-off to
  * make since it's unlikely we will need to constantly read the entire dictionary off the web server in production.
  * (If we used an array, deletes would take O(n) time and word-gets would be O(n) time)
+ *
+ * The words are kept in a ConcurrentSkipListSet rather than a TreeSet, which has the same sorted order and O(log n)
+ * costs, but lets the dictionary be read without locking while other requests add/remove words.
+ *
+ * Pages of the dictionary (see {@link #getWordsAfter(String)}) are read straight from the skip list, starting from the
+ * given word, so they don't need to copy the whole dictionary first.
+ *
+ * Word weights are kept in a separate hash map, which only holds the words that have a weight. Removing a word also
+ * removes its weight, so a word that is removed and added again no longer has one. The highest weight is worked out
+ * when the weights are loaded, and kept as it is until the next load.
+ *
+ * When the words are loaded from a snapshot, they're only read from it the first time the Word Storage is used, so
+ * that loading a snapshot at startup doesn't have to read every word in it.
  */
 public class WordStorageDao implements IWordStorageDao {
-	private final Set<String> words = new TreeSet<>();
+	private volatile NavigableSet<String> words = new ConcurrentSkipListSet<>();
+	private volatile Map<String, Long> weights = new ConcurrentHashMap<>();
+	private volatile long maxWeight;
+	private volatile DawgFile pendingSnapshot;
 
 	@Override
 	public void addWord(String word) {
-		words.add(word);
+		words().add(word);
+	}
+
+	@Override
+	public void addWords(List<String> sortedWords) {
+		words().addAll(sortedWords);
+	}
+
+	@Override
+	public synchronized void loadWords(List<String> sortedWords, Map<String, Long> weights) {
+		pendingSnapshot = null;
+		words = new ConcurrentSkipListSet<>(sortedWords);
+		setWeights(weights);
+	}
+
+	@Override
+	public synchronized void loadSnapshot(DawgFile snapshot) {
+		pendingSnapshot = snapshot;
+		setWeights(snapshot.readWeights());
+	}
+
+	private void setWeights(Map<String, Long> weights) {
+		this.weights = new ConcurrentHashMap<>(weights);
+		maxWeight = weights.values().stream().mapToLong(Long::longValue).max().orElse(0);
 	}
 
 	@Override
 	public void removeWord(String word) {
-		words.remove(word);
+		words().remove(word);
+		weights.remove(word);
+	}
+
+	@Override
+	public void removeWords(List<String> sortedWords) {
+		sortedWords.forEach(this::removeWord);
 	}
 
 	@Override
 	public List<String> getWords() {
-		return new ArrayList<>(words);
+		return new ArrayList<>(words());
+	}
+
+	@Override
+	public long getWeight(String word) {
+		return weights.getOrDefault(word, 0L);
+	}
+
+	@Override
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	@Override
+	public Map<String, Long> getWeights() {
+		return new HashMap<>(weights);
+	}
+
+	@Override
+	public Iterable<String> getWordsAfter(String after) {
+		var sortedWords = words();
+		return Collections.unmodifiableSet(after == null ? sortedWords : sortedWords.tailSet(after, false));
+	}
+
+	private NavigableSet<String> words() {
+		if (pendingSnapshot != null) {
+			synchronized (this) {
+				if (pendingSnapshot != null) {
+					words = new ConcurrentSkipListSet<>(pendingSnapshot.readWords());
+					pendingSnapshot = null;
+				}
+			}
+		}
+		return words;
 	}
 }
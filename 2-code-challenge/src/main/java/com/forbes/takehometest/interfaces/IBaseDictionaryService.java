@@ -0,0 +1,43 @@
+package com.forbes.takehometest.interfaces;
+
+import com.forbes.takehometest.interfaces.IMutationLogDao.Mutation;
+import com.forbes.takehometest.triedb.DawgFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Defines the methods that only the base dictionary supports on top of {@link IDictionaryService}: loading it in bulk
+ * or from a snapshot, and replaying or reading the changes recorded in its mutation log. Named dictionaries are only
+ * kept in memory, so they don't support them.
+ */
+public interface IBaseDictionaryService extends IDictionaryService {
+	void loadWords(List<String> sortedWords, Map<String, Long> weights);
+
+	void loadSnapshot(DawgFile snapshot);
+
+	long replayMutationLog(long afterSequence) throws IOException;
+
+	/**
+	 * Returns whether the changes made to the dictionary are recorded in order, so they can be read with
+	 * {@link #getChanges(long, int)}.
+	 */
+	boolean hasChangeFeed();
+
+	/**
+	 * Returns up to limit of the changes made to the dictionary after the given sequence number, in order, and the
+	 * sequence number of the latest change. Only the changes that are durable are returned. Returns an empty result if
+	 * the changes after that sequence number are no longer available, in which case the caller has to start over from
+	 * a snapshot.
+	 */
+	Optional<Changes> getChanges(long afterSequence, int limit) throws IOException;
+
+	/**
+	 * Holds a batch of changes made to the dictionary, in order, and the sequence number of the latest change made to
+	 * it when the batch was read.
+	 */
+	record Changes(List<Mutation> mutations, long lastSequence) {
+	}
+}
@@ -1,6 +1,10 @@
 package com.forbes.takehometest.interfaces;
 
+import com.forbes.takehometest.triedb.SearchBudget;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -9,11 +13,73 @@ import java.util.Optional;
 public interface IDictionaryService {
 	List<String> getWords();
 
+	/**
+	 * Returns the words that sort after the given word (or all of them if it's null), in sorted order, without copying
+	 * the dictionary.
+	 */
+	Iterable<String> getWordsAfter(String after);
+
 	boolean addWord(String word);
 
+	/**
+	 * Adds the given words (in any order, possibly repeated) and returns whether each distinct word was added, in
+	 * sorted order.
+	 */
+	Map<String, Boolean> addWords(Collection<String> words);
+
 	boolean removeWord(String word);
 
-	boolean hasWord(String word);
+	/**
+	 * Removes the given words (in any order, possibly repeated) and returns whether each distinct word was removed, in
+	 * sorted order.
+	 */
+	Map<String, Boolean> removeWords(Collection<String> words);
+
+	/**
+	 * Checks if the given word is in the dictionary, without copying it into a String where the index allows (see
+	 * {@link ITrieDao#hasWord(CharSequence)}).
+	 */
+	boolean hasWord(CharSequence word);
 
 	Optional<String> getClosestWord(String word);
+
+	/**
+	 * Same as {@link #getClosestWord(String)}, but the search also draws from the given budget (eg the story's), so it
+	 * may be cut short.
+	 */
+	ClosestMatches getClosestWord(String word, SearchBudget budget);
+
+	/**
+	 * Returns up to k of the closest matches for the given word, best first: fewest errors, then highest weight, then
+	 * sorted order. The search is limited by the per-search limits and by the given budget.
+	 */
+	ClosestMatches getClosestWords(String word, int k, SearchBudget budget);
+
+	/**
+	 * Returns a copy of the weights of every word that has one.
+	 */
+	Map<String, Long> getWeights();
+
+	/**
+	 * Returns up to k dictionary words that start with the given prefix, best first: highest weight, then sorted
+	 * order.
+	 */
+	List<String> getCompletions(String prefix, int k);
+
+	boolean canIndexWord(CharSequence word);
+
+	/**
+	 * Returns the dictionary's version, which changes every time a word is actually added or removed.
+	 */
+	long getVersion();
+
+	/**
+	 * Holds the closest matches found for a word, best first, and whether the search was cut short by its budget (in
+	 * which case they're only the best of the matches found before it stopped).
+	 */
+	record ClosestMatches(List<String> words, boolean truncated) {
+		public Optional<String> closest() {
+			return words.stream().findFirst();
+		}
+	}
 }
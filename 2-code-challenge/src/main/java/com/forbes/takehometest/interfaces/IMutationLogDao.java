@@ -0,0 +1,66 @@
+package com.forbes.takehometest.interfaces;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Defines the methods that a Mutation Log DAO should support for recording the changes made to the dictionary, so they
+ * can be replayed on top of the latest snapshot after a restart, or by replicas.
+ */
+public interface IMutationLogDao extends Closeable {
+	boolean isEnabled();
+
+	/**
+	 * Appends a mutation to the log and returns its sequence number. The mutation is not durable until
+	 * {@link #sync(long)} returns for its sequence number.
+	 */
+	long append(Operation operation, String word);
+
+	/**
+	 * Blocks until every mutation up to the given sequence number is durable.
+	 */
+	void sync(long sequence) throws IOException;
+
+	/**
+	 * Returns the sequence number of the last mutation appended to the log.
+	 */
+	long getLastSequence();
+
+	/**
+	 * Returns the sequence number of the last mutation that is durable.
+	 */
+	long getDurableSequence();
+
+	/**
+	 * Returns the sequence number of the last mutation dropped by compaction (0 if none were).
+	 */
+	long getCompactedSequence();
+
+	/**
+	 * Passes each mutation after the given sequence number to the consumer, in order, and returns how many there were.
+	 */
+	long readMutations(long afterSequence, Consumer<Mutation> consumer) throws IOException;
+
+	/**
+	 * Same as {@link #readMutations(long, Consumer)}, but only for the durable mutations, and stops after the given
+	 * number of mutations. The mutations after the given sequence number must not have been compacted.
+	 */
+	long readMutations(long afterSequence, int limit, Consumer<Mutation> consumer) throws IOException;
+
+	/**
+	 * Drops the mutations up to the given sequence number, which must all be included in a snapshot.
+	 */
+	void compact(long throughSequence) throws IOException;
+
+	/**
+	 * Sets the callback run (once) when the log has grown large enough to be compacted.
+	 */
+	void onCompactionNeeded(Runnable listener);
+
+	enum Operation {
+		ADD, REMOVE
+	}
+
+	record Mutation(long sequence, Operation operation, String word) {}
+}
@@ -1,12 +1,36 @@
 package com.forbes.takehometest.interfaces;
 
+import com.forbes.takehometest.model.story.StoryRevisionCorrectionsModel;
 import com.forbes.takehometest.model.story.WordCorrection;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Defines the methods that a story service should support for correcting a story
  */
 public interface IStoryService {
+	List<WordCorrection> getCorrections(CharSequence story);
+
+	/**
+	 * Same as {@link #getCorrections(CharSequence)}, against the given dictionary (eg a named dictionary) rather than
+	 * the base one.
+	 */
+	List<WordCorrection> getCorrections(CharSequence story, IDictionaryService dictionary);
+
 	List<WordCorrection> getCorrections(List<String> words);
+
+	/**
+	 * Corrects a new revision of a story against the given dictionary, and returns its corrections as a change to the
+	 * ones returned for the revision with the given hash (or all of them if that revision isn't known).
+	 */
+	StoryRevisionCorrectionsModel getRevisionCorrections(String story, String previousStoryHash,
+			IDictionaryService dictionary);
+
+	void streamCorrections(Reader story, Consumer<List<WordCorrection>> correctionsConsumer) throws IOException;
+
+	void streamCorrections(Reader story, IDictionaryService dictionary,
+			Consumer<List<WordCorrection>> correctionsConsumer) throws IOException;
 }
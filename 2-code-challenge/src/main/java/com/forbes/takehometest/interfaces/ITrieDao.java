@@ -1,6 +1,12 @@
 package com.forbes.takehometest.interfaces;
 
-import java.util.Set;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.DawgFile;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.NodeCounts;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Defines the methods that a Trie DAO should support for reading/writing to a Trie.
@@ -9,10 +15,63 @@ public interface ITrieDao {
 
 	void addWord(String word);
 
+	/**
+	 * Adds the given words, which must be sorted and distinct, and returns whether each word was added (false if it
+	 * was already indexed). Implementations apply the whole batch at once, which is faster than adding the words one
+	 * at a time.
+	 */
+	Map<String, Boolean> addWords(List<String> sortedWords);
+
+	/**
+	 * Replaces the indexed words with the given words, which must be sorted and distinct. Implementations build their
+	 * structure in one pass, which is much faster than adding the words one at a time.
+	 */
+	void loadWords(List<String> sortedWords);
+
+	/**
+	 * Replaces the indexed words with the words in the given snapshot. By default, the words are read from the
+	 * snapshot and loaded with {@link #loadWords(List)}, but implementations that can use the snapshot as it is on
+	 * disk should do so.
+	 */
+	default void loadSnapshot(DawgFile snapshot) {
+		loadWords(snapshot.readWords());
+	}
+
 	boolean removeWord(String word);
 
-	boolean hasWord(String word);
+	/**
+	 * Removes the given words, which must be sorted and distinct, and returns whether each word was removed (false if
+	 * it wasn't indexed).
+	 */
+	Map<String, Boolean> removeWords(List<String> sortedWords);
+
+	/**
+	 * Checks if the given word is indexed. The word can be any CharSequence (eg a view of a word in a story), which
+	 * implementations read without copying it into a String where they can.
+	 */
+	boolean hasWord(CharSequence word);
+
+	/**
+	 * Searches for the closest matches for the given word, passing them to the given collector (which keeps the best
+	 * ones).
+	 */
+	void findClosestMatchesFor(String word, MatchCollector matches);
+
+	/**
+	 * Passes the indexed words that start with the given prefix to the given collector (which keeps the best ones), in
+	 * sorted order where the index can walk its words that way.
+	 */
+	void findCompletionsFor(String prefix, CompletionCollector completions);
+
+	/**
+	 * Returns true if the word is short enough to be indexed and searched efficiently by this implementation.
+	 */
+	boolean canIndexWord(CharSequence word);
 
-	Set<String> getClosestMatchesFor(String word);
+	/**
+	 * Returns the size of the index, for metrics. This may walk the whole index, so it should not be called for every
+	 * request (implementations keep the counts until the index changes).
+	 */
+	NodeCounts getNodeCounts();
 
 }
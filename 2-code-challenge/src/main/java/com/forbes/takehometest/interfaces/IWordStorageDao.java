@@ -1,6 +1,9 @@
 package com.forbes.takehometest.interfaces;
 
+import com.forbes.takehometest.triedb.DawgFile;
+
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines the methods that a Word Storage DAO should support for reading/writing to a standard word storage table.
@@ -8,7 +11,50 @@ import java.util.List;
 public interface IWordStorageDao {
 	void addWord(String word);
 
+	/**
+	 * Adds the given words, which must be sorted and distinct.
+	 */
+	void addWords(List<String> sortedWords);
+
+	/**
+	 * Replaces the stored words with the given words, which must be sorted and distinct, and their weights (words
+	 * without a weight have a weight of 0).
+	 */
+	void loadWords(List<String> sortedWords, Map<String, Long> weights);
+
+	/**
+	 * Replaces the stored words and weights with the ones in the given snapshot.
+	 */
+	void loadSnapshot(DawgFile snapshot);
+
 	void removeWord(String word);
 
+	/**
+	 * Removes the given words, which must be sorted and distinct.
+	 */
+	void removeWords(List<String> sortedWords);
+
 	List<String> getWords();
+
+	/**
+	 * Returns the weight of the given word (eg how often it is used), or 0 if it has none.
+	 */
+	long getWeight(String word);
+
+	/**
+	 * Returns at least the highest weight of any stored word (0 if none has one), eg to know when no other word can
+	 * outweigh the ones found so far. Removing words doesn't lower it until the next load.
+	 */
+	long getMaxWeight();
+
+	/**
+	 * Returns a copy of the weights of every word that has one.
+	 */
+	Map<String, Long> getWeights();
+
+	/**
+	 * Returns the stored words that sort after the given word (or all of them if it's null), in sorted order. The words
+	 * are read from the storage as they're iterated rather than copied up-front.
+	 */
+	Iterable<String> getWordsAfter(String after);
 }
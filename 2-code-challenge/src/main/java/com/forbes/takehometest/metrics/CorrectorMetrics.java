@@ -0,0 +1,175 @@
+package com.forbes.takehometest.metrics;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.MatchCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the corrector's metrics with Micrometer. Spring Boot Actuator exposes them at `/actuator/metrics` and, for
+ * Prometheus to scrape, at `/actuator/prometheus`:
+ * - `corrector.search` (timer, with a latency histogram): every closest-match search, ie every correction that wasn't
+ *   cached
+ * - `corrector.search.expanded.states`, `corrector.search.pruned.states` and `corrector.search.peak.pending.states`
+ *   (summaries): the work done by a sample of the searches (see {@link MatchCollector})
+ * - `corrector.search.truncated` (counter): the searches that were cut short by their budget
+ * - `corrector.story.words` (summary): the number of words in each story corrected
+ * - `corrector.story.lookups` (counter): the distinct words of the stories that were in the dictionary
+ *   (`result=in-dictionary`), that were corrected (`result=corrected`) or that had no close match (`result=no-match`)
+ * - `corrector.story.revisions` (counter): the story revisions corrected as a change from a cached previous revision
+ *   (`result=delta`) or from scratch (`result=full`), and `corrector.story.revision.reused.lookups` (counter): the
+ *   distinct words whose correction was reused from the previous revision rather than looked up again
+ * - `corrector.cache.requests` (counter, `result=hit|miss`), `corrector.cache.stale`, `corrector.cache.evictions` and
+ *   `corrector.cache.size`: the correction cache's stats (see {@link CorrectionCache})
+ * - `corrector.index.nodes` (gauge): the number of nodes in the index (`type=all`), and how many of them are wildcard
+ *   nodes (`type=wildcard`)
+ *
+ * Recording is kept off the hot path as much as possible: story metrics are recorded once per story rather than once
+ * per word, search internals are only recorded for `corrector.metrics.search-sample-rate` of the searches, and the
+ * cache stats and node counts are only read when the metrics are.
+ */
+@Component
+public class CorrectorMetrics {
+	private final Timer searchTimer;
+	private final DistributionSummary expandedStates;
+	private final DistributionSummary prunedStates;
+	private final DistributionSummary peakPendingStates;
+	private final Counter truncatedSearches;
+	private final DistributionSummary storyWords;
+	private final Counter wordsInDictionary;
+	private final Counter wordsCorrected;
+	private final Counter wordsWithNoMatch;
+	private final Counter deltaRevisions;
+	private final Counter fullRevisions;
+	private final Counter reusedLookups;
+	private final double searchSampleRate;
+
+	public CorrectorMetrics(MeterRegistry registry, ITrieDao trieDao, CorrectionCache correctionCache,
+			@Value("${corrector.metrics.search-sample-rate:0.01}") double searchSampleRate) {
+		this.searchSampleRate = searchSampleRate;
+		searchTimer = Timer.builder("corrector.search")
+				.description("Time taken to search the index for the closest matches of a word")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(1000))
+				.maximumExpectedValue(Duration.ofSeconds(1))
+				.register(registry);
+		expandedStates = searchSummary(registry, "corrector.search.expanded.states",
+				"States expanded by a sampled search");
+		prunedStates = searchSummary(registry, "corrector.search.pruned.states",
+				"States dropped without being expanded by a sampled search");
+		peakPendingStates = searchSummary(registry, "corrector.search.peak.pending.states",
+				"Most states waiting to be expanded at once during a sampled search");
+		truncatedSearches = Counter.builder("corrector.search.truncated")
+				.description("Searches that ran out of budget and returned the best matches found so far")
+				.register(registry);
+		storyWords = DistributionSummary.builder("corrector.story.words")
+				.description("Number of words in a corrected story")
+				.baseUnit("words")
+				.register(registry);
+		wordsInDictionary = lookupCounter(registry, "in-dictionary");
+		wordsCorrected = lookupCounter(registry, "corrected");
+		wordsWithNoMatch = lookupCounter(registry, "no-match");
+		deltaRevisions = revisionCounter(registry, "delta");
+		fullRevisions = revisionCounter(registry, "full");
+		reusedLookups = Counter.builder("corrector.story.revision.reused.lookups")
+				.description("Distinct words of story revisions whose correction was reused from the previous revision")
+				.register(registry);
+
+		FunctionCounter.builder("corrector.cache.requests", correctionCache, cache -> cache.getStats().getHitCount())
+				.description("Correction cache lookups")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("corrector.cache.requests", correctionCache, cache -> cache.getStats().getMissCount())
+				.description("Correction cache lookups")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("corrector.cache.stale", correctionCache, cache -> cache.getStats().getStaleCount())
+				.description("Correction cache entries found from an older dictionary version")
+				.register(registry);
+		FunctionCounter.builder("corrector.cache.evictions", correctionCache,
+						cache -> cache.getStats().getEvictionCount())
+				.description("Correction cache entries evicted")
+				.register(registry);
+		Gauge.builder("corrector.cache.size", correctionCache, cache -> cache.getStats().getSize())
+				.description("Number of corrections in the correction cache")
+				.register(registry);
+
+		Gauge.builder("corrector.index.nodes", trieDao, dao -> dao.getNodeCounts().nodes())
+				.description("Number of nodes in the index")
+				.tag("type", "all")
+				.register(registry);
+		Gauge.builder("corrector.index.nodes", trieDao, dao -> dao.getNodeCounts().wildcardNodes())
+				.description("Number of nodes in the index")
+				.tag("type", "wildcard")
+				.register(registry);
+	}
+
+	/**
+	 * Records a closest-match search that took the given time, whether it was cut short, and for a sample of the
+	 * searches, the work it did.
+	 */
+	public void recordSearch(long durationNanos, MatchCollector matches) {
+		searchTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+		if (matches.isTruncated()) {
+			truncatedSearches.increment();
+		}
+		if (searchSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < searchSampleRate) {
+			expandedStates.record(matches.getExpandedStates());
+			prunedStates.record(matches.getPrunedStates());
+			peakPendingStates.record(matches.getPeakPendingStates());
+		}
+	}
+
+	public void recordStory(long numWords) {
+		storyWords.record(numWords);
+	}
+
+	/**
+	 * Records the outcomes of looking up the distinct words of (part of) a story.
+	 */
+	public void recordLookups(int numInDictionary, int numCorrected, int numWithNoMatch) {
+		wordsInDictionary.increment(numInDictionary);
+		wordsCorrected.increment(numCorrected);
+		wordsWithNoMatch.increment(numWithNoMatch);
+	}
+
+	/**
+	 * Records a story revision, and how many of its distinct words had their correction reused from the previous one.
+	 */
+	public void recordRevision(boolean isDelta, int numReusedLookups) {
+		(isDelta ? deltaRevisions : fullRevisions).increment();
+		reusedLookups.increment(numReusedLookups);
+	}
+
+	private static DistributionSummary searchSummary(MeterRegistry registry, String name, String description) {
+		return DistributionSummary.builder(name)
+				.description(description)
+				.baseUnit("states")
+				.register(registry);
+	}
+
+	private static Counter lookupCounter(MeterRegistry registry, String result) {
+		return Counter.builder("corrector.story.lookups")
+				.description("Distinct story words looked up in the dictionary")
+				.tag("result", result)
+				.register(registry);
+	}
+
+	private static Counter revisionCounter(MeterRegistry registry, String result) {
+		return Counter.builder("corrector.story.revisions")
+				.description("Story revisions corrected")
+				.tag("result", result)
+				.register(registry);
+	}
+}
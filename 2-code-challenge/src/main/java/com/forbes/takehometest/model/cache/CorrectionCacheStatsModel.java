@@ -0,0 +1,21 @@
+package com.forbes.takehometest.model.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * API model for reporting how well the correction cache is doing. The stale count is the number of lookups that found
+ * an entry from an older dictionary version (these are also counted as misses).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrectionCacheStatsModel {
+	private long size;
+	private long hitCount;
+	private long missCount;
+	private double hitRate;
+	private long staleCount;
+	private long evictionCount;
+}
@@ -0,0 +1,33 @@
+package com.forbes.takehometest.model.dictionary;
+
+import com.forbes.takehometest.interfaces.IMutationLogDao.Operation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * API model for reading the changes made to a dictionary, in order
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DictionaryChangesModel {
+	private List<Change> changes = new ArrayList<>();
+	/**
+	 * The sequence number of the latest change made to the dictionary, which is past the last change returned if there
+	 * are more to read
+	 */
+	private long lastSequence;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Change {
+		private long sequence;
+		private Operation operation;
+		private String word;
+	}
+}
@@ -0,0 +1,18 @@
+package com.forbes.takehometest.model.dictionary;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * API model for the dictionary words that complete a given prefix
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DictionaryCompletionModel {
+	private String prefix;
+	private List<String> completions;
+}
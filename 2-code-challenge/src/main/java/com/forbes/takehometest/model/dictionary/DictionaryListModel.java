@@ -1,5 +1,6 @@
 package com.forbes.takehometest.model.dictionary;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.ArrayList;
@@ -18,8 +19,18 @@ public class DictionaryListModel {
 		dictionary.setList(words);
 	}
 
+	public DictionaryListModel(List<String> words, String next) {
+		dictionary.setList(words);
+		dictionary.setNext(next);
+	}
+
 	@Data
 	public static class Dictionary {
 		private List<String> list = new ArrayList<>();
+		/**
+		 * For a page of the dictionary, the word to pass as `after` to get the next page (null on the last page)
+		 */
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		private String next;
 	}
 }
@@ -0,0 +1,19 @@
+package com.forbes.takehometest.model.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * API model for describing a dictionary snapshot that was written to disk.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotModel {
+	private String file;
+	private int wordCount;
+	private long sizeBytes;
+	private long dictionaryVersion;
+	private long durationMillis;
+}
@@ -1,7 +1,9 @@
 package com.forbes.takehometest.model.story;
 
+import com.forbes.takehometest.util.StoryTokenizer;
 import lombok.Data;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,6 +17,11 @@ public class StoryContainerModel {
 	 * Convert the story text into a list of words based on spaces in the story. No sanitization is done.
 	 */
 	public List<String> getStoryWords() {
-		return List.of(story.trim().split("\\s+"));
+		var bounds = StoryTokenizer.wordBounds(story);
+		var words = new ArrayList<String>(bounds.length / 2);
+		for (int i = 0; i < bounds.length; i += 2) {
+			words.add(story.substring(bounds[i], bounds[i + 1]));
+		}
+		return List.copyOf(words);
 	}
 }
@@ -1,5 +1,6 @@
 package com.forbes.takehometest.model.story;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
@@ -11,4 +12,12 @@ import java.util.List;
 public class StoryCorrectionsModel {
 	private final String story;
 	private final List<WordCorrection> unmatchedWords;
+
+	/**
+	 * Whether the story ran out of budget, in which case some of its corrections may not be the closest matches
+	 */
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	public boolean isTruncated() {
+		return unmatchedWords.stream().anyMatch(WordCorrection::isTruncated);
+	}
 }
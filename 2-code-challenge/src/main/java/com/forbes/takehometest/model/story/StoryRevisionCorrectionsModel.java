@@ -0,0 +1,30 @@
+package com.forbes.takehometest.model.story;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * API model for returning the corrections of a story revision as a change to the corrections of the previous one:
+ * removedCount corrections starting at index from are replaced with unmatchedWords, which leaves unmatchedWordCount
+ * corrections in all.
+ *
+ * If previousStoryHash is null (when the previous revision wasn't given or is no longer cached), unmatchedWords holds
+ * all of the revision's corrections. The story hash is sent back as the previous story hash of the next revision.
+ */
+@Data
+public class StoryRevisionCorrectionsModel {
+	private final String storyHash;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private final String previousStoryHash;
+	private final int from;
+	private final int removedCount;
+	private final List<WordCorrection> unmatchedWords;
+	private final int unmatchedWordCount;
+	/**
+	 * Whether the revision ran out of budget, in which case some of its corrections may not be the closest matches
+	 */
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	private final boolean truncated;
+}
@@ -0,0 +1,13 @@
+package com.forbes.takehometest.model.story;
+
+import lombok.Data;
+
+/**
+ * API model for sending a new revision of a story to be corrected. The previous story hash is the story hash returned
+ * for the revision it was edited from (if any).
+ */
+@Data
+public class StoryRevisionModel {
+	private String story;
+	private String previousStoryHash;
+}
@@ -0,0 +1,13 @@
+package com.forbes.takehometest.model.story;
+
+import lombok.Data;
+
+/**
+ * API model for the last line of a /story/stream response whose story couldn't be read to the end (eg the JSON body
+ * is cut short or malformed after the start of the story). The response has already started by then, so the error is
+ * reported in the stream rather than with a 400.
+ */
+@Data
+public class StoryStreamErrorModel {
+	private final String error;
+}
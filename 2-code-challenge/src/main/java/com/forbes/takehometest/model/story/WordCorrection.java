@@ -1,5 +1,6 @@
 package com.forbes.takehometest.model.story;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 /**
@@ -9,4 +10,19 @@ import lombok.Data;
 public class WordCorrection {
 	private final String word;
 	private final String closeMatch;
+	/**
+	 * Whether the search for a close match was cut short by its budget, in which case a closer match may exist
+	 */
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	private final boolean truncated;
+
+	public WordCorrection(String word, String closeMatch) {
+		this(word, closeMatch, false);
+	}
+
+	public WordCorrection(String word, String closeMatch, boolean truncated) {
+		this.word = word;
+		this.closeMatch = closeMatch;
+		this.truncated = truncated;
+	}
 }
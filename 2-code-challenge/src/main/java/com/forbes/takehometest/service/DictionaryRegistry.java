@@ -0,0 +1,115 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.interfaces.IBaseDictionaryService;
+import com.forbes.takehometest.interfaces.IDictionaryService;
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.interfaces.IWordStorageDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the named dictionaries (eg a house-style dictionary per publication), which requests can pick instead of the
+ * base dictionary. Each one is an {@link OverlayDictionaryService} on top of the base dictionary, so it only costs
+ * memory for its own changes.
+ *
+ * A named dictionary is created the first time words are added to or removed from it. Names are made of lowercase
+ * letters, digits, '-' and '_' (up to 64 characters), and at most `corrector.dictionary.overlays.max-count`
+ * dictionaries can be created.
+ *
+ * Named dictionaries are only kept in memory, so they can't be written to when the base dictionary's changes are
+ * recorded in the mutation log: they would be lost on restart even though the write was acknowledged.
+ */
+@Slf4j
+@Service
+public class DictionaryRegistry {
+	private static final Pattern NAME_PATTERN = Pattern.compile("[a-z0-9][a-z0-9_-]{0,63}");
+
+	private final IBaseDictionaryService baseDictionary;
+	private final ITrieDao baseTrieDao;
+	private final IWordStorageDao baseWordStorageDao;
+	private final Supplier<ITrieDao> overlayTrieDaoFactory;
+	private final CorrectionCache correctionCache;
+	private final CorrectorMetrics metrics;
+	private final int maxCount;
+	private final long searchMaxExpandedStates;
+	private final Duration searchTimeout;
+	private final Map<String, IDictionaryService> overlays = new ConcurrentHashMap<>();
+
+	public DictionaryRegistry(IBaseDictionaryService baseDictionary, ITrieDao baseTrieDao,
+			IWordStorageDao baseWordStorageDao, Supplier<ITrieDao> overlayTrieDaoFactory,
+			CorrectionCache correctionCache, CorrectorMetrics metrics,
+			@Value("${corrector.dictionary.overlays.max-count:100}") int maxCount,
+			@Value("${corrector.search.max-expanded-states:500000}") long searchMaxExpandedStates,
+			@Value("${corrector.search.timeout:250ms}") Duration searchTimeout) {
+		this.baseDictionary = baseDictionary;
+		this.baseTrieDao = baseTrieDao;
+		this.baseWordStorageDao = baseWordStorageDao;
+		this.overlayTrieDaoFactory = overlayTrieDaoFactory;
+		this.correctionCache = correctionCache;
+		this.metrics = metrics;
+		this.maxCount = maxCount;
+		this.searchMaxExpandedStates = searchMaxExpandedStates;
+		this.searchTimeout = searchTimeout;
+	}
+
+	public IBaseDictionaryService getBaseDictionary() {
+		return baseDictionary;
+	}
+
+	/**
+	 * Returns whether words can be added to or removed from the named dictionaries, which is only the case when the
+	 * base dictionary's changes aren't recorded in the mutation log (see the class doc).
+	 */
+	public boolean areOverlaysWritable() {
+		return !baseDictionary.hasChangeFeed();
+	}
+
+	/**
+	 * Returns the dictionary with the given name, or the base dictionary if the name is null. Returns an empty optional
+	 * if there's no dictionary with that name.
+	 */
+	public Optional<IDictionaryService> find(String name) {
+		if (name == null) {
+			return Optional.of(baseDictionary);
+		}
+		return Optional.ofNullable(overlays.get(name));
+	}
+
+	/**
+	 * Same as {@link #find(String)}, but creates the dictionary if there's none with that name. Returns an empty
+	 * optional if the name isn't valid, or if the max number of dictionaries was reached.
+	 */
+	public Optional<IDictionaryService> findOrCreate(String name) {
+		var dictionary = find(name);
+		if (dictionary.isPresent()) {
+			return dictionary;
+		}
+		if (!NAME_PATTERN.matcher(name).matches()) {
+			log.warn("Invalid dictionary name: '{}'", name);
+			return Optional.empty();
+		}
+		synchronized (overlays) {
+			if (!overlays.containsKey(name) && overlays.size() >= maxCount) {
+				log.warn("Can't create dictionary '{}', the max of {} dictionaries was reached", name, maxCount);
+				return Optional.empty();
+			}
+			return Optional.of(overlays.computeIfAbsent(name, this::createOverlay));
+		}
+	}
+
+	private IDictionaryService createOverlay(String name) {
+		log.info("Creating dictionary '{}'...", name);
+		return new OverlayDictionaryService(name, baseDictionary, baseTrieDao, baseWordStorageDao,
+				overlayTrieDaoFactory.get(), correctionCache, metrics, searchMaxExpandedStates, searchTimeout);
+	}
+}
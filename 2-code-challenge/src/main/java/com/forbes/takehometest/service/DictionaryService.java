@@ -1,26 +1,76 @@
 package com.forbes.takehometest.service;
 
-import com.forbes.takehometest.interfaces.IDictionaryService;
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.interfaces.IBaseDictionaryService;
+import com.forbes.takehometest.interfaces.IDictionaryService.ClosestMatches;
+import com.forbes.takehometest.interfaces.IMutationLogDao;
+import com.forbes.takehometest.interfaces.IMutationLogDao.Mutation;
+import com.forbes.takehometest.interfaces.IMutationLogDao.Operation;
 import com.forbes.takehometest.interfaces.ITrieDao;
 import com.forbes.takehometest.interfaces.IWordStorageDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.DawgFile;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.SearchBudget;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Serves as an intermediary for handling reads/writes to the dictionary.
+ *
+ * Writes are serialized so that the Trie and the word storage are always updated together, while reads (eg correcting
+ * a story) never take a lock. The DAOs' structures only publish a change once it's complete, so readers always see
+ * either the old or the new dictionary.
+ *
+ * Closest-word lookups go through a {@link CorrectionCache}. The closest word is the match with the fewest errors, and
+ * then the highest weight (see {@link MatchCollector}), so that among equally close words the most common one wins.
+ * Words without a weight have a weight of 0, in which case the first one in sorted order wins. Completions are ranked
+ * by weight the same way (see {@link CompletionCollector}). The dictionary version is bumped every time a word is
+ * actually added or removed, which invalidates the cached corrections found against the previous version.
+ *
+ * Each add/remove is also appended to the {@link IMutationLogDao mutation log} while the write lock is held (so the log
+ * has the same order as the changes), but the wait for the log to reach the disk happens after the lock is released.
+ * This lets the mutations of concurrent requests be forced to disk together.
+ *
+ * A batch of adds/removes is sorted and de-duplicated first, and then applied while holding the write lock once, so the
+ * DAOs can apply the whole batch in one pass and the mutation log is only forced to disk once for it.
  */
 @Slf4j
 @Service
-public class DictionaryService implements IDictionaryService {
+public class DictionaryService implements IBaseDictionaryService {
 	private final ITrieDao trieDao;
 	private final IWordStorageDao wordStorageDao;
+	private final CorrectionCache correctionCache;
+	private final IMutationLogDao mutationLogDao;
+	private final CorrectorMetrics metrics;
+	private final long searchMaxExpandedStates;
+	private final Duration searchTimeout;
+	private final AtomicLong version = new AtomicLong();
 
-	public DictionaryService(ITrieDao trieDao, IWordStorageDao wordStorageDao) {
+	public DictionaryService(ITrieDao trieDao, IWordStorageDao wordStorageDao, CorrectionCache correctionCache,
+			IMutationLogDao mutationLogDao, CorrectorMetrics metrics,
+			@Value("${corrector.search.max-expanded-states:500000}") long searchMaxExpandedStates,
+			@Value("${corrector.search.timeout:250ms}") Duration searchTimeout) {
 		this.trieDao = trieDao;
 		this.wordStorageDao = wordStorageDao;
+		this.correctionCache = correctionCache;
+		this.mutationLogDao = mutationLogDao;
+		this.metrics = metrics;
+		this.searchMaxExpandedStates = searchMaxExpandedStates;
+		this.searchTimeout = searchTimeout;
 	}
 
 	@Override
@@ -28,35 +78,219 @@ public class DictionaryService implements IDictionaryService {
 		return wordStorageDao.getWords();
 	}
 
+	@Override
+	public Iterable<String> getWordsAfter(String after) {
+		return wordStorageDao.getWordsAfter(after);
+	}
+
 	@Override
 	public boolean addWord(String word) {
-		if (hasWord(word)) {
-			return false;
+		long sequence;
+		synchronized (this) {
+			if (hasWord(word)) {
+				return false;
+			}
+			trieDao.addWord(word);
+			wordStorageDao.addWord(word);
+			version.incrementAndGet();
+			sequence = mutationLogDao.append(Operation.ADD, word);
 		}
-		trieDao.addWord(word);
-		wordStorageDao.addWord(word);
+		syncMutationLog(sequence);
 		return true;
 	}
 
+	@Override
+	public Map<String, Boolean> addWords(Collection<String> words) {
+		var sortedWords = new ArrayList<>(new TreeSet<>(words));
+		Map<String, Boolean> outcomes;
+		var sequence = 0L;
+		synchronized (this) {
+			outcomes = trieDao.addWords(sortedWords);
+			var addedWords = changedWords(outcomes);
+			if (!addedWords.isEmpty()) {
+				wordStorageDao.addWords(addedWords);
+				version.incrementAndGet();
+				for (var word : addedWords) {
+					sequence = mutationLogDao.append(Operation.ADD, word);
+				}
+			}
+		}
+		syncMutationLog(sequence);
+		return outcomes;
+	}
+
+	/**
+	 * Replaces the dictionary with the given words, which must be sorted and distinct, and their weights. Each DAO
+	 * builds its structure in one pass instead of adding (and checking for) the words one at a time.
+	 *
+	 * Bulk loads are not written to the mutation log: they're only used at startup, which writes a snapshot afterwards.
+	 */
+	@Override
+	public synchronized void loadWords(List<String> sortedWords, Map<String, Long> weights) {
+		trieDao.loadWords(sortedWords);
+		wordStorageDao.loadWords(sortedWords, weights);
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Replaces the dictionary with the words in the given snapshot. The DAOs that can use the snapshot as it is on disk
+	 * don't read its words up-front.
+	 */
+	@Override
+	public synchronized void loadSnapshot(DawgFile snapshot) {
+		trieDao.loadSnapshot(snapshot);
+		wordStorageDao.loadSnapshot(snapshot);
+		version.incrementAndGet();
+	}
+
 	@Override
 	public boolean removeWord(String word) {
-		wordStorageDao.removeWord(word);
-		return trieDao.removeWord(word);
+		long sequence;
+		synchronized (this) {
+			wordStorageDao.removeWord(word);
+			if (!trieDao.removeWord(word)) {
+				return false;
+			}
+			version.incrementAndGet();
+			sequence = mutationLogDao.append(Operation.REMOVE, word);
+		}
+		syncMutationLog(sequence);
+		return true;
 	}
 
 	@Override
-	public boolean hasWord(String word) {
-		return trieDao.hasWord(word);
+	public Map<String, Boolean> removeWords(Collection<String> words) {
+		var sortedWords = new ArrayList<>(new TreeSet<>(words));
+		Map<String, Boolean> outcomes;
+		var sequence = 0L;
+		synchronized (this) {
+			wordStorageDao.removeWords(sortedWords);
+			outcomes = trieDao.removeWords(sortedWords);
+			var removedWords = changedWords(outcomes);
+			if (!removedWords.isEmpty()) {
+				version.incrementAndGet();
+				for (var word : removedWords) {
+					sequence = mutationLogDao.append(Operation.REMOVE, word);
+				}
+			}
+		}
+		syncMutationLog(sequence);
+		return outcomes;
+	}
+
+	private static List<String> changedWords(Map<String, Boolean> outcomes) {
+		return outcomes.entrySet().stream().filter(Map.Entry::getValue).map(Map.Entry::getKey).toList();
+	}
+
+	/**
+	 * Re-applies the mutations logged after the given sequence number (eg the one the dictionary's snapshot was taken
+	 * at), and returns how many there were.
+	 */
+	@Override
+	public synchronized long replayMutationLog(long afterSequence) throws IOException {
+		var count = mutationLogDao.readMutations(afterSequence, mutation -> {
+			if (mutation.operation() == Operation.ADD) {
+				if (!trieDao.hasWord(mutation.word())) {
+					trieDao.addWord(mutation.word());
+					wordStorageDao.addWord(mutation.word());
+				}
+			} else {
+				wordStorageDao.removeWord(mutation.word());
+				trieDao.removeWord(mutation.word());
+			}
+		});
+		version.incrementAndGet();
+		return count;
+	}
+
+	@Override
+	public boolean hasChangeFeed() {
+		return mutationLogDao.isEnabled();
 	}
 
 	/**
-	 * Iterates over all close-matches found for a given word and returns the one that would appear first in the
-	 * dictionary first based on its sorted order.
+	 * Reads the changes from the mutation log. Changes dropped from the log by compaction (because a snapshot includes
+	 * them), or after the end of the log (eg if the log was deleted since the caller last read it), are no longer
+	 * available. The log can't be compacted while it's being read, so checking afterwards is enough.
 	 */
+	@Override
+	public Optional<Changes> getChanges(long afterSequence, int limit) throws IOException {
+		var mutations = new ArrayList<Mutation>();
+		mutationLogDao.readMutations(afterSequence, limit, mutations::add);
+		var lastSequence = mutationLogDao.getDurableSequence();
+		if (afterSequence < mutationLogDao.getCompactedSequence() || afterSequence > lastSequence) {
+			return Optional.empty();
+		}
+		return Optional.of(new Changes(mutations, lastSequence));
+	}
+
+	private void syncMutationLog(long sequence) {
+		try {
+			mutationLogDao.sync(sequence);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write the change to the mutation log", e);
+		}
+	}
+
+	@Override
+	public boolean hasWord(CharSequence word) {
+		return trieDao.hasWord(word);
+	}
+
 	@Override
 	public Optional<String> getClosestWord(String word) {
-		var possibleWords = trieDao.getClosestMatchesFor(word);
-		log.debug("{} matches found for '{}'. Sample matches: {}", possibleWords.size(), word, possibleWords.stream().limit(10).toList());
-		return possibleWords.stream().sorted().findFirst();
+		return getClosestWord(word, SearchBudget.unlimited()).closest();
+	}
+
+	@Override
+	public ClosestMatches getClosestWord(String word, SearchBudget budget) {
+		return correctionCache.get(word, version.get(), wordToLookUp -> getClosestWords(wordToLookUp, 1, budget));
+	}
+
+	/**
+	 * The search passes every match it finds to a {@link MatchCollector} that only keeps the best k, so the matches
+	 * are never all gathered and sorted. The time taken and the work done by the search are recorded as metrics.
+	 *
+	 * Each search gets its own budget of `corrector.search.max-expanded-states` states and `corrector.search.timeout`,
+	 * drawn from the given budget, so a single pathological word can't keep a thread busy for long.
+	 */
+	@Override
+	public ClosestMatches getClosestWords(String word, int k, SearchBudget budget) {
+		var matches = new MatchCollector(k, wordStorageDao::getWeight,
+				budget.forSearch(searchMaxExpandedStates, searchTimeout));
+		var start = System.nanoTime();
+		trieDao.findClosestMatchesFor(word, matches);
+		matches.searchFinished();
+		metrics.recordSearch(System.nanoTime() - start, matches);
+		var closestWords = matches.getMatches();
+		if (matches.isTruncated()) {
+			log.debug("Search for '{}' ran out of budget after expanding {} states, best matches found: {}", word,
+					matches.getExpandedStates(), closestWords);
+		} else {
+			log.debug("Best matches found for '{}': {}", word, closestWords);
+		}
+		return new ClosestMatches(closestWords, matches.isTruncated());
+	}
+
+	@Override
+	public Map<String, Long> getWeights() {
+		return wordStorageDao.getWeights();
+	}
+
+	@Override
+	public List<String> getCompletions(String prefix, int k) {
+		var completions = new CompletionCollector(k, wordStorageDao::getWeight, wordStorageDao.getMaxWeight());
+		trieDao.findCompletionsFor(prefix, completions);
+		return completions.getCompletions();
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return trieDao.canIndexWord(word);
+	}
+
+	@Override
+	public long getVersion() {
+		return version.get();
 	}
 }
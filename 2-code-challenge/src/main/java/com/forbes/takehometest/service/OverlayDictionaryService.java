@@ -0,0 +1,280 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.interfaces.IBaseDictionaryService;
+import com.forbes.takehometest.interfaces.IDictionaryService;
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.interfaces.IWordStorageDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.SearchBudget;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named dictionary layered on top of the base dictionary (see {@link DictionaryRegistry}). The overlay only stores
+ * its own changes: the words added to it, in a small index of its own, and the base words removed from it. Lookups
+ * merge the two layers at query time, so any number of overlays share the base's index and word storage without
+ * copying them, and they see the base's changes as soon as they're made.
+ *
+ * - A word is in the overlay if it was added to the overlay, or if it's in the base and wasn't removed from the overlay
+ * - Closest-match searches run over the base's index and then the overlay's index with the same
+ *   {@link MatchCollector}, which hides the removed words, so matches are ranked exactly as if there was a single
+ *   index. Words added to an overlay have a weight of 0. Completions are collected the same way, with a
+ *   {@link CompletionCollector}.
+ * - Corrections go through the base's {@link CorrectionCache}, under the overlay's name. They're stamped with the sum
+ *   of the base's and the overlay's versions, which changes whenever either of them does.
+ *
+ * Like the base, writes are serialized and reads never take a lock. Overlays are only kept in memory: they aren't
+ * included in snapshots or the mutation log, so they don't implement {@link IBaseDictionaryService}, and they can't be
+ * written to when the mutation log is on (see {@link DictionaryRegistry}).
+ */
+@Slf4j
+public class OverlayDictionaryService implements IDictionaryService {
+	private final String name;
+	private final IDictionaryService baseDictionary;
+	private final ITrieDao baseTrieDao;
+	private final IWordStorageDao baseWordStorageDao;
+	private final ITrieDao addedTrieDao;
+	private final NavigableSet<String> addedWords = new ConcurrentSkipListSet<>();
+	private final NavigableSet<String> removedWords = new ConcurrentSkipListSet<>();
+	private final CorrectionCache correctionCache;
+	private final CorrectorMetrics metrics;
+	private final long searchMaxExpandedStates;
+	private final Duration searchTimeout;
+	private final AtomicLong version = new AtomicLong();
+
+	public OverlayDictionaryService(String name, IDictionaryService baseDictionary, ITrieDao baseTrieDao,
+			IWordStorageDao baseWordStorageDao, ITrieDao addedTrieDao, CorrectionCache correctionCache,
+			CorrectorMetrics metrics, long searchMaxExpandedStates, Duration searchTimeout) {
+		this.name = name;
+		this.baseDictionary = baseDictionary;
+		this.baseTrieDao = baseTrieDao;
+		this.baseWordStorageDao = baseWordStorageDao;
+		this.addedTrieDao = addedTrieDao;
+		this.correctionCache = correctionCache;
+		this.metrics = metrics;
+		this.searchMaxExpandedStates = searchMaxExpandedStates;
+		this.searchTimeout = searchTimeout;
+	}
+
+	@Override
+	public List<String> getWords() {
+		var words = new ArrayList<String>();
+		getWordsAfter(null).forEach(words::add);
+		return words;
+	}
+
+	/**
+	 * Merges the base's words (minus the removed ones) with the added words as they're iterated, without copying
+	 * either of them.
+	 */
+	@Override
+	public Iterable<String> getWordsAfter(String after) {
+		return () -> new MergedWords(baseWordStorageDao.getWordsAfter(after).iterator(),
+				(after == null ? addedWords : addedWords.tailSet(after, false)).iterator());
+	}
+
+	@Override
+	public boolean addWord(String word) {
+		return addWords(List.of(word)).get(word);
+	}
+
+	/**
+	 * A word that was removed from the overlay is simply un-hidden if it's still in the base. Otherwise, it's added to
+	 * the overlay's own index.
+	 */
+	@Override
+	public Map<String, Boolean> addWords(Collection<String> words) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		var newWords = new ArrayList<String>();
+		synchronized (this) {
+			for (var word : new TreeSet<>(words)) {
+				var added = !hasWord(word);
+				if (added) {
+					removedWords.remove(word);
+					if (!baseTrieDao.hasWord(word)) {
+						newWords.add(word);
+					}
+				}
+				outcomes.put(word, added);
+			}
+			if (!newWords.isEmpty()) {
+				addedTrieDao.addWords(newWords);
+				addedWords.addAll(newWords);
+			}
+			if (outcomes.containsValue(true)) {
+				version.incrementAndGet();
+			}
+		}
+		log.debug("Added {} words to dictionary '{}'", newWords.size(), name);
+		return outcomes;
+	}
+
+	@Override
+	public boolean removeWord(String word) {
+		return removeWords(List.of(word)).get(word);
+	}
+
+	/**
+	 * A word is removed from the overlay's own index if it was added to it, and hidden if it's in the base.
+	 */
+	@Override
+	public Map<String, Boolean> removeWords(Collection<String> words) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		var wordsToUnindex = new ArrayList<String>();
+		synchronized (this) {
+			for (var word : new TreeSet<>(words)) {
+				var removed = hasWord(word);
+				if (removed) {
+					if (baseTrieDao.hasWord(word)) {
+						removedWords.add(word);
+					}
+					if (addedWords.contains(word)) {
+						wordsToUnindex.add(word);
+					}
+				}
+				outcomes.put(word, removed);
+			}
+			if (!wordsToUnindex.isEmpty()) {
+				addedWords.removeAll(wordsToUnindex);
+				addedTrieDao.removeWords(wordsToUnindex);
+			}
+			if (outcomes.containsValue(true)) {
+				version.incrementAndGet();
+			}
+		}
+		return outcomes;
+	}
+
+	/**
+	 * The removed words are kept as Strings, so a base word is only copied into a String if the overlay removed any
+	 * words.
+	 */
+	@Override
+	public boolean hasWord(CharSequence word) {
+		return addedTrieDao.hasWord(word) || (baseTrieDao.hasWord(word) && (removedWords.isEmpty()
+				|| !removedWords.contains(word.toString())));
+	}
+
+	@Override
+	public Optional<String> getClosestWord(String word) {
+		return getClosestWord(word, SearchBudget.unlimited()).closest();
+	}
+
+	@Override
+	public ClosestMatches getClosestWord(String word, SearchBudget budget) {
+		return correctionCache.get(name + ":" + word, getVersion(), key -> getClosestWords(word, 1, budget));
+	}
+
+	/**
+	 * Searches both layers with the same collector and budget, so the overlay's search only has to beat the matches
+	 * already found in the base.
+	 */
+	@Override
+	public ClosestMatches getClosestWords(String word, int k, SearchBudget budget) {
+		var matches = new MatchCollector(k, baseWordStorageDao::getWeight,
+				budget.forSearch(searchMaxExpandedStates, searchTimeout), removedWords::contains);
+		var start = System.nanoTime();
+		baseTrieDao.findClosestMatchesFor(word, matches);
+		if (!matches.isTruncated()) {
+			addedTrieDao.findClosestMatchesFor(word, matches);
+		}
+		matches.searchFinished();
+		metrics.recordSearch(System.nanoTime() - start, matches);
+		var closestWords = matches.getMatches();
+		log.debug("Best matches found for '{}' in dictionary '{}': {}", word, name, closestWords);
+		return new ClosestMatches(closestWords, matches.isTruncated());
+	}
+
+	@Override
+	public Map<String, Long> getWeights() {
+		var weights = new HashMap<>(baseDictionary.getWeights());
+		weights.keySet().removeAll(removedWords);
+		return weights;
+	}
+
+	@Override
+	public List<String> getCompletions(String prefix, int k) {
+		var completions = new CompletionCollector(k, baseWordStorageDao::getWeight, baseWordStorageDao.getMaxWeight(),
+				removedWords::contains);
+		baseTrieDao.findCompletionsFor(prefix, completions);
+		addedTrieDao.findCompletionsFor(prefix, completions);
+		return completions.getCompletions();
+	}
+
+	@Override
+	public boolean canIndexWord(CharSequence word) {
+		return baseTrieDao.canIndexWord(word);
+	}
+
+	@Override
+	public long getVersion() {
+		return baseDictionary.getVersion() + version.get();
+	}
+
+	/**
+	 * Merges the sorted base words, skipping the removed ones, with the sorted added words. A word in both (if it was
+	 * added to the base after being added to the overlay) is only returned once.
+	 */
+	private class MergedWords implements Iterator<String> {
+		private final Iterator<String> baseWords;
+		private final Iterator<String> overlayWords;
+		private String nextBaseWord;
+		private String nextOverlayWord;
+
+		MergedWords(Iterator<String> baseWords, Iterator<String> overlayWords) {
+			this.baseWords = baseWords;
+			this.overlayWords = overlayWords;
+			advanceBase();
+			nextOverlayWord = overlayWords.hasNext() ? overlayWords.next() : null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextBaseWord != null || nextOverlayWord != null;
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			var comparison = nextBaseWord == null ? 1
+					: nextOverlayWord == null ? -1 : nextBaseWord.compareTo(nextOverlayWord);
+			var word = comparison <= 0 ? nextBaseWord : nextOverlayWord;
+			if (comparison <= 0) {
+				advanceBase();
+			}
+			if (comparison >= 0) {
+				nextOverlayWord = overlayWords.hasNext() ? overlayWords.next() : null;
+			}
+			return word;
+		}
+
+		private void advanceBase() {
+			nextBaseWord = null;
+			while (baseWords.hasNext() && nextBaseWord == null) {
+				var word = baseWords.next();
+				if (!removedWords.contains(word)) {
+					nextBaseWord = word;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.interfaces.IBaseDictionaryService;
+import com.forbes.takehometest.interfaces.IMutationLogDao.Operation;
+import com.forbes.takehometest.model.dictionary.DictionaryChangesModel;
+import com.forbes.takehometest.model.dictionary.DictionaryChangesModel.Change;
+import com.forbes.takehometest.triedb.DawgFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the base dictionary in sync with another instance's (the leader) when `corrector.replication.leader-url` is
+ * set, so that the words only have to be posted to the leader rather than to every instance. Every
+ * `corrector.replication.poll-interval`, the replica reads the leader's changes since the last one it applied from
+ * `GET /dictionary/changes`, in batches of `corrector.replication.batch-size`, and applies them in order. Writes to a
+ * replica's base dictionary are rejected, since they would diverge from the leader's.
+ *
+ * A replica starts from a copy of the leader's latest snapshot (`GET /dictionary/snapshot`), and then applies the
+ * changes logged after it. It does the same if it falls so far behind that the leader no longer has the changes it
+ * needs (ie they were compacted away into a snapshot).
+ *
+ * The sequence number of the last change applied is saved to `corrector.replication.state-file` after each batch, so
+ * a replica that restarts resumes from there instead of copying the leader's snapshot again. That requires the
+ * replica to persist its own dictionary with a snapshot file and a mutation log: each batch is durable in the
+ * replica's log before the state file records it, so the saved sequence number is never ahead of the dictionary.
+ * Applying some changes twice (eg if the replica stops before saving the state file) makes no difference, since each
+ * change sets whether its word is in the dictionary.
+ */
+@Slf4j
+@Service
+public class ReplicationService implements DisposableBean {
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final IBaseDictionaryService dictionaryService;
+	private final SnapshotService snapshotService;
+	private final ObjectMapper objectMapper;
+	private final String leaderUrl;
+	private final Duration pollInterval;
+	private final int batchSize;
+	private final Path stateFile;
+	private final HttpClient httpClient;
+	private ScheduledExecutorService scheduler;
+	/**
+	 * The leader's sequence number of the last change applied, or -1 if the leader's snapshot has to be copied first
+	 */
+	private long appliedSequence = -1;
+	private Path leaderSnapshotFile;
+
+	public ReplicationService(IBaseDictionaryService dictionaryService, SnapshotService snapshotService,
+			ObjectMapper objectMapper, @Value("${corrector.replication.leader-url:}") String leaderUrl,
+			@Value("${corrector.replication.poll-interval:1s}") Duration pollInterval,
+			@Value("${corrector.replication.batch-size:1000}") int batchSize,
+			@Value("${corrector.replication.state-file:}") String stateFile) {
+		this.dictionaryService = dictionaryService;
+		this.snapshotService = snapshotService;
+		this.objectMapper = objectMapper;
+		this.leaderUrl = leaderUrl.isBlank() ? null : leaderUrl.replaceAll("/+$", "");
+		this.pollInterval = pollInterval;
+		this.batchSize = batchSize;
+		this.stateFile = stateFile.isBlank() ? null : Path.of(stateFile);
+		if (this.leaderUrl != null && this.stateFile != null && !dictionaryService.hasChangeFeed()) {
+			throw new IllegalStateException("The replication state can't be saved without a mutation log!");
+		}
+		this.httpClient = this.leaderUrl == null ? null
+				: HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+	}
+
+	public boolean isReplica() {
+		return leaderUrl != null;
+	}
+
+	/**
+	 * Starts polling the leader once the application is ready, ie after the dictionary was loaded.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (leaderUrl == null) {
+			return;
+		}
+		appliedSequence = readAppliedSequence();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "dictionary-replication");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+		log.info("Replicating the dictionary from '{}' every {}, starting after change {}", leaderUrl, pollInterval,
+				appliedSequence);
+	}
+
+	/**
+	 * Applies the leader's changes until it's caught up with the leader.
+	 */
+	private void poll() {
+		try {
+			if (appliedSequence < 0) {
+				copyLeaderSnapshot();
+			}
+			var caughtUp = false;
+			while (!caughtUp) {
+				var changes = readChanges();
+				if (changes.isEmpty()) {
+					log.warn("The leader no longer has the changes after {}. Copying its snapshot...", appliedSequence);
+					copyLeaderSnapshot();
+					continue;
+				}
+				applyChanges(changes.get().getChanges());
+				caughtUp = changes.get().getChanges().size() < batchSize;
+				log.debug("Applied {} changes from the leader, up to {} of {}", changes.get().getChanges().size(),
+						appliedSequence, changes.get().getLastSequence());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			// keep the schedule going, the next poll will try again from the last change applied
+			log.error("Failed to replicate the dictionary from '{}'", leaderUrl, e);
+		}
+	}
+
+	/**
+	 * Reads the next batch of changes from the leader. Returns an empty result if the leader no longer has them.
+	 */
+	private Optional<DictionaryChangesModel> readChanges() throws IOException, InterruptedException {
+		var uri = URI.create(leaderUrl + "/dictionary/changes?after=" + appliedSequence + "&limit=" + batchSize);
+		var response = httpClient.send(HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).build(),
+				HttpResponse.BodyHandlers.ofInputStream());
+		try (var body = response.body()) {
+			if (response.statusCode() == 410) {
+				return Optional.empty();
+			}
+			if (response.statusCode() != 200) {
+				throw new IOException("Unexpected response " + response.statusCode() + " from '" + uri + "'");
+			}
+			return Optional.of(objectMapper.readValue(body, DictionaryChangesModel.class));
+		}
+	}
+
+	/**
+	 * Applies each run of consecutive adds or removes as one batch. The order within a run doesn't matter, since each
+	 * word is only added (or only removed) by it.
+	 */
+	private void applyChanges(List<Change> changes) throws IOException {
+		if (changes.isEmpty()) {
+			return;
+		}
+		var start = 0;
+		for (var end = 1; end <= changes.size(); end++) {
+			if (end == changes.size() || changes.get(end).getOperation() != changes.get(start).getOperation()) {
+				var words = changes.subList(start, end).stream().map(Change::getWord).toList();
+				if (changes.get(start).getOperation() == Operation.ADD) {
+					dictionaryService.addWords(words);
+				} else {
+					dictionaryService.removeWords(words);
+				}
+				start = end;
+			}
+		}
+		saveAppliedSequence(changes.get(changes.size() - 1).getSequence());
+	}
+
+	/**
+	 * Replaces the dictionary with the leader's snapshot, which is downloaded to a temporary file first. The file is
+	 * kept until the next copy, since the index may read the snapshot where it is on disk. If snapshots are enabled, a
+	 * snapshot of the replica's own is then written, so that its dictionary survives a restart along with the state
+	 * file.
+	 */
+	private void copyLeaderSnapshot() throws IOException, InterruptedException {
+		var startTime = System.nanoTime();
+		var file = Files.createTempFile("leader-snapshot", ".dawg");
+		try {
+			var uri = URI.create(leaderUrl + "/dictionary/snapshot");
+			var response = httpClient.send(HttpRequest.newBuilder(uri).build(),
+					HttpResponse.BodyHandlers.ofFile(file));
+			if (response.statusCode() != 200) {
+				throw new IOException("Unexpected response " + response.statusCode() + " from '" + uri + "'");
+			}
+			var snapshot = DawgFile.open(file, true);
+			dictionaryService.loadSnapshot(snapshot);
+			if (snapshotService.isEnabled()) {
+				snapshotService.writeSnapshot();
+			}
+			saveAppliedSequence(snapshot.getLogSequence());
+			log.info("Copied the leader's snapshot of {} words (up to change {}) in {} ms", snapshot.getWordCount(),
+					snapshot.getLogSequence(), (System.nanoTime() - startTime) / 1_000_000);
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+		if (leaderSnapshotFile != null) {
+			Files.deleteIfExists(leaderSnapshotFile);
+		}
+		leaderSnapshotFile = file;
+	}
+
+	private long readAppliedSequence() {
+		if (stateFile == null || !Files.exists(stateFile)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(Files.readString(stateFile, StandardCharsets.UTF_8).strip());
+		} catch (IOException | NumberFormatException e) {
+			log.error("Could not read the replication state from '{}'. Copying the leader's snapshot...", stateFile, e);
+			return -1;
+		}
+	}
+
+	/**
+	 * The state file is written next to the previous one and then moved over it, so it's never left half-written.
+	 */
+	private void saveAppliedSequence(long sequence) throws IOException {
+		appliedSequence = sequence;
+		if (stateFile == null) {
+			return;
+		}
+		var tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+		try (var out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.UTF_8)));
+			out.force(true);
+		}
+		Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Stops polling the leader, and deletes the copy of its snapshot.
+	 */
+	@Override
+	public synchronized void destroy() throws IOException, InterruptedException {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler.awaitTermination(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		if (leaderSnapshotFile != null) {
+			Files.deleteIfExists(leaderSnapshotFile);
+		}
+	}
+}
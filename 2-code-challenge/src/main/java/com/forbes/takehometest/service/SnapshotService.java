@@ -0,0 +1,160 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.interfaces.IBaseDictionaryService;
+import com.forbes.takehometest.interfaces.IMutationLogDao;
+import com.forbes.takehometest.model.snapshot.SnapshotModel;
+import com.forbes.takehometest.triedb.DawgFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the dictionary to (and loads it from) the binary snapshot file set in the `corrector.snapshot.file` property
+ * (see {@link DawgFile}). Snapshots are written on demand, every `corrector.snapshot.interval` if the dictionary
+ * changed since the last snapshot, whenever the mutation log asks to be compacted, and when the application shuts down.
+ * If no file is set, snapshots are disabled.
+ *
+ * The words are copied without stopping writers, so a snapshot holds every mutation up to the log sequence number it
+ * records, and possibly some of the mutations made while it was being copied. Replaying the log entries after that
+ * sequence number on top of the snapshot gives the same dictionary either way, since each entry sets whether its word
+ * is in the dictionary. Once a snapshot is written, the entries it includes are dropped from the log.
+ */
+@Slf4j
+@Service
+public class SnapshotService implements DisposableBean {
+	private final IBaseDictionaryService dictionaryService;
+	private final IMutationLogDao mutationLogDao;
+	private final Path snapshotFile;
+	private final boolean verifyChecksum;
+	private final ScheduledExecutorService scheduler;
+	private long snapshotVersion = -1;
+
+	public SnapshotService(IBaseDictionaryService dictionaryService, IMutationLogDao mutationLogDao,
+			@Value("${corrector.snapshot.file:}") String snapshotFile,
+			@Value("${corrector.snapshot.interval:0}") Duration interval,
+			@Value("${corrector.snapshot.verify-checksum:true}") boolean verifyChecksum) {
+		this.dictionaryService = dictionaryService;
+		this.mutationLogDao = mutationLogDao;
+		this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+		this.verifyChecksum = verifyChecksum;
+		if (this.snapshotFile == null) {
+			if (mutationLogDao.isEnabled()) {
+				throw new IllegalStateException("The mutation log can't be compacted without a snapshot file!");
+			}
+			this.scheduler = null;
+			return;
+		}
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "dictionary-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		mutationLogDao.onCompactionNeeded(() -> scheduler.execute(this::writeSnapshotIfChanged));
+		if (!interval.isZero()) {
+			scheduler.scheduleWithFixedDelay(this::writeSnapshotIfChanged, interval.toMillis(), interval.toMillis(),
+					TimeUnit.MILLISECONDS);
+			log.info("Writing dictionary snapshots to '{}' every {}", snapshotFile, interval);
+		}
+	}
+
+	public boolean isEnabled() {
+		return snapshotFile != null;
+	}
+
+	/**
+	 * Loads the dictionary from the snapshot file, and returns the sequence number of the last mutation log entry it
+	 * includes. Returns an empty result if snapshots are disabled or the file doesn't exist yet.
+	 *
+	 * @throws DawgFile.InvalidDawgFileException if the file is not a valid snapshot
+	 */
+	public synchronized OptionalLong loadSnapshot() throws IOException {
+		if (snapshotFile == null || !Files.exists(snapshotFile)) {
+			return OptionalLong.empty();
+		}
+		var startTime = System.nanoTime();
+		var snapshot = DawgFile.open(snapshotFile, verifyChecksum);
+		dictionaryService.loadSnapshot(snapshot);
+		snapshotVersion = dictionaryService.getVersion();
+		log.info("Loaded snapshot of {} words from '{}' in {} ms", snapshot.getWordCount(), snapshotFile,
+				(System.nanoTime() - startTime) / 1_000_000);
+		return OptionalLong.of(snapshot.getLogSequence());
+	}
+
+	/**
+	 * Opens the snapshot file for reading (eg for a replica to copy it). Returns an empty result if snapshots are
+	 * disabled or the file doesn't exist yet. New snapshots replace the file rather than overwrite it, so the stream
+	 * keeps reading the same snapshot even if another one is written meanwhile.
+	 */
+	public Optional<InputStream> openSnapshot() throws IOException {
+		if (snapshotFile == null) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(Files.newInputStream(snapshotFile));
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Writes the current dictionary to the snapshot file, and drops the mutation log entries it includes.
+	 *
+	 * @throws IllegalStateException if snapshots are disabled
+	 */
+	public synchronized SnapshotModel writeSnapshot() throws IOException {
+		if (snapshotFile == null) {
+			throw new IllegalStateException("No snapshot file configured!");
+		}
+		var startTime = System.nanoTime();
+		// read the version and log position first, so that changes made while the words are copied aren't lost
+		var version = dictionaryService.getVersion();
+		var logSequence = mutationLogDao.getLastSequence();
+		var words = dictionaryService.getWords();
+		// only returns once the snapshot (and its directory entry) is on disk, so the log entries can then be dropped
+		DawgFile.write(snapshotFile, words, dictionaryService.getWeights(), logSequence);
+		snapshotVersion = version;
+		mutationLogDao.compact(logSequence);
+		var snapshot = new SnapshotModel(snapshotFile.toString(), words.size(), Files.size(snapshotFile), version,
+				(System.nanoTime() - startTime) / 1_000_000);
+		log.info("Wrote snapshot of {} words to '{}' in {} ms", snapshot.getWordCount(), snapshotFile,
+				snapshot.getDurationMillis());
+		return snapshot;
+	}
+
+	private void writeSnapshotIfChanged() {
+		try {
+			synchronized (this) {
+				if (dictionaryService.getVersion() != snapshotVersion) {
+					writeSnapshot();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// keep the schedule going, the next run will try again
+			log.error("Failed to write dictionary snapshot to '{}'", snapshotFile, e);
+		}
+	}
+
+	/**
+	 * Stops the periodic snapshots, writing a last one if the dictionary changed since the previous one.
+	 */
+	@Override
+	public void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			writeSnapshotIfChanged();
+		}
+	}
+}
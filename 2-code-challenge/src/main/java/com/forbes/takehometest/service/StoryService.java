@@ -1,14 +1,38 @@
 package com.forbes.takehometest.service;
 
+import com.forbes.takehometest.cache.StoryRevision;
+import com.forbes.takehometest.cache.StoryRevisionCache;
 import com.forbes.takehometest.interfaces.IDictionaryService;
+import com.forbes.takehometest.interfaces.IDictionaryService.ClosestMatches;
 import com.forbes.takehometest.interfaces.IStoryService;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.model.story.StoryContainerModel;
+import com.forbes.takehometest.model.story.StoryRevisionCorrectionsModel;
 import com.forbes.takehometest.model.story.WordCorrection;
+import com.forbes.takehometest.triedb.SearchBudget;
+import com.forbes.takehometest.util.DistinctWords;
+import com.forbes.takehometest.util.JsonStoryReader;
+import com.forbes.takehometest.util.StoryTokenizer;
+import com.forbes.takehometest.util.StoryTokenizer.RevisedWordBounds;
 import com.forbes.takehometest.util.WordValidationUtils;
+import com.forbes.takehometest.util.WordView;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Serves as an intermediary for correcting a given story by communicating with the dictionary service.
@@ -16,10 +40,35 @@ import java.util.List;
 @Slf4j
 @Service
 public class StoryService implements IStoryService {
+	private static final int SKIPPED_WORD = -1;
+	private static final int INVALID_WORD = -2;
+
 	private final IDictionaryService dictionaryService;
+	private final ForkJoinPool storyCorrectionPool;
+	private final StoryRevisionCache storyRevisionCache;
+	private final CorrectorMetrics metrics;
+	private final int parallelThreshold;
+	private final int streamBatchSize;
+	private final int streamMaxWordLength;
+	private final long storyMaxExpandedStates;
+	private final Duration storyTimeout;
 
-	public StoryService(IDictionaryService dictionaryService) {
+	public StoryService(IDictionaryService dictionaryService, ForkJoinPool storyCorrectionPool,
+			StoryRevisionCache storyRevisionCache, CorrectorMetrics metrics,
+			@Value("${corrector.story.parallel-threshold:2000}") int parallelThreshold,
+			@Value("${corrector.story.stream.batch-size:2000}") int streamBatchSize,
+			@Value("${corrector.story.stream.max-word-length:1024}") int streamMaxWordLength,
+			@Value("${corrector.story.max-expanded-states:20000000}") long storyMaxExpandedStates,
+			@Value("${corrector.story.timeout:30s}") Duration storyTimeout) {
 		this.dictionaryService = dictionaryService;
+		this.storyCorrectionPool = storyCorrectionPool;
+		this.storyRevisionCache = storyRevisionCache;
+		this.metrics = metrics;
+		this.parallelThreshold = parallelThreshold;
+		this.streamBatchSize = streamBatchSize;
+		this.streamMaxWordLength = streamMaxWordLength;
+		this.storyMaxExpandedStates = storyMaxExpandedStates;
+		this.storyTimeout = storyTimeout;
 	}
 
 	/**
@@ -31,38 +80,387 @@ public class StoryService implements IStoryService {
 	 * empty string as well. (This can be handled by the UI to show "Invalid with no matches found").
 	 *
 	 * If the word is already in the dictionary, then we move on to the next word.
+	 *
+	 * Since stories repeat the same words a lot, each distinct (sanitized) word is only looked up once. The lookups are
+	 * the expensive part, so for stories with at least `corrector.story.parallel-threshold` words they're spread over
+	 * the story correction pool. Either way, the corrections are then returned in the story's order, exactly as if each
+	 * word had been corrected one at a time.
+	 *
+	 * The story is split into words (the same way as {@link StoryContainerModel#getStoryWords()}) and each word is
+	 * checked and sanitized in place, through a {@link WordView}. Each distinct word is checked against the dictionary
+	 * the first time it's found, through a lower-casing view (see {@link DistinctWords}), so a String is only created
+	 * for the distinct words that aren't in the dictionary, and for the words that end up in the corrections.
+	 *
+	 * All the close-match searches for a story share a budget of `corrector.story.max-expanded-states` states and
+	 * `corrector.story.timeout`, on top of each search's own limits, so one pathological story can't keep a request
+	 * thread (or the pool) busy. Once the budget runs out, the remaining words are corrected with the best match found
+	 * before their search was stopped (if any), and their corrections are flagged as truncated.
+	 */
+	@Override
+	public List<WordCorrection> getCorrections(CharSequence story) {
+		return getCorrections(story, dictionaryService);
+	}
+
+	@Override
+	public List<WordCorrection> getCorrections(CharSequence story, IDictionaryService dictionary) {
+		var wordBounds = StoryTokenizer.wordBounds(story);
+		log.info("Correcting story with {} words...", wordBounds.length / 2);
+		metrics.recordStory(wordBounds.length / 2);
+		return getCorrections(story, wordBounds, newStoryBudget(), dictionary);
+	}
+
+	/**
+	 * Same as {@link #getCorrections(CharSequence)} for a story that was already split into words.
 	 */
 	@Override
 	public List<WordCorrection> getCorrections(List<String> words) {
-		var corrections = new ArrayList<WordCorrection>();
-		for (var word : words) {
+		metrics.recordStory(words.size());
+		return correctWords(words, newStoryBudget(), dictionaryService);
+	}
+
+	private SearchBudget newStoryBudget() {
+		return SearchBudget.of(storyMaxExpandedStates, storyTimeout);
+	}
+
+	private List<WordCorrection> correctWords(List<String> words, SearchBudget budget,
+			IDictionaryService dictionary) {
+		var text = new StringBuilder();
+		var wordBounds = new int[words.size() * 2];
+		for (int i = 0; i < words.size(); i++) {
+			wordBounds[2 * i] = text.length();
+			text.append(words.get(i));
+			wordBounds[2 * i + 1] = text.length();
+		}
+		return getCorrections(text, wordBounds, budget, dictionary);
+	}
+
+	private List<WordCorrection> getCorrections(CharSequence text, int[] wordBounds, SearchBudget budget,
+			IDictionaryService dictionary) {
+		var distinctWords = new DistinctWords(dictionary::hasWord);
+		var wordIndexes = indexWords(text, wordBounds, distinctWords, dictionary, null, 0, 0);
+		var lookedUpCorrections = lookUpCorrections(distinctWords.asList(), wordBounds.length / 2, budget, dictionary);
+		recordLookups(lookedUpCorrections);
+		return collectCorrections(text, wordBounds, wordIndexes, lookedUpCorrections);
+	}
+
+	/**
+	 * Returns the index of each word's sanitized form in distinctWords, or SKIPPED_WORD/INVALID_WORD. The given number
+	 * of leading and trailing words are the previous revision's first and last words (unchanged), and are indexed
+	 * the same way as they were in it without being checked again. (A distinct word that was in the dictionary has no
+	 * String in the previous revision, so it's indexed from the story again)
+	 */
+	private int[] indexWords(CharSequence text, int[] wordBounds, DistinctWords distinctWords,
+			IDictionaryService dictionary, StoryRevision previous, int numLeadingWords, int numTrailingWords) {
+		var numWords = wordBounds.length / 2;
+		var distinctWordIndexes = new int[numWords];
+		// the index in distinctWords of each of the previous revision's distinct words, plus 1 (0 if not added yet)
+		var previousToDistinctIndex = previous == null ? null : new int[previous.distinctWords().size()];
+		var word = new WordView(text);
+		for (int i = 0; i < numWords; i++) {
+			if (i < numLeadingWords || i >= numWords - numTrailingWords) {
+				var previousWord = i < numLeadingWords ? i : i - numWords + previous.wordIndexes().length;
+				var previousIndex = previous.wordIndexes()[previousWord];
+				if (previousIndex < 0) {
+					distinctWordIndexes[i] = previousIndex;
+					continue;
+				}
+				if (previousToDistinctIndex[previousIndex] == 0) {
+					var distinctWord = previous.distinctWords().get(previousIndex);
+					previousToDistinctIndex[previousIndex] = 1 + (distinctWord != null
+							? distinctWords.indexOf(distinctWord, 0, distinctWord.length())
+							: indexSanitizedWord(text, wordBounds[2 * i], wordBounds[2 * i + 1], distinctWords));
+				}
+				distinctWordIndexes[i] = previousToDistinctIndex[previousIndex] - 1;
+				continue;
+			}
+			var start = wordBounds[2 * i];
+			var end = wordBounds[2 * i + 1];
+			word.moveTo(start, end);
 			if (word.isBlank()) {
 				log.warn("Empty word provided for correction: '{}'. Skipping...", word);
+				distinctWordIndexes[i] = SKIPPED_WORD;
 				continue;
 			}
 			// ignore word if it's too long
-			if (!WordValidationUtils.canWordBeIndexed(word)) {
+			if (!dictionary.canIndexWord(word)) {
 				log.warn("Word is too long: '{}'. Will not attempt to correct...", word);
+				distinctWordIndexes[i] = SKIPPED_WORD;
 				continue;
 			}
-			if (!WordValidationUtils.isValidDictionaryWord(word)) {
+			if (!WordValidationUtils.isValidDictionaryWord(text, start, end)) {
 				log.warn("Invalid word provided for correction: '{}'. Will not attempt to correct...", word);
-				corrections.add(new WordCorrection(word, ""));
+				distinctWordIndexes[i] = INVALID_WORD;
 				continue;
 			}
-			var wordLowerCase = WordValidationUtils.sanitizeWord(word).toLowerCase();
-			if (dictionaryService.hasWord(wordLowerCase)) {
-				log.debug("Word '{}' found in dictionary. No correction required.", word);
+			distinctWordIndexes[i] = indexSanitizedWord(text, start, end, distinctWords);
+		}
+		return distinctWordIndexes;
+	}
+
+	private static int indexSanitizedWord(CharSequence text, int start, int end, DistinctWords distinctWords) {
+		var sanitizedStart = WordValidationUtils.sanitizedStart(text, start, end);
+		var sanitizedEnd = WordValidationUtils.sanitizedEnd(text, sanitizedStart, end);
+		return distinctWords.indexOf(text, sanitizedStart, sanitizedEnd);
+	}
+
+	private List<WordCorrection> collectCorrections(CharSequence text, int[] wordBounds, int[] distinctWordIndexes,
+			List<ClosestMatches> lookedUpCorrections) {
+		var numWords = wordBounds.length / 2;
+		var corrections = new ArrayList<WordCorrection>();
+		for (int i = 0; i < numWords; i++) {
+			var start = wordBounds[2 * i];
+			var end = wordBounds[2 * i + 1];
+			if (distinctWordIndexes[i] == INVALID_WORD) {
+				corrections.add(new WordCorrection(text.subSequence(start, end).toString(), ""));
 				continue;
 			}
-			log.debug("Word '{}' not found in dictionary. Searching for correction...", word);
-			var correction = dictionaryService.getClosestWord(wordLowerCase).orElse("");
-			if (!correction.isEmpty() && Character.isUpperCase(word.charAt(0))) {
+			if (distinctWordIndexes[i] == SKIPPED_WORD) {
+				continue;
+			}
+			var lookedUpCorrection = lookedUpCorrections.get(distinctWordIndexes[i]);
+			if (lookedUpCorrection == null) {
+				continue;
+			}
+			var correction = lookedUpCorrection.closest().orElse("");
+			if (!correction.isEmpty() && Character.isUpperCase(text.charAt(start))) {
 				correction = correction.substring(0, 1).toUpperCase() + correction.substring(1);
 			}
-			log.debug("Final correction for '{}' is '{}'.", word, correction);
-			corrections.add(new WordCorrection(word, correction));
+			var originalWord = text.subSequence(start, end).toString();
+			log.debug("Final correction for '{}' is '{}'.", originalWord, correction);
+			corrections.add(new WordCorrection(originalWord, correction, lookedUpCorrection.truncated()));
+		}
+		return corrections;
+	}
+
+	/**
+	 * Corrects a revision of a story, following the same rules as {@link #getCorrections(CharSequence)}, and returns
+	 * its corrections as a change to the corrections returned for the previous revision (identified by the hash of its
+	 * text), or all of them if the previous revision isn't known.
+	 *
+	 * The previous revision is found in the story revision cache. Only the part of the text between the first and the
+	 * last changed character is split into words again (see {@link StoryTokenizer#reviseWordBounds}), and the words
+	 * before and after it are indexed as they were in the previous revision. If the dictionary's version is the same as
+	 * when the previous revision was corrected, the distinct words it already looked up aren't looked up again (unless
+	 * their search was cut short). If the dictionary changed since, every distinct word is looked up again, so
+	 * corrections always reflect the current dictionary.
+	 *
+	 * The change returned is found by comparing the two lists of corrections, so it covers both the edited words and
+	 * any corrections that changed with the dictionary.
+	 */
+	@Override
+	public StoryRevisionCorrectionsModel getRevisionCorrections(String story, String previousStoryHash,
+			IDictionaryService dictionary) {
+		var previous = previousStoryHash == null ? null
+				: storyRevisionCache.find(dictionary, previousStoryHash).orElse(null);
+		if (previousStoryHash != null && previous == null) {
+			log.info("Previous revision '{}' of the story isn't cached. Correcting the whole story...",
+					previousStoryHash);
+		}
+		var revision = correctRevision(story, previous, dictionary);
+		storyRevisionCache.put(dictionary, revision);
+
+		var corrections = revision.corrections();
+		var isTruncated = corrections.stream().anyMatch(WordCorrection::isTruncated);
+		if (previous == null) {
+			return new StoryRevisionCorrectionsModel(revision.hash(), null, 0, 0, corrections, corrections.size(),
+					isTruncated);
+		}
+		var previousCorrections = previous.corrections();
+		var minSize = Math.min(previousCorrections.size(), corrections.size());
+		var from = 0;
+		while (from < minSize && previousCorrections.get(from).equals(corrections.get(from))) {
+			from++;
+		}
+		var numUnchangedAfter = 0;
+		while (numUnchangedAfter < minSize - from && previousCorrections.get(previousCorrections.size() - 1
+				- numUnchangedAfter).equals(corrections.get(corrections.size() - 1 - numUnchangedAfter))) {
+			numUnchangedAfter++;
+		}
+		return new StoryRevisionCorrectionsModel(revision.hash(), previous.hash(), from,
+				previousCorrections.size() - from - numUnchangedAfter,
+				List.copyOf(corrections.subList(from, corrections.size() - numUnchangedAfter)), corrections.size(),
+				isTruncated);
+	}
+
+	private StoryRevision correctRevision(String story, StoryRevision previous, IDictionaryService dictionary) {
+		// read before any lookup, so a change made during the lookups makes the next revision look them up again
+		var dictionaryVersion = dictionary.getVersion();
+		var wordBounds = previous == null ? new RevisedWordBounds(StoryTokenizer.wordBounds(story), 0, 0)
+				: StoryTokenizer.reviseWordBounds(story, previous.story(), previous.wordBounds());
+		var numWords = wordBounds.bounds().length / 2;
+		log.info("Correcting story revision with {} words ({} unchanged)...", numWords,
+				wordBounds.numLeadingWords() + wordBounds.numTrailingWords());
+		metrics.recordStory(numWords);
+
+		var distinctWords = new DistinctWords(dictionary::hasWord);
+		var wordIndexes = indexWords(story, wordBounds.bounds(), distinctWords, dictionary, previous,
+				wordBounds.numLeadingWords(), wordBounds.numTrailingWords());
+		var words = distinctWords.asList();
+		var budget = newStoryBudget();
+		List<ClosestMatches> lookedUpCorrections;
+		if (previous == null || previous.dictionaryVersion() != dictionaryVersion) {
+			lookedUpCorrections = lookUpCorrections(words, numWords, budget, dictionary);
+			recordLookups(lookedUpCorrections);
+			metrics.recordRevision(previous != null, 0);
+		} else {
+			lookedUpCorrections = lookUpChangedCorrections(words, numWords, budget, dictionary, previous);
+		}
+		var corrections = collectCorrections(story, wordBounds.bounds(), wordIndexes, lookedUpCorrections);
+		// the distinct words found in the dictionary are null, which List.copyOf doesn't allow
+		return new StoryRevision(hash(story), story, wordBounds.bounds(), wordIndexes,
+				Collections.unmodifiableList(new ArrayList<>(words)), lookedUpCorrections, dictionaryVersion,
+				List.copyOf(corrections));
+	}
+
+	/**
+	 * Looks up the correction for each of the given (distinct) words like {@link #lookUpCorrections}, except for the
+	 * words whose correction was already found for the previous revision, against the same dictionary version. (The
+	 * words already found in the dictionary are null, and are passed on as they are)
+	 */
+	private List<ClosestMatches> lookUpChangedCorrections(List<String> words, int storySize, SearchBudget budget,
+			IDictionaryService dictionary, StoryRevision previous) {
+		var previousCorrections = new HashMap<String, ClosestMatches>();
+		for (int i = 0; i < previous.distinctWords().size(); i++) {
+			var correction = previous.lookups().get(i);
+			var word = previous.distinctWords().get(i);
+			if (word != null && (correction == null || !correction.truncated())) {
+				previousCorrections.put(word, correction);
+			}
+		}
+		var changedWords = words.stream().filter(word -> word == null || !previousCorrections.containsKey(word))
+				.toList();
+		var changedCorrections = lookUpCorrections(changedWords, storySize, budget, dictionary);
+		recordLookups(changedCorrections);
+		metrics.recordRevision(true, words.size() - changedWords.size());
+
+		var corrections = new ArrayList<ClosestMatches>(words.size());
+		var changedIndex = 0;
+		for (var word : words) {
+			corrections.add(word != null && previousCorrections.containsKey(word) ? previousCorrections.get(word)
+					: changedCorrections.get(changedIndex++));
+		}
+		return corrections;
+	}
+
+	/**
+	 * Returns the SHA-256 of the story's text, in hex.
+	 */
+	private static String hash(String story) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256").digest(story.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Corrects a story while it is being read. The story is split into words as it comes in, and every
+	 * `corrector.story.stream.batch-size` words are corrected (following the same rules as
+	 * {@link #getCorrections(List)}) and handed to the consumer before reading on. This keeps the memory used bounded
+	 * regardless of the story's size.
+	 *
+	 * The whole stream shares one story budget, so `corrector.story.timeout` counts from the start of the upload.
+	 *
+	 * If the story turns out to be invalid partway through (see {@link JsonStoryReader}), the words read before the
+	 * error are still corrected and handed to the consumer, and then the exception is thrown.
+	 */
+	@Override
+	public void streamCorrections(Reader story, Consumer<List<WordCorrection>> correctionsConsumer) throws IOException {
+		streamCorrections(story, dictionaryService, correctionsConsumer);
+	}
+
+	@Override
+	public void streamCorrections(Reader story, IDictionaryService dictionary,
+			Consumer<List<WordCorrection>> correctionsConsumer) throws IOException {
+		var tokenizer = new StoryTokenizer(story, streamMaxWordLength);
+		var words = new ArrayList<String>(streamBatchSize);
+		var numWords = 0L;
+		var budget = newStoryBudget();
+		try {
+			for (var word = tokenizer.nextWord(); word != null; word = tokenizer.nextWord()) {
+				words.add(word);
+				if (words.size() == streamBatchSize) {
+					correctionsConsumer.accept(correctWords(words, budget, dictionary));
+					numWords += words.size();
+					words.clear();
+				}
+			}
+		} catch (JsonStoryReader.InvalidStoryException e) {
+			if (!words.isEmpty()) {
+				correctionsConsumer.accept(correctWords(words, budget, dictionary));
+				numWords += words.size();
+			}
+			log.info("Corrected the {} words of the streamed story read before it turned out invalid.", numWords);
+			metrics.recordStory(numWords);
+			throw e;
+		}
+		if (!words.isEmpty()) {
+			correctionsConsumer.accept(correctWords(words, budget, dictionary));
+			numWords += words.size();
+		}
+		log.info("Corrected streamed story with {} words.", numWords);
+		metrics.recordStory(numWords);
+	}
+
+	/**
+	 * Looks up the correction for each of the given (distinct) words, in the same order. Words that are already in the
+	 * dictionary have a null correction, like the null words (the ones {@link DistinctWords} already found in it).
+	 */
+	private List<ClosestMatches> lookUpCorrections(List<String> wordsToLookUp, int storySize, SearchBudget budget,
+			IDictionaryService dictionary) {
+		List<ClosestMatches> corrections;
+		if (storySize >= parallelThreshold && storyCorrectionPool.getParallelism() > 1) {
+			log.debug("Looking up {} distinct words in parallel...", wordsToLookUp.size());
+			corrections = storyCorrectionPool.submit(() -> wordsToLookUp.parallelStream()
+					.map(word -> lookUpCorrection(word, budget, dictionary)).toList()).join();
+		} else {
+			corrections = wordsToLookUp.stream().map(word -> lookUpCorrection(word, budget, dictionary)).toList();
 		}
 		return corrections;
 	}
+
+	/**
+	 * Records how many of the looked up words were in the dictionary, were corrected or had no close match, and logs
+	 * how many of the searches were cut short.
+	 */
+	private void recordLookups(List<ClosestMatches> lookedUpCorrections) {
+		var numInDictionary = 0;
+		var numWithNoMatch = 0;
+		var numTruncated = 0;
+		for (var correction : lookedUpCorrections) {
+			if (correction == null) {
+				numInDictionary++;
+				continue;
+			}
+			if (correction.words().isEmpty()) {
+				numWithNoMatch++;
+			}
+			if (correction.truncated()) {
+				numTruncated++;
+			}
+		}
+		if (numTruncated > 0) {
+			log.warn("Ran out of search budget for {} of {} distinct words, their corrections may not be the closest",
+					numTruncated, lookedUpCorrections.size());
+		}
+		metrics.recordLookups(numInDictionary, lookedUpCorrections.size() - numInDictionary - numWithNoMatch,
+				numWithNoMatch);
+	}
+
+	/**
+	 * Returns null if the word is in the dictionary (or is null, ie it was already found there), otherwise its closest
+	 * match (if any).
+	 */
+	private ClosestMatches lookUpCorrection(String wordLowerCase, SearchBudget budget, IDictionaryService dictionary) {
+		if (wordLowerCase == null) {
+			return null;
+		}
+		if (dictionary.hasWord(wordLowerCase)) {
+			log.debug("Word '{}' found in dictionary. No correction required.", wordLowerCase);
+			return null;
+		}
+		log.debug("Word '{}' not found in dictionary. Searching for correction...", wordLowerCase);
+		return dictionary.getClosestWord(wordLowerCase, budget);
+	}
 }
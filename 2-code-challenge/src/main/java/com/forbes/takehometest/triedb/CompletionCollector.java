@@ -0,0 +1,80 @@
+package com.forbes.takehometest.triedb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collects the best k completions of a prefix. Completions are ranked by highest weight (eg how often the word is
+ * used), and then by sorted order, like equally close matches are (see {@link MatchCollector}).
+ *
+ * The completions are kept in a heap bounded to k entries with the worst one on top, so a walk below the prefix never
+ * holds (or sorts) every word it comes across. The indexes with a prefix structure offer their words in sorted order,
+ * so once the heap is full and its worst completion weighs at least as much as any word can (the given max weight), no
+ * word further on can take its place: {@link #offer(String)} then returns false and the walk stops. Without weights,
+ * that's as soon as k words are found.
+ *
+ * A collector can also be given hidden words that are never kept (eg the words a dictionary overlay removed from the
+ * index being walked), so they don't take the place of other completions.
+ */
+public class CompletionCollector {
+	private static final Comparator<Completion> BEST_FIRST = Comparator.comparingLong(Completion::weight).reversed()
+			.thenComparing(Completion::word);
+
+	private final int k;
+	private final ToLongFunction<String> weights;
+	private final long maxWeight;
+	private final PriorityQueue<Completion> worstFirst;
+	private final Predicate<String> hidden;
+
+	public CompletionCollector(int k, ToLongFunction<String> weights, long maxWeight) {
+		this(k, weights, maxWeight, word -> false);
+	}
+
+	public CompletionCollector(int k, ToLongFunction<String> weights, long maxWeight, Predicate<String> hidden) {
+		if (k < 1) {
+			throw new IllegalArgumentException("At least one completion must be collected!");
+		}
+		this.k = k;
+		this.weights = weights;
+		this.maxWeight = maxWeight;
+		this.worstFirst = new PriorityQueue<>(k + 1, BEST_FIRST.reversed());
+		this.hidden = hidden;
+	}
+
+	/**
+	 * Offers a word that starts with the prefix, which is kept if it's one of the best k so far (and isn't hidden).
+	 * Returns false if no word that comes after it in sorted order can be kept any more, so a walk that offers its
+	 * words in sorted order can stop.
+	 */
+	public boolean offer(String word) {
+		if (!hidden.test(word)) {
+			var completion = new Completion(word, weights.applyAsLong(word));
+			if (worstFirst.size() < k || BEST_FIRST.compare(completion, worstFirst.peek()) < 0) {
+				worstFirst.add(completion);
+				if (worstFirst.size() > k) {
+					worstFirst.poll();
+				}
+			}
+		}
+		if (worstFirst.size() < k) {
+			return true;
+		}
+		var worst = worstFirst.peek();
+		return worst.weight() < maxWeight || word.compareTo(worst.word()) < 0;
+	}
+
+	/**
+	 * Returns the collected completions, best first.
+	 */
+	public List<String> getCompletions() {
+		var completions = new ArrayList<>(worstFirst);
+		completions.sort(BEST_FIRST);
+		return completions.stream().map(Completion::word).toList();
+	}
+
+	private record Completion(String word, long weight) {}
+}
@@ -0,0 +1,576 @@
+package com.forbes.takehometest.triedb;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * Implements a minimal acyclic word automaton (also known as a DAWG) used to look for word matches and "closest"
+ * matches without the wildcard expansion used by {@link Trie}.
+ *
+ * Every word is stored along exactly one path, and nodes that have the same set of word endings below them are shared
+ * between words (eg "walking" and "talking" share the nodes for "alking"). Nodes are immutable and de-duplicated
+ * through a register, so adding or removing a word only re-creates the nodes along that word's path. This keeps the
+ * memory used linear in the size of the dictionary and allows words of any length to be indexed.
+ *
+ * Since nodes are never modified, each new root is a complete snapshot of the Dawg. Writers are serialized and publish
+ * the new root when they're done, while readers search whichever root was current when they started without taking a
+ * lock.
+ */
+@Slf4j
+public class Dawg {
+	private static final Node EMPTY = new Node(false, new char[0], new Node[0]);
+	private static final int MIN_REGISTER_GARBAGE = 1024;
+
+	/**
+	 * Maps each node to its canonical instance. Nodes that are no longer reachable from the root stay in here until
+	 * the next clean-up (see {@link #cleanUpRegisterIfNeeded()}).
+	 */
+	private final Map<Node, Node> register = new HashMap<>();
+	private volatile Node root = EMPTY;
+	private final NodeCounts.Cache<Node> nodeCounts = new NodeCounts.Cache<>();
+	private int liveNodeCount;
+
+	/**
+	 * Adds a word to the Dawg. The nodes along the word's path are re-created bottom-up with the new word included, and
+	 * each re-created node is swapped for an existing equivalent node if one is already registered.
+	 */
+	public synchronized void addWord(String word) {
+		if (insert(word)) {
+			cleanUpRegisterIfNeeded();
+		}
+	}
+
+	/**
+	 * Adds the given words, which must be sorted and distinct, and returns whether each word was added (false if it
+	 * was already in the Dawg). The words are added one at a time (a new word can make an existing node shared, so the
+	 * path copying can't be merged like in {@link Trie#addWords(List)}), but the register is only cleaned up once for
+	 * the whole batch.
+	 */
+	public synchronized Map<String, Boolean> addWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		for (var word : sortedWords) {
+			outcomes.put(word, insert(word));
+		}
+		cleanUpRegisterIfNeeded();
+		return outcomes;
+	}
+
+	private boolean insert(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not add empty word!");
+		}
+		var path = walkPath(word);
+		var last = path[word.length()];
+		if (last != null && last.isFinal()) {
+			log.debug("'{}' is already in dawg. Skipping add...", word);
+			return false;
+		}
+		log.debug("Adding '{}' to dawg...", word);
+		var node = canonical((last == null ? EMPTY : last).withFinal(true));
+		for (int i = word.length() - 1; i >= 0; i--) {
+			var parent = path[i] == null ? EMPTY : path[i];
+			node = canonical(parent.withChild(word.charAt(i), node));
+		}
+		root = node;
+		log.debug("Added '{}' to dawg successfully.", word);
+		return true;
+	}
+
+	/**
+	 * Replaces the contents of the Dawg with the given words, which must be sorted and distinct.
+	 *
+	 * This uses the incremental construction for sorted input (Daciuk et al.): only the path of the previous word is
+	 * kept open. When the next word branches off that path, the part of the path below the branch can no longer
+	 * change, so its nodes are finalized bottom-up and swapped for their registered equivalents. Each node is built
+	 * exactly once, rather than re-creating the whole path for every word.
+	 */
+	public synchronized void loadWords(List<String> sortedWords) {
+		log.debug("Building dawg from {} words...", sortedWords.size());
+		register.clear();
+		var openPath = new ArrayList<NodeBuilder>(List.of(new NodeBuilder()));
+		var previousWord = "";
+		for (var word : sortedWords) {
+			var commonPrefixLength = 0;
+			var maxCommonPrefixLength = Math.min(word.length(), previousWord.length());
+			while (commonPrefixLength < maxCommonPrefixLength
+					&& word.charAt(commonPrefixLength) == previousWord.charAt(commonPrefixLength)) {
+				commonPrefixLength++;
+			}
+			finalizeOpenPath(openPath, previousWord, commonPrefixLength);
+			for (int i = commonPrefixLength; i < word.length(); i++) {
+				openPath.add(new NodeBuilder());
+			}
+			openPath.get(word.length()).isFinal = true;
+			previousWord = word;
+		}
+		finalizeOpenPath(openPath, previousWord, 0);
+		root = canonical(openPath.get(0).build());
+		liveNodeCount = register.size();
+		log.debug("Built dawg from {} words with {} nodes successfully.", sortedWords.size(), liveNodeCount);
+	}
+
+	/**
+	 * Replaces the contents of the Dawg with the words in the given file. The file's nodes are not read up-front: they
+	 * are read from the (memory-mapped) file the first time a lookup or a change reaches them, so this takes the same
+	 * time no matter how many words the file holds.
+	 *
+	 * Later adds/deletes work as usual, re-creating the nodes along the changed word's path on the heap. Those nodes
+	 * are only shared with other heap nodes though, so the Dawg is no longer guaranteed to be minimal after that.
+	 */
+	public synchronized void loadSnapshot(DawgFile file) {
+		log.debug("Loading dawg from '{}' with {} words...", file.getFile(), file.getWordCount());
+		register.clear();
+		root = file.rootNode();
+		liveNodeCount = 0;
+	}
+
+	/**
+	 * Returns the current root, which is a complete snapshot of the Dawg.
+	 */
+	Node root() {
+		return root;
+	}
+
+	/**
+	 * Finalizes the open nodes deeper than the given depth, attaching each one to its parent under the matching letter
+	 * of the word the path was built for.
+	 */
+	private void finalizeOpenPath(List<NodeBuilder> openPath, String pathWord, int depth) {
+		for (int i = openPath.size() - 1; i > depth; i--) {
+			var node = canonical(openPath.remove(i).build());
+			openPath.get(i - 1).addChild(pathWord.charAt(i - 1), node);
+		}
+	}
+
+	/**
+	 * Checks if the given word is contained within the Dawg exactly. Like {@link Trie#contains(CharSequence)}, the word
+	 * doesn't need to be a String.
+	 */
+	public boolean contains(CharSequence word) {
+		var node = root;
+		for (int i = 0; i < word.length() && node != null; i++) {
+			node = node.getChild(word.charAt(i));
+		}
+		return node != null && node.isFinal();
+	}
+
+	/**
+	 * Deletes a word from the Dawg. Nodes along the word's path are re-created bottom-up without the word, and any node
+	 * left without words below it is dropped from its parent.
+	 */
+	public synchronized boolean deleteWord(String word) {
+		if (!remove(word)) {
+			return false;
+		}
+		cleanUpRegisterIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Deletes the given words, which must be sorted and distinct, and returns whether each word was deleted (false if
+	 * it wasn't in the Dawg). Like {@link #addWords(List)}, the register is only cleaned up once for the whole batch.
+	 */
+	public synchronized Map<String, Boolean> deleteWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		for (var word : sortedWords) {
+			outcomes.put(word, remove(word));
+		}
+		cleanUpRegisterIfNeeded();
+		return outcomes;
+	}
+
+	private boolean remove(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not delete empty word!");
+		}
+		var path = walkPath(word);
+		var last = path[word.length()];
+		if (last == null || !last.isFinal()) {
+			log.debug("Did not find '{}' in dawg. Skipping delete...", word);
+			return false;
+		}
+		log.debug("Deleting '{}' from dawg...", word);
+		var node = last.withFinal(false);
+		for (int i = word.length() - 1; i >= 0; i--) {
+			var c = word.charAt(i);
+			node = node.isEmpty() ? path[i].withoutChild(c) : path[i].withChild(c, canonical(node));
+		}
+		root = canonical(node);
+		log.debug("Deleted '{}' from dawg successfully.", word);
+		return true;
+	}
+
+	/**
+	 * Offers the words that start with the given prefix to the given collector, in sorted order. Since words share
+	 * nodes, the words are spelled out while walking down from the prefix, and the walk stops as soon as the collector
+	 * needs no more words (see {@link CompletionCollector}).
+	 */
+	public void completionsOf(String prefix, CompletionCollector completions) {
+		var node = walkPath(prefix)[prefix.length()];
+		if (node != null) {
+			addCompletions(node, new StringBuilder(prefix), completions);
+		}
+	}
+
+	private static boolean addCompletions(Node node, StringBuilder word, CompletionCollector completions) {
+		if (node.isFinal() && !completions.offer(word.toString())) {
+			return false;
+		}
+		var labels = node.labels();
+		var targets = node.targets();
+		for (int i = 0; i < labels.length; i++) {
+			word.append(labels[i]);
+			var goOn = addCompletions(targets[i], word, completions);
+			word.setLength(word.length() - 1);
+			if (!goOn) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of distinct nodes reachable from the root, for metrics. Counting walks the whole Dawg, so the
+	 * count is kept until the Dawg changes. If the Dawg was loaded from a snapshot, the nodes still read from the
+	 * snapshot file are counted as the file's node count rather than loading all of them.
+	 */
+	public NodeCounts nodeCounts() {
+		return nodeCounts.get(root, currentRoot -> new NodeCounts(countNodes(currentRoot), 0));
+	}
+
+	private static long countNodes(Node root) {
+		var reachable = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		var mappedFiles = Collections.newSetFromMap(new IdentityHashMap<DawgFile, Boolean>());
+		var toVisit = new ArrayDeque<Node>(List.of(root));
+		while (!toVisit.isEmpty()) {
+			var node = toVisit.pop();
+			if (node instanceof MappedNode mappedNode) {
+				mappedFiles.add(mappedNode.file);
+			} else if (reachable.add(node)) {
+				toVisit.addAll(Arrays.asList(node.targets()));
+			}
+		}
+		return reachable.size() + mappedFiles.stream().mapToLong(DawgFile::getNodeCount).sum();
+	}
+
+	/**
+	 * Finds the closest matches for the given word. Like {@link Trie#findClosestMatches(String, MatchCollector)}, we
+	 * limit the maximum number of errors allowed to 50% of the word (rounded up), and the matches with the fewest
+	 * errors are found first. An error is a swapped letter, an extra letter, or a forgotten letter. (As with the Trie,
+	 * a forgotten letter is only considered before the last letter of the given word, so "lik" is not one error away
+	 * from "like")
+	 *
+	 * Since words share nodes in the Dawg, we can't keep the matched words in the nodes themselves. Instead, we walk the
+	 * Dawg depth-first while keeping track of the current prefix, and feed each letter along the way into a
+	 * {@link LevenshteinAutomaton} for the given word. A branch is abandoned as soon as the automaton says it can't end
+	 * within the current error limit.
+	 */
+	public void findClosestMatches(String word, MatchCollector matches) {
+		var search = new ClosestMatchSearch(word, matches);
+		search.run(root);
+		log.debug("Dawg found {} matches for '{}'", matches.size(), word);
+	}
+
+	/**
+	 * Returns the nodes visited when following the given word from the root. If the word leaves the Dawg part-way
+	 * through, the remaining entries are null.
+	 */
+	private Node[] walkPath(String word) {
+		var path = new Node[word.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < word.length() && path[i] != null; i++) {
+			path[i + 1] = path[i].getChild(word.charAt(i));
+		}
+		return path;
+	}
+
+	private Node canonical(Node node) {
+		var existing = register.putIfAbsent(node, node);
+		return existing == null ? node : existing;
+	}
+
+	/**
+	 * Every add/delete leaves the replaced nodes behind in the register. Once the register grows to twice the number of
+	 * nodes that were reachable at the last clean-up, we rebuild it from the nodes that are still reachable from the
+	 * root. This keeps the clean-up cost amortized over the mutations that caused it.
+	 */
+	private void cleanUpRegisterIfNeeded() {
+		if (register.size() <= 2 * liveNodeCount + MIN_REGISTER_GARBAGE) {
+			return;
+		}
+		var reachable = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		var toVisit = new ArrayDeque<Node>(List.of(root));
+		while (!toVisit.isEmpty()) {
+			var node = toVisit.pop();
+			// nodes loaded from a Dawg file are never registered, so there's no need to load their children here
+			if (!(node instanceof MappedNode) && reachable.add(node)) {
+				toVisit.addAll(Arrays.asList(node.targets()));
+			}
+		}
+		log.debug("Cleaning up dawg register: {} registered nodes, {} reachable", register.size(), reachable.size());
+		register.clear();
+		reachable.forEach(node -> register.put(node, node));
+		liveNodeCount = reachable.size();
+	}
+
+	/**
+	 * Holds the state of a single closest-match search.
+	 */
+	private static class ClosestMatchSearch {
+		private final String word;
+		private final MatchCollector matches;
+		private final StringBuilder prefix = new StringBuilder();
+		private final int maxErrorsAllowed;
+
+		ClosestMatchSearch(String word, MatchCollector matches) {
+			this.word = word;
+			this.matches = matches;
+			this.maxErrorsAllowed = (word.length() + 1) / 2;
+		}
+
+		/**
+		 * Searches with an error limit of 0, then 1, and so on up to the maximum errors allowed, stopping once the
+		 * limit goes past {@link MatchCollector#maxUsefulErrors()} (a later pass could only find matches with more
+		 * errors than the worst one kept), or as soon as the collector's budget runs out. A collector that another
+		 * search already filled (eg the base index's, for a dictionary overlay) still gets the passes that can beat its
+		 * worst match. Like the Trie's PriorityQueue, this makes sure the matches with the fewest errors are found
+		 * without first exploring paths with more errors. Each pass uses an automaton built for its own limit, which
+		 * keeps the number of automaton states (and the paths explored) as small as possible.
+		 */
+		void run(Node root) {
+			for (var errorLimit = 0; errorLimit <= Math.min(maxErrorsAllowed, matches.maxUsefulErrors())
+					&& !matches.isTruncated(); errorLimit++) {
+				var automaton = new LevenshteinAutomaton(word, errorLimit);
+				searchFrom(root, automaton, automaton.start());
+			}
+		}
+
+		/**
+		 * Searches the paths below the given node. Since the search is depth-first, the states still pending are the
+		 * ones along the current path (ie the prefix).
+		 */
+		void searchFrom(Node node, LevenshteinAutomaton automaton, int state) {
+			matches.statesPending(prefix.length());
+			var labels = node.labels();
+			var targets = node.targets();
+			for (int e = 0; e < labels.length && !matches.isTruncated(); e++) {
+				var c = labels[e];
+				var nextState = automaton.step(state, c);
+				if (nextState == LevenshteinAutomaton.DEAD_STATE) {
+					matches.statePruned();
+					continue;
+				}
+				if (!matches.stateExpanded()) {
+					return;
+				}
+				var child = targets[e];
+				prefix.append(c);
+				if (child.isFinal() && automaton.errors(nextState) <= automaton.getMaxErrors()) {
+					matches.offer(prefix.toString(), automaton.errors(nextState));
+				}
+				searchFrom(child, automaton, nextState);
+				prefix.setLength(prefix.length() - 1);
+			}
+		}
+	}
+
+	/**
+	 * Holds a node that is still being built by {@link #loadWords(List)}. Children are always added in sorted order.
+	 */
+	private static class NodeBuilder {
+		private boolean isFinal;
+		private char[] labels = new char[2];
+		private Node[] targets = new Node[2];
+		private int numChildren;
+
+		void addChild(char c, Node child) {
+			if (numChildren == labels.length) {
+				labels = Arrays.copyOf(labels, numChildren * 2);
+				targets = Arrays.copyOf(targets, numChildren * 2);
+			}
+			labels[numChildren] = c;
+			targets[numChildren++] = child;
+		}
+
+		Node build() {
+			return numChildren == 0 && !isFinal ? EMPTY
+					: new Node(isFinal, Arrays.copyOf(labels, numChildren), Arrays.copyOf(targets, numChildren));
+		}
+	}
+
+	/**
+	 * Represents an individual node in the Dawg. Nodes are immutable, and two nodes are equal if they have the same
+	 * final flag and the same outgoing letters pointing to the same (canonical) child instances.
+	 */
+	static class Node {
+		private final boolean isFinal;
+		private final char[] labels;
+		private final Node[] targets;
+		private final int hash;
+
+		Node(boolean isFinal, char[] labels, Node[] targets) {
+			this.isFinal = isFinal;
+			this.labels = labels;
+			this.targets = targets;
+			var h = Boolean.hashCode(isFinal);
+			for (int i = 0; i < labels.length; i++) {
+				h = 31 * (31 * h + labels[i]) + System.identityHashCode(targets[i]);
+			}
+			this.hash = h;
+		}
+
+		/**
+		 * Used by {@link MappedNode}, which loads its children on demand.
+		 */
+		private Node(boolean isFinal) {
+			this.isFinal = isFinal;
+			this.labels = null;
+			this.targets = null;
+			this.hash = 0;
+		}
+
+		boolean isFinal() {
+			return isFinal;
+		}
+
+		char[] labels() {
+			return labels;
+		}
+
+		Node[] targets() {
+			return targets;
+		}
+
+		Node getChild(char c) {
+			var i = Arrays.binarySearch(labels(), c);
+			return i >= 0 ? targets()[i] : null;
+		}
+
+		boolean isEmpty() {
+			return !isFinal && labels().length == 0;
+		}
+
+		Node withFinal(boolean isFinal) {
+			return new Node(isFinal, labels(), targets());
+		}
+
+		Node withChild(char c, Node child) {
+			var labels = labels();
+			var targets = targets();
+			var i = Arrays.binarySearch(labels, c);
+			if (i >= 0) {
+				var newTargets = targets.clone();
+				newTargets[i] = child;
+				return new Node(isFinal, labels, newTargets);
+			}
+			var insertAt = -i - 1;
+			var newLabels = new char[labels.length + 1];
+			var newTargets = new Node[targets.length + 1];
+			System.arraycopy(labels, 0, newLabels, 0, insertAt);
+			System.arraycopy(targets, 0, newTargets, 0, insertAt);
+			newLabels[insertAt] = c;
+			newTargets[insertAt] = child;
+			System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+			System.arraycopy(targets, insertAt, newTargets, insertAt + 1, targets.length - insertAt);
+			return new Node(isFinal, newLabels, newTargets);
+		}
+
+		Node withoutChild(char c) {
+			var labels = labels();
+			var targets = targets();
+			var i = Arrays.binarySearch(labels, c);
+			var newLabels = new char[labels.length - 1];
+			var newTargets = new Node[targets.length - 1];
+			System.arraycopy(labels, 0, newLabels, 0, i);
+			System.arraycopy(targets, 0, newTargets, 0, i);
+			System.arraycopy(labels, i + 1, newLabels, i, labels.length - i - 1);
+			System.arraycopy(targets, i + 1, newTargets, i, targets.length - i - 1);
+			return new Node(isFinal, newLabels, newTargets);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Node other) || other instanceof MappedNode || hash != other.hash
+					|| isFinal != other.isFinal || !Arrays.equals(labels, other.labels)) {
+				return false;
+			}
+			for (int i = 0; i < targets.length; i++) {
+				if (targets[i] != other.targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Represents a node stored in a memory-mapped {@link DawgFile}. Its children are only read from the file (and
+	 * created as MappedNodes themselves) the first time they're needed, so opening a Dawg file only reads the parts of
+	 * the file that are actually used.
+	 *
+	 * MappedNodes are never put in the register: they're only equal to themselves, and nodes created by later
+	 * adds/deletes simply point to them.
+	 */
+	static final class MappedNode extends Node {
+		private final DawgFile file;
+		private final int offset;
+		/**
+		 * Holds both child arrays so they're always published together. (If two threads load the children at the same
+		 * time, they both get the same child instances from the file, so either result can be kept)
+		 */
+		private Children children;
+
+		MappedNode(DawgFile file, int offset) {
+			super(file.isFinal(offset));
+			this.file = file;
+			this.offset = offset;
+		}
+
+		@Override
+		char[] labels() {
+			return children().labels;
+		}
+
+		@Override
+		Node[] targets() {
+			return children().targets;
+		}
+
+		private Children children() {
+			var loadedChildren = children;
+			if (loadedChildren == null) {
+				var numChildren = file.childCount(offset);
+				var labels = new char[numChildren];
+				var targets = new Node[numChildren];
+				for (int i = 0; i < numChildren; i++) {
+					labels[i] = file.childLabel(offset, i);
+					targets[i] = file.nodeAt(file.childOffset(offset, i));
+				}
+				loadedChildren = new Children(labels, targets);
+				children = loadedChildren;
+			}
+			return loadedChildren;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+
+		private record Children(char[] labels, Node[] targets) {}
+	}
+}
@@ -0,0 +1,347 @@
+package com.forbes.takehometest.triedb;
+
+import com.forbes.takehometest.util.FileSyncUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads/writes a binary snapshot of a dictionary, stored as the nodes of a {@link Dawg}.
+ *
+ * The file starts with a fixed-size header (magic number, format version, word count, node count, root offset, body
+ * length, weights offset, the sequence number of the last mutation log entry included, and a CRC32C checksum), followed
+ * by the nodes. Each node is stored as an int holding its number of children and its final flag, followed by a (char
+ * letter, int offset) pair for each child, sorted by letter. Offsets are relative to the start of the body, and nodes
+ * are written children-first, so a child's offset is always lower than its parent's (which also means a corrupted
+ * offset can never create a cycle).
+ *
+ * The nodes are followed by the word weights: the number of weighted words, and then each word (its UTF-8 length and
+ * bytes) with its weight. Words without a weight aren't stored. (Version 2 files have no weights and a shorter header,
+ * and can still be opened)
+ *
+ * Opening a file memory-maps it and doesn't read any nodes: the Dawg's nodes are only read from the file when a lookup
+ * first reaches them (see {@link Dawg#loadSnapshot(DawgFile)}). The cost of opening a snapshot is then the number of
+ * pages that are actually touched, not the number of words in it. (Verifying the checksum reads the whole file once,
+ * which is a sequential read, but can be turned off)
+ */
+@Slf4j
+public class DawgFile {
+	private static final int MAGIC = 0x44415747; // "DAWG"
+	private static final int FORMAT_VERSION = 3;
+	private static final int HEADER_SIZE = 40;
+	private static final int CHECKSUM_POSITION = 36;
+	private static final int UNWEIGHTED_FORMAT_VERSION = 2;
+	private static final int UNWEIGHTED_HEADER_SIZE = 36;
+	private static final int UNWEIGHTED_CHECKSUM_POSITION = 32;
+	private static final int NODE_HEADER_SIZE = 4;
+	private static final int CHILD_ENTRY_SIZE = 6;
+
+	private final Path file;
+	private final ByteBuffer body;
+	private final int wordCount;
+	private final int nodeCount;
+	private final int rootOffset;
+	private final int weightsOffset;
+	private final long logSequence;
+	/**
+	 * Holds the nodes read from the file so far, so that a node shared by several parents is only read once.
+	 */
+	private final Map<Integer, Dawg.Node> nodes = new ConcurrentHashMap<>();
+
+	private DawgFile(Path file, ByteBuffer body, int wordCount, int nodeCount, int rootOffset, int weightsOffset,
+			long logSequence) {
+		this.file = file;
+		this.body = body;
+		this.wordCount = wordCount;
+		this.nodeCount = nodeCount;
+		this.rootOffset = rootOffset;
+		this.weightsOffset = weightsOffset;
+		this.logSequence = logSequence;
+	}
+
+	/**
+	 * Writes the given words (which must be sorted and distinct) and their weights to the given file, along with the
+	 * sequence number of the last mutation log entry they include. The file is first written next to the target and
+	 * then moved over it, so a crash while writing never leaves a half-written snapshot behind. The snapshot's
+	 * directory is forced to disk before returning, so once this returns the new snapshot survives a crash.
+	 */
+	public static void write(Path file, List<String> sortedWords, Map<String, Long> weights, long logSequence)
+			throws IOException {
+		var dawg = new Dawg();
+		dawg.loadWords(sortedWords);
+		var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (var channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(HEADER_SIZE);
+			var checksum = new CRC32C();
+			var out = new DataOutputStream(new BufferedOutputStream(
+					new CheckedOutputStream(Channels.newOutputStream(channel), checksum)));
+			var writtenNodes = writeNodes(dawg.root(), out);
+			var weightsOffset = out.size();
+			writeWeights(weights, out);
+			out.flush();
+
+			var header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(sortedWords.size()).putInt(writtenNodes.size())
+					.putInt(writtenNodes.get(dawg.root())).putInt(out.size()).putInt(weightsOffset).putLong(logSequence);
+			checksum.update(header.array(), 0, CHECKSUM_POSITION);
+			header.putInt((int) checksum.getValue());
+			channel.write(header.flip(), 0);
+			channel.force(true);
+		}
+		FileSyncUtils.moveAtomically(tempFile, file);
+		log.debug("Wrote {} words to '{}'", sortedWords.size(), file);
+	}
+
+	/**
+	 * Writes every node reachable from the root children-first, and returns the offset each node was written at.
+	 */
+	private static Map<Dawg.Node, Integer> writeNodes(Dawg.Node root, DataOutputStream out) throws IOException {
+		var offsets = new IdentityHashMap<Dawg.Node, Integer>();
+		var toVisit = new ArrayDeque<Dawg.Node>(List.of(root));
+		while (!toVisit.isEmpty()) {
+			var node = toVisit.peek();
+			if (offsets.containsKey(node)) {
+				toVisit.pop();
+				continue;
+			}
+			var hasUnwrittenChild = false;
+			for (var child : node.targets()) {
+				if (!offsets.containsKey(child)) {
+					toVisit.push(child);
+					hasUnwrittenChild = true;
+				}
+			}
+			if (hasUnwrittenChild) {
+				continue;
+			}
+			toVisit.pop();
+			offsets.put(node, out.size());
+			var labels = node.labels();
+			var targets = node.targets();
+			out.writeInt(labels.length << 1 | (node.isFinal() ? 1 : 0));
+			for (int i = 0; i < labels.length; i++) {
+				out.writeChar(labels[i]);
+				out.writeInt(offsets.get(targets[i]));
+			}
+			if (out.size() < 0) {
+				throw new IOException("Dictionary is too large to be written to a Dawg file!");
+			}
+		}
+		return offsets;
+	}
+
+	private static void writeWeights(Map<String, Long> weights, DataOutputStream out) throws IOException {
+		out.writeInt(weights.size());
+		for (var entry : weights.entrySet()) {
+			var word = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(word.length);
+			out.write(word);
+			out.writeLong(entry.getValue());
+		}
+	}
+
+	/**
+	 * Memory-maps the given file after checking its header (and its checksum if verifyChecksum is set).
+	 *
+	 * @throws InvalidDawgFileException if the file is not a Dawg file, or is corrupted
+	 */
+	public static DawgFile open(Path file, boolean verifyChecksum) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var size = channel.size();
+			if (size < UNWEIGHTED_HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new InvalidDawgFileException(file, "unexpected file size " + size);
+			}
+			var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt(0) != MAGIC) {
+				throw new InvalidDawgFileException(file, "not a Dawg file");
+			}
+			var formatVersion = buffer.getInt(4);
+			if (formatVersion != FORMAT_VERSION && formatVersion != UNWEIGHTED_FORMAT_VERSION) {
+				throw new InvalidDawgFileException(file, "unsupported format version " + formatVersion);
+			}
+			var isWeighted = formatVersion == FORMAT_VERSION;
+			var headerSize = isWeighted ? HEADER_SIZE : UNWEIGHTED_HEADER_SIZE;
+			var checksumPosition = isWeighted ? CHECKSUM_POSITION : UNWEIGHTED_CHECKSUM_POSITION;
+			if (size < headerSize) {
+				throw new InvalidDawgFileException(file, "unexpected file size " + size);
+			}
+			var wordCount = buffer.getInt(8);
+			var nodeCount = buffer.getInt(12);
+			var rootOffset = buffer.getInt(16);
+			var bodyLength = buffer.getInt(20);
+			var weightsOffset = isWeighted ? buffer.getInt(24) : -1;
+			var logSequence = buffer.getLong(checksumPosition - 8);
+			if (bodyLength != size - headerSize || rootOffset < 0 || rootOffset >= bodyLength
+					|| weightsOffset > bodyLength - 4) {
+				throw new InvalidDawgFileException(file, "file is truncated");
+			}
+			var body = buffer.slice(headerSize, bodyLength);
+			if (verifyChecksum && checksumOf(buffer, body, checksumPosition) != buffer.getInt(checksumPosition)) {
+				throw new InvalidDawgFileException(file, "checksum does not match");
+			}
+			return new DawgFile(file, body, wordCount, nodeCount, rootOffset, weightsOffset, logSequence);
+		}
+	}
+
+	private static int checksumOf(ByteBuffer buffer, ByteBuffer body, int checksumPosition) {
+		var checksum = new CRC32C();
+		checksum.update(body.duplicate());
+		checksum.update(buffer.slice(0, checksumPosition));
+		return (int) checksum.getValue();
+	}
+
+	/**
+	 * Reads every word in the file, in sorted order.
+	 */
+	public List<String> readWords() {
+		var words = new ArrayList<String>(wordCount);
+		var prefix = new StringBuilder();
+		// for each node on the current path, the offset of the node and the index of the next child to visit
+		var pathOffsets = new int[16];
+		var pathChildIndexes = new int[16];
+		var depth = 0;
+		pathOffsets[0] = rootOffset;
+		if (isFinal(rootOffset)) {
+			words.add("");
+		}
+		while (depth >= 0) {
+			var offset = pathOffsets[depth];
+			var childIndex = pathChildIndexes[depth]++;
+			if (childIndex == childCount(offset)) {
+				depth--;
+				prefix.setLength(Math.max(depth, 0));
+				continue;
+			}
+			var childOffset = childOffset(offset, childIndex);
+			prefix.append(childLabel(offset, childIndex));
+			if (isFinal(childOffset)) {
+				words.add(prefix.toString());
+			}
+			if (++depth == pathOffsets.length) {
+				pathOffsets = Arrays.copyOf(pathOffsets, depth * 2);
+				pathChildIndexes = Arrays.copyOf(pathChildIndexes, depth * 2);
+			}
+			pathOffsets[depth] = childOffset;
+			pathChildIndexes[depth] = 0;
+		}
+		return words;
+	}
+
+	/**
+	 * Reads the weights of the weighted words in the file (empty for files written before weights were stored).
+	 */
+	public Map<String, Long> readWeights() {
+		if (weightsOffset < 0) {
+			return Map.of();
+		}
+		var in = body.duplicate().position(weightsOffset);
+		var weightCount = in.getInt();
+		var weights = new HashMap<String, Long>(weightCount * 2);
+		try {
+			for (int i = 0; i < weightCount; i++) {
+				var word = new byte[in.getInt()];
+				in.get(word);
+				weights.put(new String(word, StandardCharsets.UTF_8), in.getLong());
+			}
+		} catch (BufferUnderflowException | NegativeArraySizeException e) {
+			throw new IllegalStateException("Dawg file '" + file + "' is corrupted: weights are truncated", e);
+		}
+		return weights;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the sequence number of the last mutation log entry included in the file. Entries after it need to be
+	 * replayed on top of the file's words.
+	 */
+	public long getLogSequence() {
+		return logSequence;
+	}
+
+	public long getSizeBytes() {
+		return (weightsOffset < 0 ? UNWEIGHTED_HEADER_SIZE : HEADER_SIZE) + (long) body.capacity();
+	}
+
+	/**
+	 * Returns the part of the file that holds the nodes (without the weights), for {@link OffHeapDawg} to copy.
+	 */
+	ByteBuffer nodes() {
+		return body.slice(0, weightsOffset < 0 ? body.capacity() : weightsOffset);
+	}
+
+	int rootOffset() {
+		return rootOffset;
+	}
+
+	Dawg.Node rootNode() {
+		return nodeAt(rootOffset);
+	}
+
+	Dawg.Node nodeAt(int offset) {
+		return nodes.computeIfAbsent(offset, nodeOffset -> new Dawg.MappedNode(this, nodeOffset));
+	}
+
+	boolean isFinal(int offset) {
+		return (nodeHeader(offset) & 1) == 1;
+	}
+
+	int childCount(int offset) {
+		return nodeHeader(offset) >>> 1;
+	}
+
+	char childLabel(int offset, int childIndex) {
+		return body.getChar(offset + NODE_HEADER_SIZE + childIndex * CHILD_ENTRY_SIZE);
+	}
+
+	int childOffset(int offset, int childIndex) {
+		var childOffset = body.getInt(offset + NODE_HEADER_SIZE + childIndex * CHILD_ENTRY_SIZE + 2);
+		if (childOffset < 0 || childOffset >= offset) {
+			throw new IllegalStateException("Dawg file '" + file + "' is corrupted: invalid child offset " + childOffset);
+		}
+		return childOffset;
+	}
+
+	private int nodeHeader(int offset) {
+		var header = body.getInt(offset);
+		if ((long) offset + NODE_HEADER_SIZE + (long) (header >>> 1) * CHILD_ENTRY_SIZE > body.capacity()) {
+			throw new IllegalStateException("Dawg file '" + file + "' is corrupted: node at " + offset + " is truncated");
+		}
+		return header;
+	}
+
+	/**
+	 * Thrown when a file is not a valid Dawg file.
+	 */
+	public static class InvalidDawgFileException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public InvalidDawgFileException(Path file, String reason) {
+			super("Invalid dawg file '" + file + "': " + reason);
+		}
+	}
+}
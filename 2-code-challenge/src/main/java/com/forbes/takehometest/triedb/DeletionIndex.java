@@ -0,0 +1,255 @@
+package com.forbes.takehometest.triedb;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implements a SymSpell-style deletion index used to look for word matches and "closest" matches with a few hash
+ * lookups instead of a Trie search.
+ *
+ * When a word is added, we pre-compute every variant of it with up to maxEditDistance letters deleted, and index the
+ * word under each variant. Two words that are within maxEditDistance errors of each other always share at least one
+ * such variant, so looking up the variants of a misspelled word gives us every candidate match, and we only need to
+ * verify the candidates that are found. This makes adding a word more expensive (and the index larger) in exchange for
+ * much faster close-matching, which suits a dictionary that is read far more often than it is written.
+ *
+ * To keep the number of variants bounded for long words, only the first prefixLength letters of each word are used to
+ * build the variants (the candidates are still verified against the whole word).
+ *
+ * Readers never lock: the index is kept in concurrent maps whose word arrays are replaced rather than modified, and
+ * writers are serialized. A word only becomes visible in {@link #words} once all its variants are indexed (and stops
+ * being visible before they're removed), and candidates are only returned if they're still in {@link #words}, so a
+ * search running alongside a write never returns a word that isn't in the dictionary.
+ */
+@Slf4j
+public class DeletionIndex {
+	private final int maxEditDistance;
+	private final int prefixLength;
+	private volatile Set<String> words = ConcurrentHashMap.newKeySet();
+	private volatile Map<String, String[]> wordsByVariant = new ConcurrentHashMap<>();
+
+	public DeletionIndex(int maxEditDistance, int prefixLength) {
+		if (maxEditDistance < 0 || prefixLength <= maxEditDistance) {
+			throw new IllegalArgumentException("Prefix length must be greater than the max edit distance!");
+		}
+		this.maxEditDistance = maxEditDistance;
+		this.prefixLength = prefixLength;
+	}
+
+	/**
+	 * Adds a word to the index under each of its deletion variants.
+	 */
+	public synchronized void addWord(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not add empty word!");
+		}
+		if (words.contains(word)) {
+			log.debug("'{}' is already in deletion index. Skipping add...", word);
+			return;
+		}
+		log.debug("Adding '{}' to deletion index...", word);
+		for (var variant : variantsOf(word)) {
+			wordsByVariant.merge(variant, new String[]{word}, DeletionIndex::concat);
+		}
+		words.add(word);
+		log.debug("Added '{}' to deletion index successfully.", word);
+	}
+
+	/**
+	 * Adds the given words and returns whether each word was added (false if it was already in the index).
+	 */
+	public synchronized Map<String, Boolean> addWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		for (var word : sortedWords) {
+			var isNew = !words.contains(word);
+			addWord(word);
+			outcomes.put(word, isNew);
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Replaces the contents of the index with the given words. The variants are first grouped in a plain map (most
+	 * variants only point to one word, so they're kept as a single String until a second word shows up), and then
+	 * copied into a new index in one go. This avoids re-copying a variant's word array every time a word is added to
+	 * it.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void loadWords(Collection<String> newWords) {
+		log.debug("Building deletion index from {} words...", newWords.size());
+		var groupedWordsByVariant = new HashMap<String, Object>();
+		for (var word : newWords) {
+			for (var variant : variantsOf(word)) {
+				groupedWordsByVariant.merge(variant, word, (existing, newWord) -> {
+					if (existing instanceof String existingWord) {
+						return new ArrayList<>(List.of(existingWord, newWord));
+					}
+					((List<Object>) existing).add(newWord);
+					return existing;
+				});
+			}
+		}
+		var newWordsByVariant = new ConcurrentHashMap<String, String[]>(groupedWordsByVariant.size());
+		groupedWordsByVariant.forEach((variant, indexedWords) -> newWordsByVariant.put(variant, indexedWords
+				instanceof String word ? new String[]{word} : ((List<String>) indexedWords).toArray(new String[0])));
+		var newWordSet = ConcurrentHashMap.<String>newKeySet(newWords.size());
+		newWordSet.addAll(newWords);
+		// publish the variants before the words, so that readers never see a word whose variants aren't indexed yet
+		wordsByVariant = newWordsByVariant;
+		words = newWordSet;
+		log.debug("Built deletion index from {} words with {} variants successfully.", newWords.size(),
+				newWordsByVariant.size());
+	}
+
+	/**
+	 * Checks if the given word is contained within the index exactly. The words are kept in a hash set of Strings, so
+	 * any other CharSequence is copied into a String first.
+	 */
+	public boolean contains(CharSequence word) {
+		return words.contains(word.toString());
+	}
+
+	/**
+	 * Deletes a word from the index, along with any variants that no longer point to a word.
+	 */
+	public synchronized boolean deleteWord(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not delete empty word!");
+		}
+		if (!words.remove(word)) {
+			log.debug("Did not find '{}' in deletion index. Skipping delete...", word);
+			return false;
+		}
+		log.debug("Deleting '{}' from deletion index...", word);
+		for (var variant : variantsOf(word)) {
+			wordsByVariant.computeIfPresent(variant, (key, indexedWords) -> without(indexedWords, word));
+		}
+		log.debug("Deleted '{}' from deletion index successfully.", word);
+		return true;
+	}
+
+	/**
+	 * Deletes the given words and returns whether each word was deleted (false if it wasn't in the index).
+	 */
+	public synchronized Map<String, Boolean> deleteWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		for (var word : sortedWords) {
+			outcomes.put(word, deleteWord(word));
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Offers the words that start with the given prefix to the given collector. The index has no prefix structure and
+	 * its words aren't in sorted order, so this checks every word, and the collector only keeps the best ones found so
+	 * far.
+	 */
+	public void completionsOf(String prefix, CompletionCollector completions) {
+		for (var word : words) {
+			if (word.startsWith(prefix)) {
+				completions.offer(word);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of deletion variants indexed as the number of nodes, for metrics.
+	 */
+	public NodeCounts nodeCounts() {
+		return new NodeCounts(wordsByVariant.size(), 0);
+	}
+
+	/**
+	 * Finds the closest matches for the given word, following the same rules as
+	 * {@link Trie#findClosestMatches(String, MatchCollector)}, except that matches are only looked for up to
+	 * maxEditDistance errors.
+	 *
+	 * We look up each deletion variant of the given word to collect the candidate matches, and then run each candidate
+	 * through a {@link LevenshteinAutomaton} to count its actual errors. The candidates are passed to the given
+	 * collector, which keeps the best ones. (For metrics, each candidate checked counts as an expanded state, and each
+	 * candidate skipped for its length as a pruned one. There is no queue of pending states, and the search stops once
+	 * the collector's budget runs out)
+	 */
+	public void findClosestMatches(String word, MatchCollector matches) {
+		// read the words before the variants, since loadWords publishes them in the opposite order
+		var indexedWords = this.words;
+		var indexedWordsByVariant = this.wordsByVariant;
+		var maxErrorsAllowed = Math.min((word.length() + 1) / 2, maxEditDistance);
+		var automaton = new LevenshteinAutomaton(word, maxErrorsAllowed);
+		var checkedCandidates = new HashSet<String>();
+		for (var variant : variantsOf(word)) {
+			if (matches.isTruncated()) {
+				break;
+			}
+			for (var candidate : indexedWordsByVariant.getOrDefault(variant, new String[0])) {
+				var errorLimit = Math.min(maxErrorsAllowed, matches.maxUsefulErrors());
+				if (Math.abs(candidate.length() - word.length()) > errorLimit) {
+					matches.statePruned();
+					continue;
+				}
+				if (!checkedCandidates.add(candidate) || !indexedWords.contains(candidate)) {
+					continue;
+				}
+				if (!matches.stateExpanded()) {
+					break;
+				}
+				var numErrors = errorsFor(automaton, candidate);
+				if (numErrors <= errorLimit) {
+					matches.offer(candidate, numErrors);
+				}
+			}
+		}
+		log.debug("Deletion index checked {} candidates and found {} matches for '{}'", checkedCandidates.size(),
+				matches.size(), word);
+	}
+
+	private static int errorsFor(LevenshteinAutomaton automaton, String candidate) {
+		var state = automaton.start();
+		for (int i = 0; i < candidate.length() && state != LevenshteinAutomaton.DEAD_STATE; i++) {
+			state = automaton.step(state, candidate.charAt(i));
+		}
+		return state == LevenshteinAutomaton.DEAD_STATE ? Integer.MAX_VALUE : automaton.errors(state);
+	}
+
+	/**
+	 * Returns the word's prefix along with every variant of the prefix with up to maxEditDistance letters deleted.
+	 */
+	private Set<String> variantsOf(String word) {
+		var prefix = word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+		var variants = new HashSet<String>();
+		variants.add(prefix);
+		var previousLevel = List.of(prefix);
+		for (int deletions = 1; deletions <= maxEditDistance; deletions++) {
+			var currentLevel = new ArrayList<String>();
+			for (var variant : previousLevel) {
+				for (int i = 0; i < variant.length(); i++) {
+					var deleted = variant.substring(0, i) + variant.substring(i + 1);
+					if (variants.add(deleted)) {
+						currentLevel.add(deleted);
+					}
+				}
+			}
+			previousLevel = currentLevel;
+		}
+		return variants;
+	}
+
+	private static String[] concat(String[] indexedWords, String[] newWords) {
+		var result = Arrays.copyOf(indexedWords, indexedWords.length + newWords.length);
+		System.arraycopy(newWords, 0, result, indexedWords.length, newWords.length);
+		return result;
+	}
+
+	/**
+	 * Returns the given words without the removed word, or null (which removes the variant from the map) if no words are
+	 * left.
+	 */
+	private static String[] without(String[] indexedWords, String removedWord) {
+		if (indexedWords.length == 1) {
+			return indexedWords[0].equals(removedWord) ? null : indexedWords;
+		}
+		return Arrays.stream(indexedWords).filter(indexedWord -> !indexedWord.equals(removedWord)).toArray(String[]::new);
+	}
+}
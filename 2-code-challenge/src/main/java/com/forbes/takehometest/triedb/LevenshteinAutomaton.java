@@ -0,0 +1,175 @@
+package com.forbes.takehometest.triedb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implements a Levenshtein automaton for a single word: a deterministic automaton that reads the letters of a
+ * dictionary word and tracks how many errors are needed to turn the given word into the letters read so far.
+ *
+ * Each state is one row of the edit-distance table (row[i] = fewest errors needed to turn the first i letters of the
+ * word into the letters read so far), with every entry capped at maxErrors + 1 since larger values can never lead to
+ * a match. Capping keeps the number of distinct states small, so states are built lazily and shared between all the
+ * prefixes that reach them.
+ *
+ * The errors follow the same rules as {@link Trie#findClosestMatches(String, MatchCollector)}: a swapped letter, an
+ * extra letter, or a forgotten letter each count as one error, and a forgotten letter is only considered before the
+ * last letter of the word.
+ */
+public class LevenshteinAutomaton {
+	public static final int DEAD_STATE = -1;
+	private static final int UNKNOWN_STATE = -2;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final String word;
+	private final int maxErrors;
+	/**
+	 * Distinct letters of the word in sorted order. A letter's transition only depends on which positions of the word
+	 * it matches, so every letter not in the word shares the same transitions (letter class 0).
+	 */
+	private final char[] wordLetters;
+	/**
+	 * Letter classes of the ASCII letters, so the common case doesn't need a binary search over wordLetters.
+	 */
+	private final int[] asciiLetterClasses = new int[128];
+	private final int numLetterClasses;
+	private final Map<Row, Integer> stateIds = new HashMap<>();
+	private int[][] rows = new int[INITIAL_CAPACITY][];
+	private int[] minErrors = new int[INITIAL_CAPACITY];
+	private int[] transitions;
+	private int numStates;
+
+	public LevenshteinAutomaton(String word, int maxErrors) {
+		this.word = word;
+		this.maxErrors = maxErrors;
+		this.wordLetters = distinctSortedLetters(word);
+		this.numLetterClasses = wordLetters.length + 1;
+		for (int i = 0; i < wordLetters.length && wordLetters[i] < asciiLetterClasses.length; i++) {
+			asciiLetterClasses[wordLetters[i]] = i + 1;
+		}
+		this.transitions = new int[INITIAL_CAPACITY * numLetterClasses];
+		Arrays.fill(transitions, UNKNOWN_STATE);
+		var initialRow = new int[word.length() + 1];
+		for (int i = 0; i < initialRow.length; i++) {
+			initialRow[i] = Math.min(i, maxErrors + 1);
+		}
+		stateFor(initialRow);
+	}
+
+	/**
+	 * Returns the state before any letters have been read.
+	 */
+	public int start() {
+		return 0;
+	}
+
+	/**
+	 * Returns the state reached after reading the letter c from the given state, or {@link #DEAD_STATE} if every
+	 * continuation from there would need more than maxErrors errors.
+	 */
+	public int step(int state, char c) {
+		var index = state * numLetterClasses + letterClass(c);
+		var next = transitions[index];
+		if (next == UNKNOWN_STATE) {
+			next = computeStep(rows[state], c);
+			transitions[index] = next;
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the number of errors needed to turn the whole word into the letters read so far (capped at
+	 * maxErrors + 1).
+	 */
+	public int errors(int state) {
+		return rows[state][word.length()];
+	}
+
+	/**
+	 * Returns the fewest errors that any continuation from the given state could end with.
+	 */
+	public int minErrors(int state) {
+		return minErrors[state];
+	}
+
+	public int getMaxErrors() {
+		return maxErrors;
+	}
+
+	private static char[] distinctSortedLetters(String word) {
+		var letters = word.toCharArray();
+		Arrays.sort(letters);
+		var numDistinct = 0;
+		for (int i = 0; i < letters.length; i++) {
+			if (i == 0 || letters[i] != letters[i - 1]) {
+				letters[numDistinct++] = letters[i];
+			}
+		}
+		return Arrays.copyOf(letters, numDistinct);
+	}
+
+	private int letterClass(char c) {
+		if (c < asciiLetterClasses.length) {
+			return asciiLetterClasses[c];
+		}
+		var i = Arrays.binarySearch(wordLetters, c);
+		return i >= 0 ? i + 1 : 0;
+	}
+
+	private int computeStep(int[] previousRow, char c) {
+		var length = word.length();
+		var cap = maxErrors + 1;
+		var row = new int[length + 1];
+		row[0] = Math.min(previousRow[0] + 1, cap);
+		for (int i = 1; i <= length; i++) {
+			var swapped = previousRow[i - 1] + (word.charAt(i - 1) == c ? 0 : 1);
+			var extra = row[i - 1] + 1;
+			var value = Math.min(swapped, extra);
+			if (i < length) {
+				value = Math.min(value, previousRow[i] + 1);
+			}
+			row[i] = Math.min(value, cap);
+		}
+		return stateFor(row);
+	}
+
+	private int stateFor(int[] row) {
+		var min = Arrays.stream(row).min().orElseThrow();
+		if (min > maxErrors) {
+			return DEAD_STATE;
+		}
+		var existing = stateIds.get(new Row(row));
+		if (existing != null) {
+			return existing;
+		}
+		if (numStates == rows.length) {
+			var capacity = rows.length * 2;
+			rows = Arrays.copyOf(rows, capacity);
+			minErrors = Arrays.copyOf(minErrors, capacity);
+			var oldLength = transitions.length;
+			transitions = Arrays.copyOf(transitions, capacity * numLetterClasses);
+			Arrays.fill(transitions, oldLength, transitions.length, UNKNOWN_STATE);
+		}
+		var state = numStates++;
+		rows[state] = row;
+		minErrors[state] = min;
+		stateIds.put(new Row(row), state);
+		return state;
+	}
+
+	/**
+	 * Wraps a row so that it can be used as a map key.
+	 */
+	private record Row(int[] values) {
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Row other && Arrays.equals(values, other.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+	}
+}
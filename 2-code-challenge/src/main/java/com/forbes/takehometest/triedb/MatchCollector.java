@@ -0,0 +1,177 @@
+package com.forbes.takehometest.triedb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collects the best k matches found by a closest-match search. Matches are ranked by fewest errors first, then by
+ * highest weight (eg how often the word is used), and then by sorted order.
+ *
+ * The matches are kept in a heap bounded to k entries with the worst match on top, so a search never holds (or sorts)
+ * every match it comes across: each new match either replaces the worst one or is dropped right away. Once the heap is
+ * full, searches use {@link #maxUsefulErrors()} to stop exploring paths that can't produce a better match.
+ *
+ * The collector also counts the work the search did (states expanded and pruned, and the most states pending at once),
+ * so it can be reported as metrics. These are plain int fields only touched by the searching thread, so counting is
+ * about as cheap as the loop counters the searches already have.
+ *
+ * A collector can be given a {@link SearchBudget} that limits the states the search may expand. Once the budget runs
+ * out, {@link #stateExpanded()} returns false, the search stops, and the collector is marked as truncated: it holds the
+ * best matches found so far, which may not be the best matches overall. Once the search is done,
+ * {@link #searchFinished()} gives the states it took from the budget but didn't use back to it.
+ *
+ * A collector can also be given hidden words that are never kept (eg the words a dictionary overlay removed from the
+ * index being searched), so they don't take the place of other matches.
+ */
+public class MatchCollector {
+	private static final Comparator<Match> BEST_FIRST = Comparator.comparingInt(Match::errors)
+			.thenComparing(Comparator.comparingLong(Match::weight).reversed())
+			.thenComparing(Match::word);
+
+	private final int k;
+	private final ToLongFunction<String> weights;
+	private final PriorityQueue<Match> worstFirst;
+	private final Set<String> words = new HashSet<>();
+	private final SearchBudget budget;
+	private final Predicate<String> hidden;
+	private int expandedStates;
+	private int prunedStates;
+	private int peakPendingStates;
+	private int allowedStates;
+	private boolean truncated;
+
+	public MatchCollector(int k, ToLongFunction<String> weights) {
+		this(k, weights, SearchBudget.unlimited());
+	}
+
+	public MatchCollector(int k, ToLongFunction<String> weights, SearchBudget budget) {
+		this(k, weights, budget, word -> false);
+	}
+
+	public MatchCollector(int k, ToLongFunction<String> weights, SearchBudget budget, Predicate<String> hidden) {
+		if (k < 1) {
+			throw new IllegalArgumentException("At least one match must be collected!");
+		}
+		this.k = k;
+		this.weights = weights;
+		this.worstFirst = new PriorityQueue<>(k + 1, BEST_FIRST.reversed());
+		this.budget = budget;
+		this.hidden = hidden;
+		this.allowedStates = budget.isUnlimited() ? Integer.MAX_VALUE : 0;
+	}
+
+	/**
+	 * Offers a match found with the given number of errors, and returns true if it is kept. A word that was already
+	 * offered is ignored, since searches always find a word with its fewest errors first, and so is a hidden word.
+	 */
+	public boolean offer(String word, int errors) {
+		if (words.contains(word) || (isFull() && errors > worstFirst.peek().errors()) || hidden.test(word)) {
+			return false;
+		}
+		var match = new Match(word, errors, weights.applyAsLong(word));
+		if (isFull() && BEST_FIRST.compare(match, worstFirst.peek()) >= 0) {
+			return false;
+		}
+		worstFirst.add(match);
+		words.add(word);
+		if (worstFirst.size() > k) {
+			words.remove(worstFirst.poll().word());
+		}
+		return true;
+	}
+
+	public boolean isFull() {
+		return worstFirst.size() == k;
+	}
+
+	/**
+	 * Returns the most errors a new match can have and still be kept, or Integer.MAX_VALUE until k matches are found.
+	 */
+	public int maxUsefulErrors() {
+		return isFull() ? worstFirst.peek().errors() : Integer.MAX_VALUE;
+	}
+
+	public int size() {
+		return worstFirst.size();
+	}
+
+	/**
+	 * Records that the search is about to expand a state, ie go on to look at the states reachable from it. Returns
+	 * false if the search's budget ran out, in which case the state must not be expanded and the search must stop.
+	 */
+	public boolean stateExpanded() {
+		if (expandedStates == allowedStates) {
+			var takenStates = truncated ? 0 : budget.take(SearchBudget.CHUNK_SIZE);
+			if (takenStates == 0) {
+				truncated = true;
+				return false;
+			}
+			allowedStates += takenStates;
+		}
+		expandedStates++;
+		return true;
+	}
+
+	/**
+	 * Gives the states the search took from its budget but didn't expand back to the budget. Must be called once the
+	 * search is done, so that the next searches drawing from the same budget can use them.
+	 */
+	public void searchFinished() {
+		if (!budget.isUnlimited() && allowedStates > expandedStates) {
+			budget.giveBack(allowedStates - expandedStates);
+			allowedStates = expandedStates;
+		}
+	}
+
+	/**
+	 * Records that the search dropped a state without expanding it, since it couldn't lead to a useful match.
+	 */
+	public void statePruned() {
+		prunedStates++;
+	}
+
+	/**
+	 * Records how many states are waiting to be expanded (eg the size of the search's queue).
+	 */
+	public void statesPending(int numStates) {
+		if (numStates > peakPendingStates) {
+			peakPendingStates = numStates;
+		}
+	}
+
+	public int getExpandedStates() {
+		return expandedStates;
+	}
+
+	public int getPrunedStates() {
+		return prunedStates;
+	}
+
+	public int getPeakPendingStates() {
+		return peakPendingStates;
+	}
+
+	/**
+	 * Returns true if the search was stopped early because its budget ran out.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Returns the collected matches, best first.
+	 */
+	public List<String> getMatches() {
+		var matches = new ArrayList<>(worstFirst);
+		matches.sort(BEST_FIRST);
+		return matches.stream().map(Match::word).toList();
+	}
+
+	private record Match(String word, int errors, long weight) {}
+}
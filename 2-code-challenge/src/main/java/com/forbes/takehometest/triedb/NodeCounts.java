@@ -0,0 +1,28 @@
+package com.forbes.takehometest.triedb;
+
+import java.util.function.Function;
+
+/**
+ * Holds the size of an index, for metrics: its number of nodes, and how many of them are wildcard nodes (only the
+ * {@link Trie} has any).
+ */
+public record NodeCounts(long nodes, long wildcardNodes) {
+	/**
+	 * Keeps the counts of an index's root until the index swaps in a new root. Counting walks the whole index, so
+	 * repeated calls (eg one per metrics scrape) only pay for it once per change.
+	 */
+	static final class Cache<N> {
+		private volatile Counted<N> counted;
+
+		NodeCounts get(N root, Function<N, NodeCounts> countNodes) {
+			var current = counted;
+			if (current == null || current.root() != root) {
+				current = new Counted<>(root, countNodes.apply(root));
+				counted = current;
+			}
+			return current.counts();
+		}
+
+		private record Counted<N>(N root, NodeCounts counts) {}
+	}
+}
@@ -0,0 +1,949 @@
+package com.forbes.takehometest.triedb;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements the same minimal word automaton as {@link Dawg}, but with its nodes stored outside the Java heap, in a
+ * direct {@link ByteBuffer} (the arena). A node is referred to by its offset in the arena rather than by a reference,
+ * so a dictionary of a million words is a handful of objects for the garbage collector instead of millions of nodes
+ * that it has to trace on every old-generation collection.
+ *
+ * Nodes use the same layout as in a {@link DawgFile}: an int holding the node's number of children and its final flag,
+ * followed by a (char letter, int offset) pair for each child, sorted by letter. Children are always written before
+ * their parents, so a snapshot's nodes are copied into the arena as they are.
+ *
+ * Nodes are never modified once written. Like the Dawg, adding or removing a word writes new nodes for that word's path
+ * at the end of the arena (swapping each one for an equivalent node that's already registered, if there is one), and
+ * then publishes the new root. Readers search the arena and root that were current when they started, without taking
+ * a lock. The register that finds equivalent nodes is an open-addressing hash table that's stored off-heap too. When
+ * the arena outgrows its capacity, it's copied to a larger one (readers keep using the old one until they're done).
+ *
+ * Replaced nodes are left behind in the arena. Once it's grown to twice the size of the nodes that were live after the
+ * last rebuild, the dictionary is rebuilt into a new arena from its words (see {@link #compactIfNeeded()}).
+ *
+ * Lookups read the arena in place, so besides the words they return, they only allocate a few small arrays.
+ * Closest-match searches follow the {@link LevenshteinAutomaton} with a few bitwise operations per letter, instead of
+ * building the automaton with its map of states for each pass (see {@link BitParallelSearch}).
+ */
+@Slf4j
+public class OffHeapDawg {
+	private static final int NODE_HEADER_SIZE = 4;
+	private static final int CHILD_ENTRY_SIZE = 6;
+	private static final int INITIAL_ARENA_CAPACITY = 1 << 12;
+	private static final int MIN_ARENA_GARBAGE = 1 << 16;
+	private static final int REGISTER_SLOT_SIZE = 8;
+	private static final int EMPTY_SLOT = -1;
+
+	/**
+	 * The arena and root that lookups read from. A new Version is published after every change.
+	 */
+	private volatile Version version;
+	private final NodeCounts.Cache<Version> nodeCounts = new NodeCounts.Cache<>();
+	private final NodeBuilder scratch = new NodeBuilder();
+	private ByteBuffer arena;
+	private int arenaSize;
+	/**
+	 * Holds a (hash, offset) pair of ints per slot, with {@link #EMPTY_SLOT} as the offset of unused slots
+	 */
+	private ByteBuffer register;
+	private int registerSlots;
+	private int registeredNodes;
+	private int liveArenaSize;
+
+	public OffHeapDawg() {
+		resetArena(INITIAL_ARENA_CAPACITY);
+		publish(scratch.clear().canonical());
+		liveArenaSize = arenaSize;
+	}
+
+	/**
+	 * Adds a word to the Dawg. The nodes along the word's path are re-written bottom-up with the new word included, and
+	 * each one is swapped for an existing equivalent node if one is already registered.
+	 */
+	public synchronized void addWord(String word) {
+		if (insert(word)) {
+			compactIfNeeded();
+		}
+	}
+
+	/**
+	 * Adds the given words, which must be sorted and distinct, and returns whether each word was added (false if it
+	 * was already in the Dawg). Like {@link Dawg#addWords(List)}, the words are added one at a time, but compaction is
+	 * only considered once for the whole batch.
+	 */
+	public synchronized Map<String, Boolean> addWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		for (var word : sortedWords) {
+			outcomes.put(word, insert(word));
+		}
+		compactIfNeeded();
+		return outcomes;
+	}
+
+	private boolean insert(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not add empty word!");
+		}
+		var current = version;
+		var path = walkPath(current, word);
+		var last = path[word.length()];
+		if (last >= 0 && current.isFinal(last)) {
+			log.debug("'{}' is already in off-heap dawg. Skipping add...", word);
+			return false;
+		}
+		log.debug("Adding '{}' to off-heap dawg...", word);
+		var node = (last < 0 ? scratch.clear() : scratch.load(last)).withFinal(true).canonical();
+		for (int i = word.length() - 1; i >= 0; i--) {
+			node = (path[i] < 0 ? scratch.clear() : scratch.load(path[i])).withChild(word.charAt(i), node).canonical();
+		}
+		publish(node);
+		log.debug("Added '{}' to off-heap dawg successfully.", word);
+		return true;
+	}
+
+	/**
+	 * Replaces the contents of the Dawg with the given words, which must be sorted and distinct, using the same
+	 * incremental construction for sorted input as {@link Dawg#loadWords(List)}. The words are built into a new arena,
+	 * so lookups keep using the old one until the new one is published.
+	 */
+	public synchronized void loadWords(List<String> sortedWords) {
+		log.debug("Building off-heap dawg from {} words...", sortedWords.size());
+		var builder = new SortedBuilder(INITIAL_ARENA_CAPACITY);
+		var chars = new char[16];
+		for (var word : sortedWords) {
+			if (chars.length < word.length()) {
+				chars = new char[Math.max(word.length(), chars.length * 2)];
+			}
+			word.getChars(0, word.length(), chars, 0);
+			builder.add(chars, word.length());
+		}
+		builder.finish();
+		log.debug("Built off-heap dawg from {} words with {} nodes ({} bytes) successfully.", sortedWords.size(),
+				registeredNodes, arenaSize);
+	}
+
+	/**
+	 * Replaces the contents of the Dawg with the nodes of the given file, which are copied into a new arena as they
+	 * are (the file uses the same layout), and then registered in one pass over the arena.
+	 */
+	public synchronized void loadSnapshot(DawgFile file) {
+		log.debug("Loading off-heap dawg from '{}' with {} words...", file.getFile(), file.getWordCount());
+		var nodes = file.nodes();
+		checkNodes(file, nodes);
+		resetArena(Math.max(nodes.capacity() + nodes.capacity() / 2, INITIAL_ARENA_CAPACITY));
+		arena.put(0, nodes, 0, nodes.capacity());
+		arenaSize = nodes.capacity();
+		for (int offset = 0; offset < arenaSize; offset += nodeSize(arena, offset)) {
+			register(offset, hashOf(arena, offset));
+		}
+		publish(file.rootOffset());
+		liveArenaSize = arenaSize;
+		log.debug("Loaded off-heap dawg with {} nodes ({} bytes) successfully.", registeredNodes, arenaSize);
+	}
+
+	/**
+	 * Checks that the file's nodes are complete, that each node only points to nodes written before it, and that the
+	 * root is one of the nodes. Lookups trust the arena not to lead them out of bounds or into a cycle, so a corrupted
+	 * file is rejected before anything is copied.
+	 */
+	private static void checkNodes(DawgFile file, ByteBuffer nodes) {
+		// node offsets are always even, since nodes take an even number of bytes
+		var nodeStarts = new BitSet();
+		for (int offset = 0; offset < nodes.capacity(); offset += nodeSize(nodes, offset)) {
+			if (offset + NODE_HEADER_SIZE > nodes.capacity() || (long) offset + NODE_HEADER_SIZE
+					+ (long) (nodes.getInt(offset) >>> 1) * CHILD_ENTRY_SIZE > nodes.capacity()) {
+				throw new IllegalStateException("Dawg file '" + file.getFile() + "' is corrupted: node at " + offset
+						+ " is truncated");
+			}
+			for (int i = 0; i < nodes.getInt(offset) >>> 1; i++) {
+				var childOffset = childOffset(nodes, offset, i);
+				if (childOffset < 0 || childOffset >= offset || childOffset % 2 != 0
+						|| !nodeStarts.get(childOffset >>> 1)) {
+					throw new IllegalStateException("Dawg file '" + file.getFile()
+							+ "' is corrupted: invalid child offset " + childOffset);
+				}
+			}
+			nodeStarts.set(offset >>> 1);
+		}
+		if (file.rootOffset() % 2 != 0 || !nodeStarts.get(file.rootOffset() >>> 1)) {
+			throw new IllegalStateException("Dawg file '" + file.getFile() + "' is corrupted: invalid root offset "
+					+ file.rootOffset());
+		}
+	}
+
+	/**
+	 * Checks if the given word is contained within the Dawg exactly. Like {@link Trie#contains(CharSequence)}, the word
+	 * doesn't need to be a String.
+	 */
+	public boolean contains(CharSequence word) {
+		var current = version;
+		var node = current.root;
+		for (int i = 0; i < word.length() && node >= 0; i++) {
+			node = current.childOf(node, word.charAt(i));
+		}
+		return node >= 0 && current.isFinal(node);
+	}
+
+	/**
+	 * Deletes a word from the Dawg. Nodes along the word's path are re-written bottom-up without the word, and any node
+	 * left without words below it is dropped from its parent.
+	 */
+	public synchronized boolean deleteWord(String word) {
+		if (!remove(word)) {
+			return false;
+		}
+		compactIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Deletes the given words, which must be sorted and distinct, and returns whether each word was deleted (false if
+	 * it wasn't in the Dawg). Like {@link #addWords(List)}, compaction is only considered once for the whole batch.
+	 */
+	public synchronized Map<String, Boolean> deleteWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		for (var word : sortedWords) {
+			outcomes.put(word, remove(word));
+		}
+		compactIfNeeded();
+		return outcomes;
+	}
+
+	private boolean remove(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not delete empty word!");
+		}
+		var current = version;
+		var path = walkPath(current, word);
+		var last = path[word.length()];
+		if (last < 0 || !current.isFinal(last)) {
+			log.debug("Did not find '{}' in off-heap dawg. Skipping delete...", word);
+			return false;
+		}
+		log.debug("Deleting '{}' from off-heap dawg...", word);
+		scratch.load(last).withFinal(false);
+		for (int i = word.length() - 1; i >= 0; i--) {
+			var c = word.charAt(i);
+			if (scratch.isEmpty()) {
+				scratch.load(path[i]).withoutChild(c);
+			} else {
+				var node = scratch.canonical();
+				scratch.load(path[i]).withChild(c, node);
+			}
+		}
+		publish(scratch.canonical());
+		log.debug("Deleted '{}' from off-heap dawg successfully.", word);
+		return true;
+	}
+
+	/**
+	 * Offers the words that start with the given prefix to the given collector, in sorted order. The words are spelled
+	 * out in a char array while walking down from the prefix, and the walk stops as soon as the collector needs no
+	 * more words (see {@link CompletionCollector}).
+	 */
+	public void completionsOf(String prefix, CompletionCollector completions) {
+		var current = version;
+		var node = current.root;
+		for (int i = 0; i < prefix.length() && node >= 0; i++) {
+			node = current.childOf(node, prefix.charAt(i));
+		}
+		if (node >= 0) {
+			var word = Arrays.copyOf(prefix.toCharArray(), prefix.length() + 16);
+			addCompletions(current, node, word, prefix.length(), completions);
+		}
+	}
+
+	private static boolean addCompletions(Version version, int node, char[] word, int length,
+			CompletionCollector completions) {
+		if (version.isFinal(node) && !completions.offer(new String(word, 0, length))) {
+			return false;
+		}
+		var childCount = version.childCount(node);
+		for (int i = 0; i < childCount; i++) {
+			if (length == word.length) {
+				word = Arrays.copyOf(word, length * 2);
+			}
+			word[length] = version.childLabel(node, i);
+			if (!addCompletions(version, version.childOffset(node, i), word, length + 1, completions)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of distinct nodes reachable from the root, for metrics. Counting walks the whole Dawg, so the
+	 * count is kept until the Dawg changes.
+	 */
+	public NodeCounts nodeCounts() {
+		return nodeCounts.get(version, current -> new NodeCounts(countNodes(current), 0));
+	}
+
+	private static long countNodes(Version version) {
+		// node offsets are always even, since nodes take an even number of bytes
+		var reachable = new BitSet();
+		var toVisit = new int[16];
+		var pending = 0;
+		toVisit[pending++] = version.root;
+		reachable.set(version.root >>> 1);
+		while (pending > 0) {
+			var node = toVisit[--pending];
+			var childCount = version.childCount(node);
+			for (int i = 0; i < childCount; i++) {
+				var child = version.childOffset(node, i);
+				if (!reachable.get(child >>> 1)) {
+					reachable.set(child >>> 1);
+					if (pending == toVisit.length) {
+						toVisit = Arrays.copyOf(toVisit, pending * 2);
+					}
+					toVisit[pending++] = child;
+				}
+			}
+		}
+		return reachable.cardinality();
+	}
+
+	/**
+	 * Finds the closest matches for the given word, following the same rules (and visiting the same paths, in the same
+	 * order) as {@link Dawg#findClosestMatches(String, MatchCollector)}: the error limit goes up from 0 to 50% of the
+	 * word (rounded up), and each pass walks the Dawg depth-first, abandoning a branch as soon as it can't end within
+	 * the limit.
+	 */
+	public void findClosestMatches(String word, MatchCollector matches) {
+		var search = ClosestMatchSearch.of(version, word, matches);
+		search.run();
+		log.debug("Off-heap dawg found {} matches for '{}'", matches.size(), word);
+	}
+
+	/**
+	 * Returns the offsets of the nodes visited when following the given word from the root. If the word leaves the Dawg
+	 * part-way through, the remaining entries are -1.
+	 */
+	private static int[] walkPath(Version version, String word) {
+		var path = new int[word.length() + 1];
+		Arrays.fill(path, -1);
+		path[0] = version.root;
+		for (int i = 0; i < word.length() && path[i] >= 0; i++) {
+			path[i + 1] = version.childOf(path[i], word.charAt(i));
+		}
+		return path;
+	}
+
+	private void publish(int root) {
+		version = new Version(arena, root);
+	}
+
+	/**
+	 * Every add/delete leaves the replaced nodes behind in the arena. Once the arena grows to twice the size of the
+	 * nodes that were live at the last rebuild, the words are read from the current root in sorted order and built into
+	 * a new arena, which drops the replaced nodes (and makes the Dawg minimal again). This keeps the cost of the
+	 * rebuild amortized over the changes that caused it.
+	 */
+	private void compactIfNeeded() {
+		if (arenaSize <= 2L * liveArenaSize + MIN_ARENA_GARBAGE) {
+			return;
+		}
+		log.debug("Compacting off-heap dawg: {} bytes used, {} bytes live at the last rebuild", arenaSize,
+				liveArenaSize);
+		var current = version;
+		var builder = new SortedBuilder(liveArenaSize + liveArenaSize / 2);
+		var word = new char[16];
+		// for each node on the current path, the offset of the node and the index of the next child to visit
+		var pathNodes = new int[16];
+		var pathChildIndexes = new int[16];
+		var depth = 0;
+		pathNodes[0] = current.root;
+		while (depth >= 0) {
+			var node = pathNodes[depth];
+			var childIndex = pathChildIndexes[depth]++;
+			if (childIndex == current.childCount(node)) {
+				depth--;
+				continue;
+			}
+			var child = current.childOffset(node, childIndex);
+			if (depth == word.length) {
+				word = Arrays.copyOf(word, depth * 2);
+			}
+			word[depth] = current.childLabel(node, childIndex);
+			if (current.isFinal(child)) {
+				builder.add(word, depth + 1);
+			}
+			if (++depth == pathNodes.length) {
+				pathNodes = Arrays.copyOf(pathNodes, depth * 2);
+				pathChildIndexes = Arrays.copyOf(pathChildIndexes, depth * 2);
+			}
+			pathNodes[depth] = child;
+			pathChildIndexes[depth] = 0;
+		}
+		builder.finish();
+		log.debug("Compacted off-heap dawg to {} nodes ({} bytes)", registeredNodes, arenaSize);
+	}
+
+	/**
+	 * Starts writing to a new, empty arena and register. The previous arena is left as it is, for the lookups that are
+	 * still reading it.
+	 */
+	private void resetArena(int capacity) {
+		arena = ByteBuffer.allocateDirect(capacity);
+		arenaSize = 0;
+		registerSlots = Integer.highestOneBit(Math.max(capacity / 8, 64));
+		register = newRegister(registerSlots);
+		registeredNodes = 0;
+	}
+
+	private static ByteBuffer newRegister(int slots) {
+		var register = ByteBuffer.allocateDirect(slots * REGISTER_SLOT_SIZE);
+		for (int slot = 0; slot < slots; slot++) {
+			register.putInt(slot * REGISTER_SLOT_SIZE + 4, EMPTY_SLOT);
+		}
+		return register;
+	}
+
+	/**
+	 * Makes room for the given number of bytes at the end of the arena, by copying it to one twice as large if needed.
+	 */
+	private void ensureArenaCapacity(int bytes) {
+		if ((long) arenaSize + bytes <= arena.capacity()) {
+			return;
+		}
+		var capacity = Math.max(2L * arena.capacity(), (long) arenaSize + bytes);
+		if (capacity > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Dictionary is too large to be stored in an off-heap dawg!");
+		}
+		var grown = ByteBuffer.allocateDirect((int) capacity);
+		grown.put(0, arena, 0, arenaSize);
+		arena = grown;
+	}
+
+	/**
+	 * Adds the node at the given offset to the register, growing the register first if it's half full.
+	 */
+	private void register(int offset, int hash) {
+		if (registeredNodes >= registerSlots / 2) {
+			var oldRegister = register;
+			var oldSlots = registerSlots;
+			registerSlots *= 2;
+			register = newRegister(registerSlots);
+			for (int slot = 0; slot < oldSlots; slot++) {
+				var registeredOffset = oldRegister.getInt(slot * REGISTER_SLOT_SIZE + 4);
+				if (registeredOffset != EMPTY_SLOT) {
+					putInRegister(oldRegister.getInt(slot * REGISTER_SLOT_SIZE), registeredOffset);
+				}
+			}
+		}
+		putInRegister(hash, offset);
+		registeredNodes++;
+	}
+
+	private void putInRegister(int hash, int offset) {
+		var slot = hash & (registerSlots - 1);
+		while (register.getInt(slot * REGISTER_SLOT_SIZE + 4) != EMPTY_SLOT) {
+			slot = (slot + 1) & (registerSlots - 1);
+		}
+		register.putInt(slot * REGISTER_SLOT_SIZE, hash);
+		register.putInt(slot * REGISTER_SLOT_SIZE + 4, offset);
+	}
+
+	private static int nodeSize(ByteBuffer nodes, int offset) {
+		return NODE_HEADER_SIZE + (nodes.getInt(offset) >>> 1) * CHILD_ENTRY_SIZE;
+	}
+
+	private static int childOffset(ByteBuffer arena, int offset, int childIndex) {
+		return arena.getInt(offset + NODE_HEADER_SIZE + childIndex * CHILD_ENTRY_SIZE + 2);
+	}
+
+	/**
+	 * Hashes a node from its header and its (letter, child offset) pairs, the same way {@link NodeBuilder#hash()}
+	 * does.
+	 */
+	private static int hashOf(ByteBuffer arena, int offset) {
+		var header = arena.getInt(offset);
+		var h = header;
+		for (int i = 0; i < header >>> 1; i++) {
+			var entry = offset + NODE_HEADER_SIZE + i * CHILD_ENTRY_SIZE;
+			h = 31 * (31 * h + arena.getChar(entry)) + arena.getInt(entry + 2);
+		}
+		return mix(h);
+	}
+
+	/**
+	 * Spreads the bits of a hash, since the register only uses its lowest bits to pick a slot.
+	 */
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * An arena and the offset of a root in it, ie a complete version of the Dawg. Lookups only read the part of the
+	 * arena that's reachable from the root, which is never modified, so they don't need to synchronize with writers.
+	 */
+	private record Version(ByteBuffer arena, int root) {
+		boolean isFinal(int node) {
+			return (arena.getInt(node) & 1) == 1;
+		}
+
+		int childCount(int node) {
+			return arena.getInt(node) >>> 1;
+		}
+
+		char childLabel(int node, int childIndex) {
+			return arena.getChar(node + NODE_HEADER_SIZE + childIndex * CHILD_ENTRY_SIZE);
+		}
+
+		int childOffset(int node, int childIndex) {
+			return OffHeapDawg.childOffset(arena, node, childIndex);
+		}
+
+		/**
+		 * Returns the offset of the node's child for the letter c, or -1 if it has none. The children are sorted by
+		 * letter, so they're binary searched.
+		 */
+		int childOf(int node, char c) {
+			var low = 0;
+			var high = childCount(node) - 1;
+			while (low <= high) {
+				var middle = (low + high) >>> 1;
+				var label = childLabel(node, middle);
+				if (label < c) {
+					low = middle + 1;
+				} else if (label > c) {
+					high = middle - 1;
+				} else {
+					return childOffset(node, middle);
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Holds a node that's being built on the heap before it's written to the arena. A single NodeBuilder is reused for
+	 * every node a change writes, so changes don't create a builder per node.
+	 */
+	private final class NodeBuilder {
+		private boolean isFinal;
+		private char[] labels = new char[8];
+		private int[] targets = new int[8];
+		private int numChildren;
+
+		NodeBuilder clear() {
+			isFinal = false;
+			numChildren = 0;
+			return this;
+		}
+
+		/**
+		 * Replaces the contents of the builder with the node at the given offset of the current arena.
+		 */
+		NodeBuilder load(int offset) {
+			var header = arena.getInt(offset);
+			isFinal = (header & 1) == 1;
+			numChildren = 0;
+			ensureChildCapacity(header >>> 1);
+			for (int i = 0; i < header >>> 1; i++) {
+				labels[i] = arena.getChar(offset + NODE_HEADER_SIZE + i * CHILD_ENTRY_SIZE);
+				targets[i] = childOffset(arena, offset, i);
+			}
+			numChildren = header >>> 1;
+			return this;
+		}
+
+		NodeBuilder withFinal(boolean isFinal) {
+			this.isFinal = isFinal;
+			return this;
+		}
+
+		boolean isEmpty() {
+			return !isFinal && numChildren == 0;
+		}
+
+		/**
+		 * Sets the child for the letter c, keeping the children sorted by letter.
+		 */
+		NodeBuilder withChild(char c, int child) {
+			var i = Arrays.binarySearch(labels, 0, numChildren, c);
+			if (i >= 0) {
+				targets[i] = child;
+				return this;
+			}
+			var insertAt = -i - 1;
+			ensureChildCapacity(numChildren + 1);
+			System.arraycopy(labels, insertAt, labels, insertAt + 1, numChildren - insertAt);
+			System.arraycopy(targets, insertAt, targets, insertAt + 1, numChildren - insertAt);
+			labels[insertAt] = c;
+			targets[insertAt] = child;
+			numChildren++;
+			return this;
+		}
+
+		/**
+		 * Appends a child for the letter c, which must come after the letters of the existing children.
+		 */
+		void addChild(char c, int child) {
+			ensureChildCapacity(numChildren + 1);
+			labels[numChildren] = c;
+			targets[numChildren++] = child;
+		}
+
+		NodeBuilder withoutChild(char c) {
+			var i = Arrays.binarySearch(labels, 0, numChildren, c);
+			System.arraycopy(labels, i + 1, labels, i, numChildren - i - 1);
+			System.arraycopy(targets, i + 1, targets, i, numChildren - i - 1);
+			numChildren--;
+			return this;
+		}
+
+		private void ensureChildCapacity(int capacity) {
+			if (labels.length < capacity) {
+				labels = Arrays.copyOf(labels, Math.max(capacity, labels.length * 2));
+				targets = Arrays.copyOf(targets, labels.length);
+			}
+		}
+
+		private int header() {
+			return numChildren << 1 | (isFinal ? 1 : 0);
+		}
+
+		private int hash() {
+			var h = header();
+			for (int i = 0; i < numChildren; i++) {
+				h = 31 * (31 * h + labels[i]) + targets[i];
+			}
+			return mix(h);
+		}
+
+		/**
+		 * Returns the offset of a registered node equal to this one, after writing this one to the arena and
+		 * registering it if there's none yet.
+		 */
+		int canonical() {
+			var hash = hash();
+			var slot = hash & (registerSlots - 1);
+			int offset;
+			while ((offset = register.getInt(slot * REGISTER_SLOT_SIZE + 4)) != EMPTY_SLOT) {
+				if (register.getInt(slot * REGISTER_SLOT_SIZE) == hash && isWrittenAt(offset)) {
+					return offset;
+				}
+				slot = (slot + 1) & (registerSlots - 1);
+			}
+			offset = write();
+			register(offset, hash);
+			return offset;
+		}
+
+		private boolean isWrittenAt(int offset) {
+			if (arena.getInt(offset) != header()) {
+				return false;
+			}
+			for (int i = 0; i < numChildren; i++) {
+				if (arena.getChar(offset + NODE_HEADER_SIZE + i * CHILD_ENTRY_SIZE) != labels[i]
+						|| childOffset(arena, offset, i) != targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int write() {
+			var offset = arenaSize;
+			var size = NODE_HEADER_SIZE + numChildren * CHILD_ENTRY_SIZE;
+			ensureArenaCapacity(size);
+			arena.putInt(offset, header());
+			for (int i = 0; i < numChildren; i++) {
+				arena.putChar(offset + NODE_HEADER_SIZE + i * CHILD_ENTRY_SIZE, labels[i]);
+				arena.putInt(offset + NODE_HEADER_SIZE + i * CHILD_ENTRY_SIZE + 2, targets[i]);
+			}
+			arenaSize += size;
+			return offset;
+		}
+	}
+
+	/**
+	 * Builds a Dawg from words given in sorted order into a new arena (see {@link Dawg#loadWords(List)}): only the path
+	 * of the previous word is kept open, as one NodeBuilder per letter, and the part of it below the point where the
+	 * next word branches off is written to the arena bottom-up.
+	 */
+	private final class SortedBuilder {
+		private final List<NodeBuilder> openPath = new ArrayList<>(List.of(new NodeBuilder()));
+		private char[] previousWord = new char[16];
+		private int previousLength;
+		private int wordCount;
+
+		SortedBuilder(int capacity) {
+			resetArena(Math.max(capacity, INITIAL_ARENA_CAPACITY));
+		}
+
+		void add(char[] word, int length) {
+			var commonPrefixLength = 0;
+			var maxCommonPrefixLength = Math.min(length, previousLength);
+			while (commonPrefixLength < maxCommonPrefixLength
+					&& word[commonPrefixLength] == previousWord[commonPrefixLength]) {
+				commonPrefixLength++;
+			}
+			finalizeOpenPath(commonPrefixLength);
+			for (int i = commonPrefixLength; i < length; i++) {
+				// builders below the open path are kept and reused for the next word that reaches that depth
+				if (openPath.size() == i + 1) {
+					openPath.add(new NodeBuilder());
+				}
+				openPath.get(i + 1).clear();
+			}
+			openPath.get(length).isFinal = true;
+			if (previousWord.length < length) {
+				previousWord = Arrays.copyOf(word, Math.max(length, previousWord.length * 2));
+			} else {
+				System.arraycopy(word, 0, previousWord, 0, length);
+			}
+			previousLength = length;
+			wordCount++;
+		}
+
+		/**
+		 * Writes the open nodes deeper than the given depth to the arena, attaching each one to its parent under the
+		 * matching letter of the previous word.
+		 */
+		private void finalizeOpenPath(int depth) {
+			for (int i = previousLength; i > depth; i--) {
+				var node = openPath.get(i).canonical();
+				openPath.get(i - 1).addChild(previousWord[i - 1], node);
+			}
+		}
+
+		/**
+		 * Writes the rest of the open path, and publishes the new root.
+		 */
+		void finish() {
+			finalizeOpenPath(0);
+			publish(openPath.get(0).canonical());
+			liveArenaSize = arenaSize;
+			log.debug("Wrote {} words to a new off-heap dawg arena", wordCount);
+		}
+	}
+
+	/**
+	 * Holds the state of a single closest-match search. The search walks the Dawg like {@link Dawg}'s does, while
+	 * subclasses keep track of how many errors the current path has accumulated, for each letter along the path.
+	 */
+	private abstract static class ClosestMatchSearch {
+		protected final Version version;
+		protected final MatchCollector matches;
+		protected final String word;
+		protected final int maxErrorsAllowed;
+		protected int errorLimit;
+		private char[] prefix;
+
+		ClosestMatchSearch(Version version, String word, MatchCollector matches) {
+			this.version = version;
+			this.matches = matches;
+			this.word = word;
+			this.maxErrorsAllowed = (word.length() + 1) / 2;
+			this.prefix = new char[word.length() + 1];
+		}
+
+		static ClosestMatchSearch of(Version version, String word, MatchCollector matches) {
+			return word.length() <= BitParallelSearch.MAX_WORD_LENGTH ? new BitParallelSearch(version, word, matches)
+					: new AutomatonSearch(version, word, matches);
+		}
+
+		/**
+		 * Searches with an error limit of 0, then 1, and so on up to the maximum errors allowed, stopping once the
+		 * limit goes past {@link MatchCollector#maxUsefulErrors()}, or as soon as the collector's budget runs out (see
+		 * {@link Dawg}'s search).
+		 */
+		void run() {
+			for (errorLimit = 0; errorLimit <= Math.min(maxErrorsAllowed, matches.maxUsefulErrors())
+					&& !matches.isTruncated(); errorLimit++) {
+				startPass();
+				searchFrom(version.root, 0);
+			}
+		}
+
+		/**
+		 * Searches the paths below the given node, which the current path reaches at the given depth. The path's
+		 * letters are kept in a char array, and only turned into a String for the words that are offered.
+		 */
+		private void searchFrom(int node, int depth) {
+			matches.statesPending(depth);
+			var childCount = version.childCount(node);
+			for (int i = 0; i < childCount && !matches.isTruncated(); i++) {
+				var c = version.childLabel(node, i);
+				if (!step(depth, c)) {
+					matches.statePruned();
+					continue;
+				}
+				if (!matches.stateExpanded()) {
+					return;
+				}
+				var child = version.childOffset(node, i);
+				if (depth == prefix.length) {
+					prefix = Arrays.copyOf(prefix, depth * 2);
+				}
+				prefix[depth] = c;
+				if (version.isFinal(child)) {
+					var errors = errors(depth + 1);
+					if (errors <= errorLimit) {
+						matches.offer(new String(prefix, 0, depth + 1), errors);
+					}
+				}
+				searchFrom(child, depth + 1);
+			}
+		}
+
+		/**
+		 * Sets up the state before any letters have been read, for a pass with the current error limit.
+		 */
+		abstract void startPass();
+
+		/**
+		 * Computes the state after reading the letter c at the given depth, and returns false if every continuation
+		 * from there would need more errors than the limit.
+		 */
+		abstract boolean step(int depth, char c);
+
+		/**
+		 * Returns the number of errors needed to turn the whole word into the path up to the given depth (more than the
+		 * limit if it can't be done within it).
+		 */
+		abstract int errors(int depth);
+	}
+
+	/**
+	 * Simulates a {@link LevenshteinAutomaton} with a few bitwise operations per letter (in the style of Wu and
+	 * Manber's approximate matching), rather than building its states: for each number of errors e up to the limit, a
+	 * long holds a bit for each prefix of the word (bit i for the first i letters) that can be turned into the path
+	 * with at most e errors. Reading a letter computes these from the ones above with the same rules as the automaton,
+	 * so the same paths are abandoned, and the search only allocates the longs for the path and the letters' masks.
+	 * Words of up to {@link #MAX_WORD_LENGTH} letters fit in a long.
+	 */
+	private static final class BitParallelSearch extends ClosestMatchSearch {
+		static final int MAX_WORD_LENGTH = 63;
+
+		/**
+		 * The bits of the positions where each ASCII letter appears in the word (bit i + 1 for the letter at i)
+		 */
+		private final long[] asciiMasks = new long[128];
+		private final long allPrefixes;
+		/**
+		 * Prefixes that a forgotten letter can be added to: any but the whole word (see the automaton)
+		 */
+		private final long forgettablePrefixes;
+		private final int levels;
+		/**
+		 * The bits for each number of errors (levels of them) at each depth of the path
+		 */
+		private long[] prefixes;
+
+		BitParallelSearch(Version version, String word, MatchCollector matches) {
+			super(version, word, matches);
+			for (int i = 0; i < word.length(); i++) {
+				if (word.charAt(i) < asciiMasks.length) {
+					asciiMasks[word.charAt(i)] |= 1L << (i + 1);
+				}
+			}
+			this.allPrefixes = word.length() == MAX_WORD_LENGTH ? -1L : (1L << (word.length() + 1)) - 1;
+			this.forgettablePrefixes = word.isEmpty() ? 1L : allPrefixes & ~(1L << word.length());
+			this.levels = maxErrorsAllowed + 1;
+			this.prefixes = new long[(word.length() + 2) * levels];
+		}
+
+		@Override
+		void startPass() {
+			for (int e = 0; e <= errorLimit; e++) {
+				// the first e letters of the word can be left out with e errors
+				prefixes[e] = ((1L << (e + 1)) - 1) & allPrefixes;
+			}
+		}
+
+		@Override
+		boolean step(int depth, char c) {
+			var previous = depth * levels;
+			var next = previous + levels;
+			if (next + levels > prefixes.length) {
+				prefixes = Arrays.copyOf(prefixes, prefixes.length * 2);
+			}
+			var mask = maskOf(c);
+			// no errors: the letter must match the word's next letter
+			var reached = (prefixes[previous] << 1) & mask;
+			prefixes[next] = reached & allPrefixes;
+			for (int e = 1; e <= errorLimit; e++) {
+				var fewerErrors = prefixes[previous + e - 1];
+				reached = ((prefixes[previous + e] << 1) & mask) // matched letter
+						| (fewerErrors << 1) // swapped letter
+						| (prefixes[next + e - 1] << 1) // extra letter in the word
+						| (fewerErrors & forgettablePrefixes); // forgotten letter
+				prefixes[next + e] = reached & allPrefixes;
+			}
+			return prefixes[next + errorLimit] != 0;
+		}
+
+		@Override
+		int errors(int depth) {
+			var wholeWord = 1L << word.length();
+			for (int e = 0; e <= errorLimit; e++) {
+				if ((prefixes[depth * levels + e] & wholeWord) != 0) {
+					return e;
+				}
+			}
+			return errorLimit + 1;
+		}
+
+		private long maskOf(char c) {
+			if (c < asciiMasks.length) {
+				return asciiMasks[c];
+			}
+			var mask = 0L;
+			for (int i = 0; i < word.length(); i++) {
+				if (word.charAt(i) == c) {
+					mask |= 1L << (i + 1);
+				}
+			}
+			return mask;
+		}
+	}
+
+	/**
+	 * Searches with a {@link LevenshteinAutomaton} per pass, like {@link Dawg}, for words too long for a
+	 * {@link BitParallelSearch}. These are rare enough that the automaton's allocations don't matter.
+	 */
+	private static final class AutomatonSearch extends ClosestMatchSearch {
+		private LevenshteinAutomaton automaton;
+		/**
+		 * The automaton's state at each depth of the path
+		 */
+		private int[] states;
+
+		AutomatonSearch(Version version, String word, MatchCollector matches) {
+			super(version, word, matches);
+			this.states = new int[word.length() + 2];
+		}
+
+		@Override
+		void startPass() {
+			automaton = new LevenshteinAutomaton(word, errorLimit);
+			states[0] = automaton.start();
+		}
+
+		@Override
+		boolean step(int depth, char c) {
+			if (depth + 1 == states.length) {
+				states = Arrays.copyOf(states, states.length * 2);
+			}
+			states[depth + 1] = automaton.step(states[depth], c);
+			return states[depth + 1] != LevenshteinAutomaton.DEAD_STATE;
+		}
+
+		@Override
+		int errors(int depth) {
+			return automaton.errors(states[depth]);
+		}
+	}
+}
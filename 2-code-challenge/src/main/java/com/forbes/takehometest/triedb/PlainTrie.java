@@ -0,0 +1,340 @@
+package com.forbes.takehometest.triedb;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements a plain Trie (without the wildcard nodes used by {@link Trie}) that looks for "closest" matches by walking
+ * the Trie together with a {@link LevenshteinAutomaton} for the word being matched.
+ *
+ * Since each word is only stored along its own path, adding/deleting a word only touches one node per letter, and
+ * words of any length can be indexed.
+ *
+ * Nodes are immutable, so a write re-creates the nodes along the word's path and then swaps in the new root. Writers
+ * are serialized, while readers search from whichever root was current when they started without taking a lock.
+ */
+@Slf4j
+public class PlainTrie {
+	private volatile TrieNode root = TrieNode.EMPTY;
+	private final NodeCounts.Cache<TrieNode> nodeCounts = new NodeCounts.Cache<>();
+
+	/**
+	 * Adds a word to the Trie
+	 */
+	public synchronized void addWord(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not add empty word!");
+		}
+		log.debug("Adding '{}' to plain trie...", word);
+		var path = new TrieNode[word.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < word.length(); i++) {
+			var child = path[i].getChild(word.charAt(i));
+			path[i + 1] = child == null ? TrieNode.EMPTY : child;
+		}
+		var node = path[word.length()].withWordEndingHere(word);
+		for (int i = word.length() - 1; i >= 0; i--) {
+			node = path[i].withChild(word.charAt(i), node);
+		}
+		root = node;
+		log.debug("Added '{}' to plain trie successfully.", word);
+	}
+
+	/**
+	 * Replaces the contents of the Trie with the given words, which must be sorted and distinct. Since the words are
+	 * sorted, the words under each node form a contiguous range, so each node is built exactly once.
+	 */
+	public synchronized void loadWords(List<String> sortedWords) {
+		log.debug("Building plain trie from {} words...", sortedWords.size());
+		root = sortedWords.isEmpty() ? TrieNode.EMPTY : buildFromRange(sortedWords, 0, sortedWords.size(), 0);
+		log.debug("Built plain trie from {} words successfully.", sortedWords.size());
+	}
+
+	/**
+	 * Builds the node for the words in [from, to), which all share the same first `depth` letters.
+	 */
+	private static TrieNode buildFromRange(List<String> sortedWords, int from, int to, int depth) {
+		List<String> wordsEndingHere = List.of();
+		if (sortedWords.get(from).length() == depth) {
+			wordsEndingHere = List.of(sortedWords.get(from));
+			from++;
+		}
+		var numChildren = 0;
+		for (int i = from; i < to; i++) {
+			if (i == from || sortedWords.get(i).charAt(depth) != sortedWords.get(i - 1).charAt(depth)) {
+				numChildren++;
+			}
+		}
+		var labels = new char[numChildren];
+		var children = new TrieNode[numChildren];
+		var child = 0;
+		for (int start = from, end; start < to; start = end) {
+			var c = sortedWords.get(start).charAt(depth);
+			end = start + 1;
+			while (end < to && sortedWords.get(end).charAt(depth) == c) {
+				end++;
+			}
+			labels[child] = c;
+			children[child++] = buildFromRange(sortedWords, start, end, depth + 1);
+		}
+		return TrieNode.of(labels, children, wordsEndingHere);
+	}
+
+	/**
+	 * Adds the given words, which must be sorted and distinct, and returns whether each word was added (false if it
+	 * was already in the Trie). As in {@link #loadWords(List)}, the new words under each node form a contiguous range,
+	 * so they're merged into the Trie in one pass and each node on their paths is copied once for the whole batch.
+	 */
+	public synchronized Map<String, Boolean> addWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		var newWords = new ArrayList<String>();
+		for (var word : sortedWords) {
+			if (word.isEmpty()) {
+				throw new IllegalArgumentException("Can not add empty word!");
+			}
+			var isNew = !contains(word);
+			outcomes.put(word, isNew);
+			if (isNew) {
+				newWords.add(word);
+			}
+		}
+		log.debug("Adding {} new words out of {} to plain trie...", newWords.size(), sortedWords.size());
+		if (!newWords.isEmpty()) {
+			root = addRange(root, newWords, 0, newWords.size(), 0);
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Adds the words in [from, to), which all share the same first `depth` letters, under the given node.
+	 */
+	private static TrieNode addRange(TrieNode node, List<String> sortedWords, int from, int to, int depth) {
+		if (sortedWords.get(from).length() == depth) {
+			node = node.withWordEndingHere(sortedWords.get(from));
+			from++;
+		}
+		for (int start = from, end; start < to; start = end) {
+			var c = sortedWords.get(start).charAt(depth);
+			end = start + 1;
+			while (end < to && sortedWords.get(end).charAt(depth) == c) {
+				end++;
+			}
+			var child = node.getChild(c);
+			node = node.withChild(c, addRange(child == null ? TrieNode.EMPTY : child, sortedWords, start, end,
+					depth + 1));
+		}
+		return node;
+	}
+
+	/**
+	 * Checks if the given word is contained within the Trie exactly. Like {@link Trie#contains(CharSequence)}, the word
+	 * doesn't need to be a String.
+	 */
+	public boolean contains(CharSequence word) {
+		var curr = root;
+		for (int i = 0; i < word.length(); i++) {
+			curr = curr.getChild(word.charAt(i));
+			if (curr == null) {
+				return false;
+			}
+		}
+		return curr.hasWordEndingHere(word);
+	}
+
+	/**
+	 * Deletes a word from the Trie. The nodes along the word's path are re-created bottom-up without the word, and any
+	 * node that no longer leads to any word is dropped from its parent.
+	 */
+	public synchronized boolean deleteWord(String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("Can not delete empty word!");
+		}
+		var path = new TrieNode[word.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < word.length(); i++) {
+			path[i + 1] = path[i].getChild(word.charAt(i));
+			if (path[i + 1] == null) {
+				log.debug("Did not find '{}' in plain trie. Skipping delete...", word);
+				return false;
+			}
+		}
+		if (!path[word.length()].hasWordEndingHere(word)) {
+			log.debug("Did not find '{}' in plain trie. Skipping delete...", word);
+			return false;
+		}
+		log.debug("Deleting '{}' from plain trie...", word);
+		var node = path[word.length()].withoutWordEndingHere(word);
+		for (int i = word.length() - 1; i >= 0; i--) {
+			node = path[i].withChildOrWithout(word.charAt(i), node);
+		}
+		root = node;
+		log.debug("Deleted '{}' from plain trie successfully.", word);
+		return true;
+	}
+
+	/**
+	 * Deletes the given words, which must be sorted and distinct, and returns whether each word was deleted (false if
+	 * it wasn't in the Trie). Like {@link #addWords(List)}, the words are deleted together in one pass.
+	 */
+	public synchronized Map<String, Boolean> deleteWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		var foundWords = new ArrayList<String>();
+		for (var word : sortedWords) {
+			if (word.isEmpty()) {
+				throw new IllegalArgumentException("Can not delete empty word!");
+			}
+			var isFound = contains(word);
+			outcomes.put(word, isFound);
+			if (isFound) {
+				foundWords.add(word);
+			}
+		}
+		log.debug("Deleting {} words found out of {} from plain trie...", foundWords.size(), sortedWords.size());
+		if (!foundWords.isEmpty()) {
+			root = deleteRange(root, foundWords, 0, foundWords.size(), 0);
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Deletes the words in [from, to), which all share the same first `depth` letters and are all in the Trie, from
+	 * under the given node.
+	 */
+	private static TrieNode deleteRange(TrieNode node, List<String> sortedWords, int from, int to, int depth) {
+		if (sortedWords.get(from).length() == depth) {
+			node = node.withoutWordEndingHere(sortedWords.get(from));
+			from++;
+		}
+		for (int start = from, end; start < to; start = end) {
+			var c = sortedWords.get(start).charAt(depth);
+			end = start + 1;
+			while (end < to && sortedWords.get(end).charAt(depth) == c) {
+				end++;
+			}
+			node = node.withChildOrWithout(c, deleteRange(node.getChild(c), sortedWords, start, end, depth + 1));
+		}
+		return node;
+	}
+
+	/**
+	 * Offers the words that start with the given prefix to the given collector, in sorted order. Like
+	 * {@link Trie#completionsOf}, the walk stops as soon as the collector needs no more words, so without word weights
+	 * it never walks the whole subtree below the prefix.
+	 */
+	public void completionsOf(String prefix, CompletionCollector completions) {
+		var node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.getChild(prefix.charAt(i));
+		}
+		if (node != null) {
+			addCompletions(node, new ArrayList<>(), completions);
+		}
+	}
+
+	private static boolean addCompletions(TrieNode node, List<String> wordsEndingHere,
+			CompletionCollector completions) {
+		if (!Trie.offerWordsEndingHere(node, wordsEndingHere, completions)) {
+			return false;
+		}
+		for (int i = 0; i < node.childCount(); i++) {
+			if (!addCompletions(node.childAt(i), wordsEndingHere, completions)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of nodes in the plain trie, for metrics. Counting walks the whole plain trie, so the count is
+	 * kept until the plain trie changes.
+	 */
+	public NodeCounts nodeCounts() {
+		return nodeCounts.get(root, currentRoot -> new NodeCounts(countNodes(currentRoot), 0));
+	}
+
+	private static long countNodes(TrieNode node) {
+		var count = 1L;
+		for (int i = 0; i < node.childCount(); i++) {
+			count += countNodes(node.childAt(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the closest matches for the given word, following the same rules as
+	 * {@link Trie#findClosestMatches(String, MatchCollector)}: at most 50% of the word (rounded up) may be errors, and
+	 * the matches with the fewest errors are found first.
+	 *
+	 * To perform the search, we walk the Trie depth-first while feeding each letter along the way into a
+	 * {@link LevenshteinAutomaton} for the given word. Every Trie node is therefore visited at most once, with the
+	 * automaton state telling us how many errors the current path has accumulated. We stop walking down a path as soon
+	 * as the automaton says it can't end within the current error limit.
+	 */
+	public void findClosestMatches(String word, MatchCollector matches) {
+		var search = new ClosestMatchSearch(word, matches);
+		search.run(root);
+		log.debug("Plain trie found {} matches for '{}'", matches.size(), word);
+	}
+
+	/**
+	 * Holds the state of a single closest-match search.
+	 */
+	private static class ClosestMatchSearch {
+		private final String word;
+		private final MatchCollector matches;
+		private final List<String> wordsEndingHere = new ArrayList<>();
+		private final int maxErrorsAllowed;
+
+		ClosestMatchSearch(String word, MatchCollector matches) {
+			this.word = word;
+			this.matches = matches;
+			this.maxErrorsAllowed = (word.length() + 1) / 2;
+		}
+
+		/**
+		 * Searches with an error limit of 0, then 1, and so on up to the maximum errors allowed, stopping once the
+		 * limit goes past {@link MatchCollector#maxUsefulErrors()} (a later pass could only find matches with more
+		 * errors than the worst one kept), or as soon as the collector's budget runs out. A collector that another
+		 * search already filled (eg the base index's, for a dictionary overlay) still gets the passes that can beat its
+		 * worst match. Like the Trie's PriorityQueue, this makes sure the matches with the fewest errors are found
+		 * without first exploring paths with more errors. Each pass uses an automaton built for its own limit, which
+		 * keeps the number of automaton states (and the paths explored) as small as possible.
+		 */
+		void run(TrieNode root) {
+			for (var errorLimit = 0; errorLimit <= Math.min(maxErrorsAllowed, matches.maxUsefulErrors())
+					&& !matches.isTruncated(); errorLimit++) {
+				var automaton = new LevenshteinAutomaton(word, errorLimit);
+				searchFrom(root, automaton, automaton.start(), 0);
+			}
+		}
+
+		/**
+		 * Searches the paths below the given node, at the given depth. Since the search is depth-first, the states
+		 * still pending are the ones along the current path.
+		 */
+		void searchFrom(TrieNode node, LevenshteinAutomaton automaton, int state, int depth) {
+			matches.statesPending(depth);
+			for (int i = 0; i < node.childCount() && !matches.isTruncated(); i++) {
+				var nextState = automaton.step(state, node.labelAt(i));
+				if (nextState == LevenshteinAutomaton.DEAD_STATE) {
+					matches.statePruned();
+					continue;
+				}
+				if (!matches.stateExpanded()) {
+					return;
+				}
+				var child = node.childAt(i);
+				if (child.hasWordsEndingHere() && automaton.errors(nextState) <= automaton.getMaxErrors()) {
+					wordsEndingHere.clear();
+					child.addWordsEndingHereTo(wordsEndingHere);
+					wordsEndingHere.forEach(match -> matches.offer(match, automaton.errors(nextState)));
+				}
+				searchFrom(child, automaton, nextState, depth + 1);
+			}
+		}
+	}
+}
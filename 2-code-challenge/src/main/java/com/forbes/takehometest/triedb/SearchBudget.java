@@ -0,0 +1,102 @@
+package com.forbes.takehometest.triedb;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the work closest-match searches may do: the number of states they may expand, and/or a deadline. A search that
+ * runs out of budget stops early and keeps the best matches it found so far (see {@link MatchCollector}).
+ *
+ * A budget can be shared by several searches, possibly running on different threads (eg all the searches for a story),
+ * and each search can get its own, smaller budget drawn from it with {@link #forSearch(long, Duration)}. Searches take
+ * states from their budget in chunks of {@link #CHUNK_SIZE} rather than one at a time, and only check the deadline when
+ * they take a chunk, so the search loops aren't slowed down. A chunk is cut down to the states left in the budget (so a
+ * budget smaller than a chunk still allows that many states), and a search gives back the states of its last chunk it
+ * didn't use (so a shared budget isn't used up faster than the states actually expanded).
+ */
+public final class SearchBudget {
+	static final int CHUNK_SIZE = 64;
+	private static final SearchBudget UNLIMITED = new SearchBudget(null, 0, Duration.ZERO);
+
+	private final SearchBudget parent;
+	private final AtomicLong remainingStates;
+	private final long deadline;
+	private final boolean hasDeadline;
+
+	private SearchBudget(SearchBudget parent, long maxExpandedStates, Duration timeout) {
+		this.parent = parent;
+		this.remainingStates = maxExpandedStates > 0 ? new AtomicLong(maxExpandedStates) : null;
+		this.hasDeadline = !timeout.isZero();
+		this.deadline = hasDeadline ? System.nanoTime() + timeout.toNanos() : 0;
+	}
+
+	public static SearchBudget unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * Returns a budget of the given number of states, that runs out after the given time from now. A limit of 0 means
+	 * no limit.
+	 */
+	public static SearchBudget of(long maxExpandedStates, Duration timeout) {
+		if (maxExpandedStates <= 0 && timeout.isZero()) {
+			return UNLIMITED;
+		}
+		return new SearchBudget(null, maxExpandedStates, timeout);
+	}
+
+	/**
+	 * Returns a budget for a single search, with its own limits (0 meaning no limit), that also draws from this one.
+	 */
+	public SearchBudget forSearch(long maxExpandedStates, Duration timeout) {
+		if (maxExpandedStates <= 0 && timeout.isZero()) {
+			return this;
+		}
+		return new SearchBudget(isUnlimited() ? null : this, maxExpandedStates, timeout);
+	}
+
+	public boolean isUnlimited() {
+		return this == UNLIMITED;
+	}
+
+	/**
+	 * Takes up to the given number of states from this budget and the ones it draws from, and returns how many were
+	 * taken: fewer if a budget is almost out of states, and 0 if any of them ran out (of states or time).
+	 */
+	int take(int numStates) {
+		if (hasDeadline && System.nanoTime() - deadline > 0) {
+			return 0;
+		}
+		var taken = numStates;
+		if (remainingStates != null) {
+			long remaining;
+			do {
+				remaining = remainingStates.get();
+				if (remaining <= 0) {
+					return 0;
+				}
+				taken = (int) Math.min(numStates, remaining);
+			} while (!remainingStates.compareAndSet(remaining, remaining - taken));
+		}
+		if (parent != null) {
+			var takenFromParent = parent.take(taken);
+			if (takenFromParent < taken && remainingStates != null) {
+				remainingStates.addAndGet(taken - takenFromParent);
+			}
+			taken = takenFromParent;
+		}
+		return taken;
+	}
+
+	/**
+	 * Gives back states that were taken but not used, to this budget and the ones it draws from.
+	 */
+	void giveBack(int numStates) {
+		if (remainingStates != null) {
+			remainingStates.addAndGet(numStates);
+		}
+		if (parent != null) {
+			parent.giveBack(numStates);
+		}
+	}
+}
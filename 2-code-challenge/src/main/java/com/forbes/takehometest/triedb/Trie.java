@@ -1,28 +1,95 @@
 package com.forbes.takehometest.triedb;
 
 import lombok.AllArgsConstructor;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.UnaryOperator;
 
 /**
  * Implements the Trie structure used to look for word matches and "closest" matches
+ *
+ * The Trie's nodes are immutable, so adding or deleting a word re-creates the nodes it touches and then swaps in the
+ * new root. Writers are serialized, while readers keep searching from the root that was current when they started, so
+ * lookups never block (or see a half-added word) while the dictionary is being modified.
+ *
+ * A word is in every wildcard node that its letters can be swapped for, so removing it re-creates an exponential number
+ * of nodes. Deleting a word only marks it as deleted (a tombstone) on the node at the end of its letter path instead,
+ * which re-creates as many nodes as it has letters. Lookups skip the words marked as deleted. Once they make up
+ * `tombstoneRatio` of the words, they're removed from the Trie in the background (on the given executor), in one pass:
+ * the compaction works on the Trie as it was when it started, while writers carry on, and the words added or deleted in
+ * the meantime are then applied to its result before it's swapped in. Readers are never blocked by it, and writers only
+ * for that last step.
+ *
+ * A word's letters hardly ever include the wildcard (see
+ * {@link com.forbes.takehometest.util.WordValidationUtils#isValidDictionaryWord(CharSequence)}), but if one does, its
+ * letter child is the wildcard child itself, so every path below only follows the wildcard child for it. Such a word
+ * is also removed right away when it's deleted rather than marked, since the end of its letter path is a wildcard node
+ * that holds other words too.
  */
 @Slf4j
 public class Trie {
 	public static final char WILDCARD = '*';
-	private final TrieNode root = new TrieNode();
+
+	private volatile TrieNode root = TrieNode.EMPTY;
+	/**
+	 * The words marked as deleted that are still in the Trie. Searches check the words they find against it rather
+	 * than against the words' own nodes. A compaction swaps in a new set after the new root (and searches read the set
+	 * before the root), so a search never pairs a root holding a deleted word with a set that no longer has it.
+	 */
+	private volatile Set<String> deletedWords = ConcurrentHashMap.newKeySet();
+	private final NodeCounts.Cache<TrieNode> nodeCounts = new NodeCounts.Cache<>();
+	private final double tombstoneRatio;
+	private final Executor compactionExecutor;
+	/**
+	 * The number of words in the Trie, not counting those marked as deleted
+	 */
+	private int numWords;
+	private boolean isCompacting;
+	/**
+	 * The words added (true) or deleted (false) while a compaction is running, which it applies to its result
+	 */
+	private Map<String, Boolean> changesDuringCompaction;
+	/**
+	 * Changes every time the Trie is reloaded, so that a compaction of its previous contents is dropped
+	 */
+	private long generation;
+
+	public Trie(double tombstoneRatio, Executor compactionExecutor) {
+		this.tombstoneRatio = tombstoneRatio;
+		this.compactionExecutor = compactionExecutor;
+	}
 
 	/**
 	 * Adds a word to the Trie
 	 */
-	public void addWord(String word) {
+	public synchronized void addWord(String word) {
 		if (word.isEmpty()) {
 			throw new IllegalArgumentException("Can not add empty word!");
 		}
+		if (contains(word)) {
+			log.debug("Found '{}' in trie. Skipping add...", word);
+			return;
+		}
 		log.debug("Adding '{}' to trie...", word);
-		addWordFromNodeAndIndex(word, root, 0);
+		if (deletedWords.contains(word)) {
+			root = withWordNode(root, word, 0, node -> node.withWordEndingHere(word));
+			deletedWords.remove(word);
+		} else {
+			root = addWordFromNodeAndIndex(word, root, 0);
+		}
+		numWords++;
+		recordChange(word, true);
 		log.debug("Added '{}' to trie successfully.", word);
 	}
 
@@ -31,8 +98,11 @@ public class Trie {
 	 * to help facilitate looking for a "closest" match, we will also add a "wildcard" node to the current node and
 	 * then iterate recursively with: 1) the new node associated with word[0], and 2) the new node associated with the
 	 * wildcard.
+	 *
+	 * Since nodes are immutable, this returns a copy of the given node with the word added, which the caller links into
+	 * its own copy.
 	 */
-	private void addWordFromNodeAndIndex(String word, TrieNode node, int index) {
+	private TrieNode addWordFromNodeAndIndex(String word, TrieNode node, int index) {
 		if (node == null) {
 			throw new IllegalStateException("Node must not be null!");
 		}
@@ -40,76 +110,420 @@ public class Trie {
 			throw new IllegalArgumentException("Index can not be greater the length of word!");
 		}
 		if (index == word.length()) {
-			node.addWordEndingHere(word);
-			return;
+			return node.withWordEndingHere(word);
 		}
 		var c = word.charAt(index);
-		if (!node.hasChild(c)) {
-			node.children.put(c, new TrieNode());
+		if (c != WILDCARD) {
+			node = node.withChild(c, addWordFromNodeAndIndex(word, childOrEmpty(node, c), index + 1));
 		}
-		addWordFromNodeAndIndex(word, node.getChild(c), index + 1);
-		if (!node.hasChild(WILDCARD)) {
-			node.children.put(WILDCARD, new TrieNode());
+		return node.withChild(WILDCARD, addWordFromNodeAndIndex(word, childOrEmpty(node, WILDCARD), index + 1));
+	}
+
+	/**
+	 * Adds the given words, which must be sorted and distinct, and returns whether each word was added (false if it
+	 * was already in the Trie). Rather than adding one word at a time, the new words are inserted together in one pass,
+	 * so each node on their paths is copied once for the whole batch instead of once per word. (Words that are marked
+	 * as deleted are still in the Trie, so they're only unmarked)
+	 */
+	public synchronized Map<String, Boolean> addWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		var newWords = new ArrayList<String>();
+		var revivedWords = new ArrayList<String>();
+		var newRoot = root;
+		for (var word : sortedWords) {
+			if (word.isEmpty()) {
+				throw new IllegalArgumentException("Can not add empty word!");
+			}
+			var isNew = !contains(word);
+			outcomes.put(word, isNew);
+			if (!isNew) {
+				continue;
+			}
+			if (deletedWords.contains(word)) {
+				newRoot = withWordNode(newRoot, word, 0, node -> node.withWordEndingHere(word));
+				revivedWords.add(word);
+			} else {
+				newWords.add(word);
+			}
+			numWords++;
+			recordChange(word, true);
+		}
+		log.debug("Adding {} new words out of {} to trie...", newWords.size(), sortedWords.size());
+		if (!newWords.isEmpty()) {
+			newRoot = addWordsFromNodeAndIndex(newWords, newRoot, 0);
 		}
-		addWordFromNodeAndIndex(word, node.getChild(WILDCARD), index + 1);
+		root = newRoot;
+		deletedWords.removeAll(revivedWords);
+		return outcomes;
 	}
 
 	/**
-	 * Checks if the given word is contained within the Trie exactly (no wildcard matches).
+	 * Same as {@link #addWordFromNodeAndIndex(String, TrieNode, int)} for several words at once. The words that are
+	 * longer than `index` are split by their letter at `index` into the letter children, and all of them also go down
+	 * the wildcard child.
 	 */
-	public boolean contains(String word) {
-		var curr = root;
-		for (char c : word.toCharArray()) {
-			if (!curr.hasChild(c)) {
-				return false;
+	private TrieNode addWordsFromNodeAndIndex(List<String> words, TrieNode node, int index) {
+		var wordsEndingHere = new ArrayList<String>();
+		var longerWords = new ArrayList<String>();
+		var longerWordsByLetter = new TreeMap<Character, List<String>>();
+		for (var word : words) {
+			if (word.length() == index) {
+				wordsEndingHere.add(word);
+				continue;
+			}
+			longerWords.add(word);
+			if (word.charAt(index) != WILDCARD) {
+				longerWordsByLetter.computeIfAbsent(word.charAt(index), c -> new ArrayList<>()).add(word);
 			}
-			curr = curr.getChild(c);
 		}
-		return curr.wordsEndingHere.contains(word);
+		if (!wordsEndingHere.isEmpty()) {
+			node = node.withWordsEndingHere(wordsEndingHere);
+		}
+		for (var entry : longerWordsByLetter.entrySet()) {
+			var c = entry.getKey();
+			node = node.withChild(c, addWordsFromNodeAndIndex(entry.getValue(), childOrEmpty(node, c), index + 1));
+		}
+		if (!longerWords.isEmpty()) {
+			node = node.withChild(WILDCARD, addWordsFromNodeAndIndex(longerWords, childOrEmpty(node, WILDCARD),
+					index + 1));
+		}
+		return node;
+	}
+
+	private static TrieNode childOrEmpty(TrieNode node, char c) {
+		var child = node.getChild(c);
+		return child == null ? TrieNode.EMPTY : child;
 	}
 
 	/**
-	 * Deletes a word from the Trie.
+	 * Replaces the contents of the Trie with the given words. Rather than adding one word at a time (which re-creates
+	 * every node on the word's paths for each word), each node is built exactly once from the words that pass through
+	 * it.
 	 */
-	public boolean deleteWord(String word) {
+	public synchronized void loadWords(List<String> words) {
+		log.debug("Building trie from {} words...", words.size());
+		root = buildFromWordsAndIndex(words, 0);
+		numWords = words.size();
+		deletedWords = ConcurrentHashMap.newKeySet();
+		changesDuringCompaction = null;
+		generation++;
+		log.debug("Built trie from {} words successfully.", words.size());
+	}
+
+	/**
+	 * Builds the node reached by the given words after `index` letters. The words of length `index` end here. The rest
+	 * are split by their letter at `index` into the letter children, and all of them also go down the wildcard child.
+	 */
+	private TrieNode buildFromWordsAndIndex(List<String> words, int index) {
+		var wordsEndingHere = new ArrayList<String>();
+		var longerWords = new ArrayList<String>();
+		var longerWordsByLetter = new TreeMap<Character, List<String>>();
+		for (var word : words) {
+			if (word.length() == index) {
+				wordsEndingHere.add(word);
+				continue;
+			}
+			longerWords.add(word);
+			if (word.charAt(index) != WILDCARD) {
+				longerWordsByLetter.computeIfAbsent(word.charAt(index), c -> new ArrayList<>()).add(word);
+			}
+		}
+		var children = new TreeMap<Character, TrieNode>();
+		longerWordsByLetter.forEach((c, wordsWithLetter) -> children.put(c, buildFromWordsAndIndex(wordsWithLetter,
+				index + 1)));
+		if (!longerWords.isEmpty()) {
+			children.put(WILDCARD, buildFromWordsAndIndex(longerWords, index + 1));
+		}
+		var labels = new char[children.size()];
+		var i = 0;
+		for (var c : children.keySet()) {
+			labels[i++] = c;
+		}
+		return TrieNode.of(labels, children.values().toArray(new TrieNode[0]), wordsEndingHere);
+	}
+
+	/**
+	 * Checks if the given word is contained within the Trie exactly (no wildcard matches). The word can be any
+	 * CharSequence (eg a view of a word in a story), so it doesn't need to be copied into a String first.
+	 */
+	public boolean contains(CharSequence word) {
+		return contains(root, word);
+	}
+
+	private static boolean contains(TrieNode root, CharSequence word) {
+		var node = wordNode(root, word);
+		return node != null && node.hasWordEndingHere(word);
+	}
+
+	/**
+	 * Returns the node at the end of the word's letter path (with no wildcards), or null if there's none.
+	 */
+	private static TrieNode wordNode(TrieNode root, CharSequence word) {
+		var node = root;
+		for (int i = 0; i < word.length() && node != null; i++) {
+			node = node.getChild(word.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns a copy of the given node with the node at the end of the word's letter path (which must exist) replaced
+	 * by the result of the given change. Only the nodes on that path are re-created.
+	 */
+	private static TrieNode withWordNode(TrieNode node, String word, int index, UnaryOperator<TrieNode> change) {
+		if (index == word.length()) {
+			return change.apply(node);
+		}
+		var c = word.charAt(index);
+		return node.withChild(c, withWordNode(node.getChild(c), word, index + 1, change));
+	}
+
+	/**
+	 * Deletes a word from the Trie, by marking it as deleted. It's removed from the Trie by the next compaction.
+	 */
+	public synchronized boolean deleteWord(String word) {
 		if (word.isEmpty()) {
-			throw new IllegalArgumentException("Can not add delete empty word!");
+			throw new IllegalArgumentException("Can not delete empty word!");
 		}
 		if (!contains(word)) {
 			log.debug("Did not find '{}' in trie. Skipping delete...", word);
 			return false;
 		}
 		log.debug("Deleting '{}' from trie...", word);
-		deleteWordFromNodeAndIndex(word, root, 0);
+		root = withWordDeleted(root, word, deletedWords);
+		markDeleted(word);
+		compactIfNeeded();
 		log.debug("Deleted '{}' from trie successfully.", word);
 		return true;
 	}
 
 	/**
-	 * Deletes a word from the Trie recursively. If we are at index 0, we will first recursively delete the next
-	 * character from our child first. If, after deletion, our child is empty, that means we deleted the only character
-	 * available within the child, and thus we'll delete the entire child node as well.
-	 * The same logic is executed for the "wildcard" match node as well.
+	 * Deletes the given words, which must be sorted and distinct, and returns whether each word was deleted (false if
+	 * it wasn't in the Trie). Like {@link #deleteWord(String)}, the words are only marked as deleted, and the new root
+	 * is swapped in once for the whole batch.
 	 */
-	private void deleteWordFromNodeAndIndex(String word, TrieNode node, int index) {
-		if (node == null) {
-			throw new IllegalStateException("Node must not be null!");
+	public synchronized Map<String, Boolean> deleteWords(List<String> sortedWords) {
+		var outcomes = new LinkedHashMap<String, Boolean>();
+		var newRoot = root;
+		var numFound = 0;
+		for (var word : sortedWords) {
+			if (word.isEmpty()) {
+				throw new IllegalArgumentException("Can not delete empty word!");
+			}
+			var isFound = contains(newRoot, word);
+			outcomes.put(word, isFound);
+			if (isFound) {
+				newRoot = withWordDeleted(newRoot, word, deletedWords);
+				markDeleted(word);
+				numFound++;
+			}
 		}
-		if (index > word.length()) {
-			throw new IllegalArgumentException("Index can not be greater the length of word!");
+		log.debug("Deleted {} words found out of {} from trie", numFound, sortedWords.size());
+		root = newRoot;
+		compactIfNeeded();
+		return outcomes;
+	}
+
+	/**
+	 * Returns a copy of the given root with the given word, which must be in it, marked as deleted, and adds the word
+	 * to the given words marked as deleted. A word holding the wildcard is removed from the copy instead.
+	 */
+	private TrieNode withWordDeleted(TrieNode root, String word, Set<String> deletedWords) {
+		if (word.indexOf(WILDCARD) >= 0) {
+			return deleteWordsFromNodeAndIndex(List.of(word), root, 0);
 		}
-		if (index == word.length()) {
-			node.wordsEndingHere.remove(word);
+		deletedWords.add(word);
+		return withWordNode(root, word, 0, node -> node.withTombstoneFor(word));
+	}
+
+	private void markDeleted(String word) {
+		numWords--;
+		recordChange(word, false);
+	}
+
+	private void recordChange(String word, boolean isAdded) {
+		if (changesDuringCompaction != null) {
+			changesDuringCompaction.put(word, isAdded);
+		}
+	}
+
+	/**
+	 * Starts a compaction in the background if the words marked as deleted make up at least `tombstoneRatio` of the
+	 * words in the Trie, and no compaction is running. The compaction removes the words marked as deleted from the
+	 * current root.
+	 */
+	private void compactIfNeeded() {
+		var numTombstones = deletedWords.size();
+		if (isCompacting || numTombstones == 0 || numTombstones < tombstoneRatio * (numWords + numTombstones)) {
 			return;
 		}
-		var c = word.charAt(index);
-		deleteWordFromNodeAndIndex(word, node.getChild(c), index + 1);
-		if (node.getChild(c).wordsEndingHere.isEmpty()) {
-			node.children.remove(c);
+		log.debug("Compacting trie to remove {} deleted words out of {}...", numTombstones, numWords + numTombstones);
+		isCompacting = true;
+		changesDuringCompaction = new HashMap<>();
+		var compactedRoot = root;
+		var compactedWords = deletedWords.stream().sorted().toList();
+		var compactedGeneration = generation;
+		try {
+			compactionExecutor.execute(() -> compact(compactedRoot, compactedWords, compactedGeneration));
+		} catch (RejectedExecutionException e) {
+			// the app is shutting down
+			log.debug("Could not start compacting trie", e);
+			isCompacting = false;
+			changesDuringCompaction = null;
+		}
+	}
+
+	/**
+	 * Removes the given words, which are marked as deleted, from the given root. Then, the words that were added or
+	 * deleted since the compaction started are added to (or marked as deleted in) the result, which becomes the new
+	 * root, unless the Trie was reloaded in the meantime.
+	 */
+	private void compact(TrieNode compactedRoot, List<String> compactedWords, long compactedGeneration) {
+		var start = System.nanoTime();
+		TrieNode newRoot = null;
+		try {
+			newRoot = deleteWordsFromNodeAndIndex(compactedWords, compactedRoot, 0);
+		} catch (RuntimeException e) {
+			log.error("Could not compact trie. Deleted words will be kept until the next compaction", e);
 		}
-		deleteWordFromNodeAndIndex(word, node.getChild(WILDCARD), index + 1);
-		if (node.getChild(WILDCARD).wordsEndingHere.isEmpty()) {
-			node.children.remove(WILDCARD);
+		synchronized (this) {
+			isCompacting = false;
+			var changes = changesDuringCompaction;
+			changesDuringCompaction = null;
+			if (newRoot == null) {
+				return;
+			}
+			if (compactedGeneration != generation) {
+				log.debug("Trie was reloaded while it was being compacted. Dropping compaction...");
+				compactIfNeeded();
+				return;
+			}
+			Set<String> newDeletedWords = ConcurrentHashMap.newKeySet();
+			for (var change : changes.entrySet()) {
+				var word = change.getKey();
+				if (change.getValue() && !contains(newRoot, word)) {
+					newRoot = addWordFromNodeAndIndex(word, newRoot, 0);
+				} else if (!change.getValue() && contains(newRoot, word)) {
+					newRoot = withWordDeleted(newRoot, word, newDeletedWords);
+				}
+			}
+			root = newRoot;
+			deletedWords = newDeletedWords;
+			log.info("Compacted trie: removed {} deleted words in {} ms ({} words changed meanwhile)",
+					compactedWords.size(), (System.nanoTime() - start) / 1_000_000, changes.size());
+			compactIfNeeded();
+		}
+	}
+
+	/**
+	 * Removes the given words, which must be sorted and distinct and in the Trie (or marked as deleted in it), from the
+	 * given node. The words are split by their letter at `index` like in {@link #addWordsFromNodeAndIndex}, and any
+	 * node that no word passes through anymore is removed from its parent.
+	 */
+	private TrieNode deleteWordsFromNodeAndIndex(List<String> words, TrieNode node, int index) {
+		var wordsEndingHere = new ArrayList<String>();
+		var longerWords = new ArrayList<String>();
+		var longerWordsByLetter = new TreeMap<Character, List<String>>();
+		for (var word : words) {
+			if (word.length() == index) {
+				wordsEndingHere.add(word);
+				continue;
+			}
+			longerWords.add(word);
+			if (word.charAt(index) != WILDCARD) {
+				longerWordsByLetter.computeIfAbsent(word.charAt(index), c -> new ArrayList<>()).add(word);
+			}
+		}
+		if (!wordsEndingHere.isEmpty()) {
+			node = node.withoutWordsEndingHere(wordsEndingHere);
+		}
+		for (var entry : longerWordsByLetter.entrySet()) {
+			var c = entry.getKey();
+			node = node.withChildOrWithout(c, deleteWordsFromNodeAndIndex(entry.getValue(), node.getChild(c),
+					index + 1));
+		}
+		if (!longerWords.isEmpty()) {
+			node = node.withChildOrWithout(WILDCARD, deleteWordsFromNodeAndIndex(longerWords, node.getChild(WILDCARD),
+					index + 1));
+		}
+		return node;
+	}
+
+	/**
+	 * Offers the words that start with the given prefix to the given collector, in sorted order, until it needs no
+	 * more (see {@link CompletionCollector}).
+	 *
+	 * Only the letter children are followed (a path made of letters only spells out the one word ending at its end),
+	 * and the children are visited in sorted order. Without word weights, the walk stops as soon as it has found k
+	 * words, and since every node leads to at least one word (or to a word marked as deleted, until the next
+	 * compaction), this visits about k paths below the prefix instead of the whole subtree. With weights, it goes on
+	 * until no word further on can outweigh the completions found, which may be the whole subtree.
+	 */
+	public void completionsOf(String prefix, CompletionCollector completions) {
+		var node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.getChild(prefix.charAt(i));
+		}
+		if (node != null) {
+			addCompletions(node, new ArrayList<>(), completions);
+		}
+	}
+
+	/**
+	 * Returns false once the collector needs no more words. (wordsEndingHere is only reused to avoid creating a list
+	 * per node)
+	 */
+	private static boolean addCompletions(TrieNode node, List<String> wordsEndingHere,
+			CompletionCollector completions) {
+		if (!offerWordsEndingHere(node, wordsEndingHere, completions)) {
+			return false;
+		}
+		for (int i = 0; i < node.childCount(); i++) {
+			if (node.labelAt(i) != WILDCARD && !addCompletions(node.childAt(i), wordsEndingHere, completions)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Offers the words ending at the given node in sorted order (there's more than one only if the prefix itself
+	 * ends with a wildcard), and returns false once the collector needs no more words.
+	 */
+	static boolean offerWordsEndingHere(TrieNode node, List<String> wordsEndingHere,
+			CompletionCollector completions) {
+		wordsEndingHere.clear();
+		node.addWordsEndingHereTo(wordsEndingHere);
+		if (wordsEndingHere.size() > 1) {
+			wordsEndingHere.sort(null);
+		}
+		for (var word : wordsEndingHere) {
+			if (!completions.offer(word)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of nodes in the Trie, and how many of them are reached through a wildcard, for metrics.
+	 * Counting walks the whole Trie, so the counts are kept until the Trie changes.
+	 */
+	public NodeCounts nodeCounts() {
+		return nodeCounts.get(root, currentRoot -> {
+			var counts = new long[2];
+			countNodes(currentRoot, false, counts);
+			return new NodeCounts(counts[0], counts[1]);
+		});
+	}
+
+	private static void countNodes(TrieNode node, boolean isWildcard, long[] counts) {
+		counts[0]++;
+		if (isWildcard) {
+			counts[1]++;
+		}
+		for (int i = 0; i < node.childCount(); i++) {
+			countNodes(node.childAt(i), node.labelAt(i) == WILDCARD, counts);
 		}
 	}
 
@@ -123,33 +537,45 @@ public class Trie {
 	 * To perform the search, we declare a PriorityQueue that holds instances of [MatchState]. Each match state
 	 * records the current index of the word being considered, the node it is on, and the number of errors
 	 * accumulated so far during the search. Match states with fewer errors are considered first in the PQ.
+	 *
+	 * The matches found are passed to the given collector, which keeps the best ones. Since matches are found in order
+	 * of errors, the search stops exploring a state as soon as it has more errors than the collector can still use. The
+	 * search also stops, keeping the matches found so far, if the collector's budget runs out.
+	 *
+	 * Words marked as deleted are still in the wildcard nodes, so each match found is checked against the words marked
+	 * as deleted before it's offered.
 	 */
-	public Set<String> closestMatches(String word) {
+	public void findClosestMatches(String word, MatchCollector matches) {
 		var maxErrorsAllowed = (word.length() + 1) / 2;
-		Set<String> bestMatches = new HashSet<>();
-		var currMatches = new PriorityQueue<>(List.of(new MatchState(0, root, 0)));
+		var searchDeletedWords = deletedWords;
+		var searchRoot = root;
+		var currMatches = new PriorityQueue<>(List.of(new MatchState(0, searchRoot, 0)));
 		while (!currMatches.isEmpty()) {
 			var currState = currMatches.poll();
 			var index = currState.index;
 			var node = currState.node;
 
-			// do not attempt to autocorrect the word if it causes more errors than the max allowed errors
-			if (currState.numErrors > maxErrorsAllowed) {
+			// do not attempt to autocorrect the word if it causes more errors than the max allowed errors, or than the
+			// errors of the worst match we'd keep
+			if (currState.numErrors > Math.min(maxErrorsAllowed, matches.maxUsefulErrors())) {
+				matches.statePruned();
 				continue;
 			}
+			if (!matches.stateExpanded()) {
+				break;
+			}
 
 			// if we're at the end of the word, we check whether we found a word that ends at our current node.
 			if (index == word.length()) {
-				if (node.wordsEndingHere.isEmpty()) {
-					continue;
+				if (node.hasWordsEndingHere()) {
+					var wordsEndingHere = new ArrayList<String>();
+					node.addWordsEndingHereTo(wordsEndingHere);
+					for (var match : wordsEndingHere) {
+						if (!searchDeletedWords.contains(match)) {
+							matches.offer(match, currState.numErrors);
+						}
+					}
 				}
-				// if we found a word and accumulated fewer errors than what was originally the best match, we clear
-				// out the old matches and update the best error limit to our new limit.
-				if (currState.numErrors < maxErrorsAllowed) {
-					bestMatches.clear();
-					maxErrorsAllowed = currState.numErrors;
-				}
-				bestMatches.addAll(node.wordsEndingHere);
 				continue;
 			}
 
@@ -175,9 +601,9 @@ public class Trie {
 			if (node.hasChild(WILDCARD)) {
 				currMatches.add(new MatchState(index, node.getChild(WILDCARD), currState.numErrors + 1));
 			}
+			matches.statesPending(currMatches.size());
 		}
-		log.debug("Trie found {} matches for '{}'", bestMatches.size(), word);
-		return bestMatches;
+		log.debug("Trie found {} matches for '{}'", matches.size(), word);
 	}
 
 	/**
@@ -195,26 +621,4 @@ public class Trie {
 			return Integer.compare(numErrors, otherMatchState.numErrors);
 		}
 	}
-
-	/**
-	 * Represents an individual node in the Trie. Stores a map of children and any words that end here (there may be
-	 * multiple entries for wildcard matches)
-	 */
-	@Data
-	static class TrieNode {
-		private Set<String> wordsEndingHere = new HashSet<>();
-		private Map<Character, TrieNode> children = new HashMap<>();
-
-		boolean hasChild(char c) {
-			return children.containsKey(c);
-		}
-
-		TrieNode getChild(char c) {
-			return children.get(c);
-		}
-
-		void addWordEndingHere(String word) {
-			wordsEndingHere.add(word);
-		}
-	}
 }
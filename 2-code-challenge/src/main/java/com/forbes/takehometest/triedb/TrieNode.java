@@ -0,0 +1,332 @@
+package com.forbes.takehometest.triedb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Represents an individual node in a Trie. Stores the node's children and any words that end here (there may be
+ * multiple entries for wildcard matches).
+ *
+ * Nodes are immutable: adding/removing a child or word returns a new node, and the Trie re-creates the nodes along the
+ * modified path up to a new root. This lets readers keep searching the previous version of the Trie without any locks
+ * while a writer builds the next one.
+ *
+ * Since a Trie can have millions of nodes, each node is kept as small as possible:
+ * - Children are stored as a sorted char[] of letters with a parallel array of child nodes, so there are no boxed
+ *   Characters or map entries. (Leaf nodes share the same empty arrays)
+ * - The words ending here are stored as null if there are none, as the String itself if there is exactly one (which is
+ *   always the case for non-wildcard nodes), or as a {@link WordTable} once there are more.
+ *
+ * A deleted word is first only marked as deleted on the node at the end of its own (letter-only) path, by wrapping it
+ * in a {@link Tombstone}, and stays in the wildcard nodes until the Trie is compacted (see {@link Trie}). A tombstone
+ * doesn't count as a word ending here.
+ */
+class TrieNode {
+	private static final char[] NO_LABELS = new char[0];
+	private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+	static final TrieNode EMPTY = new TrieNode(NO_LABELS, NO_CHILDREN, null);
+
+	private final char[] labels;
+	private final TrieNode[] children;
+	private final Object wordsEndingHere;
+
+	private TrieNode(char[] labels, TrieNode[] children, Object wordsEndingHere) {
+		this.labels = labels;
+		this.children = children;
+		this.wordsEndingHere = wordsEndingHere;
+	}
+
+	/**
+	 * Creates a node in one go (eg when building a whole Trie from a list of words). The labels must be sorted, with
+	 * the child for each label at the same index.
+	 */
+	static TrieNode of(char[] labels, TrieNode[] children, List<String> wordsEndingHere) {
+		if (labels.length == 0) {
+			labels = NO_LABELS;
+			children = NO_CHILDREN;
+		}
+		return switch (wordsEndingHere.size()) {
+			case 0 -> new TrieNode(labels, children, null);
+			case 1 -> new TrieNode(labels, children, wordsEndingHere.get(0));
+			default -> new TrieNode(labels, children, WordTable.of(wordsEndingHere));
+		};
+	}
+
+	boolean hasChild(char c) {
+		return Arrays.binarySearch(labels, c) >= 0;
+	}
+
+	TrieNode getChild(char c) {
+		var i = Arrays.binarySearch(labels, c);
+		return i >= 0 ? children[i] : null;
+	}
+
+	/**
+	 * Returns a copy of this node with the child for the given letter added or replaced.
+	 */
+	TrieNode withChild(char c, TrieNode child) {
+		var i = Arrays.binarySearch(labels, c);
+		if (i >= 0) {
+			if (children[i] == child) {
+				return this;
+			}
+			var newChildren = children.clone();
+			newChildren[i] = child;
+			return new TrieNode(labels, newChildren, wordsEndingHere);
+		}
+		var insertAt = -i - 1;
+		var newLabels = new char[labels.length + 1];
+		var newChildren = new TrieNode[children.length + 1];
+		System.arraycopy(labels, 0, newLabels, 0, insertAt);
+		System.arraycopy(children, 0, newChildren, 0, insertAt);
+		newLabels[insertAt] = c;
+		newChildren[insertAt] = child;
+		System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+		System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+		return new TrieNode(newLabels, newChildren, wordsEndingHere);
+	}
+
+	/**
+	 * Returns a copy of this node with the given child, or without the child for the given letter if the child is
+	 * empty (ie no words pass through it anymore).
+	 */
+	TrieNode withChildOrWithout(char c, TrieNode child) {
+		return child.isEmpty() ? withoutChild(c) : withChild(c, child);
+	}
+
+	TrieNode withoutChild(char c) {
+		var i = Arrays.binarySearch(labels, c);
+		if (i < 0) {
+			return this;
+		}
+		if (labels.length == 1) {
+			return new TrieNode(NO_LABELS, NO_CHILDREN, wordsEndingHere);
+		}
+		var newLabels = new char[labels.length - 1];
+		var newChildren = new TrieNode[children.length - 1];
+		System.arraycopy(labels, 0, newLabels, 0, i);
+		System.arraycopy(children, 0, newChildren, 0, i);
+		System.arraycopy(labels, i + 1, newLabels, i, labels.length - i - 1);
+		System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+		return new TrieNode(newLabels, newChildren, wordsEndingHere);
+	}
+
+	int childCount() {
+		return labels.length;
+	}
+
+	char labelAt(int i) {
+		return labels[i];
+	}
+
+	TrieNode childAt(int i) {
+		return children[i];
+	}
+
+	/**
+	 * Returns a copy of this node with the given word ending here, or this node if the word already ends here.
+	 */
+	TrieNode withWordEndingHere(String word) {
+		if (wordsEndingHere == null || wordsEndingHere instanceof Tombstone) {
+			return new TrieNode(labels, children, word);
+		}
+		if (wordsEndingHere instanceof String existingWord) {
+			return existingWord.equals(word) ? this : new TrieNode(labels, children, WordTable.of(existingWord, word));
+		}
+		var table = (WordTable) wordsEndingHere;
+		return table.contains(word) ? this : new TrieNode(labels, children, table.with(word));
+	}
+
+	/**
+	 * Returns a copy of this node without the given word, or this node if the word doesn't end here.
+	 */
+	TrieNode withoutWordEndingHere(String word) {
+		if (hasTombstoneFor(word)) {
+			return new TrieNode(labels, children, null);
+		}
+		if (!hasWordEndingHere(word)) {
+			return this;
+		}
+		if (wordsEndingHere instanceof String) {
+			return new TrieNode(labels, children, null);
+		}
+		var table = ((WordTable) wordsEndingHere).without(word);
+		return new TrieNode(labels, children, table.size == 1 ? table.any() : table);
+	}
+
+	/**
+	 * Returns a copy of this node with all the given words ending here. Unlike calling
+	 * {@link #withWordEndingHere(String)} for each word, the words ending here are only copied once.
+	 */
+	TrieNode withWordsEndingHere(List<String> words) {
+		if (words.size() == 1) {
+			return withWordEndingHere(words.get(0));
+		}
+		var allWords = new ArrayList<>(words);
+		addWordsEndingHereTo(allWords);
+		return new TrieNode(labels, children, WordTable.of(allWords));
+	}
+
+	/**
+	 * Returns a copy of this node without any of the given words. Like {@link #withWordsEndingHere(List)}, the words
+	 * ending here are only copied once.
+	 */
+	TrieNode withoutWordsEndingHere(List<String> words) {
+		if (words.size() == 1) {
+			return withoutWordEndingHere(words.get(0));
+		}
+		var remainingWords = new ArrayList<String>();
+		addWordsEndingHereTo(remainingWords);
+		remainingWords.removeAll(new HashSet<>(words));
+		return switch (remainingWords.size()) {
+			case 0 -> new TrieNode(labels, children, null);
+			case 1 -> new TrieNode(labels, children, remainingWords.get(0));
+			default -> new TrieNode(labels, children, WordTable.of(remainingWords));
+		};
+	}
+
+	/**
+	 * Returns a copy of this node with the given word, which must be the one word ending here, marked as deleted.
+	 */
+	TrieNode withTombstoneFor(String word) {
+		return new TrieNode(labels, children, new Tombstone(word));
+	}
+
+	/**
+	 * Returns whether the given word is marked as deleted here.
+	 */
+	boolean hasTombstoneFor(String word) {
+		return wordsEndingHere instanceof Tombstone tombstone && tombstone.word.equals(word);
+	}
+
+	boolean hasWordEndingHere(CharSequence word) {
+		if (wordsEndingHere instanceof String existingWord) {
+			return existingWord.contentEquals(word);
+		}
+		return wordsEndingHere instanceof WordTable table && table.contains(word.toString());
+	}
+
+	boolean hasWordsEndingHere() {
+		return wordsEndingHere != null;
+	}
+
+	void addWordsEndingHereTo(Collection<String> words) {
+		if (wordsEndingHere instanceof String word) {
+			words.add(word);
+		} else if (wordsEndingHere instanceof WordTable table) {
+			table.addAllTo(words);
+		}
+	}
+
+	/**
+	 * Returns true if no words end here and there are no children, ie the node can be removed from its parent.
+	 */
+	boolean isEmpty() {
+		return wordsEndingHere == null && labels.length == 0;
+	}
+
+	/**
+	 * Marks a word that was deleted, but not yet removed from the Trie's wildcard nodes
+	 */
+	private record Tombstone(String word) {}
+
+	/**
+	 * Stores multiple words in an open-addressing hash table (linear probing), which avoids the entry object per word
+	 * that a HashSet would need. The table is kept at most half full. Like the nodes, tables are never modified once
+	 * they're visible to readers: adding or removing a word works on a copy.
+	 */
+	private static class WordTable {
+		private final String[] slots;
+		private int size;
+
+		private WordTable(int capacity) {
+			slots = new String[capacity];
+		}
+
+		static WordTable of(String firstWord, String secondWord) {
+			var table = new WordTable(4);
+			table.add(firstWord);
+			table.add(secondWord);
+			return table;
+		}
+
+		static WordTable of(List<String> words) {
+			var table = new WordTable(Integer.highestOneBit(Math.max(words.size(), 2) * 2 - 1) * 2);
+			words.forEach(table::add);
+			return table;
+		}
+
+		WordTable with(String word) {
+			var capacity = (size + 1) * 2 > slots.length ? slots.length * 2 : slots.length;
+			var table = new WordTable(capacity);
+			for (var existingWord : slots) {
+				if (existingWord != null) {
+					table.add(existingWord);
+				}
+			}
+			table.add(word);
+			return table;
+		}
+
+		WordTable without(String word) {
+			var table = new WordTable(slots.length);
+			for (var existingWord : slots) {
+				if (existingWord != null && !existingWord.equals(word)) {
+					table.add(existingWord);
+				}
+			}
+			return table;
+		}
+
+		boolean contains(String word) {
+			var i = indexFor(word);
+			while (slots[i] != null) {
+				if (slots[i].equals(word)) {
+					return true;
+				}
+				i = (i + 1) & (slots.length - 1);
+			}
+			return false;
+		}
+
+		String any() {
+			for (var word : slots) {
+				if (word != null) {
+					return word;
+				}
+			}
+			return null;
+		}
+
+		void addAllTo(Collection<String> words) {
+			for (var word : slots) {
+				if (word != null) {
+					words.add(word);
+				}
+			}
+		}
+
+		/**
+		 * Only used while building a new table, before it is handed out.
+		 */
+		private void add(String word) {
+			var i = indexFor(word);
+			while (slots[i] != null) {
+				if (slots[i].equals(word)) {
+					return;
+				}
+				i = (i + 1) & (slots.length - 1);
+			}
+			slots[i] = word;
+			size++;
+		}
+
+		private int indexFor(String word) {
+			var h = word.hashCode();
+			return (h ^ (h >>> 16)) & (slots.length - 1);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.forbes.takehometest.util;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Reads a request body published as data buffers (eg by WebFlux) as a blocking {@link InputStream}, so it can be
+ * passed to code that pulls its input, like {@link com.forbes.takehometest.interfaces.IStoryService#streamCorrections}.
+ *
+ * Only {@link #PREFETCH} buffers are requested ahead of the reader, and one more each time a buffer has been read, so
+ * the body is read from the network no faster than it's consumed, and it's never held in memory as a whole. The
+ * stream must be read on a thread that's allowed to block, since a read waits for the next buffer to arrive.
+ */
+public class DataBufferInputStream extends InputStream {
+	private static final int PREFETCH = 4;
+	private static final DataBuffer END = DefaultDataBufferFactory.sharedInstance.allocateBuffer(0);
+
+	private final BlockingQueue<DataBuffer> buffers = new LinkedBlockingQueue<>();
+	private final BodySubscriber subscriber = new BodySubscriber();
+	private volatile Throwable failure;
+	private DataBuffer current;
+	private boolean isClosed;
+
+	public DataBufferInputStream(Publisher<DataBuffer> body) {
+		body.subscribe(subscriber);
+	}
+
+	@Override
+	public int read() throws IOException {
+		var buffer = currentBuffer();
+		return buffer == null ? -1 : buffer.read() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		var buffer = currentBuffer();
+		if (buffer == null) {
+			return -1;
+		}
+		var count = Math.min(length, buffer.readableByteCount());
+		buffer.read(bytes, offset, count);
+		return count;
+	}
+
+	/**
+	 * Returns the buffer to read from, after waiting for the next one if the current one was read entirely. Returns
+	 * null at the end of the body.
+	 */
+	private DataBuffer currentBuffer() throws IOException {
+		if (isClosed) {
+			throw new IOException("Stream closed");
+		}
+		while (current != END && (current == null || current.readableByteCount() == 0)) {
+			if (current != null) {
+				DataBufferUtils.release(current);
+				subscriber.request(1);
+			}
+			try {
+				current = buffers.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the request body");
+			}
+		}
+		if (current == END) {
+			if (failure != null) {
+				throw new IOException("Could not read the request body", failure);
+			}
+			return null;
+		}
+		return current;
+	}
+
+	/**
+	 * Stops reading the body, and releases the buffers that were received but not read.
+	 */
+	@Override
+	public void close() {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		subscriber.cancel();
+		if (current != null && current != END) {
+			DataBufferUtils.release(current);
+		}
+		DataBuffer buffer;
+		while ((buffer = buffers.poll()) != null) {
+			if (buffer != END) {
+				DataBufferUtils.release(buffer);
+			}
+		}
+	}
+
+	private class BodySubscriber extends BaseSubscriber<DataBuffer> {
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			subscription.request(PREFETCH);
+		}
+
+		@Override
+		protected void hookOnNext(DataBuffer buffer) {
+			buffers.add(buffer);
+		}
+
+		@Override
+		protected void hookOnComplete() {
+			buffers.add(END);
+		}
+
+		@Override
+		protected void hookOnError(Throwable throwable) {
+			failure = throwable;
+			buffers.add(END);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package com.forbes.takehometest.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Collects the distinct lower-cased words found in a text, and numbers them in the order they were first found.
+ *
+ * Words are added as ranges of the text, and are hashed and compared against the words already collected without
+ * being copied, so a String is only created the first time a word is found. Lower-casing gives the same result as
+ * {@link String#toLowerCase()}: it's done on the fly for ASCII words, and falls back to String#toLowerCase for any
+ * other word (or for ASCII words with an 'I' in a Turkish/Azerbaijani default locale, where 'I' has a different lower
+ * case).
+ *
+ * The words can also be checked against a set of known words (eg the dictionary) the first time they're found. An
+ * ASCII word is checked through a lower-casing view of the text, and a known word is numbered like the others but
+ * only kept as its range of the text, so a String is never created for it: {@link #asList()} has null in its place.
+ */
+public class DistinctWords {
+	private final boolean isDotlessILocale;
+	private final Predicate<CharSequence> isKnown;
+	private final LowerCaseView view = new LowerCaseView();
+	/**
+	 * The lower-cased word, or null for a known word
+	 */
+	private String[] words = new String[16];
+	private int[] hashes = new int[16];
+	/**
+	 * The characters the words found next are compared against: the word itself, or for a known word, the range of the
+	 * text it was first found in
+	 */
+	private CharSequence[] texts = new CharSequence[16];
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	/**
+	 * Open-addressing hash table holding the index of each word plus 1 (0 is an empty slot).
+	 */
+	private int[] slots = new int[32];
+	private int size;
+
+	public DistinctWords() {
+		this(word -> false);
+	}
+
+	/**
+	 * @param isKnown checks a lower-cased word, which may be a view that's only valid during the call
+	 */
+	public DistinctWords(Predicate<CharSequence> isKnown) {
+		var language = Locale.getDefault().getLanguage();
+		this.isDotlessILocale = language.equals("tr") || language.equals("az");
+		this.isKnown = isKnown;
+	}
+
+	/**
+	 * Returns the index of the lower-cased characters between start and end of the given text, adding them if they
+	 * haven't been seen yet. The text must not change while these words are collected.
+	 */
+	public int indexOf(CharSequence text, int start, int end) {
+		var hash = 0;
+		var hasUpperCase = false;
+		for (int i = start; i < end; i++) {
+			var c = text.charAt(i);
+			if (c >= 0x80 || (c == 'I' && isDotlessILocale)) {
+				return indexOf(text.subSequence(start, end).toString().toLowerCase());
+			}
+			if (c >= 'A' && c <= 'Z') {
+				hasUpperCase = true;
+				c += 'a' - 'A';
+			}
+			hash = 31 * hash + c;
+		}
+		var mask = slots.length - 1;
+		for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			var index = slots[slot] - 1;
+			if (hashes[index] == hash && equalsLowerCase(texts[index], starts[index], ends[index], text, start, end)) {
+				return index;
+			}
+		}
+		if (isKnown.test(view.moveTo(text, start, end))) {
+			return add(null, hash, text, start, end);
+		}
+		var word = hasUpperCase ? toLowerCase(text, start, end) : text.subSequence(start, end).toString();
+		return add(word, hash, word, 0, word.length());
+	}
+
+	private int indexOf(String word) {
+		var hash = word.hashCode();
+		var mask = slots.length - 1;
+		for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			var index = slots[slot] - 1;
+			if (hashes[index] == hash && equalsLowerCase(texts[index], starts[index], ends[index], word, 0,
+					word.length())) {
+				return index;
+			}
+		}
+		return add(isKnown.test(word) ? null : word, hash, word, 0, word.length());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the words in the order they were found, with null in place of the known words.
+	 */
+	public List<String> asList() {
+		return Arrays.asList(words).subList(0, size);
+	}
+
+	private int add(String word, int hash, CharSequence text, int start, int end) {
+		if (size == words.length) {
+			words = Arrays.copyOf(words, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+			texts = Arrays.copyOf(texts, size * 2);
+			starts = Arrays.copyOf(starts, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+		}
+		words[size] = word;
+		hashes[size] = hash;
+		texts[size] = text;
+		starts[size] = start;
+		ends[size] = end;
+		size++;
+		if (size * 2 > slots.length) {
+			rehash();
+		} else {
+			insert(size - 1);
+		}
+		return size - 1;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		for (int i = 0; i < size; i++) {
+			insert(i);
+		}
+	}
+
+	private void insert(int index) {
+		var mask = slots.length - 1;
+		var slot = mix(hashes[index]) & mask;
+		while (slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = index + 1;
+	}
+
+	/**
+	 * Spreads the hash's high bits into the low bits used to pick a slot.
+	 */
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Compares two ranges with their ASCII letters lower-cased. (A known word's range may not be lower-cased yet, the
+	 * other words are)
+	 */
+	private static boolean equalsLowerCase(CharSequence word, int wordStart, int wordEnd, CharSequence text, int start,
+			int end) {
+		if (wordEnd - wordStart != end - start) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (toLowerCase(word.charAt(wordStart + i - start)) != toLowerCase(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char toLowerCase(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c;
+	}
+
+	private static String toLowerCase(CharSequence text, int start, int end) {
+		var chars = new char[end - start];
+		for (int i = start; i < end; i++) {
+			chars[i - start] = toLowerCase(text.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * A view of an ASCII word within a text, with its letters lower-cased as they're read.
+	 */
+	private static class LowerCaseView implements CharSequence {
+		private CharSequence text;
+		private int start;
+		private int end;
+
+		LowerCaseView moveTo(CharSequence text, int start, int end) {
+			this.text = text;
+			this.start = start;
+			this.end = end;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return toLowerCase(text.charAt(start + index));
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return DistinctWords.toLowerCase(text, this.start + start, this.start + end);
+		}
+
+		@Override
+		public String toString() {
+			return DistinctWords.toLowerCase(text, start, end);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.forbes.takehometest.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers for replacing files in a way that survives a crash.
+ */
+public class FileSyncUtils {
+	private static final boolean IS_WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+	private FileSyncUtils() {}
+
+	/**
+	 * Atomically moves the given (already forced to disk) file over the target, and then forces the target's directory
+	 * to disk. Until the directory is forced, the rename itself can be lost on a crash, leaving the previous file in
+	 * place, so callers must not rely on the new file before this returns.
+	 */
+	public static void moveAtomically(Path source, Path target) throws IOException {
+		Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(target.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * Forces the given directory's entries to disk. (Windows can't open a directory as a file, and its renames don't
+	 * need this, so it's skipped there)
+	 */
+	public static void forceDirectory(Path directory) throws IOException {
+		if (IS_WINDOWS) {
+			return;
+		}
+		try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package com.forbes.takehometest.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the "story" field of a JSON request body (eg `{"story": "..."}`) as a stream of characters, decoding escapes as
+ * it goes. Unlike deserializing into a {@link com.forbes.takehometest.model.story.StoryContainerModel}, the story is
+ * never held in memory as a whole String.
+ *
+ * Any fields before the story are skipped, and anything after it is not read. If the story turns out to be cut short
+ * or malformed, the characters before the error are still returned, and the next read throws an
+ * {@link InvalidStoryException}.
+ */
+public class JsonStoryReader extends Reader {
+	private final Reader json;
+	private int peeked = -1;
+	private boolean isStoryFinished;
+	private InvalidStoryException error;
+
+	private JsonStoryReader(Reader json) {
+		this.json = json;
+	}
+
+	/**
+	 * Reads the given JSON object up to the start of its "story" string, and returns a reader for the story's
+	 * characters.
+	 *
+	 * @throws InvalidStoryException if the JSON is malformed or doesn't have a story string
+	 */
+	public static JsonStoryReader open(Reader json) throws IOException {
+		var reader = new JsonStoryReader(new BufferedReader(json));
+		reader.skipToStory();
+		return reader;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (error != null) {
+			throw error;
+		}
+		if (isStoryFinished) {
+			return -1;
+		}
+		var count = 0;
+		try {
+			while (count < len) {
+				var c = next();
+				if (c == '"') {
+					isStoryFinished = true;
+					break;
+				}
+				// decoded before the count is bumped, so an invalid escape isn't counted
+				var decoded = c == '\\' ? readEscapedChar() : (char) c;
+				cbuf[off + count++] = decoded;
+			}
+		} catch (InvalidStoryException e) {
+			if (count == 0) {
+				throw e;
+			}
+			error = e;
+		}
+		return count == 0 && isStoryFinished ? -1 : count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		json.close();
+	}
+
+	private void skipToStory() throws IOException {
+		expect('{');
+		while (true) {
+			var c = nextNonWhitespace();
+			if (c == '}') {
+				throw new InvalidStoryException("Request body has no story");
+			}
+			if (c != '"') {
+				throw new InvalidStoryException("Expected a field name but found '" + (char) c + "'");
+			}
+			var fieldName = readString();
+			expect(':');
+			if (fieldName.equals("story")) {
+				expect('"');
+				return;
+			}
+			skipValue();
+			c = nextNonWhitespace();
+			if (c != ',' && c != '}') {
+				throw new InvalidStoryException("Expected ',' or '}' but found '" + (char) c + "'");
+			}
+			if (c == '}') {
+				throw new InvalidStoryException("Request body has no story");
+			}
+		}
+	}
+
+	/**
+	 * Reads the rest of a string whose opening quote was already read.
+	 */
+	private String readString() throws IOException {
+		var sb = new StringBuilder();
+		for (var c = next(); c != '"'; c = next()) {
+			sb.append(c == '\\' ? readEscapedChar() : (char) c);
+		}
+		return sb.toString();
+	}
+
+	private char readEscapedChar() throws IOException {
+		var c = next();
+		return switch (c) {
+			case '"', '\\', '/' -> (char) c;
+			case 'b' -> '\b';
+			case 'f' -> '\f';
+			case 'n' -> '\n';
+			case 'r' -> '\r';
+			case 't' -> '\t';
+			case 'u' -> {
+				var code = 0;
+				for (int i = 0; i < 4; i++) {
+					var digit = Character.digit(next(), 16);
+					if (digit < 0) {
+						throw new InvalidStoryException("Invalid unicode escape");
+					}
+					code = code * 16 + digit;
+				}
+				yield (char) code;
+			}
+			default -> throw new InvalidStoryException("Invalid escape '\\" + (char) c + "'");
+		};
+	}
+
+	/**
+	 * Skips over a value of any type (including nested objects/arrays).
+	 */
+	private void skipValue() throws IOException {
+		var c = nextNonWhitespace();
+		if (c == '"') {
+			readString();
+			return;
+		}
+		if (c != '{' && c != '[') {
+			// a number or literal (true/false/null) runs up to the next delimiter
+			while (true) {
+				var next = peek();
+				if (next == -1 || next == ',' || next == '}' || next == ']' || Character.isWhitespace(next)) {
+					return;
+				}
+				next();
+			}
+		}
+		var depth = 1;
+		while (depth > 0) {
+			c = next();
+			if (c == '"') {
+				readString();
+			} else if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				depth--;
+			}
+		}
+	}
+
+	private void expect(char expected) throws IOException {
+		var c = nextNonWhitespace();
+		if (c != expected) {
+			throw new InvalidStoryException("Expected '" + expected + "' but found '" + (char) c + "'");
+		}
+	}
+
+	private int nextNonWhitespace() throws IOException {
+		var c = next();
+		while (Character.isWhitespace(c)) {
+			c = next();
+		}
+		return c;
+	}
+
+	private int next() throws IOException {
+		var c = peek();
+		if (c == -1) {
+			throw new InvalidStoryException("Unexpected end of request body");
+		}
+		peeked = -1;
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -1) {
+			peeked = json.read();
+		}
+		return peeked;
+	}
+
+	/**
+	 * Thrown when the request body is not a JSON object with a story string.
+	 */
+	public static class InvalidStoryException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public InvalidStoryException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package com.forbes.takehometest.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a story into words while it is being read, so that the whole story never needs to be held in memory.
+ *
+ * The words are the same as the ones returned by {@link com.forbes.takehometest.model.story.StoryContainerModel}'s
+ * `story.trim().split("\\s+")`: words are separated by runs of spaces, tabs, line breaks and form feeds, and any
+ * control characters at the very start/end of the story are trimmed. (To handle the end of the story, the last word is
+ * held back until a following word shows it wasn't the last, along with any words made only of control characters)
+ *
+ * The one difference is that a word longer than maxWordLength characters is skipped instead of being read into memory.
+ */
+@Slf4j
+public class StoryTokenizer {
+	private static final int BUFFER_SIZE = 8192;
+	/**
+	 * Returned by readWord in place of a word that is too long (compared by identity)
+	 */
+	private static final String SKIPPED_WORD = new String("");
+
+	private final Reader story;
+	private final int maxWordLength;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int bufferPosition;
+	private int bufferLength;
+	private boolean isStarted;
+	private boolean isFinished;
+
+	private final StringBuilder currentWord = new StringBuilder();
+	private final ArrayDeque<String> readyWords = new ArrayDeque<>();
+	private String heldWord;
+	private final List<String> heldControlWords = new ArrayList<>();
+
+	public StoryTokenizer(Reader story, int maxWordLength) {
+		this.story = story;
+		this.maxWordLength = maxWordLength;
+	}
+
+	/**
+	 * Returns the next word in the story, or null once the end of the story is reached.
+	 */
+	public String nextWord() throws IOException {
+		while (readyWords.isEmpty() && !isFinished) {
+			var word = readWord();
+			if (word == null) {
+				isFinished = true;
+				if (heldWord != null) {
+					addReadyWord(trimEnd(heldWord));
+				}
+			} else if (word == SKIPPED_WORD || hasNonControlCharacter(word)) {
+				// the words held so far weren't the last ones (even if this one is skipped)
+				if (heldWord != null) {
+					addReadyWord(heldWord);
+				}
+				heldControlWords.forEach(this::addReadyWord);
+				heldControlWords.clear();
+				heldWord = word == SKIPPED_WORD ? null : word;
+			} else {
+				heldControlWords.add(word);
+			}
+		}
+		return readyWords.poll();
+	}
+
+	/**
+	 * Adds the word to the ones to return, unless it's too long. (A word that readWord only let past maxWordLength
+	 * because of its trailing control characters is too long, unless it was the last word and they were trimmed)
+	 */
+	private void addReadyWord(String word) {
+		if (word.length() <= maxWordLength) {
+			readyWords.add(word);
+		} else {
+			log.warn("Word starting with '{}' is longer than {} characters. Skipping...",
+					word.substring(0, Math.min(20, word.length())), maxWordLength);
+		}
+	}
+
+	/**
+	 * Splits a story that is already in memory into words, following the same rules as {@link #nextWord()}. Rather than
+	 * creating a String for each word, this returns the start and end of each word in the story (the start and end of
+	 * the first word, then of the second word, etc.).
+	 *
+	 * Like `story.trim().split("\\s+")`, a story that is empty after trimming is made of one empty word.
+	 */
+	public static int[] wordBounds(CharSequence story) {
+		var start = 0;
+		var end = story.length();
+		while (start < end && story.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && story.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return new int[]{start, end};
+		}
+		var bounds = new WordBounds(16);
+		bounds.addWords(story, start, end);
+		return bounds.toArray();
+	}
+
+	/**
+	 * Splits a new revision of a story into words, given the words of its previous revision. Only the part of the story
+	 * that changed is split again: the words before the first changed character and after the last one keep their
+	 * bounds (shifted by the change in length for the words after it). The words are the same as
+	 * {@link #wordBounds(CharSequence)}'s.
+	 *
+	 * A word is only kept if it's followed (or preceded, for the words after the change) by whitespace that didn't
+	 * change either, and if it starts and ends with a character that can't be trimmed, so that the words around it
+	 * can't have been split differently.
+	 */
+	public static RevisedWordBounds reviseWordBounds(CharSequence story, CharSequence previousStory,
+			int[] previousBounds) {
+		var minLength = Math.min(story.length(), previousStory.length());
+		var prefixLength = 0;
+		while (prefixLength < minLength && story.charAt(prefixLength) == previousStory.charAt(prefixLength)) {
+			prefixLength++;
+		}
+		var suffixLength = 0;
+		while (suffixLength < minLength - prefixLength && story.charAt(story.length() - 1 - suffixLength)
+				== previousStory.charAt(previousStory.length() - 1 - suffixLength)) {
+			suffixLength++;
+		}
+		var numPreviousWords = previousBounds.length / 2;
+		var numLeading = 0;
+		while (numLeading < numPreviousWords) {
+			var after = previousBounds[2 * numLeading + 1];
+			if (!isKeptWord(previousStory, previousBounds, numLeading) || after >= prefixLength
+					|| !isWhitespace(previousStory.charAt(after))) {
+				break;
+			}
+			numLeading++;
+		}
+		var suffixStart = previousStory.length() - suffixLength;
+		var numTrailing = 0;
+		while (numTrailing < numPreviousWords - numLeading) {
+			var word = numPreviousWords - 1 - numTrailing;
+			var before = previousBounds[2 * word] - 1;
+			if (!isKeptWord(previousStory, previousBounds, word) || before < suffixStart
+					|| !isWhitespace(previousStory.charAt(before))) {
+				break;
+			}
+			numTrailing++;
+		}
+		if (numLeading == 0 && numTrailing == 0) {
+			return new RevisedWordBounds(wordBounds(story), 0, 0);
+		}
+
+		var shift = story.length() - previousStory.length();
+		var changedStart = numLeading == 0 ? 0 : previousBounds[2 * numLeading - 1] + 1;
+		var changedEnd = numTrailing == 0 ? story.length()
+				: previousBounds[2 * (numPreviousWords - numTrailing)] - 1 + shift;
+		var bounds = new WordBounds(previousBounds.length + 16);
+		bounds.addBounds(previousBounds, 0, 2 * numLeading, 0);
+		if (numLeading == 0) {
+			while (changedStart < changedEnd && story.charAt(changedStart) <= ' ') {
+				changedStart++;
+			}
+		}
+		if (numTrailing == 0) {
+			while (changedEnd > changedStart && story.charAt(changedEnd - 1) <= ' ') {
+				changedEnd--;
+			}
+		}
+		while (changedStart < changedEnd && isWhitespace(story.charAt(changedStart))) {
+			changedStart++;
+		}
+		bounds.addWords(story, changedStart, changedEnd);
+		bounds.addBounds(previousBounds, previousBounds.length - 2 * numTrailing, previousBounds.length, shift);
+		return new RevisedWordBounds(bounds.toArray(), numLeading, numTrailing);
+	}
+
+	/**
+	 * Returns whether the given word starts and ends with a character that isn't trimmed at the start/end of a story.
+	 */
+	private static boolean isKeptWord(CharSequence story, int[] bounds, int word) {
+		var start = bounds[2 * word];
+		var end = bounds[2 * word + 1];
+		return start < end && story.charAt(start) > ' ' && story.charAt(end - 1) > ' ';
+	}
+
+	/**
+	 * Holds the words of a revised story (see {@link #wordBounds(CharSequence)}), and how many of its first and last
+	 * words were kept from the previous revision. The words in between are the ones that were split again.
+	 */
+	public record RevisedWordBounds(int[] bounds, int numLeadingWords, int numTrailingWords) {
+	}
+
+	/**
+	 * Collects the start and end of each word in a story.
+	 */
+	private static class WordBounds {
+		private int[] bounds;
+		private int numBounds;
+
+		WordBounds(int capacity) {
+			this.bounds = new int[capacity];
+		}
+
+		/**
+		 * Adds the words between start and end of the story. The character at start must not be whitespace.
+		 */
+		void addWords(CharSequence story, int start, int end) {
+			var i = start;
+			while (i < end) {
+				var wordStart = i;
+				while (i < end && !isWhitespace(story.charAt(i))) {
+					i++;
+				}
+				ensureCapacity(numBounds + 2);
+				bounds[numBounds++] = wordStart;
+				bounds[numBounds++] = i;
+				while (i < end && isWhitespace(story.charAt(i))) {
+					i++;
+				}
+			}
+		}
+
+		/**
+		 * Adds the bounds between from and to of the given ones, shifted by the given number of characters.
+		 */
+		void addBounds(int[] otherBounds, int from, int to, int shift) {
+			ensureCapacity(numBounds + to - from);
+			for (int i = from; i < to; i++) {
+				bounds[numBounds++] = otherBounds[i] + shift;
+			}
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(bounds, numBounds);
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > bounds.length) {
+				bounds = Arrays.copyOf(bounds, Math.max(capacity, bounds.length * 2));
+			}
+		}
+	}
+
+	/**
+	 * Reads the characters up to the next run of whitespace, or returns null at the end of the story. A word longer
+	 * than maxWordLength returns {@link #SKIPPED_WORD}, unless it only goes past maxWordLength with control characters:
+	 * it's then returned with the first of them (see {@link #addReadyWord(String)}).
+	 */
+	private String readWord() throws IOException {
+		if (!isStarted) {
+			isStarted = true;
+			// like String.trim(), skip all control characters and spaces at the start of the story
+			while (peek() != -1 && peek() <= ' ') {
+				bufferPosition++;
+			}
+		}
+		if (peek() == -1) {
+			return null;
+		}
+		currentWord.setLength(0);
+		var isTooLong = false;
+		while (peek() != -1 && !isWhitespace((char) peek())) {
+			var c = buffer[bufferPosition];
+			if (currentWord.length() < maxWordLength) {
+				currentWord.append(c);
+			} else if (c > ' ') {
+				isTooLong = true;
+			} else if (currentWord.length() == maxWordLength) {
+				// the word may only be too long because of control characters that are trimmed if it's the last
+				// word, so one of them is kept to let nextWord decide
+				currentWord.append(c);
+			}
+			bufferPosition++;
+		}
+		while (peek() != -1 && isWhitespace((char) peek())) {
+			bufferPosition++;
+		}
+		if (isTooLong) {
+			log.warn("Word starting with '{}' is longer than {} characters. Skipping...",
+					currentWord.substring(0, Math.min(20, currentWord.length())), maxWordLength);
+			return SKIPPED_WORD;
+		}
+		return currentWord.toString();
+	}
+
+	private int peek() throws IOException {
+		if (bufferPosition == bufferLength) {
+			bufferLength = story.read(buffer, 0, BUFFER_SIZE);
+			bufferPosition = 0;
+			if (bufferLength <= 0) {
+				bufferLength = 0;
+				return -1;
+			}
+		}
+		return buffer[bufferPosition];
+	}
+
+	/**
+	 * Matches the characters in the "\\s" regex class.
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static boolean hasNonControlCharacter(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			if (word.charAt(i) > ' ') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String trimEnd(String word) {
+		var end = word.length();
+		while (end > 0 && word.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return word.substring(0, end);
+	}
+}
@@ -0,0 +1,85 @@
+package com.forbes.takehometest.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads word files (one word per line, UTF-8) such as `dictionary.txt`.
+ */
+public class WordFileReader {
+	private static final long MAX_MAPPED_REGION_SIZE = Integer.MAX_VALUE;
+
+	private WordFileReader() {}
+
+	/**
+	 * Reads the lines of the given file by memory-mapping it, so the file's bytes are read straight from the OS page
+	 * cache instead of being copied through a stream's buffers. Files larger than 2GB are mapped one region at a time.
+	 */
+	public static List<String> readLines(Path file) throws IOException {
+		var lines = new ArrayList<String>();
+		var line = new byte[64];
+		var lineLength = 0;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var size = channel.size();
+			for (long position = 0; position < size; position += MAX_MAPPED_REGION_SIZE) {
+				var region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(MAX_MAPPED_REGION_SIZE, size - position));
+				for (int i = 0; i < region.limit(); i++) {
+					var b = region.get(i);
+					if (b == '\n') {
+						lines.add(decodeLine(line, lineLength, lines.isEmpty()));
+						lineLength = 0;
+						continue;
+					}
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, lineLength * 2);
+					}
+					line[lineLength++] = b;
+				}
+			}
+		}
+		if (lineLength > 0) {
+			lines.add(decodeLine(line, lineLength, lines.isEmpty()));
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads the lines of a word file that isn't on the file system (eg packaged inside the application's jar), which
+	 * can't be memory-mapped.
+	 */
+	public static List<String> readLines(InputStream in) throws IOException {
+		try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			var lines = reader.lines().toList();
+			if (!lines.isEmpty() && lines.get(0).startsWith("\uFEFF")) {
+				var withoutByteOrderMark = new ArrayList<>(lines);
+				withoutByteOrderMark.set(0, lines.get(0).substring(1));
+				return withoutByteOrderMark;
+			}
+			return lines;
+		}
+	}
+
+	/**
+	 * Decodes a line without its line terminator, skipping the UTF-8 byte order mark at the start of the file if any.
+	 */
+	private static String decodeLine(byte[] line, int length, boolean isFirstLine) {
+		var start = 0;
+		if (isFirstLine && length >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF) {
+			start = 3;
+		}
+		if (length > start && line[length - 1] == '\r') {
+			length--;
+		}
+		return new String(line, start, length - start, StandardCharsets.UTF_8);
+	}
+}
@@ -1,33 +1,109 @@
 package com.forbes.takehometest.util;
 
+/**
+ * The checks below used to be regexes (noted on each method). They're now written out by hand, since they run on every
+ * word of every story and compiling/running a regex for each word was a large part of the cost of correcting a story.
+ * They return exactly the same results as the regexes, including on unusual input like line separators.
+ */
 public class WordValidationUtils {
-	private static final String INVALID_CHARACTER_PATTERN = ".*[^A-Za-z'-].*";
-	private static final String WORD_START_SANITIZER = "^\\p{Punct}*";
-	private static final String WORD_END_SANITIZER = "[^A-Za-z0-9']*$";
-
 	private WordValidationUtils() {}
 
 	/**
 	 * Returns true if the given word has only alphabetic characters or ' or -
+	 *
+	 * (Same as `!word.matches(".*[^A-Za-z'-].*")`. Since `.` doesn't match line terminators, that regex only finds an
+	 * invalid character in a word with at most one line terminator, so a word with two or more is considered valid)
 	 */
-	public static boolean isValidDictionaryWord(String word) {
-		return !word.matches(INVALID_CHARACTER_PATTERN);
+	public static boolean isValidDictionaryWord(CharSequence word) {
+		return isValidDictionaryWord(word, 0, word.length());
+	}
+
+	/**
+	 * Same as {@link #isValidDictionaryWord(CharSequence)} for the characters between start and end of the given text.
+	 */
+	public static boolean isValidDictionaryWord(CharSequence text, int start, int end) {
+		var hasInvalidCharacter = false;
+		var numLineTerminators = 0;
+		for (int i = start; i < end; i++) {
+			var c = text.charAt(i);
+			if (!isLetter(c) && c != '\'' && c != '-') {
+				hasInvalidCharacter = true;
+				if (isLineTerminator(c)) {
+					numLineTerminators++;
+				}
+			}
+		}
+		return !hasInvalidCharacter || numLineTerminators >= 2;
 	}
 
 	/**
 	 * Removes leading/trailing spaces.
 	 * Removes all leading punctuation from the word.
 	 * Removes all ending punctuation except for '
+	 *
+	 * (Same as `word.trim().replaceAll("^\\p{Punct}*", "").replaceAll("[^A-Za-z0-9']*$", "")`)
 	 */
 	public static String sanitizeWord(String word) {
-		return word.trim().replaceAll(WORD_START_SANITIZER, "").replaceAll(WORD_END_SANITIZER, "");
+		var start = sanitizedStart(word, 0, word.length());
+		return word.substring(start, sanitizedEnd(word, start, word.length()));
+	}
+
+	/**
+	 * Returns where the sanitized word starts within the characters between start and end of the given text (see
+	 * {@link #sanitizeWord(String)}).
+	 */
+	public static int sanitizedStart(CharSequence text, int start, int end) {
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		while (start < end && isPunctuation(text.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Returns where the sanitized word ends within the characters between sanitizedStart (see
+	 * {@link #sanitizedStart(CharSequence, int, int)}) and end of the given text.
+	 */
+	public static int sanitizedEnd(CharSequence text, int sanitizedStart, int end) {
+		while (end > sanitizedStart && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		while (end > sanitizedStart && !isLetter(text.charAt(end - 1)) && !isDigit(text.charAt(end - 1))
+				&& text.charAt(end - 1) != '\'') {
+			end--;
+		}
+		return end;
 	}
 
 	/**
 	 * Due to the limits of the Trie structure, if a word is too long, it would take too much time to index
 	 * into the Trie. Thus, this method quickly checks if the word is short enough to be indexed.
 	 */
-	public static boolean canWordBeIndexed(String word) {
+	public static boolean canWordBeIndexed(CharSequence word) {
 		return word.length() <= 22;
 	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Matches the characters in the "\\p{Punct}" regex class, ie ASCII punctuation.
+	 */
+	private static boolean isPunctuation(char c) {
+		return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+	}
+
+	/**
+	 * Matches the line terminators that `.` doesn't match in a regex.
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
 }
@@ -0,0 +1,56 @@
+package com.forbes.takehometest.util;
+
+/**
+ * A view of one word within a larger text (eg a story), which can be moved from word to word. This lets each word be
+ * checked without copying it into its own String. A String is only created if {@link #toString()} is called.
+ */
+public class WordView implements CharSequence {
+	private final CharSequence text;
+	private int start;
+	private int end;
+
+	public WordView(CharSequence text) {
+		this.text = text;
+	}
+
+	/**
+	 * Moves the view to the characters between start and end of the text.
+	 */
+	public WordView moveTo(int start, int end) {
+		this.start = start;
+		this.end = end;
+		return this;
+	}
+
+	/**
+	 * Same as {@link String#isBlank()}.
+	 */
+	public boolean isBlank() {
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return text.charAt(start + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return text.subSequence(this.start + start, this.start + end);
+	}
+
+	@Override
+	public String toString() {
+		return text.subSequence(start, end).toString();
+	}
+}
@@ -0,0 +1,89 @@
+package com.forbes.takehometest.controller;
+
+import com.forbes.takehometest.model.dictionary.DictionaryAddModel;
+import com.forbes.takehometest.model.dictionary.DictionaryRemoveModel;
+import com.forbes.takehometest.service.DictionaryRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks which words of a batch add/remove request are reported back. (The reactive controller hands these requests to
+ * this one)
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		StoryStreamTests.BATCH_SIZE_PROPERTY, "spring.main.web-application-type=servlet"})
+public class DictionaryControllerTests {
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private DictionaryRegistry dictionaryRegistry;
+
+	@AfterEach
+	public void removeWords() {
+		dictionaryRegistry.find(null).orElseThrow().removeWords(List.of("gnu", "okapi", "zebra"));
+	}
+
+	@Test
+	public void addReportsWordsAlreadyPresentAndIgnoresInvalidWords() {
+		dictionaryRegistry.find(null).orElseThrow().addWord("okapi");
+
+		webTestClient.post().uri("/dictionary").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"dictionary\": {\"add\": [\"Zebra\", \"zebra\", \"yak1\", \"gnu!\", \"okapi\", \"\"]}}")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(DictionaryAddModel.class)
+				.value(response -> {
+					assertThat(response.getWordsToAdd()).containsExactly("zebra", "okapi");
+					assertThat(response.getError()).isEqualTo("duplicate entry");
+				});
+
+		var dictionary = dictionaryRegistry.find(null).orElseThrow();
+		assertThat(dictionary.hasWord("zebra")).isTrue();
+		assertThat(dictionary.hasWord("gnu")).isTrue();
+		assertThat(dictionary.hasWord("yak1")).isFalse();
+	}
+
+	@Test
+	public void addAcceptsBatchOfNewWords() {
+		webTestClient.post().uri("/dictionary").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"dictionary\": {\"add\": [\"zebra\", \"gnu\"]}}")
+				.exchange()
+				.expectStatus().isAccepted();
+	}
+
+	@Test
+	public void removeReportsMissingWordsAndIgnoresInvalidWords() {
+		dictionaryRegistry.find(null).orElseThrow().addWords(List.of("gnu", "zebra"));
+
+		webTestClient.method(HttpMethod.DELETE).uri("/dictionary").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"dictionary\": {\"remove\": [\"zebra\", \"zebra\", \"Gnu\", \"yak1\", \"okapi\"]}}")
+				.exchange()
+				.expectStatus().isNotFound()
+				.expectBody(DictionaryRemoveModel.class)
+				.value(response -> assertThat(response.getWordsToRemove()).containsExactly("zebra", "Gnu", "okapi"));
+
+		var dictionary = dictionaryRegistry.find(null).orElseThrow();
+		assertThat(dictionary.hasWord("zebra")).isFalse();
+		assertThat(dictionary.hasWord("gnu")).isTrue();
+	}
+
+	@Test
+	public void removeAcceptsBatchOfPresentWords() {
+		dictionaryRegistry.find(null).orElseThrow().addWords(List.of("gnu", "zebra"));
+
+		webTestClient.method(HttpMethod.DELETE).uri("/dictionary").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"dictionary\": {\"remove\": [\"zebra\", \"gnu\"]}}")
+				.exchange()
+				.expectStatus().isAccepted();
+	}
+}
@@ -0,0 +1,7 @@
+package com.forbes.takehometest.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		StoryStreamTests.BATCH_SIZE_PROPERTY, "spring.main.web-application-type=reactive"})
+public class ReactiveStoryControllerTests extends StoryStreamTests {}
@@ -0,0 +1,77 @@
+package com.forbes.takehometest.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the /story/stream responses of a web layer (see the subclasses), with a batch size of 2 words so that
+ * corrections are sent before the whole story is read.
+ */
+abstract class StoryStreamTests {
+	static final String BATCH_SIZE_PROPERTY = "corrector.story.stream.batch-size=2";
+	private static final String TEH_CORRECTION = "{\"word\":\"teh\",\"closeMatch\":\"the\"}";
+	private static final String CATT_CORRECTION = "{\"word\":\"catt\",\"closeMatch\":\"cat\"}";
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@BeforeEach
+	public void addWords() {
+		webTestClient.post().uri("/dictionary").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"dictionary\": {\"add\": [\"the\", \"cat\", \"sat\"]}}")
+				.exchange();
+	}
+
+	@Test
+	public void streamsCorrectionsOfTextStory() {
+		assertThat(streamCorrections(MediaType.TEXT_PLAIN, "teh cat sat catt"))
+				.containsExactly(TEH_CORRECTION, CATT_CORRECTION);
+	}
+
+	@Test
+	public void streamsCorrectionsOfJsonStory() {
+		assertThat(streamCorrections(MediaType.APPLICATION_JSON, "{\"story\": \"teh cat sat catt\"}"))
+				.containsExactly(TEH_CORRECTION, CATT_CORRECTION);
+	}
+
+	@Test
+	public void rejectsJsonBodyThatIsInvalidBeforeTheStory() {
+		webTestClient.post().uri("/story/stream").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"title\": \"x\" \"story\": \"teh cat\"}")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	/**
+	 * The last word before the error is held back until the next one is read (see
+	 * {@link com.forbes.takehometest.util.StoryTokenizer}), so it's never corrected.
+	 */
+	@Test
+	public void endsStreamWithErrorIfJsonStoryIsCutShort() {
+		assertThat(streamCorrections(MediaType.APPLICATION_JSON, "{\"story\": \"teh cat sat catt on xyz"))
+				.containsExactly(TEH_CORRECTION, CATT_CORRECTION, "{\"error\":\"Unexpected end of request body\"}");
+	}
+
+	@Test
+	public void endsStreamWithErrorIfJsonStoryIsMalformed() {
+		assertThat(streamCorrections(MediaType.APPLICATION_JSON, "{\"story\": \"teh cat sat catt on a \\q sat\"}"))
+				.containsExactly(TEH_CORRECTION, CATT_CORRECTION, "{\"error\":\"Invalid escape '\\\\q'\"}");
+	}
+
+	private List<String> streamCorrections(MediaType contentType, String body) {
+		var response = webTestClient.post().uri("/story/stream").contentType(contentType).bodyValue(body)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.expectBody(String.class)
+				.returnResult().getResponseBody();
+		return response == null ? List.of() : response.lines().toList();
+	}
+}
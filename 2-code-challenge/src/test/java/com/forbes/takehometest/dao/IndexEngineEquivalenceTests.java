@@ -0,0 +1,244 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.configuration.CorrectorConfiguration;
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.triedb.CompletionCollector;
+import com.forbes.takehometest.triedb.MatchCollector;
+import com.forbes.takehometest.triedb.SearchBudget;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that every index engine (as picked by `corrector.index.engine`) finds the same words and closest matches as
+ * the original wildcard Trie would, against a brute-force search over the same words.
+ */
+public class IndexEngineEquivalenceTests {
+	private static final String LETTERS = "abcde'-";
+	private static final int SYMSPELL_MAX_EDIT_DISTANCE = 2;
+
+	@ParameterizedTest
+	@ValueSource(strings = {"trie", "dawg", "off-heap-dawg", "plain-trie", "symspell"})
+	public void engineMatchesBruteForceSearch(String engine) {
+		var random = new Random(engine.hashCode());
+		ExecutorService compactionExecutor = Executors.newSingleThreadExecutor();
+		try {
+			for (int round = 0; round < 30; round++) {
+				var index = createIndex(engine, compactionExecutor);
+				var words = new TreeSet<String>();
+				for (int i = random.nextInt(60); i >= 0; i--) {
+					words.add(randomWord(random));
+				}
+				index.loadWords(new ArrayList<>(words));
+				var weights = new HashMap<String, Long>();
+				assertSameResults(engine, index, words, weights, random);
+
+				for (int change = 0; change < 40; change++) {
+					var word = random.nextBoolean() || words.isEmpty() ? randomWord(random)
+							: new ArrayList<>(words).get(random.nextInt(words.size()));
+					switch (random.nextInt(4)) {
+						case 0 -> {
+							index.addWord(word);
+							words.add(word);
+						}
+						case 1 -> assertThat(index.removeWord(word)).isEqualTo(words.remove(word));
+						case 2 -> {
+							var batch = randomBatch(random, words);
+							var outcomes = index.addWords(batch);
+							batch.forEach(batchWord -> assertThat(outcomes.get(batchWord))
+									.isEqualTo(words.add(batchWord)));
+						}
+						default -> {
+							var batch = randomBatch(random, words);
+							var outcomes = index.removeWords(batch);
+							batch.forEach(batchWord -> assertThat(outcomes.get(batchWord))
+									.isEqualTo(words.remove(batchWord)));
+						}
+					}
+				}
+				// weights rank matches with as many errors, and completions
+				words.forEach(word -> weights.put(word, (long) random.nextInt(3)));
+				assertSameResults(engine, index, words, weights, random);
+			}
+		} finally {
+			compactionExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * A search that runs out of budget stops with the matches it found so far. Those are real matches, and a search
+	 * that isn't cut short finds the same matches as an unlimited one.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"trie", "dawg", "off-heap-dawg", "plain-trie", "symspell"})
+	public void truncatedSearchOnlyReturnsRealMatches(String engine) {
+		var random = new Random(engine.hashCode());
+		ExecutorService compactionExecutor = Executors.newSingleThreadExecutor();
+		try {
+			var index = createIndex(engine, compactionExecutor);
+			var words = new TreeSet<String>();
+			while (words.size() < 300) {
+				words.add(randomWord(random));
+			}
+			index.loadWords(new ArrayList<>(words));
+
+			var numTruncated = 0;
+			for (int i = 0; i < 200; i++) {
+				var query = randomWord(random);
+				var maxStates = 1 + random.nextInt(400);
+				var matches = new MatchCollector(5, word -> 0, SearchBudget.of(maxStates, Duration.ZERO));
+				index.findClosestMatchesFor(query, matches);
+
+				assertThat(matches.getExpandedStates()).isLessThanOrEqualTo(maxStates);
+				var expected = bruteForceMatches(engine, query, words, Map.of(), Integer.MAX_VALUE);
+				if (matches.isTruncated()) {
+					numTruncated++;
+					assertThat(expected).containsAll(matches.getMatches());
+				} else {
+					assertThat(matches.getMatches()).isEqualTo(expected.stream().limit(5).toList());
+				}
+			}
+			assertThat(numTruncated).isPositive();
+		} finally {
+			compactionExecutor.shutdown();
+		}
+	}
+
+	private static ITrieDao createIndex(String engine, ExecutorService compactionExecutor) {
+		return new CorrectorConfiguration().trieDao(engine, SYMSPELL_MAX_EDIT_DISTANCE, 7, 0.2, compactionExecutor);
+	}
+
+	private static void assertSameResults(String engine, ITrieDao index, TreeSet<String> words,
+			Map<String, Long> weights, Random random) {
+		for (var word : words) {
+			assertThat(index.hasWord(word)).as(word).isTrue();
+		}
+		for (int i = 0; i < 30; i++) {
+			var query = i % 2 == 0 || words.isEmpty() ? randomWord(random) : misspell(random,
+					new ArrayList<>(words).get(random.nextInt(words.size())));
+			assertThat(index.hasWord(query)).as(query).isEqualTo(words.contains(query));
+			for (var k : new int[] {1, 3, 1000}) {
+				var matches = new MatchCollector(k, word -> weights.getOrDefault(word, 0L));
+				index.findClosestMatchesFor(query, matches);
+				assertThat(matches.getMatches()).as("%s (k=%d) in %s", query, k, words)
+						.isEqualTo(bruteForceMatches(engine, query, words, weights, k));
+				assertThat(matches.isTruncated()).isFalse();
+			}
+			var prefix = query.substring(0, Math.min(2, query.length()));
+			for (var k : new int[] {1, 4}) {
+				var completions = new CompletionCollector(k, word -> weights.getOrDefault(word, 0L), 2);
+				index.findCompletionsFor(prefix, completions);
+				assertThat(completions.getCompletions()).as("%s (k=%d) in %s", prefix, k, weights)
+						.isEqualTo(words.stream()
+								.filter(word -> word.startsWith(prefix))
+								.sorted(Comparator.<String>comparingLong(word -> -weights.getOrDefault(word, 0L))
+										.thenComparing(Comparator.naturalOrder()))
+								.limit(k)
+								.toList());
+			}
+		}
+	}
+
+	/**
+	 * Returns the best k words within the engine's error limit of the query, ranked like {@link MatchCollector} does.
+	 */
+	private static List<String> bruteForceMatches(String engine, String query, TreeSet<String> words,
+			Map<String, Long> weights, int k) {
+		var maxErrors = (query.length() + 1) / 2;
+		if (engine.equals("symspell")) {
+			maxErrors = Math.min(maxErrors, SYMSPELL_MAX_EDIT_DISTANCE);
+		}
+		var errors = new HashMap<String, Integer>();
+		for (var word : words) {
+			var wordErrors = errors(query, word);
+			if (wordErrors <= maxErrors) {
+				errors.put(word, wordErrors);
+			}
+		}
+		return errors.keySet().stream()
+				.sorted(Comparator.<String>comparingInt(errors::get)
+						.thenComparing(word -> -weights.getOrDefault(word, 0L))
+						.thenComparing(Comparator.naturalOrder()))
+				.limit(k)
+				.toList();
+	}
+
+	/**
+	 * Returns the fewest errors that turn the query into the word, with the rules of the Trie's search: a swapped, an
+	 * extra or a forgotten letter each count as one error, and a letter can only be forgotten before the query's last
+	 * letter.
+	 */
+	private static int errors(String query, String word) {
+		var table = new int[query.length() + 1][word.length() + 1];
+		for (int i = 0; i <= query.length(); i++) {
+			for (int j = 0; j <= word.length(); j++) {
+				if (i == 0 && j == 0) {
+					continue;
+				}
+				var best = Integer.MAX_VALUE / 2;
+				if (i > 0 && j > 0) {
+					best = table[i - 1][j - 1] + (query.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1);
+				}
+				if (i > 0) {
+					best = Math.min(best, table[i - 1][j] + 1);
+				}
+				if (j > 0 && i < query.length()) {
+					best = Math.min(best, table[i][j - 1] + 1);
+				}
+				table[i][j] = best;
+			}
+		}
+		return table[query.length()][word.length()];
+	}
+
+	private static String randomWord(Random random) {
+		var word = new StringBuilder();
+		for (int i = random.nextInt(8); i >= 0; i--) {
+			word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+		}
+		return word.toString();
+	}
+
+	private static String misspell(Random random, String word) {
+		var misspelled = new StringBuilder(word);
+		for (int i = random.nextInt(3); i >= 0; i--) {
+			var position = random.nextInt(misspelled.length() + 1);
+			var letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+			switch (random.nextInt(3)) {
+				case 0 -> misspelled.insert(position, letter);
+				case 1 -> {
+					if (position < misspelled.length() && misspelled.length() > 1) {
+						misspelled.deleteCharAt(position);
+					}
+				}
+				default -> {
+					if (position < misspelled.length()) {
+						misspelled.setCharAt(position, letter);
+					}
+				}
+			}
+		}
+		return misspelled.toString();
+	}
+
+	private static List<String> randomBatch(Random random, TreeSet<String> words) {
+		var batch = new TreeSet<String>();
+		for (int i = random.nextInt(8); i >= 0; i--) {
+			batch.add(random.nextBoolean() || words.isEmpty() ? randomWord(random)
+					: new ArrayList<>(words).get(random.nextInt(words.size())));
+		}
+		return new ArrayList<>(batch);
+	}
+}
@@ -0,0 +1,141 @@
+package com.forbes.takehometest.dao;
+
+import com.forbes.takehometest.interfaces.IMutationLogDao.Mutation;
+import com.forbes.takehometest.interfaces.IMutationLogDao.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MutationLogDaoTests {
+	private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void discardsTornRecordAtEndOnOpen() throws IOException {
+		var file = writeLog("ant", "bat", "cat");
+		// the last record ("cat") only made it halfway to disk
+		truncate(file, Files.size(file) - 6);
+
+		assertReopenedLogHolds(file, List.of("ant", "bat"));
+	}
+
+	@Test
+	public void discardsRecordWithBadChecksumAtEndOnOpen() throws IOException {
+		var file = writeLog("ant", "bat", "cat");
+		// one of the letters of "cat" is corrupted
+		try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {'x'}), Files.size(file) - 6);
+		}
+
+		assertReopenedLogHolds(file, List.of("ant", "bat"));
+	}
+
+	@Test
+	public void discardsIncompleteRecordLengthAtEndOnOpen() throws IOException {
+		var file = writeLog("ant", "bat");
+		Files.write(file, new byte[] {0, 0}, StandardOpenOption.APPEND);
+
+		assertReopenedLogHolds(file, List.of("ant", "bat"));
+	}
+
+	@Test
+	public void concurrentSyncsShareOneForce() throws Exception {
+		var numWriters = 16;
+		var file = directory.resolve("dictionary.wal");
+		var executor = Executors.newFixedThreadPool(numWriters);
+		try (var log = new MutationLogDao(file, NO_COMPACTION)) {
+			var forcesBefore = log.getForceCount();
+			// every writer appends before any of them syncs, like requests waiting on each other's sync would
+			var appended = new CyclicBarrier(numWriters);
+			var syncs = new ArrayList<Future<Long>>();
+			for (int i = 0; i < numWriters; i++) {
+				var word = "word" + (char) ('a' + i);
+				syncs.add(executor.submit(() -> {
+					var sequence = log.append(Operation.ADD, word);
+					appended.await();
+					log.sync(sequence);
+					return sequence;
+				}));
+			}
+			for (var sync : syncs) {
+				var sequence = sync.get();
+				assertThat(log.getDurableSequence()).isGreaterThanOrEqualTo(sequence);
+			}
+			assertThat(log.getDurableSequence()).isEqualTo(numWriters);
+			assertThat(log.getForceCount() - forcesBefore).isPositive().isLessThan(numWriters);
+		} finally {
+			executor.shutdown();
+		}
+
+		try (var log = new MutationLogDao(file, NO_COMPACTION)) {
+			assertThat(readMutations(log)).hasSize(numWriters);
+		}
+	}
+
+	/**
+	 * Writes a log with one ADD per word, each synced on its own.
+	 */
+	private Path writeLog(String... words) throws IOException {
+		var file = directory.resolve("dictionary.wal");
+		try (var log = new MutationLogDao(file, NO_COMPACTION)) {
+			for (var word : words) {
+				log.sync(log.append(Operation.ADD, word));
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Checks that the reopened log holds the given words, that the discarded bytes were cut off the file, and that new
+	 * records are appended right after the kept ones.
+	 */
+	private static void assertReopenedLogHolds(Path file, List<String> words) throws IOException {
+		try (var log = new MutationLogDao(file, NO_COMPACTION)) {
+			assertThat(readMutations(log)).extracting(Mutation::word).isEqualTo(words);
+			assertThat(Files.size(file)).isEqualTo(logSize(words));
+			assertThat(log.getLastSequence()).isEqualTo(words.size());
+			log.sync(log.append(Operation.REMOVE, words.get(0)));
+		}
+		try (var log = new MutationLogDao(file, NO_COMPACTION)) {
+			var mutations = readMutations(log);
+			assertThat(mutations).hasSize(words.size() + 1);
+			assertThat(mutations.get(words.size()))
+					.isEqualTo(new Mutation(words.size() + 1, Operation.REMOVE, words.get(0)));
+		}
+	}
+
+	/**
+	 * Returns the size of a log holding one record per word: a 16 byte header, and for each record its length,
+	 * sequence number, operation, word and checksum.
+	 */
+	private static long logSize(List<String> words) {
+		return 16 + words.stream().mapToLong(word -> 4 + 8 + 1 + word.length() + 4).sum();
+	}
+
+	private static List<Mutation> readMutations(MutationLogDao log) throws IOException {
+		var mutations = new ArrayList<Mutation>();
+		log.readMutations(0, mutations::add);
+		return mutations;
+	}
+
+	private static void truncate(Path file, long size) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(size);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.dao.MutationLogDao;
+import com.forbes.takehometest.dao.NoOpMutationLogDao;
+import com.forbes.takehometest.dao.TrieDao;
+import com.forbes.takehometest.dao.WordStorageDao;
+import com.forbes.takehometest.interfaces.IMutationLogDao;
+import com.forbes.takehometest.interfaces.IMutationLogDao.Mutation;
+import com.forbes.takehometest.interfaces.IMutationLogDao.Operation;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks the per-word outcomes of batch adds/removes, and that each batch is written to the mutation log as one group
+ * (all of its mutations appended, then a single sync). Also checks that the named dictionaries, which aren't logged,
+ * can only be written to when the mutation log is off.
+ */
+public class DictionaryServiceTests {
+	@TempDir
+	Path directory;
+
+	private IMutationLogDao mutationLog;
+	private DictionaryService dictionary;
+
+	@BeforeEach
+	public void createDictionary() throws IOException {
+		mutationLog = spy(new MutationLogDao(directory.resolve("dictionary.wal"), Long.MAX_VALUE));
+		dictionary = createDictionary(mutationLog);
+	}
+
+	@AfterEach
+	public void closeMutationLog() throws IOException {
+		mutationLog.close();
+	}
+
+	@Test
+	public void addWordsReportsWhichWordsWereAdded() {
+		dictionary.addWord("bat");
+		var version = dictionary.getVersion();
+
+		var outcomes = dictionary.addWords(List.of("cat", "bat", "ant", "cat"));
+		assertThat(outcomes).containsOnly(entry("ant", true), entry("bat", false), entry("cat", true));
+		assertThat(dictionary.getWords()).containsExactly("ant", "bat", "cat");
+		assertThat(dictionary.getVersion()).isGreaterThan(version);
+	}
+
+	@Test
+	public void removeWordsReportsWhichWordsWereRemoved() {
+		dictionary.addWords(List.of("ant", "bat", "cat"));
+
+		var outcomes = dictionary.removeWords(List.of("cat", "dog", "ant", "cat"));
+		assertThat(outcomes).containsOnly(entry("ant", true), entry("cat", true), entry("dog", false));
+		assertThat(dictionary.getWords()).containsExactly("bat");
+		assertThat(dictionary.hasWord("cat")).isFalse();
+	}
+
+	@Test
+	public void batchWithoutChangesIsNotLogged() throws IOException {
+		dictionary.addWords(List.of("ant", "bat"));
+		var version = dictionary.getVersion();
+		clearInvocations(mutationLog);
+
+		assertThat(dictionary.addWords(List.of("ant", "bat"))).containsOnly(entry("ant", false), entry("bat", false));
+		assertThat(dictionary.removeWords(List.of("cat"))).containsOnly(entry("cat", false));
+		assertThat(dictionary.getVersion()).isEqualTo(version);
+		verify(mutationLog, times(0)).append(any(), anyString());
+		assertThat(mutationLog.getLastSequence()).isEqualTo(2);
+	}
+
+	@Test
+	public void batchIsLoggedAsOneGroup() throws IOException {
+		dictionary.addWord("bat");
+		clearInvocations(mutationLog);
+
+		dictionary.addWords(List.of("cat", "bat", "ant"));
+		var order = inOrder(mutationLog);
+		order.verify(mutationLog).append(Operation.ADD, "ant");
+		order.verify(mutationLog).append(Operation.ADD, "cat");
+		order.verify(mutationLog).sync(3);
+		verify(mutationLog, times(1)).sync(anyLong());
+		clearInvocations(mutationLog);
+
+		dictionary.removeWords(List.of("dog", "bat", "cat"));
+		order = inOrder(mutationLog);
+		order.verify(mutationLog).append(Operation.REMOVE, "bat");
+		order.verify(mutationLog).append(Operation.REMOVE, "cat");
+		order.verify(mutationLog).sync(5);
+		verify(mutationLog, times(1)).sync(anyLong());
+
+		assertThat(mutationLog.getDurableSequence()).isEqualTo(5);
+		var mutations = new ArrayList<Mutation>();
+		mutationLog.readMutations(1, mutations::add);
+		assertThat(mutations).containsExactly(new Mutation(2, Operation.ADD, "ant"),
+				new Mutation(3, Operation.ADD, "cat"), new Mutation(4, Operation.REMOVE, "bat"),
+				new Mutation(5, Operation.REMOVE, "cat"));
+	}
+
+	@Test
+	public void overlaysAreOnlyWritableWithoutMutationLog() {
+		assertThat(dictionary.hasChangeFeed()).isTrue();
+		assertThat(createRegistry(dictionary).areOverlaysWritable()).isFalse();
+
+		var unloggedDictionary = createDictionary(new NoOpMutationLogDao());
+		assertThat(unloggedDictionary.hasChangeFeed()).isFalse();
+		var registry = createRegistry(unloggedDictionary);
+		assertThat(registry.areOverlaysWritable()).isTrue();
+		assertThat(registry.getBaseDictionary()).isSameAs(unloggedDictionary);
+	}
+
+	private static DictionaryService createDictionary(IMutationLogDao mutationLog) {
+		var trieDao = new TrieDao(0.2, Runnable::run);
+		var correctionCache = new CorrectionCache(100);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), trieDao, correctionCache, 0);
+		return new DictionaryService(trieDao, new WordStorageDao(), correctionCache, mutationLog, metrics, 500_000,
+				Duration.ofSeconds(1));
+	}
+
+	private static DictionaryRegistry createRegistry(DictionaryService baseDictionary) {
+		var trieDao = new TrieDao(0.2, Runnable::run);
+		var correctionCache = new CorrectionCache(100);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), trieDao, correctionCache, 0);
+		return new DictionaryRegistry(baseDictionary, trieDao, new WordStorageDao(),
+				() -> new TrieDao(0.2, Runnable::run), correctionCache, metrics, 10, 500_000, Duration.ofSeconds(1));
+	}
+}
@@ -0,0 +1,160 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.configuration.CorrectorConfiguration;
+import com.forbes.takehometest.dao.NoOpMutationLogDao;
+import com.forbes.takehometest.dao.WordStorageDao;
+import com.forbes.takehometest.interfaces.ITrieDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.triedb.SearchBudget;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a dictionary overlay finds the same words, closest matches and completions as a single dictionary
+ * holding the merged words would, on every index engine.
+ */
+public class OverlayDictionaryServiceTests {
+	private static final String LETTERS = "abcde";
+
+	private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor();
+
+	@AfterEach
+	public void shutDownCompactions() {
+		compactionExecutor.shutdown();
+	}
+
+	/**
+	 * The base search fills the collector first, so the overlay's search must still run to find closer matches.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"trie", "dawg", "off-heap-dawg", "plain-trie", "symspell"})
+	public void overlayWordCloserThanBaseMatchIsSuggested(String engine) {
+		var baseIndex = createIndex(engine);
+		var baseStorage = new WordStorageDao();
+		var base = createDictionary(baseIndex, baseStorage);
+		base.loadWords(List.of("bat", "cat"), Map.of());
+		var overlay = createOverlay(engine, base, baseIndex, baseStorage);
+		overlay.addWord("catt");
+
+		assertThat(overlay.getClosestWord("cattt")).contains("catt");
+		assertThat(overlay.getClosestWords("cattt", 2, SearchBudget.unlimited()).words()).containsExactly("catt",
+				"cat");
+		assertThat(base.getClosestWord("cattt")).contains("cat");
+
+		overlay.removeWord("cat");
+		assertThat(overlay.getClosestWords("cbt", 3, SearchBudget.unlimited()).words()).containsExactly("bat",
+				"catt");
+	}
+
+	/**
+	 * The heaviest completions come first, both in the base and in an overlay, where the words it added have no weight
+	 * and the words it removed are skipped.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"trie", "dawg", "off-heap-dawg", "plain-trie", "symspell"})
+	public void completionsAreRankedByWeight(String engine) {
+		var baseIndex = createIndex(engine);
+		var baseStorage = new WordStorageDao();
+		var base = createDictionary(baseIndex, baseStorage);
+		base.loadWords(List.of("ca", "cab", "cat", "cats", "cow", "dog"), Map.of("cats", 5L, "cow", 3L, "cab", 3L));
+
+		assertThat(base.getCompletions("c", 3)).containsExactly("cats", "cab", "cow");
+		assertThat(base.getCompletions("ca", 10)).containsExactly("cats", "cab", "ca", "cat");
+
+		var overlay = createOverlay(engine, base, baseIndex, baseStorage);
+		overlay.addWord("cay");
+		overlay.removeWord("cats");
+		assertThat(overlay.getCompletions("c", 3)).containsExactly("cab", "cow", "ca");
+		assertThat(overlay.getCompletions("ca", 10)).containsExactly("cab", "ca", "cat", "cay");
+	}
+
+	/**
+	 * Applies random changes to the overlay, and compares it with a dictionary freshly loaded with its words. (The base
+	 * words have no weights, like the overlay's own words)
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"trie", "dawg", "off-heap-dawg", "plain-trie", "symspell"})
+	public void overlayMatchesMergedDictionary(String engine) {
+		var random = new Random(engine.hashCode());
+		for (int round = 0; round < 10; round++) {
+			var baseWords = new TreeSet<String>();
+			for (int i = random.nextInt(40); i >= 0; i--) {
+				baseWords.add(randomWord(random));
+			}
+			var baseIndex = createIndex(engine);
+			var baseStorage = new WordStorageDao();
+			var base = createDictionary(baseIndex, baseStorage);
+			base.loadWords(new ArrayList<>(baseWords), Map.of());
+			var overlay = createOverlay(engine, base, baseIndex, baseStorage);
+			var overlayWords = new TreeSet<>(baseWords);
+
+			for (int change = 0; change < 40; change++) {
+				var word = randomWord(random);
+				if (random.nextBoolean()) {
+					assertThat(overlay.addWord(word)).isEqualTo(overlayWords.add(word));
+				} else {
+					assertThat(overlay.removeWord(word)).isEqualTo(overlayWords.remove(word));
+				}
+			}
+			assertThat(overlay.getWords()).isEqualTo(new ArrayList<>(overlayWords));
+			var merged = createDictionary(createIndex(engine), new WordStorageDao());
+			merged.loadWords(new ArrayList<>(overlayWords), Map.of());
+			for (int i = 0; i < 30; i++) {
+				var query = randomWord(random);
+				assertThat(overlay.hasWord(query)).as(query).isEqualTo(overlayWords.contains(query));
+				for (var k : new int[] {1, 3, 1000}) {
+					assertThat(overlay.getClosestWords(query, k, SearchBudget.unlimited()).words())
+							.as("%s (k=%d) in %s", query, k, overlayWords)
+							.isEqualTo(merged.getClosestWords(query, k, SearchBudget.unlimited()).words());
+				}
+				var prefix = query.substring(0, 1);
+				assertThat(overlay.getCompletions(prefix, 4)).as(prefix).isEqualTo(merged.getCompletions(prefix, 4));
+			}
+		}
+	}
+
+	private static DictionaryService createDictionary(ITrieDao trieDao, WordStorageDao wordStorageDao) {
+		var correctionCache = new CorrectionCache(100);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), trieDao, correctionCache, 0);
+		return new DictionaryService(trieDao, wordStorageDao, correctionCache, new NoOpMutationLogDao(), metrics,
+				500_000, Duration.ofSeconds(1));
+	}
+
+	/**
+	 * Builds an overlay on top of the given dictionary, which must use the given index and word storage (like the
+	 * registry's overlays share the base's beans).
+	 */
+	private OverlayDictionaryService createOverlay(String engine, DictionaryService base, ITrieDao baseIndex,
+			WordStorageDao baseStorage) {
+		var correctionCache = new CorrectionCache(100);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), baseIndex, correctionCache, 0);
+		return new OverlayDictionaryService("overlay", base, baseIndex, baseStorage, createIndex(engine),
+				correctionCache, metrics, 500_000, Duration.ofSeconds(1));
+	}
+
+	private ITrieDao createIndex(String engine) {
+		return new CorrectorConfiguration().trieDao(engine, 2, 7, 0.2, compactionExecutor);
+	}
+
+	private static String randomWord(Random random) {
+		var word = new StringBuilder();
+		for (int i = random.nextInt(6); i >= 0; i--) {
+			word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+		}
+		return word.toString();
+	}
+}
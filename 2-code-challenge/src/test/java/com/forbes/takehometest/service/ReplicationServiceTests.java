@@ -0,0 +1,185 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.CorrectorApplication;
+import com.forbes.takehometest.interfaces.IMutationLogDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs a leader (this test's application, with a snapshot file and a mutation log) and starts replicas of it in the
+ * same JVM, which read the leader's changes over HTTP in batches of 2. Each replica persists its own dictionary and
+ * the last change it applied, so restarting it with the same files resumes where it stopped.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.main.web-application-type=servlet"})
+@DirtiesContext
+public class ReplicationServiceTests {
+	private static final List<String> WORDS = List.of("gnu", "okapi", "zebra");
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	@TempDir
+	static Path leaderDirectory;
+
+	@TempDir
+	Path replicaDirectory;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private DictionaryRegistry dictionaryRegistry;
+
+	@Autowired
+	private IMutationLogDao mutationLogDao;
+
+	@SpyBean
+	private SnapshotService snapshotService;
+
+	private ConfigurableApplicationContext replica;
+
+	@DynamicPropertySource
+	static void leaderProperties(DynamicPropertyRegistry registry) {
+		registry.add("corrector.snapshot.file", () -> leaderDirectory.resolve("dictionary.dawg").toString());
+		registry.add("corrector.wal.file", () -> leaderDirectory.resolve("dictionary.wal").toString());
+	}
+
+	@BeforeEach
+	public void clearSnapshotCopies() {
+		clearInvocations(snapshotService);
+	}
+
+	@AfterEach
+	public void stopReplica() {
+		if (replica != null) {
+			replica.close();
+		}
+		dictionaryRegistry.getBaseDictionary().removeWords(WORDS);
+	}
+
+	@Test
+	public void replicaAppliesLeaderChanges() throws IOException {
+		startReplica();
+		postWords(HttpMethod.POST, "add", WORDS);
+		awaitReplica(() -> WORDS.stream().allMatch(replicaDictionary()::hasWord));
+
+		postWords(HttpMethod.DELETE, "remove", List.of("okapi"));
+		awaitReplica(() -> !replicaDictionary().hasWord("okapi"));
+		assertThat(replicaDictionary().hasWord("gnu")).isTrue();
+		awaitReplica(() -> readStateFile() == mutationLogDao.getDurableSequence());
+		verify(snapshotService, times(1)).openSnapshot();
+	}
+
+	@Test
+	public void restartedReplicaResumesFromSavedSequence() throws IOException {
+		startReplica();
+		postWords(HttpMethod.POST, "add", List.of("gnu"));
+		awaitReplica(() -> replicaDictionary().hasWord("gnu"));
+		awaitReplica(() -> readStateFile() == mutationLogDao.getDurableSequence());
+		replica.close();
+		var savedSequence = readStateFile();
+
+		postWords(HttpMethod.POST, "add", List.of("okapi", "zebra"));
+		startReplica();
+		awaitReplica(() -> replicaDictionary().hasWord("okapi") && replicaDictionary().hasWord("zebra"));
+		assertThat(replicaDictionary().hasWord("gnu")).isTrue();
+		awaitReplica(() -> readStateFile() == mutationLogDao.getDurableSequence());
+		assertThat(readStateFile()).isGreaterThan(savedSequence);
+		// only the first start copied the leader's snapshot
+		verify(snapshotService, times(1)).openSnapshot();
+	}
+
+	@Test
+	public void restartedReplicaCopiesSnapshotOnceLeaderCompactedItsChanges() throws IOException {
+		startReplica();
+		postWords(HttpMethod.POST, "add", List.of("gnu"));
+		awaitReplica(() -> replicaDictionary().hasWord("gnu"));
+		awaitReplica(() -> readStateFile() == mutationLogDao.getDurableSequence());
+		replica.close();
+		var savedSequence = readStateFile();
+
+		postWords(HttpMethod.POST, "add", List.of("zebra"));
+		webTestClient.post().uri("/dictionary/snapshot").exchange().expectStatus().isOk();
+		assertThat(mutationLogDao.getCompactedSequence()).isGreaterThan(savedSequence);
+		webTestClient.get().uri("/dictionary/changes?after=" + savedSequence).exchange().expectStatus().isEqualTo(410);
+
+		startReplica();
+		awaitReplica(() -> replicaDictionary().hasWord("zebra"));
+		assertThat(replicaDictionary().hasWord("gnu")).isTrue();
+		// the state file is saved once the snapshot is loaded
+		awaitReplica(() -> readStateFile() == mutationLogDao.getCompactedSequence());
+		verify(snapshotService, times(2)).openSnapshot();
+	}
+
+	private void startReplica() {
+		// passed as command line arguments, since default properties don't override application.properties
+		replica = new SpringApplicationBuilder(CorrectorApplication.class).run(
+				"--server.port=0",
+				"--spring.main.web-application-type=servlet",
+				"--corrector.snapshot.file=" + replicaDirectory.resolve("dictionary.dawg"),
+				"--corrector.wal.file=" + replicaDirectory.resolve("dictionary.wal"),
+				"--corrector.replication.leader-url=http://localhost:" + port,
+				"--corrector.replication.poll-interval=50ms",
+				"--corrector.replication.batch-size=2",
+				"--corrector.replication.state-file=" + replicaDirectory.resolve("replication.state"));
+	}
+
+	private DictionaryService replicaDictionary() {
+		return replica.getBean(DictionaryService.class);
+	}
+
+	private long readStateFile() {
+		var stateFile = replicaDirectory.resolve("replication.state");
+		try {
+			return Files.exists(stateFile) ? Long.parseLong(Files.readString(stateFile).strip()) : -1;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void postWords(HttpMethod method, String operation, List<String> words) {
+		var body = "{\"dictionary\": {\"" + operation + "\": [\"" + String.join("\", \"", words) + "\"]}}";
+		webTestClient.method(method).uri("/dictionary").contentType(MediaType.APPLICATION_JSON).bodyValue(body)
+				.exchange().expectStatus().is2xxSuccessful();
+	}
+
+	private static void awaitReplica(BooleanSupplier condition) {
+		var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("time waited for the replica").isLessThan(deadline);
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.dao.MutationLogDao;
+import com.forbes.takehometest.dao.TrieDao;
+import com.forbes.takehometest.dao.WordStorageDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.triedb.DawgFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Restarts a dictionary from its snapshot and mutation log (the way {@link
+ * com.forbes.takehometest.configuration.DictionaryBootstrap} does), and checks it ends up with the same words.
+ */
+public class SnapshotServiceTests {
+	@TempDir
+	Path directory;
+
+	@Test
+	public void replaysLogOnTopOfSnapshot() throws IOException {
+		try (var log = openLog()) {
+			var dictionary = newDictionary(log);
+			var snapshots = newSnapshotService(dictionary, log);
+			dictionary.addWords(List.of("ant", "bat", "cat"));
+			assertThat(snapshots.writeSnapshot().getWordCount()).isEqualTo(3);
+			assertThat(log.getCompactedSequence()).isEqualTo(3);
+
+			dictionary.removeWord("bat");
+			dictionary.addWord("dog");
+		}
+
+		try (var log = openLog()) {
+			var dictionary = newDictionary(log);
+			assertThat(newSnapshotService(dictionary, log).loadSnapshot()).isEqualTo(OptionalLong.of(3));
+			assertThat(dictionary.getWords()).containsExactly("ant", "bat", "cat");
+			assertThat(dictionary.replayMutationLog(3)).isEqualTo(2);
+			assertThat(dictionary.getWords()).containsExactly("ant", "cat", "dog");
+			assertThat(dictionary.hasWord("bat")).isFalse();
+			assertThat(dictionary.getClosestWord("dgo")).contains("dog");
+		}
+	}
+
+	/**
+	 * A snapshot can include some of the mutations after the log sequence it records (the ones made while the words
+	 * were being copied). Replaying them again gives the same dictionary.
+	 */
+	@Test
+	public void replaysMutationsAlreadyInSnapshot() throws IOException {
+		long snapshotSequence;
+		try (var log = openLog()) {
+			var dictionary = newDictionary(log);
+			dictionary.addWords(List.of("ant", "bat"));
+			snapshotSequence = log.getLastSequence();
+			dictionary.addWord("cat");
+			dictionary.removeWord("ant");
+			// "cat" and the removal of "ant" were made while the snapshot was being copied
+			DawgFile.write(snapshotFile(), List.of("bat", "cat"), Map.of(), snapshotSequence);
+			dictionary.addWord("ant");
+		}
+
+		try (var log = openLog()) {
+			var dictionary = newDictionary(log);
+			assertThat(newSnapshotService(dictionary, log).loadSnapshot()).isEqualTo(OptionalLong.of(snapshotSequence));
+			assertThat(dictionary.replayMutationLog(snapshotSequence)).isEqualTo(3);
+			assertThat(dictionary.getWords()).containsExactly("ant", "bat", "cat");
+		}
+	}
+
+	private MutationLogDao openLog() throws IOException {
+		return new MutationLogDao(directory.resolve("dictionary.wal"), Long.MAX_VALUE);
+	}
+
+	private Path snapshotFile() {
+		return directory.resolve("dictionary.dawg");
+	}
+
+	private SnapshotService newSnapshotService(DictionaryService dictionary, MutationLogDao log) {
+		return new SnapshotService(dictionary, log, snapshotFile().toString(), Duration.ZERO, true);
+	}
+
+	private static DictionaryService newDictionary(MutationLogDao log) {
+		var trieDao = new TrieDao(0.2, Runnable::run);
+		var correctionCache = new CorrectionCache(100);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), trieDao, correctionCache, 0);
+		return new DictionaryService(trieDao, new WordStorageDao(), correctionCache, log, metrics, 500_000,
+				Duration.ofSeconds(1));
+	}
+}
@@ -0,0 +1,134 @@
+package com.forbes.takehometest.service;
+
+import com.forbes.takehometest.cache.CorrectionCache;
+import com.forbes.takehometest.cache.StoryRevisionCache;
+import com.forbes.takehometest.dao.NoOpMutationLogDao;
+import com.forbes.takehometest.dao.TrieDao;
+import com.forbes.takehometest.dao.WordStorageDao;
+import com.forbes.takehometest.metrics.CorrectorMetrics;
+import com.forbes.takehometest.model.story.StoryRevisionCorrectionsModel;
+import com.forbes.takehometest.model.story.WordCorrection;
+import com.forbes.takehometest.util.JsonStoryReader;
+import com.forbes.takehometest.util.RandomText;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.forbes.takehometest.util.RandomText.escape;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Checks that correcting a revision of a story as a change to the previous one gives the same corrections as
+ * correcting it from scratch, and that a streamed story that turns out invalid still gets the corrections for the
+ * part read before the error. Also checks that the story's dictionary words are never copied into Strings.
+ */
+public class StoryServiceTests {
+	private static final List<String> WORDS = List.of("a", "ab", "abc", "bay", "cab", "cat", "cats", "xyz", "zac");
+
+	private ForkJoinPool storyCorrectionPool;
+	private DictionaryService dictionary;
+	private StoryService storyService;
+
+	@BeforeEach
+	public void createStoryService() {
+		var trieDao = new TrieDao(0.2, Runnable::run);
+		var correctionCache = new CorrectionCache(100);
+		var metrics = new CorrectorMetrics(new SimpleMeterRegistry(), trieDao, correctionCache, 0);
+		dictionary = new DictionaryService(trieDao, new WordStorageDao(), correctionCache, new NoOpMutationLogDao(),
+				metrics, 500_000, Duration.ofSeconds(1));
+		dictionary.addWords(WORDS);
+		storyCorrectionPool = new ForkJoinPool(2);
+		storyService = new StoryService(dictionary, storyCorrectionPool,
+				new StoryRevisionCache(1_000_000, Duration.ZERO), metrics, 2000, 2000, 1024, 20_000_000,
+				Duration.ofSeconds(30));
+	}
+
+	@AfterEach
+	public void shutDownPool() {
+		storyCorrectionPool.shutdown();
+	}
+
+	/**
+	 * Edits stories at random (see {@link RandomText#edit(String, int)}), sometimes changing the dictionary in between,
+	 * and applies each revision's change to the previous corrections.
+	 */
+	@Test
+	public void revisionCorrectionsMatchFullCorrections() {
+		var text = new RandomText(24);
+		for (int i = 0; i < 1000; i++) {
+			var story = text.next(40);
+			var revision = storyService.getRevisionCorrections(story, null, dictionary);
+			var corrections = revision.getUnmatchedWords();
+			for (int edit = 0; edit < 5; edit++) {
+				if (text.nextInt(5) == 0) {
+					var word = WORDS.get(text.nextInt(WORDS.size()));
+					if (!dictionary.removeWord(word)) {
+						dictionary.addWord(word);
+					}
+				}
+				var revisedStory = text.edit(story, 4);
+				revision = storyService.getRevisionCorrections(revisedStory, revision.getStoryHash(), dictionary);
+				assertThat(revision.getPreviousStoryHash()).isNotNull();
+				corrections = applyChange(corrections, revision);
+				assertThat(corrections).as("'%s' revised to '%s'", escape(story), escape(revisedStory))
+						.isEqualTo(storyService.getCorrections(revisedStory, dictionary));
+				assertThat(revision.getUnmatchedWordCount()).isEqualTo(corrections.size());
+				story = revisedStory;
+			}
+		}
+	}
+
+	/**
+	 * Each distinct word is checked against the dictionary through a view of the story, and only the word that isn't
+	 * in it is copied into a String (to look up its correction, which checks it again).
+	 */
+	@Test
+	public void dictionaryWordsAreCheckedWithoutStrings() {
+		var checkedWords = new ArrayList<String>();
+		var checkingDictionary = spy(dictionary);
+		doAnswer(invocation -> {
+			CharSequence word = invocation.getArgument(0);
+			checkedWords.add((word instanceof String ? "String " : "view ") + word);
+			return invocation.callRealMethod();
+		}).when(checkingDictionary).hasWord(any());
+
+		assertThat(storyService.getCorrections("Cat cats CAT xyzz cab cat", checkingDictionary))
+				.containsExactly(new WordCorrection("xyzz", "xyz"));
+		assertThat(checkedWords).containsExactly("view cat", "view cats", "view xyzz", "view cab", "String xyzz");
+	}
+
+	/**
+	 * The invalid escape comes before the first batch of 2000 words is full, so the words read so far are only in the
+	 * pending batch. (The tokenizer doesn't return the last couple of words before the error, so they're dictionary
+	 * words here)
+	 */
+	@Test
+	public void invalidStreamedStoryStillCorrectsPendingWords() throws Exception {
+		var batches = new ArrayList<List<WordCorrection>>();
+		var story = JsonStoryReader.open(new StringReader("{\"story\": \"xyzz cat bayy cab zac \\q and more\"}"));
+
+		assertThatThrownBy(() -> storyService.streamCorrections(story, dictionary, batches::add))
+				.isInstanceOf(JsonStoryReader.InvalidStoryException.class);
+		assertThat(batches).containsExactly(List.of(new WordCorrection("xyzz", "xyz"), new WordCorrection("bayy",
+				"bay")));
+	}
+
+	private static List<WordCorrection> applyChange(List<WordCorrection> corrections,
+			StoryRevisionCorrectionsModel revision) {
+		var changed = new ArrayList<>(corrections.subList(0, revision.getFrom()));
+		changed.addAll(revision.getUnmatchedWords());
+		changed.addAll(corrections.subList(revision.getFrom() + revision.getRemovedCount(), corrections.size()));
+		return changed;
+	}
+}
@@ -0,0 +1,109 @@
+package com.forbes.takehometest.triedb;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchBudgetTests {
+	@Test
+	public void budgetSmallerThanChunkAllowsThatManyStates() {
+		for (var maxStates : new int[] {1, 10, SearchBudget.CHUNK_SIZE - 1, SearchBudget.CHUNK_SIZE + 1, 1000}) {
+			assertThat(expandUntilTruncated(SearchBudget.of(maxStates, Duration.ZERO))).isEqualTo(maxStates);
+			var storyBudget = SearchBudget.of(1_000_000, Duration.ZERO);
+			assertThat(expandUntilTruncated(storyBudget.forSearch(maxStates, Duration.ZERO))).isEqualTo(maxStates);
+		}
+	}
+
+	@Test
+	public void searchIsCutShortByWhatIsLeftOfSharedBudget() {
+		var storyBudget = SearchBudget.of(100, Duration.ZERO);
+		assertThat(expandUntilTruncated(storyBudget.forSearch(70, Duration.ZERO))).isEqualTo(70);
+		assertThat(expandUntilTruncated(storyBudget.forSearch(70, Duration.ZERO))).isEqualTo(30);
+		assertThat(expandUntilTruncated(storyBudget.forSearch(70, Duration.ZERO))).isZero();
+	}
+
+	/**
+	 * A search that doesn't use all the states of its last chunk gives them back, so the story's budget runs out after
+	 * the states the searches actually expanded (and not after a chunk per search).
+	 */
+	@Test
+	public void sharedBudgetRunsOutMidStoryAfterTheStatesExpanded() {
+		var storyBudget = SearchBudget.of(100, Duration.ZERO);
+		var searchSizes = new ArrayList<Integer>();
+		var truncatedSearches = 0;
+		for (int i = 0; i < 20; i++) {
+			var matches = new MatchCollector(1, word -> 0, storyBudget.forSearch(50, Duration.ZERO));
+			var expandedStates = expand(matches, 7);
+			matches.searchFinished();
+			searchSizes.add(expandedStates);
+			if (matches.isTruncated()) {
+				truncatedSearches++;
+			}
+		}
+		// 14 searches of 7 states, then one that's cut short after 2, and the rest stop right away
+		assertThat(searchSizes.subList(0, 16)).containsExactly(7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 2, 0);
+		assertThat(truncatedSearches).isEqualTo(6);
+	}
+
+	@Test
+	public void concurrentSearchesNeverExpandMoreThanSharedBudget() throws Exception {
+		var storyBudget = SearchBudget.of(50_000, Duration.ZERO);
+		var executor = Executors.newFixedThreadPool(8);
+		try {
+			var searches = new ArrayList<Callable<Integer>>();
+			for (int thread = 0; thread < 8; thread++) {
+				var random = new Random(thread);
+				searches.add(() -> {
+					var expandedStates = 0;
+					while (true) {
+						var matches = new MatchCollector(1, word -> 0, storyBudget.forSearch(300, Duration.ZERO));
+						expandedStates += expand(matches, random.nextInt(200));
+						matches.searchFinished();
+						if (matches.isTruncated()) {
+							return expandedStates;
+						}
+					}
+				});
+			}
+			var totalExpandedStates = 0;
+			for (var result : executor.invokeAll(searches)) {
+				totalExpandedStates += result.get();
+			}
+			assertThat(totalExpandedStates).isLessThanOrEqualTo(50_000).isGreaterThan(50_000 - 8 * 300);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void budgetRunsOutAfterItsTimeout() throws InterruptedException {
+		var budget = SearchBudget.of(0, Duration.ofMillis(1));
+		Thread.sleep(5);
+		assertThat(expandUntilTruncated(budget)).isZero();
+	}
+
+	private static int expandUntilTruncated(SearchBudget budget) {
+		var matches = new MatchCollector(1, word -> 0, budget);
+		var expandedStates = expand(matches, Integer.MAX_VALUE);
+		assertThat(matches.isTruncated()).isTrue();
+		assertThat(matches.getExpandedStates()).isEqualTo(expandedStates);
+		return expandedStates;
+	}
+
+	/**
+	 * Expands up to the given number of states, like a search would, and returns how many it could expand.
+	 */
+	private static int expand(MatchCollector matches, int numStates) {
+		var expandedStates = 0;
+		while (expandedStates < numStates && matches.stateExpanded()) {
+			expandedStates++;
+		}
+		return expandedStates;
+	}
+}
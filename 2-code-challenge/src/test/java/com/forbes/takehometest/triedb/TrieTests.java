@@ -0,0 +1,307 @@
+package com.forbes.takehometest.triedb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class TrieTests {
+	/**
+	 * Runs the compactions only when the test says so
+	 */
+	private final Queue<Runnable> compactions = new ArrayDeque<>();
+	private final Executor manualExecutor = compactions::add;
+
+	@Test
+	public void deletedWordIsMarkedUntilCompacted() {
+		var trie = new Trie(0.5, manualExecutor);
+		trie.loadWords(List.of("bat", "cat", "hat", "mat"));
+
+		assertThat(trie.deleteWord("cat")).isTrue();
+		assertThat(trie.deleteWord("cat")).isFalse();
+		assertThat(compactions).isEmpty();
+		assertThat(trie.contains("cat")).isFalse();
+		assertThat(completions(trie, "c", 10)).isEmpty();
+		assertThat(closestMatches(trie, "cat")).containsExactly("bat", "hat", "mat");
+
+		// the second word deleted makes up half of the words
+		assertThat(trie.deleteWord("hat")).isTrue();
+		assertThat(compactions).hasSize(1);
+		assertThat(closestMatches(trie, "cat")).containsExactly("bat", "mat");
+
+		runCompactions();
+		assertThat(closestMatches(trie, "cat")).containsExactly("bat", "mat");
+		assertThat(trie.nodeCounts()).isEqualTo(freshTrie(List.of("bat", "mat")).nodeCounts());
+	}
+
+	@Test
+	public void deletedWordCanBeAddedBack() {
+		var trie = new Trie(1, manualExecutor);
+		trie.loadWords(List.of("bat", "cat"));
+		trie.deleteWord("cat");
+
+		trie.addWord("cat");
+		assertThat(trie.contains("cat")).isTrue();
+		assertThat(closestMatches(trie, "cot")).containsExactly("cat", "bat");
+
+		trie.deleteWord("cat");
+		assertThat(trie.addWords(List.of("bat", "cat", "rat"))).containsExactly(entry("bat", false),
+				entry("cat", true), entry("rat", true));
+		assertThat(closestMatches(trie, "cot")).containsExactly("cat", "bat", "rat");
+		assertThat(trie.nodeCounts()).isEqualTo(freshTrie(List.of("bat", "cat", "rat")).nodeCounts());
+	}
+
+	@Test
+	public void changesMadeDuringCompactionAreApplied() {
+		var trie = new Trie(0.3, manualExecutor);
+		trie.loadWords(List.of("ant", "bat", "cat", "dog", "eel", "fox"));
+		assertThat(trie.deleteWords(List.of("ant", "bat"))).containsValues(true, true);
+		assertThat(compactions).hasSize(1);
+
+		// while the compaction is "running": re-add a word it removes, add a new word and delete another one
+		trie.addWord("ant");
+		trie.addWord("gnu");
+		trie.deleteWord("dog");
+		assertThat(compactions).hasSize(1);
+
+		compactions.poll().run();
+		assertThat(trie.contains("ant")).isTrue();
+		assertThat(trie.contains("bat")).isFalse();
+		assertThat(trie.contains("gnu")).isTrue();
+		assertThat(trie.contains("dog")).isFalse();
+		assertThat(closestMatches(trie, "bot")).doesNotContain("bat", "dog");
+		assertThat(closestMatches(trie, "gnat")).contains("gnu", "ant");
+
+		assertThat(compactions).isEmpty();
+		assertThat(completions(trie, "", 10)).containsExactly("ant", "cat", "eel", "fox", "gnu");
+		// "dog" is only marked as deleted, so its nodes are still there
+		assertThat(trie.nodeCounts()).isEqualTo(freshTrie(List.of("ant", "cat", "dog", "eel", "fox", "gnu"))
+				.nodeCounts());
+	}
+
+	@Test
+	public void compactionIsDroppedIfTheTrieIsReloaded() {
+		var trie = new Trie(0.1, manualExecutor);
+		trie.loadWords(List.of("bat", "cat"));
+		trie.deleteWord("cat");
+		assertThat(compactions).hasSize(1);
+
+		trie.loadWords(List.of("cat", "hat"));
+		runCompactions();
+		assertThat(completions(trie, "", 10)).containsExactly("cat", "hat");
+		assertThat(closestMatches(trie, "bat")).containsExactly("cat", "hat");
+	}
+
+	@Test
+	public void wordsAreOnlyMarkedAsDeletedOnceCompactionIsShutDown() {
+		var executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		var trie = new Trie(0.1, executor);
+		trie.loadWords(List.of("bat", "cat"));
+
+		assertThat(trie.deleteWord("cat")).isTrue();
+		assertThat(trie.contains("cat")).isFalse();
+		assertThat(closestMatches(trie, "cat")).containsExactly("bat");
+	}
+
+	/**
+	 * A word holding the wildcard character rarely gets past validation, but the Trie still indexes it the same way
+	 * whether it's loaded, added in a batch or added on its own, and deleting it leaves the other words where they are.
+	 */
+	@Test
+	public void wordWithWildcardIsIndexedTheSameWayByEveryPath() {
+		var words = List.of("a*c", "ab", "abc");
+		var loaded = freshTrie(words);
+		var added = new Trie(1, manualExecutor);
+		words.forEach(added::addWord);
+		var addedInBatch = new Trie(1, manualExecutor);
+		addedInBatch.addWords(words);
+
+		for (var trie : List.of(loaded, added, addedInBatch)) {
+			assertThat(trie.nodeCounts()).isEqualTo(loaded.nodeCounts());
+			assertThat(trie.contains("a*c")).isTrue();
+			assertThat(closestMatches(trie, "abd")).containsExactly("ab", "abc", "a*c");
+		}
+
+		var deleted = new Trie(0.1, manualExecutor);
+		deleted.loadWords(words);
+		deleted.deleteWord("abc");
+		deleted.deleteWords(List.of("a*c"));
+		assertThat(deleted.contains("a*c")).isFalse();
+		assertThat(closestMatches(deleted, "abd")).containsExactly("ab");
+		runCompactions();
+		assertThat(deleted.nodeCounts()).isEqualTo(freshTrie(List.of("ab")).nodeCounts());
+	}
+
+	/**
+	 * Applies random changes, running the compactions at random points in between, and checks the Trie against the
+	 * words it should hold (and against a Trie freshly built from them).
+	 */
+	@Test
+	public void randomChangesMatchAFreshTrie() {
+		var random = new Random(25);
+		for (var ratio : new double[] {0, 0.05, 0.3, 1.1}) {
+			for (int round = 0; round < 8; round++) {
+				var trie = new Trie(ratio, manualExecutor);
+				var expected = new TreeSet<String>();
+				for (int i = 0; i < 100; i++) {
+					expected.add(randomWord(random));
+				}
+				trie.loadWords(new ArrayList<>(expected));
+
+				for (int change = 0; change < 300; change++) {
+					var word = random.nextBoolean() ? randomWord(random) : anyWordAfter(expected, randomWord(random));
+					switch (random.nextInt(5)) {
+						case 0 -> {
+							trie.addWord(word);
+							expected.add(word);
+						}
+						case 1 -> assertThat(trie.deleteWord(word)).isEqualTo(expected.remove(word));
+						case 2 -> {
+							var batch = randomBatch(random, expected);
+							var outcomes = trie.addWords(batch);
+							batch.forEach(batchWord -> assertThat(outcomes.get(batchWord))
+									.isEqualTo(expected.add(batchWord)));
+						}
+						case 3 -> {
+							var batch = randomBatch(random, expected);
+							var outcomes = trie.deleteWords(batch);
+							batch.forEach(batchWord -> assertThat(outcomes.get(batchWord))
+									.isEqualTo(expected.remove(batchWord)));
+						}
+						default -> {
+							if (random.nextInt(3) == 0) {
+								runCompactions();
+							}
+						}
+					}
+					if (change % 20 == 0) {
+						assertMatches(trie, expected, random);
+					}
+				}
+				assertMatches(trie, expected, random);
+				runCompactions();
+				assertMatches(trie, expected, random);
+			}
+		}
+	}
+
+	/**
+	 * Searches concurrently with a writer, while a real background thread compacts the Trie. Words deleted before the
+	 * searches start must never be found, and words that are never changed must always be found.
+	 */
+	@Test
+	public void searchesNeverSeeCompactedWordsOrMissUnchangedOnes() throws Exception {
+		var executor = Executors.newSingleThreadExecutor();
+		try {
+			var trie = new Trie(0.05, executor);
+			var random = new Random(7);
+			var words = new TreeSet<String>();
+			while (words.size() < 400) {
+				words.add(randomWord(random));
+			}
+			var unchanged = new ArrayList<>(words).subList(0, 100);
+			var deleted = new ArrayList<>(words).subList(100, 200);
+			var churned = new ArrayList<>(words).subList(200, 400);
+			trie.loadWords(new ArrayList<>(words));
+			deleted.forEach(trie::deleteWord);
+
+			var isDone = new AtomicBoolean();
+			var failures = new ConcurrentLinkedQueue<String>();
+			var searcher = new Thread(() -> {
+				var searchRandom = new Random(8);
+				while (!isDone.get()) {
+					var word = unchanged.get(searchRandom.nextInt(unchanged.size()));
+					var matches = closestMatches(trie, word);
+					if (!matches.contains(word)) {
+						failures.add("missed " + word);
+					}
+					deleted.stream().filter(matches::contains).forEach(match -> failures.add("found " + match));
+				}
+			});
+			searcher.start();
+			for (int i = 0; i < 5000; i++) {
+				var word = churned.get(random.nextInt(churned.size()));
+				if (random.nextBoolean()) {
+					trie.addWord(word);
+				} else {
+					trie.deleteWord(word);
+				}
+			}
+			isDone.set(true);
+			searcher.join();
+			assertThat(failures).isEmpty();
+		} finally {
+			executor.shutdown();
+			assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+
+	private void runCompactions() {
+		while (!compactions.isEmpty()) {
+			compactions.poll().run();
+		}
+	}
+
+	private void assertMatches(Trie trie, TreeSet<String> expected, Random random) {
+		var fresh = freshTrie(new ArrayList<>(expected));
+		for (int i = 0; i < 10; i++) {
+			var word = randomWord(random);
+			assertThat(trie.contains(word)).as(word).isEqualTo(expected.contains(word));
+			assertThat(closestMatches(trie, word)).as(word).isEqualTo(closestMatches(fresh, word));
+			var prefix = word.substring(0, 1);
+			assertThat(completions(trie, prefix, 5)).as(prefix).isEqualTo(completions(fresh, prefix, 5));
+		}
+	}
+
+	private Trie freshTrie(List<String> sortedWords) {
+		var trie = new Trie(1, manualExecutor);
+		trie.loadWords(sortedWords);
+		return trie;
+	}
+
+	private static List<String> closestMatches(Trie trie, String word) {
+		var matches = new MatchCollector(1000, match -> 0);
+		trie.findClosestMatches(word, matches);
+		return matches.getMatches();
+	}
+
+	private static List<String> completions(Trie trie, String prefix, int k) {
+		var completions = new CompletionCollector(k, word -> 0, 0);
+		trie.completionsOf(prefix, completions);
+		return completions.getCompletions();
+	}
+
+	private static String randomWord(Random random) {
+		var word = new StringBuilder();
+		for (int i = random.nextInt(5); i >= 0; i--) {
+			word.append((char) ('a' + random.nextInt(5)));
+		}
+		return word.toString();
+	}
+
+	private static String anyWordAfter(TreeSet<String> words, String word) {
+		var after = words.ceiling(word);
+		return after == null ? word : after;
+	}
+
+	private static List<String> randomBatch(Random random, TreeSet<String> words) {
+		var batch = new TreeSet<String>();
+		for (int i = random.nextInt(10); i >= 0; i--) {
+			batch.add(random.nextBoolean() ? randomWord(random) : anyWordAfter(words, randomWord(random)));
+		}
+		return new ArrayList<>(batch);
+	}
+}
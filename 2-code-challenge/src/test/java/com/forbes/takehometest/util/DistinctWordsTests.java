@@ -0,0 +1,83 @@
+package com.forbes.takehometest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Set;
+
+import static com.forbes.takehometest.util.RandomText.escape;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that words are numbered as if each was lower-cased with {@link String#toLowerCase()} and collected into a
+ * map, in the default locale and in one where 'I' lower-cases differently, and that known words are checked once
+ * without being copied.
+ */
+public class DistinctWordsTests {
+	@Test
+	public void matchesToLowerCase() {
+		assertMatchesToLowerCase(18);
+	}
+
+	@Test
+	public void matchesToLowerCaseInTurkishLocale() {
+		var defaultLocale = Locale.getDefault();
+		Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+		try {
+			var words = new DistinctWords();
+			words.indexOf("KILIM", 0, 5);
+			words.indexOf("k\u0131l\u0131m", 0, 5);
+			words.indexOf("kilim", 0, 5);
+			words.indexOf("\u0130", 0, 1);
+			assertThat(words.asList()).containsExactly("k\u0131l\u0131m", "kilim", "i");
+			assertMatchesToLowerCase(19);
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	@Test
+	public void knownWordsAreCheckedThroughViews() {
+		var known = Set.of("cat", "d\u00e9j\u00e0");
+		var checkedWords = new ArrayList<String>();
+		var words = new DistinctWords(word -> {
+			// ASCII words are only read through a view
+			checkedWords.add((word instanceof String ? "String " : "view ") + word);
+			return known.contains(word.toString());
+		});
+		var text = "The CAT and the Cat D\u00c9J\u00c0 d\u00e9j\u00e0";
+		assertThat(words.indexOf(text, 0, 3)).isEqualTo(0);
+		assertThat(words.indexOf(text, 4, 7)).isEqualTo(1);
+		assertThat(words.indexOf(text, 8, 11)).isEqualTo(2);
+		assertThat(words.indexOf(text, 12, 15)).isEqualTo(0);
+		assertThat(words.indexOf(text, 16, 19)).isEqualTo(1);
+		assertThat(words.indexOf(text, 20, 24)).isEqualTo(3);
+		assertThat(words.indexOf(text, 25, 29)).isEqualTo(3);
+
+		assertThat(words.asList()).containsExactly("the", null, "and", null);
+		assertThat(checkedWords).containsExactly("view the", "view cat", "view and", "String d\u00e9j\u00e0");
+	}
+
+	private static void assertMatchesToLowerCase(long seed) {
+		var text = new RandomText(seed);
+		for (int round = 0; round < 2_000; round++) {
+			// known words are numbered like the others
+			var words = new DistinctWords(word -> word.length() == 2);
+			var expected = new LinkedHashMap<String, Integer>();
+			for (int i = 0; i < 50; i++) {
+				// short words, so that the same words come up again in different cases
+				var story = text.next(6);
+				var start = text.nextInt(story.length() + 1);
+				var end = start + text.nextInt(Math.min(3, story.length() - start) + 1);
+				var word = story.substring(start, end).toLowerCase();
+				expected.putIfAbsent(word, expected.size());
+				assertThat(words.indexOf(story, start, end)).as(escape(word)).isEqualTo(expected.get(word));
+			}
+			assertThat(words.size()).isEqualTo(expected.size());
+			assertThat(words.asList()).containsExactlyElementsOf(expected.keySet().stream()
+					.map(word -> word.length() == 2 ? null : word).toList());
+		}
+	}
+}
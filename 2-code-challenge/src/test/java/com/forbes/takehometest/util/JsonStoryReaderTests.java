@@ -0,0 +1,81 @@
+package com.forbes.takehometest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JsonStoryReaderTests {
+	@Test
+	public void readsStoryAndDecodesEscapes() throws IOException {
+		var json = "{\"story\": \"The \\\"cat\\\" sat\\non the \\u00e9mat\\\\\"}";
+
+		assertThat(readStory(json)).isEqualTo("The \"cat\" sat\non the \u00e9mat\\");
+	}
+
+	@Test
+	public void skipsFieldsBeforeStoryAndIgnoresTheRest() throws IOException {
+		var json = "{\"title\": \"A \\\"story\\\"\", \"tags\": [{\"a\": [1, 2]}, \"}\"], \"draft\": true, "
+				+ "\"story\": \"teh cat\", this isn't read";
+
+		assertThat(readStory(json)).isEqualTo("teh cat");
+	}
+
+	@Test
+	public void rejectsBodyThatIsInvalidBeforeTheStory() {
+		assertThatThrownBy(() -> JsonStoryReader.open(new StringReader("[\"story\"]")))
+				.isInstanceOf(JsonStoryReader.InvalidStoryException.class).hasMessage("Expected '{' but found '['");
+		assertThatThrownBy(() -> JsonStoryReader.open(new StringReader("{\"title\": \"x\" \"story\": \"teh\"}")))
+				.isInstanceOf(JsonStoryReader.InvalidStoryException.class)
+				.hasMessage("Expected ',' or '}' but found '\"'");
+		assertThatThrownBy(() -> JsonStoryReader.open(new StringReader("{\"title\": \"x\"}")))
+				.isInstanceOf(JsonStoryReader.InvalidStoryException.class).hasMessage("Request body has no story");
+		assertThatThrownBy(() -> JsonStoryReader.open(new StringReader("{\"story\": 12}")))
+				.isInstanceOf(JsonStoryReader.InvalidStoryException.class).hasMessage("Expected '\"' but found '1'");
+		assertThatThrownBy(() -> JsonStoryReader.open(new StringReader("{\"sto")))
+				.isInstanceOf(JsonStoryReader.InvalidStoryException.class)
+				.hasMessage("Unexpected end of request body");
+	}
+
+	/**
+	 * Once the story has started, errors are only found as the story is read. The characters before an error are still
+	 * returned (whether they're read one at a time or into a buffer), and the next read throws.
+	 */
+	@Test
+	public void failsWhileReadingStoryThatIsCutShortOrMalformed() throws IOException {
+		assertReadFails("{\"story\": \"teh cat sat", "teh cat sat", "Unexpected end of request body");
+		assertReadFails("{\"story\": \"teh cat \\q sat\"}", "teh cat ", "Invalid escape '\\q'");
+		assertReadFails("{\"story\": \"teh \\u00zz\"}", "teh ", "Invalid unicode escape");
+		assertReadFails("{\"story\": \"teh \\", "teh ", "Unexpected end of request body");
+	}
+
+	private static String readStory(String json) throws IOException {
+		try (var story = JsonStoryReader.open(new StringReader(json))) {
+			var out = new StringWriter();
+			story.transferTo(out);
+			return out.toString();
+		}
+	}
+
+	private static void assertReadFails(String json, String readBeforeError, String error) throws IOException {
+		for (var bufferSize : new int[] {1, 1024}) {
+			var story = JsonStoryReader.open(new StringReader(json));
+			var read = new StringBuilder();
+			assertThatThrownBy(() -> readAll(story, bufferSize, read))
+					.isInstanceOf(JsonStoryReader.InvalidStoryException.class).hasMessage(error);
+			assertThat(read).hasToString(readBeforeError);
+		}
+	}
+
+	private static void readAll(Reader story, int bufferSize, StringBuilder read) throws IOException {
+		var buffer = new char[bufferSize];
+		for (var count = story.read(buffer); count != -1; count = story.read(buffer)) {
+			read.append(buffer, 0, count);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.forbes.takehometest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random text made of the characters that the word scanners treat specially: letters, digits, ASCII
+ * punctuation, whitespace and control characters, the line terminators that regexes treat differently (U+0085, U+2028,
+ * U+2029), paired and lone surrogates, and letters whose case changes differently by locale (like 'I' and U+0130).
+ *
+ * It also edits texts at random, to check what is computed for a revision of a text against what is computed for it
+ * from scratch.
+ */
+public class RandomText {
+	private static final String CHARACTERS = "abcxyzABCXYZ09'-.,!?\"()[]{}@#*_~/\\`^ \t\n\r\f\u000B\u0000\u0001"
+			+ "\u001F\u007F\u0085\u00A0\u2028\u2029\u3000Ii\u0130\u0131\u00DF\u03C2\u00C9\u00E9\uD83D\uDE00";
+	private static final String WHITESPACE = " \t\n\r\f\u000B";
+	private static final String CONTROL_CHARACTERS = "\u0000\u0001\u001F ";
+
+	private final Random random;
+
+	public RandomText(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Returns a random text of up to maxLength characters.
+	 */
+	public String next(int maxLength) {
+		var text = new StringBuilder();
+		for (int i = random.nextInt(maxLength + 1); i > 0; i--) {
+			text.append(random.nextInt(4) == 0 ? "cat" : CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+		}
+		return text.toString();
+	}
+
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	/**
+	 * Returns the text with one random edit: up to maxLength characters inserted, deleted or replaced. The edit is
+	 * often at the edge of a word or at either end of the text, and what it inserts is often only whitespace, or only
+	 * control characters (which are trimmed at the ends of a story, but are part of a word elsewhere).
+	 */
+	public String edit(String text, int maxLength) {
+		var start = switch (random.nextInt(3)) {
+			case 0 -> random.nextInt(text.length() + 1);
+			case 1 -> random.nextBoolean() ? 0 : text.length();
+			default -> wordEdge(text);
+		};
+		var end = random.nextInt(3) == 0 ? start : Math.min(text.length(), start + random.nextInt(maxLength + 1));
+		var inserted = switch (random.nextInt(4)) {
+			case 0 -> "";
+			case 1 -> next(WHITESPACE, maxLength);
+			case 2 -> next(CONTROL_CHARACTERS, maxLength);
+			default -> next(maxLength);
+		};
+		return text.substring(0, start) + inserted + text.substring(end);
+	}
+
+	/**
+	 * Returns a random position where a word starts or ends, counting control characters as whitespace.
+	 */
+	private int wordEdge(String text) {
+		var edges = new ArrayList<>(List.of(0, text.length()));
+		for (int i = 1; i < text.length(); i++) {
+			if ((text.charAt(i - 1) <= ' ') != (text.charAt(i) <= ' ')) {
+				edges.add(i);
+			}
+		}
+		return edges.get(random.nextInt(edges.size()));
+	}
+
+	private String next(String characters, int maxLength) {
+		var text = new StringBuilder();
+		for (int i = 1 + random.nextInt(maxLength); i > 0; i--) {
+			text.append(characters.charAt(random.nextInt(characters.length())));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns the text with every character outside of printable ASCII escaped, for assertion messages.
+	 */
+	public static String escape(String text) {
+		var escaped = new StringBuilder();
+		for (var c : text.toCharArray()) {
+			escaped.append(c >= ' ' && c < 0x7F ? String.valueOf(c) : String.format("\\u%04X", (int) c));
+		}
+		return escaped.toString();
+	}
+}
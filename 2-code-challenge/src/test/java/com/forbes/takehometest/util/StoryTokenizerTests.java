@@ -0,0 +1,125 @@
+package com.forbes.takehometest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.forbes.takehometest.util.RandomText.escape;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that stories are split into the same words as `story.trim().split("\\s+")`, which the tokenizer replaced, and
+ * that revised stories are split into the same words as they are from scratch.
+ */
+public class StoryTokenizerTests {
+	@Test
+	public void wordBoundsMatchSplit() {
+		var text = new RandomText(15);
+		for (int i = 0; i < 100_000; i++) {
+			var story = text.next(30);
+			assertThat(words(story, StoryTokenizer.wordBounds(story))).as(escape(story))
+					.isEqualTo(Arrays.asList(story.trim().split("\\s+")));
+		}
+	}
+
+	/**
+	 * Revises stories through random edits, each revision starting from the bounds revised for the previous one, and
+	 * checks that every revision is split into the same words as from scratch, whichever words are kept.
+	 */
+	@Test
+	public void reviseWordBoundsMatchesWordBounds() {
+		var text = new RandomText(18);
+		var numKeptWords = 0;
+		for (int i = 0; i < 20_000; i++) {
+			var story = text.next(30);
+			var bounds = StoryTokenizer.wordBounds(story);
+			for (int revision = 0; revision < 5; revision++) {
+				var revisedStory = text.edit(story, 4);
+				var revised = StoryTokenizer.reviseWordBounds(revisedStory, story, bounds);
+				assertThat(revised.bounds()).as("'%s' revised to '%s'", escape(story), escape(revisedStory))
+						.isEqualTo(StoryTokenizer.wordBounds(revisedStory));
+				assertThat(revised.numLeadingWords() + revised.numTrailingWords())
+						.isLessThanOrEqualTo(revised.bounds().length / 2);
+				numKeptWords += revised.numLeadingWords() + revised.numTrailingWords();
+				story = revisedStory;
+				bounds = revised.bounds();
+			}
+		}
+		assertThat(numKeptWords).isPositive();
+	}
+
+	/**
+	 * The streaming tokenizer skips a story that's empty after trimming (rather than returning one empty word) and
+	 * words longer than the maximum length, but otherwise returns the same words, however the story is split into
+	 * reads.
+	 */
+	@Test
+	public void nextWordMatchesSplit() throws IOException {
+		var text = new RandomText(16);
+		for (int i = 0; i < 50_000; i++) {
+			var story = text.next(30);
+			var maxWordLength = 1 + text.nextInt(8);
+			var expected = Arrays.stream(story.trim().split("\\s+"))
+					.filter(word -> !word.isEmpty() && word.length() <= maxWordLength).toList();
+			var readSize = 1 + text.nextInt(4);
+			assertThat(nextWords(new ChunkedReader(story, readSize), maxWordLength)).as(escape(story))
+					.isEqualTo(expected);
+		}
+	}
+
+	/**
+	 * Stories larger than the tokenizer's buffer, so that words and runs of trimmed characters span refills.
+	 */
+	@Test
+	public void nextWordMatchesSplitOnLongStories() throws IOException {
+		var text = new RandomText(17);
+		for (int i = 0; i < 20; i++) {
+			var story = new StringBuilder();
+			while (story.length() < 20_000) {
+				story.append(text.next(30));
+			}
+			var expected = Arrays.stream(story.toString().trim().split("\\s+"))
+					.filter(word -> !word.isEmpty() && word.length() <= 50).toList();
+			assertThat(nextWords(new StringReader(story.toString()), 50)).isEqualTo(expected);
+		}
+	}
+
+	static List<String> words(String story, int[] bounds) {
+		var words = new ArrayList<String>();
+		for (int i = 0; i < bounds.length; i += 2) {
+			words.add(story.substring(bounds[i], bounds[i + 1]));
+		}
+		return words;
+	}
+
+	private static List<String> nextWords(Reader story, int maxWordLength) throws IOException {
+		var tokenizer = new StoryTokenizer(story, maxWordLength);
+		var words = new ArrayList<String>();
+		for (var word = tokenizer.nextWord(); word != null; word = tokenizer.nextWord()) {
+			words.add(word);
+		}
+		return words;
+	}
+
+	/**
+	 * Returns at most readSize characters per read.
+	 */
+	private static class ChunkedReader extends StringReader {
+		private final int readSize;
+
+		ChunkedReader(String text, int readSize) {
+			super(text);
+			this.readSize = readSize;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return super.read(cbuf, off, Math.min(len, readSize));
+		}
+	}
+}
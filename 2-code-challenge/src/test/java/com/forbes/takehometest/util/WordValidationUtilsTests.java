@@ -0,0 +1,67 @@
+package com.forbes.takehometest.util;
+
+import org.junit.jupiter.api.Test;
+
+import static com.forbes.takehometest.util.RandomText.escape;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the hand-written checks against the regexes they replaced (see {@link WordValidationUtils}).
+ */
+public class WordValidationUtilsTests {
+	@Test
+	public void isValidDictionaryWordMatchesRegex() {
+		var text = new RandomText(12);
+		for (int i = 0; i < 200_000; i++) {
+			var word = text.next(10);
+			assertThat(WordValidationUtils.isValidDictionaryWord(word)).as(escape(word))
+					.isEqualTo(!word.matches(".*[^A-Za-z'-].*"));
+		}
+	}
+
+	@Test
+	public void isValidDictionaryWordMatchesRegexOnLineTerminators() {
+		for (var terminator : new String[] {"\n", "\r", "\u0085", "\u2028", "\u2029"}) {
+			for (var word : new String[] {"ab" + terminator, terminator + "ab", "a" + terminator + "b" + terminator,
+					terminator + terminator, "a1" + terminator + terminator, "a\r\n", "a1\r\n"}) {
+				assertThat(WordValidationUtils.isValidDictionaryWord(word)).as(escape(word))
+						.isEqualTo(!word.matches(".*[^A-Za-z'-].*"));
+			}
+		}
+		// `.` can't span two line terminators, so the regex finds no invalid character
+		assertThat(WordValidationUtils.isValidDictionaryWord("a1\u2028\u2029")).isTrue();
+		assertThat(WordValidationUtils.isValidDictionaryWord("a1\u2028")).isFalse();
+	}
+
+	@Test
+	public void sanitizeWordMatchesRegexes() {
+		var text = new RandomText(13);
+		for (int i = 0; i < 200_000; i++) {
+			var word = text.next(10);
+			assertThat(WordValidationUtils.sanitizeWord(word)).as(escape(word))
+					.isEqualTo(word.trim().replaceAll("^\\p{Punct}*", "").replaceAll("[^A-Za-z0-9']*$", ""));
+		}
+	}
+
+	/**
+	 * The range versions (used on words inside a story) must give the same result as the String versions on the same
+	 * characters.
+	 */
+	@Test
+	public void rangeChecksMatchChecksOnSubstring() {
+		var text = new RandomText(14);
+		for (int i = 0; i < 50_000; i++) {
+			var story = text.next(20);
+			var start = text.nextInt(story.length() + 1);
+			var end = start + text.nextInt(story.length() - start + 1);
+			var word = story.substring(start, end);
+
+			assertThat(WordValidationUtils.isValidDictionaryWord(story, start, end)).as(escape(word))
+					.isEqualTo(WordValidationUtils.isValidDictionaryWord(word));
+			var sanitizedStart = WordValidationUtils.sanitizedStart(story, start, end);
+			var sanitizedEnd = WordValidationUtils.sanitizedEnd(story, sanitizedStart, end);
+			assertThat(story.substring(sanitizedStart, sanitizedEnd)).as(escape(word))
+					.isEqualTo(WordValidationUtils.sanitizeWord(word));
+		}
+	}
+}